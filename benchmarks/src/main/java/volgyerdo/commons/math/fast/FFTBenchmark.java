@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.fast;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import volgyerdo.commons.primitive.Complex;
+
+/**
+ * Complex FFT through the object API, the primitive API and plans, for
+ * power of two, smooth and prime lengths.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class FFTBenchmark {
+
+    @Param({"64", "1024", "1000", "1009", "16384", "262144"})
+    public int n;
+
+    private double[] re;
+    private double[] im;
+    private double[] workRe;
+    private double[] workIm;
+    private double[] interleaved;
+    private double[] out;
+    private Complex[] complex;
+    private FFTPlan plan;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        re = new double[n];
+        im = new double[n];
+        interleaved = new double[2 * n];
+        complex = new Complex[n];
+        for (int i = 0; i < n; i++) {
+            re[i] = random.nextDouble() * 2 - 1;
+            im[i] = random.nextDouble() * 2 - 1;
+            interleaved[2 * i] = re[i];
+            interleaved[2 * i + 1] = im[i];
+            complex[i] = new Complex(re[i], im[i]);
+        }
+        workRe = new double[n];
+        workIm = new double[n];
+        out = new double[2 * n];
+        plan = new FFTPlan(n, false);
+    }
+
+    @Benchmark
+    public Complex[] fftComplex() {
+        return FFT.fft(complex);
+    }
+
+    @Benchmark
+    public double[] fftInPlace() {
+        System.arraycopy(re, 0, workRe, 0, n);
+        System.arraycopy(im, 0, workIm, 0, n);
+        FFT.fft(workRe, workIm);
+        return workRe;
+    }
+
+    @Benchmark
+    public double[] fftPlan() {
+        plan.execute(interleaved, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] rfft() {
+        FFT.rfft(re, workRe, workIm);
+        return workRe;
+    }
+}
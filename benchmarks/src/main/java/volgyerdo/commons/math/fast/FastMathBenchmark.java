@@ -0,0 +1,314 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.fast;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FastMath against java.lang.Math, function by function. Every benchmark
+ * evaluates the function on the same 1024 arguments, taken from the range
+ * where the function is usually called.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FastMathBenchmark {
+
+    private static final int SIZE = 1024;
+
+    private double[] angles;
+    private double[] units;
+    private double[] exponents;
+    private double[] positives;
+    private double[] powers;
+    private float[] floatExponents;
+    private double[] result;
+    private float[] floatResult;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        angles = new double[SIZE];
+        units = new double[SIZE];
+        exponents = new double[SIZE];
+        positives = new double[SIZE];
+        powers = new double[SIZE];
+        floatExponents = new float[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            angles[i] = (random.nextDouble() * 2 - 1) * 10 * Math.PI;
+            units[i] = random.nextDouble() * 2 - 1;
+            exponents[i] = (random.nextDouble() * 2 - 1) * 20;
+            positives[i] = random.nextDouble() * 1000;
+            powers[i] = (random.nextDouble() * 2 - 1) * 4;
+            floatExponents[i] = (float) exponents[i];
+        }
+        result = new double[SIZE];
+        floatResult = new float[SIZE];
+    }
+
+    @Benchmark
+    public double sinFastMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += FastMath.sin(angles[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sinMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += Math.sin(angles[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double cosFastMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += FastMath.cos(angles[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double cosMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += Math.cos(angles[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double tanFastMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += FastMath.tan(angles[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double tanMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += Math.tan(angles[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double asinFastMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += FastMath.asin(units[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double asinMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += Math.asin(units[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double atanFastMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += FastMath.atan(exponents[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double atanMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += Math.atan(exponents[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double atan2FastMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += FastMath.atan2(units[i], exponents[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double atan2Math() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += Math.atan2(units[i], exponents[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double tanhFastMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += FastMath.tanh(units[i] * 4);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double tanhMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += Math.tanh(units[i] * 4);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double expFastMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += FastMath.exp(exponents[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double expMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += Math.exp(exponents[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double logFastMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += FastMath.log(positives[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double logMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += Math.log(positives[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sqrtFastMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += FastMath.sqrt(positives[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sqrtMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += Math.sqrt(positives[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double cbrtFastMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += FastMath.cbrt(positives[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double cbrtMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += Math.cbrt(positives[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double powFastMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += FastMath.pow(positives[i], powers[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double powMath() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += Math.pow(positives[i], powers[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double[] expArray() {
+        FastMath.exp(exponents, result, 0, SIZE);
+        return result;
+    }
+
+    @Benchmark
+    public float expfFastMath() {
+        float sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += FastMath.expf(floatExponents[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float[] expfArray() {
+        FastMath.exp(floatExponents, floatResult, 0, SIZE);
+        return floatResult;
+    }
+}
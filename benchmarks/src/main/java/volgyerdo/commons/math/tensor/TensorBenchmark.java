@@ -0,0 +1,260 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matrix multiplication, transposition, convolution and reductions of float
+ * tensors.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class TensorBenchmark {
+
+    static FloatTensor random(Random random, int... dimensions) {
+        FloatTensor tensor = new FloatTensor(dimensions);
+        tensor.fillWithFloat(() -> random.nextFloat() * 2 - 1);
+        return tensor;
+    }
+
+    @State(Scope.Thread)
+    public static class Matrices {
+
+        @Param({"64", "256", "1024"})
+        public int size;
+
+        FloatTensor a;
+        FloatTensor b;
+        QuantizedTensor qa;
+        QuantizedTensor qb;
+
+        @Setup
+        public void setup() {
+            Random random = new Random(42);
+            a = random(random, size, size);
+            b = random(random, size, size);
+            qa = QuantizedTensor.quantize(a);
+            qb = QuantizedTensor.quantize(b, 1);
+        }
+    }
+
+    // the broadcast additions change their target, which is reset for
+    // every iteration so that the other benchmarks get unchanged matrices
+    @State(Scope.Thread)
+    public static class Broadcasts {
+
+        @Param({"64", "256", "1024"})
+        public int size;
+
+        FloatTensor source;
+        FloatTensor target;
+        FloatTensor row;
+        FloatTensor column;
+
+        @Setup
+        public void setup() {
+            Random random = new Random(42);
+            source = random(random, size, size);
+            row = random(random, size);
+            column = random(random, size, 1);
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            target = (FloatTensor) source.copy();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Images {
+
+        @Param({"256", "1024"})
+        public int size;
+
+        @Param({"3", "9", "31"})
+        public int kernelSize;
+
+        FloatTensor image;
+        FloatTensor kernel;
+        FloatTensor gaussian;
+        Convolution blur;
+
+        @Setup
+        public void setup() {
+            Random random = new Random(42);
+            image = random(random, size, size);
+            kernel = random(random, kernelSize, kernelSize);
+            gaussian = new FloatTensor(kernelSize, kernelSize);
+            double sigma = kernelSize / 6.0;
+            for (int j = 0; j < kernelSize; j++) {
+                for (int i = 0; i < kernelSize; i++) {
+                    double x = i - kernelSize / 2;
+                    double y = j - kernelSize / 2;
+                    gaussian.values[i + kernelSize * j]
+                            = (float) Math.exp(-(x * x + y * y) / (2 * sigma * sigma));
+                }
+            }
+            blur = new Convolution(gaussian);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Features {
+
+        @Param({"32", "64"})
+        public int size;
+
+        @Param({"16", "64"})
+        public int channels;
+
+        FloatTensor source;
+        Convolution convolution;
+
+        @Setup
+        public void setup() {
+            Random random = new Random(42);
+            source = random(random, size, size, channels);
+            convolution = new Convolution(random(random, 3, 3, channels, channels), true);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Vectors {
+
+        @Param({"65536", "16777216"})
+        public int size;
+
+        @Param({"false", "true"})
+        public boolean parallel;
+
+        FloatTensor vector;
+
+        @Setup
+        public void setup() {
+            vector = random(new Random(42), size);
+            vector.setExecutor(parallel ? TensorExecutor.parallel() : TensorExecutor.SEQUENTIAL);
+        }
+    }
+
+    @Benchmark
+    public Tensor multiply(Matrices state) {
+        return state.a.multiply(state.b, 1);
+    }
+
+    @Benchmark
+    public Tensor quantizedMultiply(Matrices state) {
+        return state.qa.multiply(state.qb, 1);
+    }
+
+    @Benchmark
+    public Tensor transpose(Matrices state) {
+        return state.a.transpose();
+    }
+
+    @Benchmark
+    public Tensor sumRows(Matrices state) {
+        return state.a.sum(1);
+    }
+
+    @Benchmark
+    public Tensor sumColumns(Matrices state) {
+        return state.a.sum(0);
+    }
+
+    @Benchmark
+    public Tensor argmax(Matrices state) {
+        return state.a.argmax(0);
+    }
+
+    @Benchmark
+    public Tensor addRow(Broadcasts state) {
+        state.target.add(state.row);
+        return state.target;
+    }
+
+    @Benchmark
+    public Tensor addColumn(Broadcasts state) {
+        state.target.add(state.column);
+        return state.target;
+    }
+
+    @Benchmark
+    public Tensor convolve(Images state) {
+        return state.image.convolve(state.kernel);
+    }
+
+    @Benchmark
+    public Tensor blurDirect(Images state) {
+        return state.image.convolve(state.gaussian);
+    }
+
+    @Benchmark
+    public Tensor blurSeparable(Images state) {
+        return state.blur.apply(state.image);
+    }
+
+    @Benchmark
+    public Tensor convolveChannels(Features state) {
+        return state.convolution.apply(state.source);
+    }
+
+    @Benchmark
+    public float separateReductions(Vectors state) {
+        FloatTensor vector = state.vector;
+        return vector.floatMin() + vector.floatMax() + vector.floatSum() + vector.floatAverage();
+    }
+
+    @Benchmark
+    public Tensor separatePasses(Vectors state) {
+        FloatTensor vector = state.vector;
+        vector.multiply(0.99f);
+        vector.add(0.01f);
+        vector.abs();
+        vector.processFloat(x -> Math.min(x, 1f));
+        return vector;
+    }
+
+    @Benchmark
+    public Tensor fusedPass(Vectors state) {
+        TensorExpression.of(state.vector).multiply(0.99f).add(0.01f).abs()
+                .processFloat(x -> Math.min(x, 1f)).apply();
+        return state.vector;
+    }
+
+    @Benchmark
+    public TensorStats stats(Vectors state) {
+        return state.vector.stats();
+    }
+}
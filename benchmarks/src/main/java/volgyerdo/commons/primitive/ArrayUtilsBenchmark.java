@@ -0,0 +1,88 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.primitive;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization of primitive arrays and GZIP compression.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ArrayUtilsBenchmark {
+
+    @Param({"1024", "1048576"})
+    public int size;
+
+    private short[] shorts;
+    private float[] floats;
+    private double[] doubles;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        shorts = new short[size];
+        floats = new float[size];
+        doubles = new double[size];
+        bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            shorts[i] = (short) random.nextInt();
+            floats[i] = random.nextFloat();
+            doubles[i] = random.nextDouble();
+            // compressible, like most real payloads
+            bytes[i] = (byte) (random.nextInt(16) + i / 64);
+        }
+    }
+
+    @Benchmark
+    public byte[] shortsToByteArray() {
+        return ArrayUtils.toByteArray(shorts);
+    }
+
+    @Benchmark
+    public byte[] floatsToByteArray() {
+        return ArrayUtils.toByteArray(floats);
+    }
+
+    @Benchmark
+    public byte[] doublesToByteArray() {
+        return ArrayUtils.toByteArray(doubles);
+    }
+
+    @Benchmark
+    public byte[] toGZIP() {
+        return ArrayUtils.toGZIP(bytes);
+    }
+}
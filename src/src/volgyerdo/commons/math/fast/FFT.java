@@ -1,5 +1,10 @@
 package volgyerdo.commons.math.fast;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import volgyerdo.commons.primitive.Complex;
 
 /*
@@ -23,11 +28,10 @@ import volgyerdo.commons.primitive.Complex;
  * Reference:
  * https://www.cs.princeton.edu/~wayne/kleinberg-tardos/pdf/05DivideAndConquerII.pdf
  *
- * Limitations ----------- - assumes n is a power of 2
- *
- * - not the most memory efficient algorithm (because it uses an object type for
- * representing complex numbers and because it re-allocates memory for the
- * subarray, instead of doing in-place or reusing a single temporary array)
+ * The Complex[] entry points convert to the primitive double[] re, im
+ * transforms, which work in place for any length: radix 2/4 for powers of 2,
+ * mixed radix 2, 3, 4, 5, 7 for other lengths with small prime factors and
+ * Bluestein's chirp-z algorithm otherwise.
  *
  * For an in-place radix 2 Cooley-Tukey FFT, see
  * https://introcs.cs.princeton.edu/java/97data/InplaceFFT.java.html
@@ -52,43 +56,17 @@ public class FFT {
         return fft(toComplex(x));
     }
 
-    // compute the FFT of x[], assuming its length n is a power of 2
+    // compute the FFT of x[]
     public static Complex[] fft(Complex[] x) {
         int n = x.length;
-
-        // base case
-        if (n == 1) {
-            return new Complex[]{x[0]};
-        }
-
-        // radix 2 Cooley-Tukey FFT
-        if (n % 2 != 0) {
-            throw new IllegalArgumentException("n is not a power of 2");
-        }
-
-        // compute FFT of even terms
-        Complex[] even = new Complex[n / 2];
-        for (int k = 0; k < n / 2; k++) {
-            even[k] = x[2 * k];
-        }
-        Complex[] evenFFT = fft(even);
-
-        // compute FFT of odd terms
-        Complex[] odd = even;  // reuse the array (to avoid n log n space)
-        for (int k = 0; k < n / 2; k++) {
-            odd[k] = x[2 * k + 1];
-        }
-        Complex[] oddFFT = fft(odd);
-
-        // combine
-        Complex[] y = new Complex[n];
-        for (int k = 0; k < n / 2; k++) {
-            double kth = -2 * k * Math.PI / n;
-            Complex wk = new Complex(Math.cos(kth), Math.sin(kth));
-            y[k] = evenFFT[k].plus(wk.times(oddFFT[k]));
-            y[k + n / 2] = evenFFT[k].minus(wk.times(oddFFT[k]));
+        double[] re = new double[n];
+        double[] im = new double[n];
+        for (int i = 0; i < n; i++) {
+            re[i] = x[i].re();
+            im[i] = x[i].im();
         }
-        return y;
+        fft(re, im);
+        return toComplex(re, im);
     }
 
     public static Complex[] ifft(byte[] x) {
@@ -107,79 +85,665 @@ public class FFT {
         return ifft(toComplex(x));
     }
 
-    // compute the inverse FFT of x[], assuming its length n is a power of 2
+    // compute the inverse FFT of x[]
     public static Complex[] ifft(Complex[] x) {
         int n = x.length;
-        Complex[] y = new Complex[n];
-
-        // take conjugate
+        double[] re = new double[n];
+        double[] im = new double[n];
         for (int i = 0; i < n; i++) {
-            y[i] = x[i].conjugate();
+            re[i] = x[i].re();
+            im[i] = x[i].im();
         }
+        ifft(re, im);
+        return toComplex(re, im);
+    }
 
-        // compute forward FFT
-        y = fft(y);
+    // compute the circular convolution of x and y
+    public static Complex[] cconvolve(Complex[] x, Complex[] y) {
 
-        // take conjugate again
-        for (int i = 0; i < n; i++) {
-            y[i] = y[i].conjugate();
+        // should probably pad x and y with 0s so that they have same length
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("Dimensions don't agree");
         }
+        return cconvolve(x, y, x.length);
+    }
 
-        // divide by n
-        for (int i = 0; i < n; i++) {
-            y[i] = y[i].scale(1.0 / n);
+    // compute the linear convolution of x and y (2n values, the last one is 0)
+    public static Complex[] convolve(Complex[] x, Complex[] y) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("Dimensions don't agree");
+        }
+        if (x.length == 0) {
+            return new Complex[0];
+        }
+        // the linear convolution has 2n - 1 values, so any fast length
+        // from there on avoids the wrap-around
+        Complex[] c = cconvolve(x, y, fastLength(2 * x.length - 1));
+        Complex[] result = Arrays.copyOf(c, 2 * x.length);
+        for (int i = c.length; i < result.length; i++) {
+            result[i] = new Complex(0, 0);
         }
+        return result;
+    }
 
-        return y;
+    // circular convolution of x and y zero padded to length n
+    private static Complex[] cconvolve(Complex[] x, Complex[] y, int n) {
+        FFTPlan forward = FFTPlan.get(n, false);
+        double[] ar = new double[n];
+        double[] ai = new double[n];
+        double[] br = new double[n];
+        double[] bi = new double[n];
+        for (int i = 0; i < x.length; i++) {
+            ar[i] = x[i].re();
+            ai[i] = x[i].im();
+        }
+        for (int i = 0; i < y.length; i++) {
+            br[i] = y[i].re();
+            bi[i] = y[i].im();
+        }
+        forward.executeInPlace(ar, ai);
+        forward.executeInPlace(br, bi);
+        for (int i = 0; i < n; i++) {
+            double r = ar[i] * br[i] - ai[i] * bi[i];
+            ai[i] = ar[i] * bi[i] + ai[i] * br[i];
+            ar[i] = r;
+        }
+        FFTPlan.get(n, true).executeInPlace(ar, ai);
+        return toComplex(ar, ai);
+    }
 
+    // compute the in-place FFT of (re, im) for any length n
+    public static void fft(double[] re, double[] im) {
+        checkLength(re, im);
+        transform(re, im, re.length, false);
     }
 
-    // compute the circular convolution of x and y
-    public static Complex[] cconvolve(Complex[] x, Complex[] y) {
+    // compute the in-place inverse FFT of (re, im) for any length n
+    public static void ifft(double[] re, double[] im) {
+        checkLength(re, im);
+        int n = re.length;
+        transform(re, im, n, true);
+        scale(re, im, n, 1.0 / n);
+    }
 
-        // should probably pad x and y with 0s so that they have same length
-        // and are powers of 2
-        if (x.length != y.length) {
+    // compute the first n / 2 + 1 bins of the FFT of the real sequence x[]
+    // (the other bins are conjugates)
+    public static void rfft(double[] x, double[] re, double[] im) {
+        int n = x.length;
+        int m = n / 2;
+        if (n == 0) {
+            throw new IllegalArgumentException("n is zero");
+        }
+        if (re.length < m + 1 || im.length < m + 1) {
             throw new IllegalArgumentException("Dimensions don't agree");
         }
+        if (n % 2 != 0) {
+            double[] fullRe = x.clone();
+            double[] fullIm = new double[n];
+            transform(fullRe, fullIm, n, false);
+            System.arraycopy(fullRe, 0, re, 0, m + 1);
+            System.arraycopy(fullIm, 0, im, 0, m + 1);
+            return;
+        }
+        // pack even and odd samples into one complex sequence of length n / 2
+        for (int k = 0; k < m; k++) {
+            re[k] = x[2 * k];
+            im[k] = x[2 * k + 1];
+        }
+        transform(re, im, m, false);
+        Table table = table(n);
+        double r0 = re[0];
+        double i0 = im[0];
+        re[0] = r0 + i0;
+        im[0] = 0;
+        re[m] = r0 - i0;
+        im[m] = 0;
+        for (int k = 1; k <= m / 2; k++) {
+            int j = m - k;
+            double er = (re[k] + re[j]) / 2;
+            double ei = (im[k] - im[j]) / 2;
+            double or = (im[k] + im[j]) / 2;
+            double oi = (re[j] - re[k]) / 2;
+            double wr = table.cos[k];
+            double wi = table.sin[k];
+            double tr = wr * or - wi * oi;
+            double ti = wr * oi + wi * or;
+            re[k] = er + tr;
+            im[k] = ei + ti;
+            re[j] = er - tr;
+            im[j] = ti - ei;
+        }
+    }
 
+    // compute the real sequence x[] from the first n / 2 + 1 bins of its FFT;
+    // re[] and im[] are overwritten
+    public static void irfft(double[] re, double[] im, double[] x) {
         int n = x.length;
+        int m = n / 2;
+        if (n == 0) {
+            throw new IllegalArgumentException("n is zero");
+        }
+        if (re.length < m + 1 || im.length < m + 1) {
+            throw new IllegalArgumentException("Dimensions don't agree");
+        }
+        if (n % 2 != 0) {
+            double[] fullRe = new double[n];
+            double[] fullIm = new double[n];
+            for (int k = 0; k <= m; k++) {
+                fullRe[k] = re[k];
+                fullIm[k] = im[k];
+                if (k > 0) {
+                    fullRe[n - k] = re[k];
+                    fullIm[n - k] = -im[k];
+                }
+            }
+            transform(fullRe, fullIm, n, true);
+            for (int k = 0; k < n; k++) {
+                x[k] = fullRe[k] / n;
+            }
+            return;
+        }
+        Table table = table(n);
+        double r0 = re[0];
+        double rm = re[m];
+        re[0] = (r0 + rm) / 2;
+        im[0] = (r0 - rm) / 2;
+        for (int k = 1; k <= m / 2; k++) {
+            int j = m - k;
+            double er = (re[k] + re[j]) / 2;
+            double ei = (im[k] - im[j]) / 2;
+            double dr = (re[k] - re[j]) / 2;
+            double di = (im[k] + im[j]) / 2;
+            // divide by the twiddle factor, which is a multiplication by its conjugate
+            double wr = table.cos[k];
+            double wi = -table.sin[k];
+            double or = dr * wr - di * wi;
+            double oi = dr * wi + di * wr;
+            re[k] = er - oi;
+            im[k] = ei + or;
+            re[j] = er + oi;
+            im[j] = or - ei;
+        }
+        transform(re, im, m, true);
+        for (int k = 0; k < m; k++) {
+            x[2 * k] = re[k] / m;
+            x[2 * k + 1] = im[k] / m;
+        }
+    }
+
+    // compute the in-place N-dimensional FFT of (re, im), stored with the
+    // first index fastest
+    public static void fftn(double[] re, double[] im, int... dimensions) {
+        transformn(re, im, dimensions, false);
+    }
+
+    // compute the in-place N-dimensional inverse FFT of (re, im)
+    public static void ifftn(double[] re, double[] im, int... dimensions) {
+        transformn(re, im, dimensions, true);
+        scale(re, im, re.length, 1.0 / re.length);
+    }
+
+    // smallest n' >= n without prime factors above 7, which the mixed radix
+    // transform handles without the Bluestein fallback
+    public static int fastLength(int n) {
+        if (n <= 1) {
+            return 1;
+        }
+        for (int m = n;; m++) {
+            int r = m;
+            for (int p : RADICES) {
+                while (r % p == 0) {
+                    r /= p;
+                }
+            }
+            if (r == 1) {
+                return m;
+            }
+        }
+    }
 
-        // compute FFT of each sequence
-        Complex[] a = fft(x);
-        Complex[] b = fft(y);
+    private static void transformn(double[] re, double[] im, int[] dimensions, boolean inverse) {
+        int size = 1;
+        for (int dimension : dimensions) {
+            size *= dimension;
+        }
+        if (re.length != size || im.length != size) {
+            throw new IllegalArgumentException("Dimensions don't agree");
+        }
+        int stride = 1;
+        for (int n : dimensions) {
+            if (n > 1) {
+                Table table = table(n);
+                double[] work = new double[table.workLength];
+                if (stride == 1) {
+                    for (int base = 0; base < size; base += n) {
+                        transform(re, im, base, n, inverse, table, work);
+                    }
+                } else {
+                    double[] lineRe = new double[n];
+                    double[] lineIm = new double[n];
+                    int block = stride * n;
+                    for (int outer = 0; outer < size; outer += block) {
+                        for (int inner = 0; inner < stride; inner++) {
+                            int base = outer + inner;
+                            for (int k = 0; k < n; k++) {
+                                lineRe[k] = re[base + k * stride];
+                                lineIm[k] = im[base + k * stride];
+                            }
+                            transform(lineRe, lineIm, 0, n, inverse, table, work);
+                            for (int k = 0; k < n; k++) {
+                                re[base + k * stride] = lineRe[k];
+                                im[base + k * stride] = lineIm[k];
+                            }
+                        }
+                    }
+                }
+            }
+            stride *= n;
+        }
+    }
+
+    private static void transform(double[] re, double[] im, int n, boolean inverse) {
+        if (n < 2) {
+            return;
+        }
+        Table table = table(n);
+        transform(re, im, 0, n, inverse, table, new double[table.workLength]);
+    }
+
+    // unscaled in-place transform of re[offset, offset + n); work must hold
+    // at least table.workLength elements
+    static void transform(double[] re, double[] im, int offset, int n, boolean inverse,
+            Table table, double[] work) {
+        if (n < 2) {
+            return;
+        }
+        if (table.reverse != null) {
+            transformRadix4(re, offset, im, offset, n, inverse, table);
+        } else if (table.radices != null) {
+            transformMixed(re, im, offset, n, inverse, table, work);
+        } else {
+            transformBluestein(re, im, offset, n, inverse, table, work);
+        }
+    }
 
-        // point-wise multiply
-        Complex[] c = new Complex[n];
+    // iterative in-place Cooley-Tukey FFT for powers of 2: bit-reversal
+    // permutation, then radix 4 passes (each fusing two radix 2 stages) with
+    // one leading radix 2 pass when log2(n) is odd
+    private static void transformRadix4(double[] re, int reOffset, double[] im, int imOffset,
+            int n, boolean inverse, Table table) {
+        int[] reverse = table.reverse;
         for (int i = 0; i < n; i++) {
-            c[i] = a[i].times(b[i]);
+            int j = reverse[i];
+            if (i < j) {
+                double t = re[reOffset + i];
+                re[reOffset + i] = re[reOffset + j];
+                re[reOffset + j] = t;
+                t = im[imOffset + i];
+                im[imOffset + i] = im[imOffset + j];
+                im[imOffset + j] = t;
+            }
+        }
+        double[] cos = table.cos;
+        double[] sin = table.sin;
+        double sign = inverse ? -1 : 1;
+        int length = 2;
+        if ((Integer.numberOfTrailingZeros(n) & 1) == 1) {
+            for (int i = 0; i < n; i += 2) {
+                int r = reOffset + i;
+                int m = imOffset + i;
+                double xr = re[r + 1];
+                double xi = im[m + 1];
+                re[r + 1] = re[r] - xr;
+                im[m + 1] = im[m] - xi;
+                re[r] += xr;
+                im[m] += xi;
+            }
+            length = 4;
+        }
+        for (; length < n; length <<= 2) {
+            int half = length >> 1;
+            int block = length << 1;
+            int step = n / block;
+            for (int i = 0; i < n; i += block) {
+                for (int k = 0; k < half; k++) {
+                    int t1 = k * step;
+                    int t2 = 2 * t1;
+                    int t3 = 3 * t1;
+                    double w1r = cos[t1];
+                    double w1i = sign * sin[t1];
+                    double w2r = cos[t2];
+                    double w2i = sign * sin[t2];
+                    double w3r = cos[t3];
+                    double w3i = sign * sin[t3];
+                    int r0 = reOffset + i + k;
+                    int r1 = r0 + half;
+                    int r2 = r1 + half;
+                    int r3 = r2 + half;
+                    int m0 = imOffset + i + k;
+                    int m1 = m0 + half;
+                    int m2 = m1 + half;
+                    int m3 = m2 + half;
+                    double ar = re[r0];
+                    double ai = im[m0];
+                    double br = re[r1] * w2r - im[m1] * w2i;
+                    double bi = re[r1] * w2i + im[m1] * w2r;
+                    double cr = re[r2] * w1r - im[m2] * w1i;
+                    double ci = re[r2] * w1i + im[m2] * w1r;
+                    double dr = re[r3] * w3r - im[m3] * w3i;
+                    double di = re[r3] * w3i + im[m3] * w3r;
+                    double s0r = ar + br;
+                    double s0i = ai + bi;
+                    double s1r = ar - br;
+                    double s1i = ai - bi;
+                    double s2r = cr + dr;
+                    double s2i = ci + di;
+                    // (c - d) rotated by -i (forward) or +i (inverse)
+                    double s3r = sign * (ci - di);
+                    double s3i = sign * (dr - cr);
+                    re[r0] = s0r + s2r;
+                    im[m0] = s0i + s2i;
+                    re[r2] = s0r - s2r;
+                    im[m2] = s0i - s2i;
+                    re[r1] = s1r + s3r;
+                    im[m1] = s1i + s3i;
+                    re[r3] = s1r - s3r;
+                    im[m3] = s1i - s3i;
+                }
+            }
         }
+    }
 
-        // compute inverse FFT
-        return ifft(c);
+    // iterative in-place mixed radix (2, 3, 4, 5, 7) Cooley-Tukey FFT: digit
+    // reversal permutation, then one pass per radix that combines radix
+    // sub-transforms of the previous length
+    private static void transformMixed(double[] re, double[] im, int offset, int n,
+            boolean inverse, Table table, double[] work) {
+        int[] source = table.source;
+        for (int leader : table.leaders) {
+            double tr = re[offset + leader];
+            double ti = im[offset + leader];
+            int p = leader;
+            while (source[p] != leader) {
+                re[offset + p] = re[offset + source[p]];
+                im[offset + p] = im[offset + source[p]];
+                p = source[p];
+            }
+            re[offset + p] = tr;
+            im[offset + p] = ti;
+        }
+        double[] cos = table.cos;
+        double[] sin = table.sin;
+        double sign = inverse ? -1 : 1;
+        int length = 1;
+        for (int radix : table.radices) {
+            int span = length * radix;
+            int step = n / span;
+            int rootStep = n / radix;
+            for (int block = offset; block < offset + n; block += span) {
+                for (int k = 0; k < length; k++) {
+                    // twiddle the inputs of the radix point sub-transform
+                    for (int j = 0; j < radix; j++) {
+                        int p = block + k + j * length;
+                        int t = j * k * step;
+                        double wr = cos[t];
+                        double wi = sign * sin[t];
+                        work[j] = re[p] * wr - im[p] * wi;
+                        work[radix + j] = re[p] * wi + im[p] * wr;
+                    }
+                    int p0 = block + k;
+                    switch (radix) {
+                        case 2 -> {
+                            re[p0] = work[0] + work[1];
+                            im[p0] = work[2] + work[3];
+                            re[p0 + length] = work[0] - work[1];
+                            im[p0 + length] = work[2] - work[3];
+                        }
+                        case 4 -> {
+                            double s0r = work[0] + work[2];
+                            double s0i = work[4] + work[6];
+                            double s1r = work[0] - work[2];
+                            double s1i = work[4] - work[6];
+                            double s2r = work[1] + work[3];
+                            double s2i = work[5] + work[7];
+                            double s3r = sign * (work[5] - work[7]);
+                            double s3i = sign * (work[3] - work[1]);
+                            re[p0] = s0r + s2r;
+                            im[p0] = s0i + s2i;
+                            re[p0 + length] = s1r + s3r;
+                            im[p0 + length] = s1i + s3i;
+                            re[p0 + 2 * length] = s0r - s2r;
+                            im[p0 + 2 * length] = s0i - s2i;
+                            re[p0 + 3 * length] = s1r - s3r;
+                            im[p0 + 3 * length] = s1i - s3i;
+                        }
+                        default -> {
+                            for (int q = 0; q < radix; q++) {
+                                double sr = 0;
+                                double si = 0;
+                                for (int j = 0; j < radix; j++) {
+                                    int t = (j * q % radix) * rootStep;
+                                    double wr = cos[t];
+                                    double wi = sign * sin[t];
+                                    sr += work[j] * wr - work[radix + j] * wi;
+                                    si += work[j] * wi + work[radix + j] * wr;
+                                }
+                                re[p0 + q * length] = sr;
+                                im[p0 + q * length] = si;
+                            }
+                        }
+                    }
+                }
+            }
+            length = span;
+        }
     }
 
-    // compute the linear convolution of x and y
-    public static Complex[] convolve(Complex[] x, Complex[] y) {
-        Complex ZERO = new Complex(0, 0);
+    // Bluestein's chirp-z FFT for lengths with large prime factors: the DFT is
+    // rewritten as a convolution with a chirp, evaluated with a power of 2 FFT
+    private static void transformBluestein(double[] re, double[] im, int offset, int n,
+            boolean inverse, Table table, double[] work) {
+        Table inner = table.inner;
+        int m = inner.cos.length;
+        double sign = inverse ? -1 : 1;
+        double[] chirpRe = table.chirpRe;
+        double[] chirpIm = table.chirpIm;
+        Arrays.fill(work, 0, 2 * m, 0);
+        for (int j = 0; j < n; j++) {
+            double xr = re[offset + j];
+            double xi = sign * im[offset + j];
+            work[j] = xr * chirpRe[j] - xi * chirpIm[j];
+            work[m + j] = xr * chirpIm[j] + xi * chirpRe[j];
+        }
+        transformRadix4(work, 0, work, m, m, false, inner);
+        double[] kernelRe = table.kernelRe;
+        double[] kernelIm = table.kernelIm;
+        for (int j = 0; j < m; j++) {
+            double ar = work[j];
+            double ai = work[m + j];
+            work[j] = ar * kernelRe[j] - ai * kernelIm[j];
+            work[m + j] = ar * kernelIm[j] + ai * kernelRe[j];
+        }
+        transformRadix4(work, 0, work, m, m, true, inner);
+        for (int k = 0; k < n; k++) {
+            double ar = work[k] / m;
+            double ai = work[m + k] / m;
+            re[offset + k] = ar * chirpRe[k] - ai * chirpIm[k];
+            im[offset + k] = sign * (ar * chirpIm[k] + ai * chirpRe[k]);
+        }
+    }
 
-        Complex[] a = new Complex[2 * x.length];
-        for (int i = 0; i < x.length; i++) {
-            a[i] = x[i];
+    private static void checkLength(double[] re, double[] im) {
+        if (re.length != im.length) {
+            throw new IllegalArgumentException("Dimensions don't agree");
         }
-        for (int i = x.length; i < 2 * x.length; i++) {
-            a[i] = ZERO;
+        if (re.length == 0) {
+            throw new IllegalArgumentException("n is zero");
         }
+    }
 
-        Complex[] b = new Complex[2 * y.length];
-        for (int i = 0; i < y.length; i++) {
-            b[i] = y[i];
+    private static void scale(double[] re, double[] im, int n, double alpha) {
+        for (int i = 0; i < n; i++) {
+            re[i] *= alpha;
+            im[i] *= alpha;
+        }
+    }
+
+    private static final int[] RADICES = {2, 3, 5, 7};
+
+    // tables cached per size: powers of 2 by their exponent, the most
+    // recently used other sizes by value
+    private static final AtomicReferenceArray<Table> POWER_OF_2_TABLES = new AtomicReferenceArray<>(31);
+    private static final int TABLE_CACHE_SIZE = 16;
+    private static final Map<Integer, Table> TABLES = new LinkedHashMap<>(32, 0.75f, true);
+
+    static Table table(int n) {
+        if (Integer.bitCount(n) == 1) {
+            int log = Integer.numberOfTrailingZeros(n);
+            Table table = POWER_OF_2_TABLES.get(log);
+            if (table == null) {
+                table = new Table(n);
+                POWER_OF_2_TABLES.compareAndSet(log, null, table);
+            }
+            return table;
         }
-        for (int i = y.length; i < 2 * y.length; i++) {
-            b[i] = ZERO;
+        Table table;
+        synchronized (TABLES) {
+            table = TABLES.get(n);
+        }
+        if (table == null) {
+            // built outside of the lock, a concurrent duplicate is harmless
+            table = new Table(n);
+            synchronized (TABLES) {
+                TABLES.put(n, table);
+                if (TABLES.size() > TABLE_CACHE_SIZE) {
+                    Iterator<Integer> eldest = TABLES.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        return table;
+    }
+
+    // twiddle factors e^(-2 pi i k / n) and the precomputed data of the
+    // algorithm used for n: the bit-reversal permutation for powers of 2,
+    // the radices and digit-reversal permutation cycles for other lengths
+    // without prime factors above 7, and the chirp and its transform for
+    // Bluestein's algorithm otherwise
+    static final class Table {
+
+        final double[] cos;
+        final double[] sin;
+        final int workLength;
+        int[] reverse;
+        int[] radices;
+        int[] source;
+        int[] leaders;
+        Table inner;
+        double[] chirpRe;
+        double[] chirpIm;
+        double[] kernelRe;
+        double[] kernelIm;
+
+        Table(int n) {
+            cos = new double[n];
+            sin = new double[n];
+            for (int k = 0; k < n; k++) {
+                double kth = -2 * k * Math.PI / n;
+                cos[k] = Math.cos(kth);
+                sin[k] = Math.sin(kth);
+            }
+            if (Integer.bitCount(n) == 1) {
+                initPowerOf2(n);
+                workLength = 0;
+            } else if (fastLength(n) == n) {
+                initMixed(n);
+                workLength = 14;
+            } else {
+                initBluestein(n);
+                workLength = 2 * inner.cos.length;
+            }
         }
 
-        return cconvolve(a, b);
+        private void initPowerOf2(int n) {
+            reverse = new int[n];
+            int bits = Integer.numberOfTrailingZeros(n);
+            for (int i = 0; i < n; i++) {
+                reverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+            }
+        }
+
+        private void initMixed(int n) {
+            int count = 0;
+            int[] factors = new int[32];
+            int r = n;
+            while (r % 4 == 0) {
+                factors[count++] = 4;
+                r /= 4;
+            }
+            for (int p : RADICES) {
+                while (r % p == 0) {
+                    factors[count++] = p;
+                    r /= p;
+                }
+            }
+            radices = Arrays.copyOf(factors, count);
+            // the input index i lands at the position given by reading its
+            // digits, last radix first, as a number with reversed weights
+            source = new int[n];
+            for (int i = 0; i < n; i++) {
+                int position = 0;
+                int length = n;
+                int v = i;
+                for (int s = radices.length - 1; s >= 0; s--) {
+                    length /= radices[s];
+                    position += (v % radices[s]) * length;
+                    v /= radices[s];
+                }
+                source[position] = i;
+            }
+            boolean[] visited = new boolean[n];
+            int[] cycles = new int[n];
+            int cycleCount = 0;
+            for (int i = 0; i < n; i++) {
+                if (!visited[i] && source[i] != i) {
+                    cycles[cycleCount++] = i;
+                    for (int p = i; !visited[p]; p = source[p]) {
+                        visited[p] = true;
+                    }
+                }
+            }
+            leaders = Arrays.copyOf(cycles, cycleCount);
+        }
+
+        private void initBluestein(int n) {
+            int m = Integer.highestOneBit(2 * n - 1);
+            if (m < 2 * n - 1) {
+                m <<= 1;
+            }
+            inner = table(m);
+            chirpRe = new double[n];
+            chirpIm = new double[n];
+            long period = 2L * n;
+            for (int k = 0; k < n; k++) {
+                // e^(-pi i k^2 / n), with k^2 reduced to keep the angle accurate
+                double kth = -Math.PI * ((long) k * k % period) / n;
+                chirpRe[k] = Math.cos(kth);
+                chirpIm[k] = Math.sin(kth);
+            }
+            kernelRe = new double[m];
+            kernelIm = new double[m];
+            kernelRe[0] = chirpRe[0];
+            kernelIm[0] = -chirpIm[0];
+            for (int k = 1; k < n; k++) {
+                kernelRe[k] = chirpRe[k];
+                kernelIm[k] = -chirpIm[k];
+                kernelRe[m - k] = chirpRe[k];
+                kernelIm[m - k] = -chirpIm[k];
+            }
+            transformRadix4(kernelRe, 0, kernelIm, 0, m, false, inner);
+        }
     }
 
     // compute the DFT of x[] via brute force (n^2 time)
@@ -231,6 +795,14 @@ public class FFT {
         return c;
     }
 
+    public static Complex[] toComplex(double[] re, double[] im) {
+        Complex[] c = new Complex[re.length];
+        for (int i = 0; i < re.length; i++) {
+            c[i] = new Complex(re[i], im[i]);
+        }
+        return c;
+    }
+
     // display an array of Complex numbers to standard output
     public static void show(Complex[] x, String title) {
         System.out.println(title);
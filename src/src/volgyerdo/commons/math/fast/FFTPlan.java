@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.fast;
+
+/**
+ * Reusable FFT of a fixed length and direction.
+ * <p>
+ * A plan keeps the twiddle factors, the permutation tables and its scratch
+ * buffers, so executing it does not allocate. The inverse plan scales by
+ * 1 / n like {@link FFT#ifft(double[], double[])}. A plan is not thread
+ * safe; {@link #get(int, boolean)} hands out plans cached per thread.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public final class FFTPlan {
+
+    private static final int CACHE_SIZE = 8;
+
+    private static final ThreadLocal<FFTPlan[]> CACHE
+            = ThreadLocal.withInitial(() -> new FFTPlan[CACHE_SIZE]);
+
+    private final int n;
+    private final boolean inverse;
+    private final FFT.Table table;
+    private final double[] re;
+    private final double[] im;
+    private final double[] work;
+
+    public FFTPlan(int n, boolean inverse) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n is smaller than 1");
+        }
+        this.n = n;
+        this.inverse = inverse;
+        table = FFT.table(n);
+        re = new double[n];
+        im = new double[n];
+        work = new double[table.workLength];
+    }
+
+    // plan of the current thread for the given length and direction
+    public static FFTPlan get(int n, boolean inverse) {
+        FFTPlan[] plans = CACHE.get();
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            FFTPlan plan = plans[i];
+            if (plan == null) {
+                break;
+            }
+            if (plan.n == n && plan.inverse == inverse) {
+                // move to front so that the most recent plans survive
+                System.arraycopy(plans, 0, plans, 1, i);
+                plans[0] = plan;
+                return plan;
+            }
+        }
+        FFTPlan plan = new FFTPlan(n, inverse);
+        System.arraycopy(plans, 0, plans, 1, CACHE_SIZE - 1);
+        plans[0] = plan;
+        return plan;
+    }
+
+    public int length() {
+        return n;
+    }
+
+    public boolean isInverse() {
+        return inverse;
+    }
+
+    // transform the interleaved complex sequence in[] (re, im, re, im, ...)
+    // into out[]; in and out may be the same array
+    public void execute(double[] in, double[] out) {
+        if (in.length < 2 * n || out.length < 2 * n) {
+            throw new IllegalArgumentException("Dimensions don't agree");
+        }
+        for (int i = 0; i < n; i++) {
+            re[i] = in[2 * i];
+            im[i] = in[2 * i + 1];
+        }
+        executeInPlace(re, im);
+        for (int i = 0; i < n; i++) {
+            out[2 * i] = re[i];
+            out[2 * i + 1] = im[i];
+        }
+    }
+
+    // transform the split complex sequence (re, im) in place
+    public void executeInPlace(double[] re, double[] im) {
+        if (re.length < n || im.length < n) {
+            throw new IllegalArgumentException("Dimensions don't agree");
+        }
+        if (n < 2) {
+            return;
+        }
+        FFT.transform(re, im, 0, n, inverse, table, work);
+        if (inverse) {
+            double scale = 1.0 / n;
+            for (int i = 0; i < n; i++) {
+                re[i] *= scale;
+                im[i] *= scale;
+            }
+        }
+    }
+}
@@ -45,6 +45,24 @@ public final class FastMath extends CmnFastMath {
 
     private static final boolean USE_POWTABS_FOR_ASIN = FM_USE_POWTABS_FOR_ASIN;
 
+    //--------------------------------------------------------------------------
+    // SINGLE PRECISION CONSTANTS
+    //--------------------------------------------------------------------------
+
+    // n * PIO2_HI is exact up to here, so the float trigonometry reduces
+    // without a float ulp of error
+    private static final float SINF_MAX = 1e6f;
+
+    private static final float EXPF_MIN = -87.3f;
+    private static final float EXPF_MAX = 88.3f;
+
+    private static final float INV_LOG_2_F = 1.44269504088896341f;
+    // ln(2) split so that k * LOG_2_HI_F is exact
+    private static final float LOG_2_HI_F = 0.693359375f;
+    private static final float LOG_2_LO_F = -2.12194440e-4f;
+    // adding and subtracting 1.5 * 2^23 rounds a float to an integer
+    private static final float ROUND_F = 12582912f;
+
     //--------------------------------------------------------------------------
     // PUBLIC METHODS
     //--------------------------------------------------------------------------
@@ -2784,6 +2802,357 @@ public final class FastMath extends CmnFastMath {
         return Math.random();
     }
 
+    /*
+     * single precision
+     *
+     * Table free kernels with polynomials sized for float accuracy, for
+     * callers that work on floats anyway. sinf and cosf reduce and evaluate
+     * in double and are within 1 ulp of the correctly rounded result.
+     */
+
+    /**
+     * @param angle Angle in radians.
+     * @return Angle sine.
+     */
+    public static float sinf(float angle) {
+        if (USE_JDK_MATH) {
+            return (float) Math.sin(angle);
+        }
+        if (!(Math.abs(angle) <= SINF_MAX)) {
+            return (float) sin(angle);
+        }
+        double n = Math.rint(angle * PIO2_INV);
+        int quadrant = (int) n;
+        return sinfQuadrant((angle - n * PIO2_HI) - n * PIO2_LO, quadrant);
+    }
+
+    /**
+     * @param angle Angle in radians.
+     * @return Angle cosine.
+     */
+    public static float cosf(float angle) {
+        if (USE_JDK_MATH) {
+            return (float) Math.cos(angle);
+        }
+        if (!(Math.abs(angle) <= SINF_MAX)) {
+            return (float) cos(angle);
+        }
+        double n = Math.rint(angle * PIO2_INV);
+        int quadrant = (int) n + 1;
+        return sinfQuadrant((angle - n * PIO2_HI) - n * PIO2_LO, quadrant);
+    }
+
+    /**
+     * @param value A float value.
+     * @return e^value.
+     */
+    public static float expf(float value) {
+        if (USE_JDK_MATH) {
+            return (float) Math.exp(value);
+        }
+        if (!(value >= EXPF_MIN && value <= EXPF_MAX)) {
+            return (float) exp(value);
+        }
+        // value = k * ln(2) + r, |r| <= ln(2) / 2
+        float k = (value * INV_LOG_2_F + ROUND_F) - ROUND_F;
+        float r = (value - k * LOG_2_HI_F) - k * LOG_2_LO_F;
+        float p = 1 + r + r * r * (0.5f + r * (1.6666665459E-1f + r * (4.1665795894E-2f
+                + r * (8.3334519073E-3f + r * (1.3981999507E-3f + r * 1.9875691500E-4f)))));
+        return p * Float.intBitsToFloat(((int) k + 127) << 23);
+    }
+
+    /**
+     * @param value A float value.
+     * @return Value logarithm (base e).
+     */
+    public static float logf(float value) {
+        if (USE_JDK_MATH) {
+            return (float) Math.log(value);
+        }
+        if (!(value >= Float.MIN_NORMAL && value < Float.POSITIVE_INFINITY)) {
+            return (float) log(value);
+        }
+        // value = 2^k * (1 + f), sqrt(2) / 2 <= 1 + f < sqrt(2)
+        int bits = Float.floatToRawIntBits(value);
+        int mantissa = bits & 0x007FFFFF;
+        int carry = (mantissa + 0x004AFB0D) & 0x00800000;
+        float k = (bits >>> 23) - 127 + (carry >>> 23);
+        float f = Float.intBitsToFloat(mantissa | (0x3F800000 ^ carry)) - 1;
+        float z = f * f;
+        float y = f * z * (3.3333331174E-1f + f * (-2.4999993993E-1f + f * (2.0000714765E-1f
+                + f * (-1.6668057665E-1f + f * (1.4249322787E-1f + f * (-1.2420140846E-1f
+                + f * (1.1676998740E-1f + f * (-1.1514610310E-1f + f * 7.0376836292E-2f))))))));
+        return (f + (y - 0.5f * z + k * LOG_2_LO_F)) + k * LOG_2_HI_F;
+    }
+
+    /**
+     * @param value A float value.
+     * @return Value hyperbolic tangent.
+     */
+    public static float tanhf(float value) {
+        if (USE_JDK_MATH) {
+            return (float) Math.tanh(value);
+        }
+        float abs = Math.abs(value);
+        if (abs < 0.625f) {
+            float z = value * value;
+            return value + value * z * (-3.33332819422E-1f + z * (1.33314422036E-1f
+                    + z * (-5.37397155531E-2f + z * (2.06390887954E-2f + z * -5.70498872745E-3f))));
+        }
+        if (!(abs <= 9f)) {
+            // NaN, or the result rounds to +-1
+            return (value != value) ? value : Math.copySign(1f, value);
+        }
+        float result = 1 - 2 / (expf(abs + abs) + 1);
+        return value < 0 ? -result : result;
+    }
+
+    /*
+     * arrays
+     */
+
+    /**
+     * Sine of each angle (in radians): dst[i] = sin(src[i]) for i in [off, off + len[.
+     * src and dst may be the same array.
+     *
+     * @param src Source values.
+     * @param dst Destination of the results.
+     * @param off Index of the first value.
+     * @param len Number of values.
+     */
+    public static void sin(double[] src, double[] dst, int off, int len) {
+        checkRange(src.length, dst.length, off, len);
+        if (USE_JDK_MATH) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = Math.sin(src[i]);
+            }
+            return;
+        }
+        FastMathBatch.sin(src, dst, off, off + len);
+    }
+
+    /**
+     * Sine of each angle (in radians): dst[i] = sin(src[i]) for i in [off, off + len[.
+     * src and dst may be the same array.
+     *
+     * @param src Source values.
+     * @param dst Destination of the results.
+     * @param off Index of the first value.
+     * @param len Number of values.
+     */
+    public static void sin(float[] src, float[] dst, int off, int len) {
+        checkRange(src.length, dst.length, off, len);
+        if (USE_JDK_MATH) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = (float) Math.sin(src[i]);
+            }
+            return;
+        }
+        FastMathBatch.sin(src, dst, off, off + len);
+    }
+
+    /**
+     * Cosine of each angle (in radians): dst[i] = cos(src[i]) for i in [off, off + len[.
+     * src and dst may be the same array.
+     *
+     * @param src Source values.
+     * @param dst Destination of the results.
+     * @param off Index of the first value.
+     * @param len Number of values.
+     */
+    public static void cos(double[] src, double[] dst, int off, int len) {
+        checkRange(src.length, dst.length, off, len);
+        if (USE_JDK_MATH) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = Math.cos(src[i]);
+            }
+            return;
+        }
+        FastMathBatch.cos(src, dst, off, off + len);
+    }
+
+    /**
+     * Cosine of each angle (in radians): dst[i] = cos(src[i]) for i in [off, off + len[.
+     * src and dst may be the same array.
+     *
+     * @param src Source values.
+     * @param dst Destination of the results.
+     * @param off Index of the first value.
+     * @param len Number of values.
+     */
+    public static void cos(float[] src, float[] dst, int off, int len) {
+        checkRange(src.length, dst.length, off, len);
+        if (USE_JDK_MATH) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = (float) Math.cos(src[i]);
+            }
+            return;
+        }
+        FastMathBatch.cos(src, dst, off, off + len);
+    }
+
+    /**
+     * e^value for each value: dst[i] = exp(src[i]) for i in [off, off + len[.
+     * src and dst may be the same array.
+     *
+     * @param src Source values.
+     * @param dst Destination of the results.
+     * @param off Index of the first value.
+     * @param len Number of values.
+     */
+    public static void exp(double[] src, double[] dst, int off, int len) {
+        checkRange(src.length, dst.length, off, len);
+        if (USE_JDK_MATH) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = Math.exp(src[i]);
+            }
+            return;
+        }
+        FastMathBatch.exp(src, dst, off, off + len);
+    }
+
+    /**
+     * e^value for each value: dst[i] = exp(src[i]) for i in [off, off + len[.
+     * src and dst may be the same array.
+     *
+     * @param src Source values.
+     * @param dst Destination of the results.
+     * @param off Index of the first value.
+     * @param len Number of values.
+     */
+    public static void exp(float[] src, float[] dst, int off, int len) {
+        checkRange(src.length, dst.length, off, len);
+        if (USE_JDK_MATH) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = (float) Math.exp(src[i]);
+            }
+            return;
+        }
+        FastMathBatch.exp(src, dst, off, off + len);
+    }
+
+    /**
+     * Logarithm (base e) of each value: dst[i] = log(src[i]) for i in [off, off + len[.
+     * src and dst may be the same array.
+     *
+     * @param src Source values.
+     * @param dst Destination of the results.
+     * @param off Index of the first value.
+     * @param len Number of values.
+     */
+    public static void log(double[] src, double[] dst, int off, int len) {
+        checkRange(src.length, dst.length, off, len);
+        if (USE_JDK_MATH) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = Math.log(src[i]);
+            }
+            return;
+        }
+        FastMathBatch.log(src, dst, off, off + len);
+    }
+
+    /**
+     * Logarithm (base e) of each value: dst[i] = log(src[i]) for i in [off, off + len[.
+     * src and dst may be the same array.
+     *
+     * @param src Source values.
+     * @param dst Destination of the results.
+     * @param off Index of the first value.
+     * @param len Number of values.
+     */
+    public static void log(float[] src, float[] dst, int off, int len) {
+        checkRange(src.length, dst.length, off, len);
+        if (USE_JDK_MATH) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = (float) Math.log(src[i]);
+            }
+            return;
+        }
+        FastMathBatch.log(src, dst, off, off + len);
+    }
+
+    /**
+     * Square root of each value: dst[i] = sqrt(src[i]) for i in [off, off + len[.
+     * src and dst may be the same array.
+     *
+     * @param src Source values.
+     * @param dst Destination of the results.
+     * @param off Index of the first value.
+     * @param len Number of values.
+     */
+    public static void sqrt(double[] src, double[] dst, int off, int len) {
+        checkRange(src.length, dst.length, off, len);
+        if (USE_JDK_MATH) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = Math.sqrt(src[i]);
+            }
+            return;
+        }
+        FastMathBatch.sqrt(src, dst, off, off + len);
+    }
+
+    /**
+     * Square root of each value: dst[i] = sqrt(src[i]) for i in [off, off + len[.
+     * src and dst may be the same array.
+     *
+     * @param src Source values.
+     * @param dst Destination of the results.
+     * @param off Index of the first value.
+     * @param len Number of values.
+     */
+    public static void sqrt(float[] src, float[] dst, int off, int len) {
+        checkRange(src.length, dst.length, off, len);
+        if (USE_JDK_MATH) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = (float) Math.sqrt(src[i]);
+            }
+            return;
+        }
+        FastMathBatch.sqrt(src, dst, off, off + len);
+    }
+
+    /**
+     * Power of each value: dst[i] = pow(src[i], power) for i in [off, off + len[.
+     * src and dst may be the same array.
+     *
+     * @param src Source values.
+     * @param power A power.
+     * @param dst Destination of the results.
+     * @param off Index of the first value.
+     * @param len Number of values.
+     */
+    public static void pow(double[] src, double power, double[] dst, int off, int len) {
+        checkRange(src.length, dst.length, off, len);
+        if (USE_JDK_MATH) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = Math.pow(src[i], power);
+            }
+            return;
+        }
+        FastMathBatch.pow(src, power, dst, off, off + len);
+    }
+
+    /**
+     * Power of each value: dst[i] = pow(src[i], power) for i in [off, off + len[.
+     * src and dst may be the same array.
+     *
+     * @param src Source values.
+     * @param power A power.
+     * @param dst Destination of the results.
+     * @param off Index of the first value.
+     * @param len Number of values.
+     */
+    public static void pow(float[] src, double power, float[] dst, int off, int len) {
+        checkRange(src.length, dst.length, off, len);
+        if (USE_JDK_MATH) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = (float) Math.pow(src[i], power);
+            }
+            return;
+        }
+        FastMathBatch.pow(src, power, dst, off, off + len);
+    }
+
     //--------------------------------------------------------------------------
     //  PRIVATE METHODS
     //--------------------------------------------------------------------------
@@ -2793,6 +3162,26 @@ public final class FastMath extends CmnFastMath {
      */
     private FastMath() {
     }
+
+    // sin(r + quadrant * pi / 2) for |r| <= pi / 4, both polynomials are
+    // evaluated so that the quadrant is selected without a branch; in double
+    // the only error that reaches the float result is the final rounding
+    private static float sinfQuadrant(double r, int quadrant) {
+        double z = r * r;
+        double sin = r + r * z * (-1.66666666416265235595E-1 + z * (8.3333293858894631756E-3
+                + z * (-1.98393348360966317347E-4 + z * 2.7183114939898219064E-6)));
+        double cos = 1 + z * (-4.99999997251031003120E-1 + z * (4.16666233237390631894E-2
+                + z * (-1.38867637746099294692E-3 + z * 2.43904487962774090654E-5)));
+        double value = (quadrant & 1) == 0 ? sin : cos;
+        return (float) ((quadrant & 2) == 0 ? value : -value);
+    }
+
+    private static void checkRange(int srcLength, int dstLength, int off, int len) {
+        if (off < 0 || len < 0 || off + len > srcLength || off + len > dstLength || off + len < 0) {
+            throw new ArrayIndexOutOfBoundsException("Range [" + off + ", " + off + " + " + len
+                    + ") out of bounds for length " + Math.min(srcLength, dstLength));
+        }
+    }
     
     /*
      * Remainders (accurate).
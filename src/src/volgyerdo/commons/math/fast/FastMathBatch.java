@@ -0,0 +1,172 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.fast;
+
+/**
+ * Loops behind the array methods of {@link FastMath}.
+ * <p>
+ * exp, and log when the redefined log is enabled, use table free polynomial
+ * kernels: they only use arithmetic, rounding and bit casts, so a loop over
+ * them has no memory access besides the source and the destination array.
+ * Arguments outside of the range handled by a kernel (NaN, infinities,
+ * overflow, subnormals) go to the scalar methods of {@link FastMath}.
+ * sin and cos stay with the scalar table lookups, which are faster than the
+ * polynomials on scalar code. Float arrays use the single precision
+ * kernels of {@link FastMath}.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+final class FastMathBatch {
+
+    private static final double INV_LN2 = 1.4426950408889634;
+    private static final double LN2_HI = 6.93147180369123816490e-01;
+    private static final double LN2_LO = 1.90821492927058770002e-10;
+
+    private static final double EXP_MIN = -708.0;
+    private static final double EXP_MAX = 709.0;
+
+    // fdlibm log(1+f) coefficients
+    private static final double LG1 = 6.666666666666735130e-01;
+    private static final double LG2 = 3.999999999940941908e-01;
+    private static final double LG3 = 2.857142874366239149e-01;
+    private static final double LG4 = 2.222219843214978396e-01;
+    private static final double LG5 = 1.818357216161805012e-01;
+    private static final double LG6 = 1.531383769920937332e-01;
+    private static final double LG7 = 1.479819860511658591e-01;
+
+    private static final long MANTISSA_MASK = 0x000FFFFFFFFFFFFFL;
+    private static final long EXPONENT_ONE = 0x3FF0000000000000L;
+    private static final long IMPLICIT_BIT = 0x0010000000000000L;
+    // added to the mantissa, carries into the implicit bit for 1.mantissa > sqrt(2)
+    private static final long SQRT2_CARRY = 0x00095F6400000000L;
+
+    private FastMathBatch() {
+    }
+
+    static void sin(double[] src, double[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = FastMath.sin(src[i]);
+        }
+    }
+
+    static void sin(float[] src, float[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = FastMath.sinf(src[i]);
+        }
+    }
+
+    static void cos(double[] src, double[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = FastMath.cos(src[i]);
+        }
+    }
+
+    static void cos(float[] src, float[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = FastMath.cosf(src[i]);
+        }
+    }
+
+    static void exp(double[] src, double[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = exp(src[i]);
+        }
+    }
+
+    static void exp(float[] src, float[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = FastMath.expf(src[i]);
+        }
+    }
+
+    static void log(double[] src, double[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = log(src[i]);
+        }
+    }
+
+    static void log(float[] src, float[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = FastMath.logf(src[i]);
+        }
+    }
+
+    static void sqrt(double[] src, double[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = Math.sqrt(src[i]);
+        }
+    }
+
+    static void sqrt(float[] src, float[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = (float) Math.sqrt(src[i]);
+        }
+    }
+
+    static void pow(double[] src, double power, double[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = pow(src[i], power);
+        }
+    }
+
+    static void pow(float[] src, double power, float[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = (float) pow(src[i], power);
+        }
+    }
+
+    static double exp(double x) {
+        if (!(x >= EXP_MIN && x <= EXP_MAX)) {
+            return FastMath.exp(x);
+        }
+        // x = k * ln(2) + r, |r| <= ln(2) / 2
+        double k = Math.rint(x * INV_LN2);
+        double r = (x - k * LN2_HI) - k * LN2_LO;
+        double p = 1 + r * (1 + r * (1.0 / 2 + r * (1.0 / 6 + r * (1.0 / 24 + r * (1.0 / 120
+                + r * (1.0 / 720 + r * (1.0 / 5040 + r * (1.0 / 40320 + r * (1.0 / 362880
+                + r * (1.0 / 3628800 + r * (1.0 / 39916800 + r * (1.0 / 479001600))))))))))));
+        return p * Double.longBitsToDouble((long) ((int) k + 1023) << 52);
+    }
+
+    static double log(double x) {
+        if (!CmnFastMath.FM_USE_REDEFINED_LOG) {
+            return Math.log(x);
+        }
+        if (!(x >= Double.MIN_NORMAL && x < Double.POSITIVE_INFINITY)) {
+            return FastMath.log(x);
+        }
+        // x = 2^k * m, sqrt(2) / 2 <= m < sqrt(2)
+        long bits = Double.doubleToRawLongBits(x);
+        long mantissa = bits & MANTISSA_MASK;
+        long carry = (mantissa + SQRT2_CARRY) & IMPLICIT_BIT;
+        double k = (int) (bits >>> 52) - 1023 + (int) (carry >>> 52);
+        double f = Double.longBitsToDouble(mantissa | (EXPONENT_ONE ^ carry)) - 1;
+        double s = f / (2 + f);
+        double z = s * s;
+        double w = z * z;
+        double r = z * (LG1 + w * (LG3 + w * (LG5 + w * LG7)))
+                + w * (LG2 + w * (LG4 + w * LG6));
+        double hfsq = 0.5 * f * f;
+        return k * LN2_HI - ((hfsq - (s * (hfsq + r) + k * LN2_LO)) - f);
+    }
+
+    static double pow(double x, double power) {
+        if (x > 0 && x < Double.POSITIVE_INFINITY && power > -1e300 && power < 1e300) {
+            return exp(power * log(x));
+        }
+        return FastMath.pow(x, power);
+    }
+}
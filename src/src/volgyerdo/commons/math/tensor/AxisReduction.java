@@ -0,0 +1,417 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import volgyerdo.commons.primitive.PrimitiveUtils;
+
+/**
+ * Reductions of a tensor along a set of axes.
+ * <p>
+ * Neighbouring axes that are both reduced or both kept are merged, so a
+ * reduction walks the values in flat order as runs of the first merged
+ * axis. A run of a reduced axis folds into one output value, a run of a
+ * kept axis folds element by element into a contiguous row of the output.
+ * Runs are converted to doubles block by block, so the other types share
+ * the same kernels and byte, short and int sums don't overflow; the results
+ * are narrowed to the type of the tensor. Long values don't fit in a
+ * double, so long tensors fold in their own exact path: sums are kept in
+ * 128 bits and saturate to the long range only when they are stored.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+final class AxisReduction {
+
+    static final int SUM = 0;
+    static final int MIN = 1;
+    static final int MAX = 2;
+    static final int MEAN = 3;
+
+    private static final int BLOCK = 1 << 12;
+
+    private final Tensor tensor;
+    private final int[] outputDimensions;
+    // merged axes: extent, whether it is reduced and its stride in the output
+    private final int[] extents;
+    private final boolean[] reduced;
+    private final int[] strides;
+    private final int outputSize;
+
+    private AxisReduction(Tensor tensor, boolean[] reduce) {
+        if (tensor.type == Tensor.TYPE.OBJECT) {
+            throw new RuntimeException("Object tensor can't be reduced.");
+        }
+        this.tensor = tensor;
+        int rank = tensor.dimensions.length;
+        int kept = 0;
+        for (int a = 0; a < rank; a++) {
+            kept += reduce[a] ? 0 : 1;
+        }
+        outputDimensions = new int[Math.max(1, kept)];
+        outputDimensions[0] = 1;
+        int[] groupExtents = new int[rank + 1];
+        boolean[] groupReduced = new boolean[rank + 1];
+        int groups = 0;
+        for (int a = 0, o = 0; a < rank; a++) {
+            int extent = tensor.dimensions[a];
+            if (!reduce[a]) {
+                outputDimensions[o++] = extent;
+            }
+            if (extent == 1) {
+                continue;
+            }
+            if (groups > 0 && groupReduced[groups - 1] == reduce[a]) {
+                groupExtents[groups - 1] *= extent;
+            } else {
+                groupExtents[groups] = extent;
+                groupReduced[groups] = reduce[a];
+                groups++;
+            }
+        }
+        if (groups == 0) {
+            groupExtents[groups++] = 1;
+        }
+        extents = Arrays.copyOf(groupExtents, groups);
+        reduced = Arrays.copyOf(groupReduced, groups);
+        strides = new int[groups];
+        int stride = 1;
+        for (int g = 0; g < groups; g++) {
+            if (!reduced[g]) {
+                strides[g] = stride;
+                stride *= extents[g];
+            }
+        }
+        outputSize = stride;
+    }
+
+    static Tensor reduce(Tensor tensor, int operation, int... axes) {
+        boolean[] reduce = new boolean[tensor.dimensions.length];
+        if (axes.length == 0) {
+            Arrays.fill(reduce, true);
+        }
+        for (int axis : axes) {
+            checkAxis(tensor, axis);
+            if (reduce[axis]) {
+                throw new IllegalArgumentException("Axis is repeated.");
+            }
+            reduce[axis] = true;
+        }
+        AxisReduction reduction = new AxisReduction(tensor, reduce);
+        if (tensor.type == Tensor.TYPE.LONG) {
+            return reduction.reduceLong(operation);
+        }
+        double[] result = reduction.fold(operation);
+        if (operation == MEAN) {
+            double count = (double) tensor.size() / reduction.outputSize;
+            for (int i = 0; i < result.length; i++) {
+                result[i] /= count;
+            }
+        }
+        return reduction.store(result);
+    }
+
+    // index of the first maximum along the axis, NaN values are skipped
+    static IntTensor argmax(Tensor tensor, int axis) {
+        checkAxis(tensor, axis);
+        boolean[] reduce = new boolean[tensor.dimensions.length];
+        reduce[axis] = true;
+        AxisReduction reduction = new AxisReduction(tensor, reduce);
+        IntTensor result = new IntTensor(reduction.outputDimensions);
+        if (tensor.dimensions[axis] == 1) {
+            return result;
+        }
+        double[] best = new double[reduction.outputSize];
+        Arrays.fill(best, Double.NEGATIVE_INFINITY);
+        int[] index = result.values;
+        // the reduced axis is the only reduced group, and the runs of the
+        // first group step along it when it is reduced
+        int group = 0;
+        while (group < reduction.extents.length - 1 && !reduction.reduced[group]) {
+            group++;
+        }
+        int extentsBefore = 1;
+        for (int a = 0; a < axis; a++) {
+            extentsBefore *= tensor.dimensions[a];
+        }
+        boolean runAlongAxis = extentsBefore == 1;
+        int[] counter = new int[reduction.extents.length];
+        int runLength = reduction.extents[0];
+        double[] buffer = new double[Math.min(runLength, BLOCK)];
+        int target = 0;
+        int size = tensor.size();
+        for (int source = 0; source < size; source += runLength) {
+            for (int p = 0; p < runLength; p += buffer.length) {
+                int length = Math.min(buffer.length, runLength - p);
+                load(tensor, source + p, buffer, length);
+                if (runAlongAxis) {
+                    for (int i = 0; i < length; i++) {
+                        if (buffer[i] > best[target]) {
+                            best[target] = buffer[i];
+                            index[target] = p + i;
+                        }
+                    }
+                } else {
+                    int k = counter[group];
+                    for (int i = 0; i < length; i++) {
+                        if (buffer[i] > best[target + p + i]) {
+                            best[target + p + i] = buffer[i];
+                            index[target + p + i] = k;
+                        }
+                    }
+                }
+            }
+            target = reduction.advance(counter, target);
+        }
+        return result;
+    }
+
+    private double[] fold(int operation) {
+        double[] result = new double[outputSize];
+        if (operation == MIN) {
+            Arrays.fill(result, Double.POSITIVE_INFINITY);
+        } else if (operation == MAX) {
+            Arrays.fill(result, Double.NEGATIVE_INFINITY);
+        }
+        int[] counter = new int[extents.length];
+        int runLength = extents[0];
+        boolean runReduced = reduced[0];
+        double[] buffer = new double[Math.min(runLength, BLOCK)];
+        int target = 0;
+        int size = tensor.size();
+        for (int source = 0; source < size; source += runLength) {
+            for (int p = 0; p < runLength; p += buffer.length) {
+                int length = Math.min(buffer.length, runLength - p);
+                load(tensor, source + p, buffer, length);
+                if (runReduced) {
+                    result[target] = foldRun(operation, result[target], buffer, length);
+                } else {
+                    foldRow(operation, result, target + p, buffer, length);
+                }
+            }
+            target = advance(counter, target);
+        }
+        return result;
+    }
+
+    private Tensor reduceLong(int operation) {
+        LongTensor output = (LongTensor) tensor.createSimilar(outputDimensions);
+        long[] result = output.values;
+        long[] high = new long[outputSize];
+        foldLong(operation, result, high);
+        if (operation == SUM || operation == MEAN) {
+            long count = operation == MEAN ? tensor.size() / outputSize : 1;
+            for (int i = 0; i < result.length; i++) {
+                result[i] = divide(high[i], result[i], count);
+            }
+        }
+        return output;
+    }
+
+    // sums go to the high and low words of a 128-bit accumulator
+    private void foldLong(int operation, long[] result, long[] high) {
+        long[] values = ((LongTensor) tensor).values;
+        if (operation == MIN) {
+            Arrays.fill(result, Long.MAX_VALUE);
+        } else if (operation == MAX) {
+            Arrays.fill(result, Long.MIN_VALUE);
+        }
+        int[] counter = new int[extents.length];
+        int runLength = extents[0];
+        int step = reduced[0] ? 0 : 1;
+        int target = 0;
+        int size = tensor.size();
+        for (int source = 0; source < size; source += runLength) {
+            switch (operation) {
+                case MIN -> {
+                    for (int i = 0, t = target; i < runLength; i++, t += step) {
+                        long value = values[source + i];
+                        result[t] = value < result[t] ? value : result[t];
+                    }
+                }
+                case MAX -> {
+                    for (int i = 0, t = target; i < runLength; i++, t += step) {
+                        long value = values[source + i];
+                        result[t] = value > result[t] ? value : result[t];
+                    }
+                }
+                default -> {
+                    for (int i = 0, t = target; i < runLength; i++, t += step) {
+                        long value = values[source + i];
+                        long low = result[t] + value;
+                        high[t] += (value >> 63) + (Long.compareUnsigned(low, result[t]) < 0 ? 1 : 0);
+                        result[t] = low;
+                    }
+                }
+            }
+            target = advance(counter, target);
+        }
+    }
+
+    // divides a 128-bit sum, truncating like the double path, and saturates
+    private static long divide(long high, long low, long count) {
+        if (high == low >> 63) {
+            return low / count;
+        }
+        BigInteger value = BigInteger.valueOf(high).shiftLeft(64)
+                .add(new BigInteger(Long.toUnsignedString(low)))
+                .divide(BigInteger.valueOf(count));
+        if (value.bitLength() < Long.SIZE) {
+            return value.longValue();
+        }
+        return value.signum() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+
+    // steps the merged axes after the first one, returns the new output offset
+    private int advance(int[] counter, int target) {
+        for (int g = 1; g < extents.length; g++) {
+            target += strides[g];
+            if (++counter[g] < extents[g]) {
+                return target;
+            }
+            target -= strides[g] * extents[g];
+            counter[g] = 0;
+        }
+        return target;
+    }
+
+    private static double foldRun(int operation, double value, double[] buffer, int length) {
+        switch (operation) {
+            case MIN -> {
+                for (int i = 0; i < length; i++) {
+                    value = buffer[i] < value ? buffer[i] : value;
+                }
+            }
+            case MAX -> {
+                for (int i = 0; i < length; i++) {
+                    value = buffer[i] > value ? buffer[i] : value;
+                }
+            }
+            default -> {
+                double sum = 0;
+                for (int i = 0; i < length; i++) {
+                    sum += buffer[i];
+                }
+                value += sum;
+            }
+        }
+        return value;
+    }
+
+    private static void foldRow(int operation, double[] result, int offset, double[] buffer, int length) {
+        switch (operation) {
+            case MIN -> {
+                for (int i = 0; i < length; i++) {
+                    result[offset + i] = buffer[i] < result[offset + i] ? buffer[i] : result[offset + i];
+                }
+            }
+            case MAX -> {
+                for (int i = 0; i < length; i++) {
+                    result[offset + i] = buffer[i] > result[offset + i] ? buffer[i] : result[offset + i];
+                }
+            }
+            default -> {
+                for (int i = 0; i < length; i++) {
+                    result[offset + i] += buffer[i];
+                }
+            }
+        }
+    }
+
+    private static void load(Tensor tensor, int offset, double[] buffer, int length) {
+        switch (tensor.type) {
+            case BYTE -> {
+                byte[] values = ((ByteTensor) tensor).values;
+                for (int i = 0; i < length; i++) {
+                    buffer[i] = values[offset + i];
+                }
+            }
+            case SHORT -> {
+                short[] values = ((ShortTensor) tensor).values;
+                for (int i = 0; i < length; i++) {
+                    buffer[i] = values[offset + i];
+                }
+            }
+            case FLOAT -> {
+                float[] values = ((FloatTensor) tensor).values;
+                for (int i = 0; i < length; i++) {
+                    buffer[i] = values[offset + i];
+                }
+            }
+            case DOUBLE ->
+                System.arraycopy(((DoubleTensor) tensor).values, offset, buffer, 0, length);
+            case INT -> {
+                int[] values = ((IntTensor) tensor).values;
+                for (int i = 0; i < length; i++) {
+                    buffer[i] = values[offset + i];
+                }
+            }
+            case SPARSE_FLOAT ->
+                ((SparseTensor) tensor).load(offset, buffer, length);
+            default -> {
+                long[] values = ((LongTensor) tensor).values;
+                for (int i = 0; i < length; i++) {
+                    buffer[i] = values[offset + i];
+                }
+            }
+        }
+    }
+
+    private Tensor store(double[] result) {
+        Tensor output = tensor.createSimilar(outputDimensions);
+        switch (tensor.type) {
+            case BYTE -> {
+                byte[] values = ((ByteTensor) output).values;
+                for (int i = 0; i < result.length; i++) {
+                    values[i] = PrimitiveUtils.toByte(result[i]);
+                }
+            }
+            case SHORT -> {
+                short[] values = ((ShortTensor) output).values;
+                for (int i = 0; i < result.length; i++) {
+                    values[i] = PrimitiveUtils.toShort(result[i]);
+                }
+            }
+            case FLOAT -> {
+                float[] values = ((FloatTensor) output).values;
+                for (int i = 0; i < result.length; i++) {
+                    values[i] = (float) result[i];
+                }
+            }
+            case DOUBLE ->
+                System.arraycopy(result, 0, ((DoubleTensor) output).values, 0, result.length);
+            case INT -> {
+                int[] values = ((IntTensor) output).values;
+                for (int i = 0; i < result.length; i++) {
+                    values[i] = PrimitiveUtils.toInt(result[i]);
+                }
+            }
+            default -> {
+                SparseTensor sparse = (SparseTensor) output;
+                for (int i = 0; i < result.length; i++) {
+                    sparse.setFlat(i, (float) result[i]);
+                }
+            }
+        }
+        return output;
+    }
+
+    private static void checkAxis(Tensor tensor, int axis) {
+        if (axis < 0 || axis >= tensor.dimensions.length) {
+            throw new IllegalArgumentException("Axis is out of bounds.");
+        }
+    }
+}
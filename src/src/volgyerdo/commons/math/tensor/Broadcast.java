@@ -0,0 +1,133 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Arrays;
+
+/**
+ * Walk of an element-wise operation between a tensor and an operand that
+ * broadcasts to its dimensions.
+ * <p>
+ * Dimensions are aligned at the last axis like in NumPy: every operand
+ * dimension equals the matching dimension of the tensor or is 1, and the
+ * missing leading axes are repeated. Neighbouring axes along which the
+ * operand is either contiguous or repeated are merged, so the walk is a
+ * sequence of runs over the flat values of the tensor, each paired with
+ * either the same number of contiguous operand values or one repeated
+ * operand value. A scalar operand is one repeated run, a column vector
+ * gives contiguous runs and a row vector repeated ones.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+final class Broadcast {
+
+    @FunctionalInterface
+    static interface RunOperator {
+
+        /**
+         * Applies the operation on values[offset + i] and
+         * operand[operandOffset + i], or operand[operandOffset] when
+         * repeated, for i in [0, length).
+         */
+        void apply(int offset, int operandOffset, int length, boolean repeated);
+    }
+
+    private final int size;
+    // merged axes and the operand stride along them, 0 where it is repeated
+    private final int[] extents;
+    private final int[] strides;
+
+    private Broadcast(Tensor tensor, Tensor operand) {
+        int rank = tensor.dimensions.length;
+        int shift = rank - operand.dimensions.length;
+        if (shift < 0) {
+            throw new IllegalArgumentException("Tensor dimensions can't be broadcast.");
+        }
+        int[] groupExtents = new int[rank];
+        int[] groupStrides = new int[rank];
+        int groups = 0;
+        for (int a = 0; a < rank; a++) {
+            int extent = tensor.dimensions[a];
+            int stride = 0;
+            if (a >= shift) {
+                int dimension = operand.dimensions[a - shift];
+                if (dimension == extent) {
+                    stride = operand.multipliers[a - shift];
+                } else if (dimension != 1) {
+                    throw new IllegalArgumentException("Tensor dimensions can't be broadcast.");
+                }
+            }
+            if (extent == 1) {
+                continue;
+            }
+            if (groups > 0 && stride == groupStrides[groups - 1] * groupExtents[groups - 1]) {
+                groupExtents[groups - 1] *= extent;
+            } else {
+                groupExtents[groups] = extent;
+                groupStrides[groups] = stride;
+                groups++;
+            }
+        }
+        if (groups == 0) {
+            groupExtents[groups++] = 1;
+        }
+        extents = Arrays.copyOf(groupExtents, groups);
+        strides = Arrays.copyOf(groupStrides, groups);
+        size = tensor.size();
+    }
+
+    static Broadcast of(Tensor tensor, Tensor operand) {
+        return new Broadcast(tensor, operand);
+    }
+
+    static void forEachRun(Tensor tensor, Tensor operand, RunOperator operator) {
+        Broadcast broadcast = new Broadcast(tensor, operand);
+        tensor.getExecutor().forEach(broadcast.size, (from, to) -> broadcast.walk(from, to, operator));
+    }
+
+    // runs covering the flat range [from, to) of the tensor
+    void walk(int from, int to, RunOperator operator) {
+        int runLength = extents[0];
+        boolean repeated = strides[0] == 0;
+        if (runLength == 0) {
+            return;
+        }
+        int run = from / runLength;
+        int position = from - run * runLength;
+        int[] counter = new int[extents.length];
+        int source = 0;
+        for (int g = 1; g < extents.length; g++) {
+            counter[g] = run % extents[g];
+            run /= extents[g];
+            source += counter[g] * strides[g];
+        }
+        int offset = from;
+        while (offset < to) {
+            int length = Math.min(runLength - position, to - offset);
+            operator.apply(offset, repeated ? source : source + position, length, repeated);
+            offset += length;
+            position = 0;
+            for (int g = 1; g < extents.length; g++) {
+                source += strides[g];
+                if (++counter[g] < extents[g]) {
+                    break;
+                }
+                source -= strides[g] * extents[g];
+                counter[g] = 0;
+            }
+        }
+    }
+}
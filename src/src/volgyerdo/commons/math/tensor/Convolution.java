@@ -0,0 +1,601 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Arrays;
+
+/**
+ * Float convolution with stride, dilation, padding mode and batching.
+ * <p>
+ * Like {@link Tensor#convolve(Tensor)} the kernel is not flipped and is
+ * centered: along an axis the kernel element e meets the source element
+ * r * stride + (e - kernel / 2) * dilation of the output element r. With
+ * {@link Padding#ZERO}, stride and dilation 1 the result is the same as the
+ * one of {@link Tensor#convolve(Tensor)}. The other paddings fill the border
+ * by mirroring (without repeating the edge) or repeating the edge element,
+ * {@link Padding#VALID} does not pad, the output only holds the positions
+ * where the whole kernel lies on the source.
+ * <p>
+ * Without channels the kernel rank is the number of convolved axes. A batched
+ * convolution takes a source with one more axis: the last one, which keeps
+ * every item of the batch contiguous in the column major layout, and
+ * convolves the items one by one.
+ * <p>
+ * A kernel that is the outer product of one dimensional kernels, like a
+ * Gaussian or a box blur, is detected when the convolution is created and
+ * evaluated as one pass per axis: a 25 x 25 kernel costs 50 multiply-adds
+ * per element instead of 625. The result differs from the direct one only
+ * by float rounding. The output lines are distributed by the executor of
+ * the source tensor.
+ * <p>
+ * A multi-channel convolution takes a kernel with two more axes, the input
+ * and the output channels, and a source with the input channel axis after
+ * the convolved ones. Every output channel sums the convolutions of all
+ * input channels. It is lowered to one matrix product: the source elements
+ * met by the kernel are gathered into the columns of a scratch matrix
+ * (im2col), one column per kernel element and input channel, which is
+ * multiplied by the kernel viewed as a matrix. The output positions are
+ * processed in chunks that keep the scratch matrices within 1 MB, also
+ * within a line, and the scratch buffers are kept per thread and reused by
+ * the following calls. A kernel that alone needs more gets buffers of one
+ * position, which are not kept.
+ * <pre>
+ * FloatTensor blurred = new Convolution(gaussian)
+ *         .padding(Convolution.Padding.REFLECT).stride(2, 2).apply(image);
+ * // 3 x 3 x 64 x 128 kernel, width x height x 64 x batch source
+ * FloatTensor features = new Convolution(kernel, true).batched(true).apply(images);
+ * </pre>
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public final class Convolution {
+
+    public static enum Padding {
+        VALID, ZERO, REFLECT, REPLICATE
+    }
+
+    // relative to the largest kernel element
+    private static final float SEPARABLE_TOLERANCE = 1e-6f;
+
+    // floats of a scratch matrix of one chunk
+    private static final int SCRATCH_SIZE = 1 << 18;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static final class Scratch {
+
+        float[] columns = new float[0];
+        float[] products = new float[0];
+
+        float[] columns(int length) {
+            if (columns.length >= length) {
+                return columns;
+            }
+            float[] buffer = new float[length];
+            if (length <= SCRATCH_SIZE) {
+                columns = buffer;
+            }
+            return buffer;
+        }
+
+        float[] products(int length) {
+            if (products.length >= length) {
+                return products;
+            }
+            float[] buffer = new float[length];
+            if (length <= SCRATCH_SIZE) {
+                products = buffer;
+            }
+            return buffer;
+        }
+    }
+
+    // convolved axes only
+    private final int[] kernelDimensions;
+    private final boolean channels;
+    private final int inputChannels;
+    private final int outputChannels;
+    private final float[] kernel;
+    // one dimensional kernels per axis, null if the kernel is not separable
+    private final float[][] factors;
+
+    private int[] stride;
+    private int[] dilation;
+    private Padding padding = Padding.ZERO;
+    private boolean batched;
+
+    public Convolution(FloatTensor kernel) {
+        this(kernel, false);
+    }
+
+    /**
+     * With channels the last two axes of the kernel are the input and the
+     * output channels.
+     */
+    public Convolution(FloatTensor kernel, boolean channels) {
+        if (kernel == null) {
+            throw new IllegalArgumentException("Tensor is null.");
+        }
+        int rank = kernel.dimensions.length - (channels ? 2 : 0);
+        if (rank < 1) {
+            throw new IllegalArgumentException("Kernel has no convolved axis.");
+        }
+        kernelDimensions = Arrays.copyOf(kernel.dimensions, rank);
+        this.channels = channels;
+        inputChannels = channels ? kernel.dimensions[rank] : 1;
+        outputChannels = channels ? kernel.dimensions[rank + 1] : 1;
+        this.kernel = kernel.values.clone();
+        stride = ones(rank);
+        dilation = ones(rank);
+        factors = channels ? null : separate(this.kernel, kernelDimensions);
+    }
+
+    public Convolution stride(int... stride) {
+        this.stride = checkSteps(stride, "Stride");
+        return this;
+    }
+
+    public Convolution dilation(int... dilation) {
+        this.dilation = checkSteps(dilation, "Dilation");
+        return this;
+    }
+
+    public Convolution padding(Padding padding) {
+        if (padding == null) {
+            throw new IllegalArgumentException("Padding is null.");
+        }
+        this.padding = padding;
+        return this;
+    }
+
+    public Convolution batched(boolean batched) {
+        this.batched = batched;
+        return this;
+    }
+
+    public boolean isSeparable() {
+        return factors != null;
+    }
+
+    /**
+     * Output dimensions for a source of the given dimensions.
+     */
+    public int[] outputDimensions(int... dimensions) {
+        int rank = kernelDimensions.length;
+        if (dimensions.length != rank + (channels ? 1 : 0) + (batched ? 1 : 0)) {
+            throw new IllegalArgumentException("Tensor dimension count does not match the kernel.");
+        }
+        if (channels && dimensions[rank] != inputChannels) {
+            throw new IllegalArgumentException("Channel count does not match the kernel.");
+        }
+        int[] output = dimensions.clone();
+        for (int a = 0; a < rank; a++) {
+            output[a] = outputDimension(a, dimensions[a], before(a) + after(a));
+        }
+        if (channels) {
+            output[rank] = outputChannels;
+        }
+        return output;
+    }
+
+    public FloatTensor apply(FloatTensor source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Tensor is null.");
+        }
+        int rank = kernelDimensions.length;
+        FloatTensor result = new FloatTensor(outputDimensions(source.dimensions));
+        int[] dimensions = Arrays.copyOf(source.dimensions, rank + (channels ? 1 : 0));
+        int[] outputDimensions = Arrays.copyOf(result.dimensions, rank);
+        int items = batched ? source.dimensions[source.dimensions.length - 1] : 1;
+        int size = source.values.length / Math.max(1, items);
+        int outputSize = result.values.length / Math.max(1, items);
+        TensorExecutor executor = source.getExecutor();
+        for (int i = 0; i < items; i++) {
+            if (channels) {
+                convolveChannels(source.values, i * size, dimensions,
+                        result.values, i * outputSize, outputDimensions, executor);
+            } else if (factors == null) {
+                convolveDirect(source.values, i * size, dimensions,
+                        result.values, i * outputSize, outputDimensions, executor);
+            } else {
+                convolveSeparable(source.values, i * size, dimensions,
+                        result.values, i * outputSize, executor);
+            }
+        }
+        return result;
+    }
+
+    private void convolveDirect(float[] source, int offset, int[] dimensions,
+            float[] target, int targetOffset, int[] outputDimensions, TensorExecutor executor) {
+        int rank = dimensions.length;
+        int[] before = new int[rank];
+        int[] after = new int[rank];
+        for (int a = 0; a < rank; a++) {
+            before[a] = before(a);
+            after[a] = after(a);
+        }
+        if (padding != Padding.VALID) {
+            source = pad(source, offset, dimensions, before, after, padding);
+            offset = 0;
+            dimensions = sum(dimensions, before, after);
+        }
+        correlate(source, offset, dimensions, kernel, kernelDimensions, stride, dilation,
+                target, targetOffset, outputDimensions, executor);
+    }
+
+    // im2col matrix times the kernel, dimensions include the input channels
+    private void convolveChannels(float[] source, int offset, int[] dimensions,
+            float[] target, int targetOffset, int[] outputDimensions, TensorExecutor executor) {
+        int rank = kernelDimensions.length;
+        int[] before = new int[rank + 1];
+        int[] after = new int[rank + 1];
+        for (int a = 0; a < rank; a++) {
+            before[a] = before(a);
+            after[a] = after(a);
+        }
+        if (padding != Padding.VALID) {
+            source = pad(source, offset, dimensions, before, after, padding);
+            offset = 0;
+            dimensions = sum(dimensions, before, after);
+        }
+        float[] padded = source;
+        int sourceOffset = offset;
+        int[] multipliers = multipliers(dimensions);
+        int channelSize = multipliers[rank];
+        int kernelSize = size(kernelDimensions);
+        int depth = kernelSize * inputChannels;
+        // offsets of the kernel elements within a channel
+        int[] offsets = new int[kernelSize];
+        int[] e = new int[rank];
+        for (int i = 0; i < kernelSize; i++) {
+            for (int a = 0; a < rank; a++) {
+                offsets[i] += e[a] * dilation[a] * multipliers[a];
+            }
+            increment(e, kernelDimensions, 0);
+        }
+        int width = outputDimensions[0];
+        int step = stride[0];
+        int positions = size(outputDimensions);
+        int lines = positions / width;
+        // positions per chunk, a chunk can start and end within a line
+        int chunk = Math.max(1, SCRATCH_SIZE / Math.max(depth, outputChannels));
+        executor.forEach(lines, (from, to) -> {
+            int[] position = new int[rank];
+            int rest = from;
+            for (int a = 1; a < rank; a++) {
+                position[a] = rest % outputDimensions[a];
+                rest /= outputDimensions[a];
+            }
+            int end = to * width;
+            int length = Math.min(chunk, end - from * width);
+            Scratch scratch = SCRATCH.get();
+            float[] columns = scratch.columns(length * depth);
+            float[] products = scratch.products(length * outputChannels);
+            for (int first = from * width; first < end; first += chunk) {
+                int count = Math.min(chunk, end - first);
+                // column e + kernelSize * c holds what kernel element e meets in channel c
+                for (int row = 0; row < count;) {
+                    int x = (first + row) % width;
+                    int run = Math.min(width - x, count - row);
+                    int base = sourceOffset + x * step;
+                    for (int a = 1; a < rank; a++) {
+                        base += position[a] * stride[a] * multipliers[a];
+                    }
+                    for (int c = 0; c < inputChannels; c++) {
+                        for (int k = 0; k < kernelSize; k++) {
+                            int t = (k + kernelSize * c) * count + row;
+                            int s = base + c * channelSize + offsets[k];
+                            if (step == 1) {
+                                System.arraycopy(padded, s, columns, t, run);
+                            } else {
+                                for (int i = 0; i < run; i++) {
+                                    columns[t + i] = padded[s + i * step];
+                                }
+                            }
+                        }
+                    }
+                    if (x + run == width) {
+                        increment(position, outputDimensions, 1);
+                    }
+                    row += run;
+                }
+                Arrays.fill(products, 0, count * outputChannels, 0);
+                FloatMatrixKernel.multiply(columns, kernel, products, count, outputChannels, depth);
+                for (int o = 0; o < outputChannels; o++) {
+                    System.arraycopy(products, count * o, target,
+                            targetOffset + first + positions * o, count);
+                }
+            }
+        });
+    }
+
+    // one pass per axis, each pass pads and strides its own axis only
+    private void convolveSeparable(float[] source, int offset, int[] dimensions,
+            float[] target, int targetOffset, TensorExecutor executor) {
+        int rank = dimensions.length;
+        for (int a = 0; a < rank; a++) {
+            int[] before = new int[rank];
+            int[] after = new int[rank];
+            before[a] = before(a);
+            after[a] = after(a);
+            int[] axisKernel = ones(rank);
+            axisKernel[a] = kernelDimensions[a];
+            int[] axisStride = ones(rank);
+            axisStride[a] = stride[a];
+            int[] axisDilation = ones(rank);
+            axisDilation[a] = dilation[a];
+            int[] passDimensions = dimensions.clone();
+            passDimensions[a] = outputDimension(a, dimensions[a], before[a] + after[a]);
+            if (padding != Padding.VALID) {
+                source = pad(source, offset, dimensions, before, after, padding);
+                offset = 0;
+                dimensions = sum(dimensions, before, after);
+            }
+            if (a == rank - 1) {
+                correlate(source, offset, dimensions, factors[a], axisKernel, axisStride, axisDilation,
+                        target, targetOffset, passDimensions, executor);
+            } else {
+                float[] pass = new float[size(passDimensions)];
+                correlate(source, offset, dimensions, factors[a], axisKernel, axisStride, axisDilation,
+                        pass, 0, passDimensions, executor);
+                source = pass;
+                offset = 0;
+                dimensions = passDimensions;
+            }
+        }
+    }
+
+    /**
+     * Unpadded correlation: target[r] += sum over e of
+     * source[r * stride + e * dilation] * kernel[e]. Every kernel element is
+     * added to a whole output line at once, which is a plain loop over the
+     * line when the stride of the first axis is 1.
+     */
+    private static void correlate(float[] source, int offset, int[] dimensions,
+            float[] kernel, int[] kernelDimensions, int[] stride, int[] dilation,
+            float[] target, int targetOffset, int[] outputDimensions, TensorExecutor executor) {
+        int rank = dimensions.length;
+        int[] multipliers = multipliers(dimensions);
+        int count = 0;
+        float[] weights = new float[kernel.length];
+        int[] offsets = new int[kernel.length];
+        int[] e = new int[rank];
+        for (int i = 0; i < kernel.length; i++) {
+            if (kernel[i] != 0) {
+                int position = 0;
+                for (int a = 0; a < rank; a++) {
+                    position += e[a] * dilation[a] * multipliers[a];
+                }
+                weights[count] = kernel[i];
+                offsets[count++] = position;
+            }
+            increment(e, kernelDimensions, 0);
+        }
+        int kernelCount = count;
+        int width = outputDimensions[0];
+        int step = stride[0];
+        int lines = size(outputDimensions) / width;
+        executor.forEach(lines, (from, to) -> {
+            int[] position = new int[rank];
+            int rest = from;
+            for (int a = 1; a < rank; a++) {
+                position[a] = rest % outputDimensions[a];
+                rest /= outputDimensions[a];
+            }
+            for (int line = from; line < to; line++) {
+                int base = offset;
+                for (int a = 1; a < rank; a++) {
+                    base += position[a] * stride[a] * multipliers[a];
+                }
+                int t = targetOffset + line * width;
+                for (int k = 0; k < kernelCount; k++) {
+                    float w = weights[k];
+                    int s = base + offsets[k];
+                    if (step == 1) {
+                        for (int x = 0; x < width; x++) {
+                            target[t + x] += w * source[s + x];
+                        }
+                    } else {
+                        for (int x = 0; x < width; x++) {
+                            target[t + x] += w * source[s + x * step];
+                        }
+                    }
+                }
+                increment(position, outputDimensions, 1);
+            }
+        });
+    }
+
+    private static float[] pad(float[] source, int offset, int[] dimensions,
+            int[] before, int[] after, Padding padding) {
+        int rank = dimensions.length;
+        int[] padded = sum(dimensions, before, after);
+        int[] multipliers = multipliers(dimensions);
+        // source coordinate of every padded coordinate, -1 for zero
+        int[][] maps = new int[rank][];
+        for (int a = 0; a < rank; a++) {
+            maps[a] = new int[padded[a]];
+            for (int x = 0; x < padded[a]; x++) {
+                maps[a][x] = map(x - before[a], dimensions[a], padding);
+            }
+        }
+        float[] result = new float[size(padded)];
+        int width = padded[0];
+        int[] map = maps[0];
+        int[] position = new int[rank];
+        for (int line = 0; line < result.length / width; line++) {
+            int start = offset;
+            boolean inside = true;
+            for (int a = 1; a < rank; a++) {
+                int coordinate = maps[a][position[a]];
+                inside &= coordinate >= 0;
+                start += coordinate * multipliers[a];
+            }
+            if (inside) {
+                int t = line * width;
+                for (int x = 0; x < before[0]; x++) {
+                    result[t + x] = map[x] < 0 ? 0 : source[start + map[x]];
+                }
+                System.arraycopy(source, start, result, t + before[0], dimensions[0]);
+                for (int x = before[0] + dimensions[0]; x < width; x++) {
+                    result[t + x] = map[x] < 0 ? 0 : source[start + map[x]];
+                }
+            }
+            increment(position, padded, 1);
+        }
+        return result;
+    }
+
+    private static int map(int coordinate, int dimension, Padding padding) {
+        if (coordinate >= 0 && coordinate < dimension) {
+            return coordinate;
+        }
+        return switch (padding) {
+            case REPLICATE ->
+                coordinate < 0 ? 0 : dimension - 1;
+            case REFLECT ->
+                reflect(coordinate, dimension);
+            default ->
+                -1;
+        };
+    }
+
+    // mirrored at the edges without repeating them
+    private static int reflect(int coordinate, int dimension) {
+        if (dimension == 1) {
+            return 0;
+        }
+        int period = 2 * (dimension - 1);
+        int m = Math.floorMod(coordinate, period);
+        return m < dimension ? m : period - m;
+    }
+
+    // outer product factors of the kernel, found through its largest element
+    private static float[][] separate(float[] kernel, int[] dimensions) {
+        int rank = dimensions.length;
+        if (rank < 2) {
+            return null;
+        }
+        int pivot = 0;
+        for (int i = 1; i < kernel.length; i++) {
+            if (Math.abs(kernel[i]) > Math.abs(kernel[pivot])) {
+                pivot = i;
+            }
+        }
+        float max = kernel[pivot];
+        if (max == 0) {
+            return null;
+        }
+        int[] multipliers = multipliers(dimensions);
+        int[] p = new int[rank];
+        for (int a = 0, rest = pivot; a < rank; a++) {
+            p[a] = rest % dimensions[a];
+            rest /= dimensions[a];
+        }
+        // factors[0] runs through the pivot, the others are divided by it
+        float[][] factors = new float[rank][];
+        for (int a = 0; a < rank; a++) {
+            factors[a] = new float[dimensions[a]];
+            for (int x = 0; x < dimensions[a]; x++) {
+                float value = kernel[pivot + (x - p[a]) * multipliers[a]];
+                factors[a][x] = a == 0 ? value : value / max;
+            }
+        }
+        float tolerance = SEPARABLE_TOLERANCE * Math.abs(max);
+        int[] e = new int[rank];
+        for (int i = 0; i < kernel.length; i++) {
+            float product = factors[0][e[0]];
+            for (int a = 1; a < rank; a++) {
+                product *= factors[a][e[a]];
+            }
+            if (!(Math.abs(kernel[i] - product) <= tolerance)) {
+                return null;
+            }
+            increment(e, dimensions, 0);
+        }
+        return factors;
+    }
+
+    private int before(int axis) {
+        return padding == Padding.VALID ? 0 : kernelDimensions[axis] / 2 * dilation[axis];
+    }
+
+    private int after(int axis) {
+        return padding == Padding.VALID ? 0
+                : (kernelDimensions[axis] - 1 - kernelDimensions[axis] / 2) * dilation[axis];
+    }
+
+    private int outputDimension(int axis, int dimension, int padding) {
+        int extent = dimension + padding - (kernelDimensions[axis] - 1) * dilation[axis];
+        if (extent < 1) {
+            throw new IllegalArgumentException("Kernel is larger than the padded source.");
+        }
+        return (extent - 1) / stride[axis] + 1;
+    }
+
+    private int[] checkSteps(int[] steps, String name) {
+        if (steps == null || steps.length != kernelDimensions.length) {
+            throw new IllegalArgumentException(name + " count does not match the kernel.");
+        }
+        for (int step : steps) {
+            if (step < 1) {
+                throw new IllegalArgumentException(name + " is smaller than 1.");
+            }
+        }
+        return steps.clone();
+    }
+
+    private static void increment(int[] position, int[] dimensions, int from) {
+        for (int a = from; a < position.length; a++) {
+            if (++position[a] < dimensions[a]) {
+                return;
+            }
+            position[a] = 0;
+        }
+    }
+
+    private static int[] multipliers(int[] dimensions) {
+        int[] multipliers = new int[dimensions.length];
+        int size = 1;
+        for (int a = 0; a < dimensions.length; a++) {
+            multipliers[a] = size;
+            size *= dimensions[a];
+        }
+        return multipliers;
+    }
+
+    private static int size(int[] dimensions) {
+        int size = 1;
+        for (int dimension : dimensions) {
+            size *= dimension;
+        }
+        return size;
+    }
+
+    private static int[] sum(int[] dimensions, int[] before, int[] after) {
+        int[] sum = new int[dimensions.length];
+        for (int a = 0; a < dimensions.length; a++) {
+            sum[a] = dimensions[a] + before[a] + after[a];
+        }
+        return sum;
+    }
+
+    private static int[] ones(int length) {
+        int[] ones = new int[length];
+        Arrays.fill(ones, 1);
+        return ones;
+    }
+}
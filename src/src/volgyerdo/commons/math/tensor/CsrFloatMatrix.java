@@ -0,0 +1,439 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Arrays;
+import volgyerdo.commons.primitive.FloatUnaryOperator;
+
+/**
+ * Sparse float matrix in compressed sparse row (CSR) format.
+ * <p>
+ * Row i, the first index like in {@link FloatTensor}, has its non-zero
+ * elements in [rowPointers[i], rowPointers[i + 1]) of the column index and
+ * value arrays, in ascending column order. The rows are independent, so
+ * {@link #multiply(FloatTensor)} is distributed over them by the executor.
+ * It is a {@link Tensor} of type {@link Tensor.TYPE#SPARSE_FLOAT}, see
+ * {@link SparseTensor} for the operations that run densely. Single
+ * elements are set by moving the elements after them, building a matrix
+ * element by element is faster in {@link SparseFloatTensor}.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class CsrFloatMatrix extends SparseTensor {
+
+    private int[] rowPointers;
+    private int[] columnIndices;
+    private float[] values;
+
+    public CsrFloatMatrix(int rows, int columns) {
+        this(new int[]{rows, columns}, new int[rows + 1], new int[0], new float[0]);
+    }
+
+    public CsrFloatMatrix(int rows, int columns, int[] rowPointers, int[] columnIndices, float[] values) {
+        super(checkSize(rows, columns));
+        if (rowPointers.length != rows + 1 || rowPointers[0] != 0
+                || rowPointers[rows] > columnIndices.length || rowPointers[rows] > values.length) {
+            throw new IllegalArgumentException("Row pointers don't match the matrix.");
+        }
+        for (int i = 0; i < rows; i++) {
+            if (rowPointers[i] > rowPointers[i + 1]) {
+                throw new IllegalArgumentException("Row pointers are not ascending.");
+            }
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                if (columnIndices[p] < 0 || columnIndices[p] >= columns
+                        || (p > rowPointers[i] && columnIndices[p] <= columnIndices[p - 1])) {
+                    throw new IllegalArgumentException("Column indices are out of range or not ascending in a row.");
+                }
+            }
+        }
+        this.rowPointers = rowPointers.clone();
+        int[] keptColumns = new int[rowPointers[rows]];
+        float[] keptValues = new float[rowPointers[rows]];
+        int n = 0;
+        // explicit zeros are dropped like in every other operation
+        for (int i = 0; i < rows; i++) {
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                if (values[p] != 0) {
+                    keptColumns[n] = columnIndices[p];
+                    keptValues[n++] = values[p];
+                }
+            }
+            this.rowPointers[i + 1] = n;
+        }
+        this.columnIndices = Arrays.copyOf(keptColumns, n);
+        this.values = Arrays.copyOf(keptValues, n);
+    }
+
+    private CsrFloatMatrix(int[] dimensions, int[] rowPointers, int[] columnIndices, float[] values) {
+        super(dimensions);
+        this.rowPointers = rowPointers;
+        this.columnIndices = columnIndices;
+        this.values = values;
+    }
+
+    private static int[] checkSize(int rows, int columns) {
+        if (rows < 1 || columns < 1) {
+            throw new IllegalArgumentException("Matrix dimensions are not positive.");
+        }
+        return new int[]{rows, columns};
+    }
+
+    public static CsrFloatMatrix of(Tensor tensor) {
+        checkMatrix(tensor.dimensions);
+        if (tensor instanceof CsrFloatMatrix) {
+            return (CsrFloatMatrix) tensor.copy();
+        }
+        if (tensor instanceof SparseTensor) {
+            return of(((SparseTensor) tensor).coordinates());
+        }
+        float[] dense = (tensor instanceof FloatTensor
+                ? (FloatTensor) tensor : (FloatTensor) tensor.convertTo(TYPE.FLOAT)).values;
+        int rows = tensor.dimensions[0];
+        int columns = tensor.dimensions[1];
+        int[] rowPointers = new int[rows + 1];
+        for (int i = 0; i < dense.length; i++) {
+            if (dense[i] != 0) {
+                rowPointers[i % rows + 1]++;
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            rowPointers[i + 1] += rowPointers[i];
+        }
+        int[] next = Arrays.copyOf(rowPointers, rows);
+        int[] columnIndices = new int[rowPointers[rows]];
+        float[] values = new float[rowPointers[rows]];
+        // the dense values are visited column by column, so the columns of
+        // a row come in ascending order
+        for (int j = 0, i = 0; j < columns; j++) {
+            for (int row = 0; row < rows; row++, i++) {
+                if (dense[i] != 0) {
+                    int p = next[row]++;
+                    columnIndices[p] = j;
+                    values[p] = dense[i];
+                }
+            }
+        }
+        return new CsrFloatMatrix(tensor.dimensions.clone(), rowPointers, columnIndices, values);
+    }
+
+    private static CsrFloatMatrix of(SparseFloatTensor tensor) {
+        int rows = tensor.dimensions[0];
+        int count = tensor.nonZeroCount();
+        int[] rowPointers = new int[rows + 1];
+        for (int e = 0; e < count; e++) {
+            rowPointers[tensor.nonZeroIndex(e) % rows + 1]++;
+        }
+        for (int i = 0; i < rows; i++) {
+            rowPointers[i + 1] += rowPointers[i];
+        }
+        int[] next = Arrays.copyOf(rowPointers, rows);
+        int[] columnIndices = new int[count];
+        float[] values = new float[count];
+        for (int e = 0; e < count; e++) {
+            int index = tensor.nonZeroIndex(e);
+            int p = next[index % rows]++;
+            columnIndices[p] = index / rows;
+            values[p] = tensor.nonZeroValue(e);
+        }
+        return new CsrFloatMatrix(tensor.dimensions.clone(), rowPointers, columnIndices, values);
+    }
+
+    @Override
+    public FloatTensor toFloatTensor() {
+        FloatTensor tensor = new FloatTensor(dimensions.clone());
+        int rows = dimensions[0];
+        for (int i = 0; i < rows; i++) {
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                tensor.values[i + rows * columnIndices[p]] = values[p];
+            }
+        }
+        return tensor;
+    }
+
+    public SparseFloatTensor toSparseFloatTensor() {
+        int rows = dimensions[0];
+        int columns = dimensions[1];
+        int count = nonZeroCount();
+        // the flat indices are ordered by column, then by row
+        int[] starts = new int[columns + 1];
+        for (int p = 0; p < count; p++) {
+            starts[columnIndices[p] + 1]++;
+        }
+        for (int j = 0; j < columns; j++) {
+            starts[j + 1] += starts[j];
+        }
+        int[] indices = new int[count];
+        float[] sparseValues = new float[count];
+        for (int i = 0; i < rows; i++) {
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                int e = starts[columnIndices[p]]++;
+                indices[e] = i + rows * columnIndices[p];
+                sparseValues[e] = values[p];
+            }
+        }
+        return new SparseFloatTensor(dimensions, indices, sparseValues, count);
+    }
+
+    @Override
+    public int nonZeroCount() {
+        return rowPointers[dimensions[0]];
+    }
+
+    public float getFloatValue(int row, int column) {
+        return getFlat(flatIndex(row, column));
+    }
+
+    @Override
+    public float getFlat(int index) {
+        checkFlat(index);
+        int rows = dimensions[0];
+        int row = index % rows;
+        int position = Arrays.binarySearch(columnIndices, rowPointers[row], rowPointers[row + 1], index / rows);
+        return position >= 0 ? values[position] : 0;
+    }
+
+    // inserting or removing an element moves the elements after it
+    @Override
+    public void setFlat(int index, float value) {
+        checkFlat(index);
+        int rows = dimensions[0];
+        int row = index % rows;
+        int column = index / rows;
+        int position = Arrays.binarySearch(columnIndices, rowPointers[row], rowPointers[row + 1], column);
+        int count = nonZeroCount();
+        if (position >= 0) {
+            if (value != 0) {
+                values[position] = value;
+                return;
+            }
+            int[] newColumns = new int[count - 1];
+            float[] newValues = new float[count - 1];
+            System.arraycopy(columnIndices, 0, newColumns, 0, position);
+            System.arraycopy(values, 0, newValues, 0, position);
+            System.arraycopy(columnIndices, position + 1, newColumns, position, count - position - 1);
+            System.arraycopy(values, position + 1, newValues, position, count - position - 1);
+            columnIndices = newColumns;
+            values = newValues;
+            for (int i = row + 1; i <= rows; i++) {
+                rowPointers[i]--;
+            }
+        } else if (value != 0) {
+            position = -position - 1;
+            int[] newColumns = new int[count + 1];
+            float[] newValues = new float[count + 1];
+            System.arraycopy(columnIndices, 0, newColumns, 0, position);
+            System.arraycopy(values, 0, newValues, 0, position);
+            System.arraycopy(columnIndices, position, newColumns, position + 1, count - position);
+            System.arraycopy(values, position, newValues, position + 1, count - position);
+            newColumns[position] = column;
+            newValues[position] = value;
+            columnIndices = newColumns;
+            values = newValues;
+            for (int i = row + 1; i <= rows; i++) {
+                rowPointers[i]++;
+            }
+        }
+    }
+
+    @Override
+    void forEachNonZero(NonZeroConsumer consumer) {
+        int rows = dimensions[0];
+        for (int i = 0; i < rows; i++) {
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                consumer.accept(i + rows * columnIndices[p], values[p]);
+            }
+        }
+    }
+
+    @Override
+    void mapNonZero(FloatUnaryOperator operator) {
+        mapRows((row, column, value) -> operator.applyAsFloat(value));
+    }
+
+    @Override
+    void clear() {
+        rowPointers = new int[dimensions[0] + 1];
+        columnIndices = new int[0];
+        values = new float[0];
+    }
+
+    @Override
+    SparseFloatTensor coordinates() {
+        return toSparseFloatTensor();
+    }
+
+    @Override
+    void assign(SparseTensor tensor) {
+        checkSameDimensions(tensor);
+        CsrFloatMatrix other = tensor instanceof CsrFloatMatrix
+                ? (CsrFloatMatrix) tensor : of(tensor.coordinates());
+        rowPointers = other.rowPointers.clone();
+        columnIndices = other.columnIndices.clone();
+        values = other.values.clone();
+    }
+
+    /**
+     * Dense product, contracting the columns of the matrix with the first
+     * dimension of the multiplier like {@link Tensor#multiply(Tensor, int)}
+     * with a depth of 1.
+     */
+    public FloatTensor multiply(FloatTensor multiplier) {
+        FloatTensor result = new FloatTensor(Tensor.productDimensions(dimensions, multiplier.dimensions, 1));
+        int rows = dimensions[0];
+        int k = dimensions[1];
+        int n = multiplier.values.length / k;
+        int[] rowPointers = this.rowPointers;
+        int[] columnIndices = this.columnIndices;
+        float[] values = this.values;
+        float[] b = multiplier.values;
+        float[] c = result.values;
+        getExecutor().forEach(rows, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int start = rowPointers[i];
+                int end = rowPointers[i + 1];
+                for (int j = 0; j < n; j++) {
+                    int bOffset = k * j;
+                    float sum = 0;
+                    for (int p = start; p < end; p++) {
+                        sum += values[p] * b[bOffset + columnIndices[p]];
+                    }
+                    c[i + rows * j] = sum;
+                }
+            }
+        });
+        return result;
+    }
+
+    // the rows only contract the columns, other depths go through the
+    // coordinate format
+    @Override
+    public FloatTensor multiply(FloatTensor multiplier, int depth) {
+        if (depth == 1) {
+            return multiply(multiplier);
+        }
+        SparseFloatTensor coordinates = toSparseFloatTensor();
+        coordinates.setExecutor(getExecutor());
+        return coordinates.multiply(multiplier, depth);
+    }
+
+    @Override
+    void merge(SparseTensor tensor, float sign) {
+        merge(operand(tensor), sign, false);
+    }
+
+    @Override
+    void multiplyElements(SparseTensor multiplier) {
+        merge(operand(multiplier), 1, true);
+    }
+
+    @Override
+    void multiplyElements(FloatTensor multiplier) {
+        float[] dense = multiplier.values;
+        mapRows((row, column, value) -> value * dense[row + dimensions[0] * column]);
+    }
+
+    @FunctionalInterface
+    private static interface ElementOperator {
+
+        float apply(int row, int column, float value);
+    }
+
+    // applies the operator on the stored values and drops the zeros
+    private void mapRows(ElementOperator operator) {
+        int rows = dimensions[0];
+        int n = 0;
+        for (int i = 0, p = 0; i < rows; i++) {
+            for (int end = rowPointers[i + 1]; p < end; p++) {
+                float value = operator.apply(i, columnIndices[p], values[p]);
+                if (value != 0) {
+                    columnIndices[n] = columnIndices[p];
+                    values[n++] = value;
+                }
+            }
+            rowPointers[i + 1] = n;
+        }
+        columnIndices = Arrays.copyOf(columnIndices, n);
+        values = Arrays.copyOf(values, n);
+    }
+
+    private static CsrFloatMatrix operand(SparseTensor tensor) {
+        return tensor instanceof CsrFloatMatrix ? (CsrFloatMatrix) tensor : of(tensor.coordinates());
+    }
+
+    // row by row union of the elements, or intersection for a product
+    private void merge(CsrFloatMatrix matrix, float sign, boolean product) {
+        int rows = dimensions[0];
+        int capacity = product ? Math.min(values.length, matrix.values.length)
+                : values.length + matrix.values.length;
+        int[] resultPointers = new int[rows + 1];
+        int[] resultColumns = new int[capacity];
+        float[] resultValues = new float[capacity];
+        int n = 0;
+        for (int i = 0; i < rows; i++) {
+            int a = rowPointers[i];
+            int aEnd = rowPointers[i + 1];
+            int b = matrix.rowPointers[i];
+            int bEnd = matrix.rowPointers[i + 1];
+            while (a < aEnd || b < bEnd) {
+                int column;
+                float value;
+                if (b == bEnd || (a < aEnd && columnIndices[a] < matrix.columnIndices[b])) {
+                    column = columnIndices[a];
+                    value = product ? 0 : values[a];
+                    a++;
+                } else if (a == aEnd || columnIndices[a] > matrix.columnIndices[b]) {
+                    column = matrix.columnIndices[b];
+                    value = product ? 0 : sign * matrix.values[b];
+                    b++;
+                } else {
+                    column = columnIndices[a];
+                    value = product ? values[a] * matrix.values[b] : values[a] + sign * matrix.values[b];
+                    a++;
+                    b++;
+                }
+                if (value != 0) {
+                    resultColumns[n] = column;
+                    resultValues[n++] = value;
+                }
+            }
+            resultPointers[i + 1] = n;
+        }
+        rowPointers = resultPointers;
+        columnIndices = Arrays.copyOf(resultColumns, n);
+        values = Arrays.copyOf(resultValues, n);
+    }
+
+    @Override
+    public Tensor transpose() {
+        return of((SparseFloatTensor) super.transpose());
+    }
+
+    @Override
+    public Tensor rotate() {
+        return of((SparseFloatTensor) super.rotate());
+    }
+
+    @Override
+    public Tensor copy() {
+        return new CsrFloatMatrix(dimensions.clone(), rowPointers.clone(), columnIndices.clone(), values.clone());
+    }
+
+    private static void checkMatrix(int[] dimensions) {
+        if (dimensions.length != 2) {
+            throw new IllegalArgumentException("Matrix needs two dimensions.");
+        }
+    }
+}
@@ -0,0 +1,842 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import volgyerdo.commons.primitive.ArrayUtils;
+import volgyerdo.commons.primitive.ByteSupplier;
+import volgyerdo.commons.primitive.ByteUnaryOperator;
+import volgyerdo.commons.primitive.DoubleSupplier;
+import volgyerdo.commons.primitive.DoubleUnaryOperator;
+import volgyerdo.commons.primitive.FloatSupplier;
+import volgyerdo.commons.primitive.FloatUnaryOperator;
+import volgyerdo.commons.primitive.PrimitiveUtils;
+import volgyerdo.commons.primitive.ShortSupplier;
+import volgyerdo.commons.primitive.ShortUnaryOperator;
+
+/**
+ * Tensor of double precision values, for accumulators and results that
+ * lose too much precision in a float tensor.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class DoubleTensor extends Tensor {
+
+    public double[] values;
+
+    public DoubleTensor() {
+    }
+
+    public DoubleTensor(int... dimensions) {
+        super(TYPE.DOUBLE, dimensions);
+        values = new double[ArrayUtils.product(dimensions)];
+    }
+
+    @Override
+    public Tensor convertTo(TYPE type) {
+        return switch (type) {
+            case BYTE ->
+                convertToByteTensor();
+            case SHORT ->
+                convertToShortTensor();
+            case FLOAT ->
+                convertToFloatTensor();
+            case OBJECT ->
+                convertToObjectTensor();
+            case DOUBLE ->
+                copy();
+            case INT ->
+                convertToIntTensor();
+            case LONG ->
+                convertToLongTensor();
+            case SPARSE_FLOAT ->
+                SparseFloatTensor.of(this);
+            default ->
+                null;
+        };
+    }
+
+    private Tensor convertToByteTensor() {
+        ByteTensor byteTensor = (ByteTensor) Tensor.create(TYPE.BYTE, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            byteTensor.values[i] = PrimitiveUtils.toByte(values[i]);
+        }
+        return byteTensor;
+    }
+
+    private Tensor convertToShortTensor() {
+        ShortTensor shortTensor = (ShortTensor) Tensor.create(TYPE.SHORT, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            shortTensor.values[i] = PrimitiveUtils.toShort(values[i]);
+        }
+        return shortTensor;
+    }
+
+    private Tensor convertToFloatTensor() {
+        FloatTensor floatTensor = (FloatTensor) Tensor.create(TYPE.FLOAT, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            floatTensor.values[i] = (float) values[i];
+        }
+        return floatTensor;
+    }
+
+    private Tensor convertToObjectTensor() {
+        ObjectTensor objectTensor = (ObjectTensor) Tensor.create(TYPE.OBJECT, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            objectTensor.values[i] = values[i];
+        }
+        return objectTensor;
+    }
+
+    private Tensor convertToIntTensor() {
+        IntTensor intTensor = (IntTensor) Tensor.create(TYPE.INT, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            intTensor.values[i] = PrimitiveUtils.toInt(values[i]);
+        }
+        return intTensor;
+    }
+
+    private Tensor convertToLongTensor() {
+        LongTensor longTensor = (LongTensor) Tensor.create(TYPE.LONG, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            longTensor.values[i] = PrimitiveUtils.toLong(values[i]);
+        }
+        return longTensor;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public void set(Tensor tensor) {
+        checkNull(tensor);
+        checkClass(tensor);
+        checkDimensionCount(tensor.dimensions);
+        checkDimensions(tensor);
+        System.arraycopy(((DoubleTensor) tensor).values, 0, values, 0, values.length);
+    }
+
+    @Override
+    public void setFloatValue(float value, int... indices) {
+        values[index(indices)] = value;
+    }
+
+    @Override
+    public void setByteValue(byte value, int... indices) {
+        values[index(indices)] = value;
+    }
+
+    @Override
+    public void setShortValue(short value, int... indices) {
+        values[index(indices)] = value;
+    }
+
+    public void setDoubleValue(double value, int... indices) {
+        values[index(indices)] = value;
+    }
+
+    @Override
+    public void setObjectValue(Object value, int... indices) {
+        throw new RuntimeException("Can't store an object in a double tensor.");
+    }
+
+    @Override
+    public byte getByteValue(int... indices) {
+        return PrimitiveUtils.toByte(values[index(indices)]);
+    }
+
+    @Override
+    public short getShortValue(int... indices) {
+        return PrimitiveUtils.toShort(values[index(indices)]);
+    }
+
+    @Override
+    public float getFloatValue(int... indices) {
+        return (float) values[index(indices)];
+    }
+
+    public double getDoubleValue(int... indices) {
+        return values[index(indices)];
+    }
+
+    @Override
+    public Object getObjectValue(int... indices) {
+        throw new RuntimeException("Can't get an object from a double tensor.");
+    }
+
+    public double getFlat(int index) {
+        return values[index];
+    }
+
+    public void setFlat(int index, double value) {
+        values[index] = value;
+    }
+
+    public double get(int i, int j) {
+        return values[index(i, j)];
+    }
+
+    public double get(int i, int j, int k) {
+        return values[index(i, j, k)];
+    }
+
+    public void set(double value, int i, int j) {
+        values[index(i, j)] = value;
+    }
+
+    public void set(double value, int i, int j, int k) {
+        values[index(i, j, k)] = value;
+    }
+
+    @Override
+    public void setByteArray(byte[] values) {
+        if (dimensions.length != 1 || dimensions[0] != values.length) {
+            throw new IllegalArgumentException("Array dimension is different.");
+        }
+        for (int i = 0; i < values.length; i++) {
+            this.values[i] = values[i];
+        }
+    }
+
+    @Override
+    public void setShortArray(short[] values) {
+        if (dimensions.length != 1 || dimensions[0] != values.length) {
+            throw new IllegalArgumentException("Array dimension is different.");
+        }
+        for (int i = 0; i < values.length; i++) {
+            this.values[i] = values[i];
+        }
+    }
+
+    @Override
+    public void setFloatArray(float[] values) {
+        if (dimensions.length != 1 || dimensions[0] != values.length) {
+            throw new IllegalArgumentException("Array dimension is different.");
+        }
+        for (int i = 0; i < values.length; i++) {
+            this.values[i] = values[i];
+        }
+    }
+
+    public void setDoubleArray(double[] values) {
+        if (dimensions.length != 1 || dimensions[0] != values.length) {
+            throw new IllegalArgumentException("Array dimension is different.");
+        }
+        System.arraycopy(values, 0, this.values, 0, values.length);
+    }
+
+    @Override
+    public void setObjectArray(Object[] values) {
+        throw new RuntimeException("Can't set an object array into a double tensor.");
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 67 * hash + Arrays.hashCode(this.values);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final DoubleTensor other = (DoubleTensor) obj;
+        if (!Arrays.equals(this.values, other.values)) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void randomize(byte min, byte max) {
+        randomize((double) min, (double) max);
+    }
+
+    @Override
+    public void randomize(short min, short max) {
+        randomize((double) min, (double) max);
+    }
+
+    @Override
+    public void randomize(float min, float max) {
+        randomize((double) min, (double) max);
+    }
+
+    public void randomize(double min, double max) {
+        if (max < min) {
+            throw new RuntimeException("Max < min in randomize parameters.");
+        }
+        ArrayUtils.randomize(values, min, max);
+    }
+
+    @Override
+    public void fill(byte x) {
+        fill((double) x);
+    }
+
+    @Override
+    public void fill(short x) {
+        fill((double) x);
+    }
+
+    @Override
+    public void fill(float x) {
+        fill((double) x);
+    }
+
+    public void fill(double x) {
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = x;
+            }
+        });
+    }
+
+    @Override
+    public void add(byte x) {
+        add((double) x);
+    }
+
+    @Override
+    public void add(short x) {
+        add((double) x);
+    }
+
+    @Override
+    public void add(float x) {
+        add((double) x);
+    }
+
+    public void add(double x) {
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] += x;
+            }
+        });
+    }
+
+    @Override
+    public void add(Tensor tensor) {
+        checkNull(tensor);
+        checkClass(tensor);
+        double[] operand = ((DoubleTensor) tensor).values;
+        if (!Arrays.equals(dimensions, tensor.dimensions)) {
+            Broadcast.forEachRun(this, tensor, (offset, operandOffset, length, repeated) -> {
+                int end = offset + length;
+                if (repeated) {
+                    double x = operand[operandOffset];
+                    for (int i = offset; i < end; i++) {
+                        values[i] += x;
+                    }
+                } else {
+                    int shift = operandOffset - offset;
+                    for (int i = offset; i < end; i++) {
+                        values[i] += operand[i + shift];
+                    }
+                }
+            });
+            return;
+        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] += operand[i];
+            }
+        });
+    }
+
+    @Override
+    public void substract(byte x) {
+        substract((double) x);
+    }
+
+    @Override
+    public void substract(short x) {
+        substract((double) x);
+    }
+
+    @Override
+    public void substract(float x) {
+        substract((double) x);
+    }
+
+    public void substract(double x) {
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] -= x;
+            }
+        });
+    }
+
+    @Override
+    public void substract(Tensor tensor) {
+        checkNull(tensor);
+        checkClass(tensor);
+        double[] operand = ((DoubleTensor) tensor).values;
+        if (!Arrays.equals(dimensions, tensor.dimensions)) {
+            Broadcast.forEachRun(this, tensor, (offset, operandOffset, length, repeated) -> {
+                int end = offset + length;
+                if (repeated) {
+                    double x = operand[operandOffset];
+                    for (int i = offset; i < end; i++) {
+                        values[i] -= x;
+                    }
+                } else {
+                    int shift = operandOffset - offset;
+                    for (int i = offset; i < end; i++) {
+                        values[i] -= operand[i + shift];
+                    }
+                }
+            });
+            return;
+        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] -= operand[i];
+            }
+        });
+    }
+
+    @Override
+    public void multiply(byte x) {
+        multiply((double) x);
+    }
+
+    @Override
+    public void multiply(short x) {
+        multiply((double) x);
+    }
+
+    @Override
+    public void multiply(float x) {
+        multiply((double) x);
+    }
+
+    public void multiply(double x) {
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] *= x;
+            }
+        });
+    }
+
+    @Override
+    public void divide(byte x) {
+        divide((double) x);
+    }
+
+    @Override
+    public void divide(short x) {
+        divide((double) x);
+    }
+
+    @Override
+    public void divide(float x) {
+        divide((double) x);
+    }
+
+    public void divide(double x) {
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] /= x;
+            }
+        });
+    }
+
+    @Override
+    public Tensor sum() {
+        Tensor result = Tensor.create(type, 1);
+        ((DoubleTensor) result).values[0] = doubleSum();
+        return result;
+    }
+
+    @Override
+    public byte byteSum() {
+        return PrimitiveUtils.toByte(doubleSum());
+    }
+
+    @Override
+    public short shortSum() {
+        return PrimitiveUtils.toShort(doubleSum());
+    }
+
+    @Override
+    public float floatSum() {
+        return PrimitiveUtils.toFloat(doubleSum());
+    }
+
+    // pairwise over compensated block sums
+    public double doubleSum() {
+        return getExecutor().reduce(values.length, (from, to) -> {
+            double sum = 0;
+            double compensation = 0;
+            for (int i = from; i < to; i++) {
+                double t = sum + values[i];
+                compensation += Math.abs(sum) >= Math.abs(values[i])
+                        ? (sum - t) + values[i] : (values[i] - t) + sum;
+                sum = t;
+            }
+            return sum + compensation;
+        }, Double::sum);
+    }
+
+    @Override
+    public byte byteMin() {
+        return PrimitiveUtils.toByte(doubleMin());
+    }
+
+    @Override
+    public short shortMin() {
+        return PrimitiveUtils.toShort(doubleMin());
+    }
+
+    @Override
+    public float floatMin() {
+        return PrimitiveUtils.toFloat(doubleMin());
+    }
+
+    public double doubleMin() {
+        return getExecutor().reduce(values.length, (from, to) -> {
+            double min = Double.POSITIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                if (min > values[i]) {
+                    min = values[i];
+                }
+            }
+            return min;
+        }, (a, b) -> a < b ? a : b);
+    }
+
+    @Override
+    public byte byteMax() {
+        return PrimitiveUtils.toByte(doubleMax());
+    }
+
+    @Override
+    public short shortMax() {
+        return PrimitiveUtils.toShort(doubleMax());
+    }
+
+    @Override
+    public float floatMax() {
+        return PrimitiveUtils.toFloat(doubleMax());
+    }
+
+    public double doubleMax() {
+        return getExecutor().reduce(values.length, (from, to) -> {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                if (max < values[i]) {
+                    max = values[i];
+                }
+            }
+            return max;
+        }, (a, b) -> a > b ? a : b);
+    }
+
+    @Override
+    public byte byteAverage() {
+        return PrimitiveUtils.toByte(doubleAverage());
+    }
+
+    @Override
+    public short shortAverage() {
+        return PrimitiveUtils.toShort(doubleAverage());
+    }
+
+    @Override
+    public float floatAverage() {
+        return PrimitiveUtils.toFloat(doubleAverage());
+    }
+
+    public double doubleAverage() {
+        return doubleSum() / values.length;
+    }
+
+    @Override
+    public TensorStats stats() {
+        return getExecutor().reduce(values.length,
+                (from, to) -> TensorStats.of(values, from, to), TensorStats::merge);
+    }
+
+    @Override
+    public void processByte(ByteUnaryOperator operator) {
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = operator.applyAsByte(PrimitiveUtils.toByte(values[i]));
+            }
+        });
+    }
+
+    @Override
+    public void processShort(ShortUnaryOperator operator) {
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = operator.applyAsShort(PrimitiveUtils.toShort(values[i]));
+            }
+        });
+    }
+
+    @Override
+    public void processFloat(FloatUnaryOperator operator) {
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = operator.applyAsFloat((float) values[i]);
+            }
+        });
+    }
+
+    public void processDouble(DoubleUnaryOperator operator) {
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = operator.applyAsDouble(values[i]);
+            }
+        });
+    }
+
+    @Override
+    public void processObject(UnaryOperator operator) {
+        throw new RuntimeException("Double tensor doesn't have object processor function.");
+    }
+
+    @Override
+    public void fillWithByte(ByteSupplier operator) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = operator.getAsByte();
+        }
+    }
+
+    @Override
+    public void fillWithShort(ShortSupplier operator) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = operator.getAsShort();
+        }
+    }
+
+    @Override
+    public void fillWithFloat(FloatSupplier operator) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = operator.getAsFloat();
+        }
+    }
+
+    public void fillWithDouble(DoubleSupplier operator) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = operator.getAsDouble();
+        }
+    }
+
+    @Override
+    public void fillWithObject(Supplier operator) {
+        throw new RuntimeException("Double tensor doesn't have object filler function.");
+    }
+
+    @Override
+    public void negate() {
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = -values[i];
+            }
+        });
+    }
+
+    @Override
+    public void abs() {
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = Math.abs(values[i]);
+            }
+        });
+    }
+
+    @Override
+    public Tensor transpose() {
+        return view().transpose().toTensor();
+    }
+
+    @Override
+    public Tensor rotate() {
+        // flipping every axis reverses the flat order of the values
+        DoubleTensor flipped = (DoubleTensor) createSimilar();
+        int last = values.length - 1;
+        for (int i = 0; i <= last; i++) {
+            flipped.values[i] = values[last - i];
+        }
+        return flipped;
+    }
+
+    @Override
+    public void hadamardProduct(Tensor multiplier) {
+        checkNull(multiplier);
+        checkClass(multiplier);
+        double[] operand = ((DoubleTensor) multiplier).values;
+        if (!Arrays.equals(dimensions, multiplier.dimensions)) {
+            Broadcast.forEachRun(this, multiplier, (offset, operandOffset, length, repeated) -> {
+                int end = offset + length;
+                if (repeated) {
+                    double x = operand[operandOffset];
+                    for (int i = offset; i < end; i++) {
+                        values[i] *= x;
+                    }
+                } else {
+                    int shift = operandOffset - offset;
+                    for (int i = offset; i < end; i++) {
+                        values[i] *= operand[i + shift];
+                    }
+                }
+            });
+            return;
+        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] *= operand[i];
+            }
+        });
+    }
+
+    @Override
+    protected void multiplyInto(Tensor multiplier, Tensor target,
+            int[] commonDimensions, int[] multiplierDimensions, int[] outputDimensions,
+            int depth) {
+        // c += a * b with a m x k, b k x n and c m x n, first index fastest
+        int m = ArrayUtils.product(Arrays.copyOf(dimensions, dimensions.length - depth));
+        int n = ArrayUtils.product(Arrays.copyOfRange(multiplierDimensions, depth, multiplierDimensions.length));
+        int k = ArrayUtils.product(commonDimensions);
+        double[] a = values;
+        double[] b = ((DoubleTensor) multiplier).values;
+        double[] c = ((DoubleTensor) target).values;
+        for (int j = 0; j < n; j++) {
+            for (int p = 0; p < k; p++) {
+                double bpj = b[p + k * j];
+                int aOffset = m * p;
+                int cOffset = m * j;
+                for (int i = 0; i < m; i++) {
+                    c[cOffset + i] += a[aOffset + i] * bpj;
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void sumProductRecursive(Tensor multiplier, Tensor target,
+            int[] commonDimensions, int[] multiplierDimensions, int[] outputDimensions,
+            int depth, int[] pos, int n, int[] indices, int[] rd1, int[] rd2) {
+        if (n < commonDimensions.length) {
+            for (int i = 0; i < commonDimensions[n]; i++) {
+                indices[n] = i;
+                sumProductRecursive(multiplier, target, commonDimensions,
+                        multiplierDimensions, outputDimensions, depth, pos, n + 1, indices, rd1, rd2);
+            }
+        } else {
+            System.arraycopy(indices, 0, rd1, dimensions.length - depth, depth);
+            System.arraycopy(indices, 0, rd2, 0, depth);
+            DoubleTensor result = (DoubleTensor) target;
+            result.setDoubleValue(result.getDoubleValue(pos)
+                    + getDoubleValue(rd1) * ((DoubleTensor) multiplier).getDoubleValue(rd2), pos);
+        }
+    }
+
+    @Override
+    protected void convolveInto(Tensor kernel, Tensor result, int[] shift) {
+        double[] kernelValues = ((DoubleTensor) kernel).values;
+        double[] resultValues = ((DoubleTensor) result).values;
+        int rank = dimensions.length;
+        int[] kernelDimensions = kernel.dimensions;
+        int[] kernelMultipliers = kernel.multipliers;
+        int[] position = new int[rank];
+        int[] from = new int[rank];
+        int[] to = new int[rank];
+        int[] e = new int[rank];
+        for (int r = 0; r < resultValues.length; r++) {
+            // clip the kernel to the part that overlaps the source
+            int source = 0;
+            int start = 0;
+            boolean overlap = true;
+            for (int a = 0; a < rank; a++) {
+                int origin = shift[a] + position[a] - kernelDimensions[a] / 2;
+                from[a] = Math.max(0, -origin);
+                to[a] = Math.min(kernelDimensions[a], dimensions[a] - origin);
+                overlap &= from[a] < to[a];
+                source += (origin + from[a]) * multipliers[a];
+                start += from[a] * kernelMultipliers[a];
+                e[a] = from[a];
+            }
+            double sum = 0;
+            if (overlap) {
+                int length = to[0] - from[0];
+                int a;
+                do {
+                    for (int i = 0; i < length; i++) {
+                        sum += values[source + i] * kernelValues[start + i];
+                    }
+                    for (a = 1; a < rank; a++) {
+                        if (++e[a] < to[a]) {
+                            source += multipliers[a];
+                            start += kernelMultipliers[a];
+                            break;
+                        }
+                        int steps = to[a] - 1 - from[a];
+                        source -= steps * multipliers[a];
+                        start -= steps * kernelMultipliers[a];
+                        e[a] = from[a];
+                    }
+                } while (a < rank);
+            }
+            resultValues[r] = sum;
+            for (int a = 0; a < rank && ++position[a] == result.dimensions[a]; a++) {
+                position[a] = 0;
+            }
+        }
+    }
+
+    @Override
+    public Tensor copy() {
+        DoubleTensor copy = new DoubleTensor(dimensions);
+        System.arraycopy(values, 0, copy.values, 0, values.length);
+        return copy;
+    }
+
+    @Override
+    public IndexIterator indexIterator() {
+        return new IndexIterator(dimensions);
+    }
+
+    @Override
+    public void toStringRecursive(StringBuilder sb, int n, int[] indices, boolean newLine) {
+        if (n < indices.length) {
+            for (int i = 0; i < dimensions[n]; i++) {
+                indices[n] = i;
+                toStringRecursive(sb, n + 1, indices, newLine);
+            }
+            if (newLine) {
+                sb.append("\n");
+            }
+        } else {
+            sb.append("[").append(values[index(indices)]).append("]");
+        }
+    }
+}
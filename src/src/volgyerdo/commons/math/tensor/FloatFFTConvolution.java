@@ -0,0 +1,157 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import volgyerdo.commons.math.fast.FFT;
+
+/**
+ * FFT based evaluation of the centered, zero padded tensor convolution.
+ * <p>
+ * The source and the flipped kernel are zero padded to a common fast FFT
+ * size and transformed together as the real and imaginary part of one
+ * complex array, so a convolution costs one forward and one inverse
+ * N-dimensional FFT.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+final class FloatFFTConvolution {
+
+    private static final int MIN_KERNEL_SIZE = 16;
+    private static final int MAX_PADDED_SIZE = 1 << 27;
+    private static final double TRANSFORM_COST = 5;
+
+    private FloatFFTConvolution() {
+    }
+
+    static boolean isFaster(int[] dimensions, int[] kernelDimensions, int[] outputDimensions) {
+        if (kernelDimensions.length != dimensions.length) {
+            return false;
+        }
+        long kernelSize = 1;
+        long outputSize = 1;
+        long paddedSize = 1;
+        for (int i = 0; i < dimensions.length; i++) {
+            kernelSize *= kernelDimensions[i];
+            outputSize *= outputDimensions[i];
+            paddedSize *= paddedDimension(dimensions[i], kernelDimensions[i]);
+        }
+        if (kernelSize < MIN_KERNEL_SIZE || paddedSize > MAX_PADDED_SIZE) {
+            return false;
+        }
+        double transformCost = TRANSFORM_COST * paddedSize
+                * (64 - Long.numberOfLeadingZeros(paddedSize));
+        return transformCost < (double) outputSize * kernelSize;
+    }
+
+    /**
+     * result[r] = sum over e of source[shift + r + e - kernel / 2] * kernel[e],
+     * with zeros outside of the source.
+     */
+    static void convolve(FloatTensor source, FloatTensor kernel, FloatTensor result, int[] shift) {
+        int rank = source.dimensions.length;
+        int[] padded = new int[rank];
+        int[] paddedMultipliers = new int[rank];
+        int size = 1;
+        for (int i = 0; i < rank; i++) {
+            padded[i] = paddedDimension(source.dimensions[i], kernel.dimensions[i]);
+            paddedMultipliers[i] = size;
+            size *= padded[i];
+        }
+        double[] re = new double[size];
+        double[] im = new double[size];
+        embed(source.values, source.dimensions, re, paddedMultipliers, false);
+        embed(kernel.values, kernel.dimensions, im, paddedMultipliers, true);
+        FFT.fftn(re, im, padded);
+        multiplySpectra(re, im, padded, paddedMultipliers);
+        FFT.ifftn(re, im, padded);
+        extract(re, source.dimensions, kernel.dimensions, paddedMultipliers, result, shift);
+    }
+
+    private static int paddedDimension(int dimension, int kernelDimension) {
+        return FFT.fastLength(dimension + kernelDimension - 1);
+    }
+
+    private static void embed(float[] values, int[] dimensions, double[] target,
+            int[] targetMultipliers, boolean flip) {
+        int rank = dimensions.length;
+        int[] indices = new int[rank];
+        for (int i = 0; i < values.length; i++) {
+            int index = 0;
+            for (int a = 0; a < rank; a++) {
+                int position = flip ? dimensions[a] - 1 - indices[a] : indices[a];
+                index += position * targetMultipliers[a];
+            }
+            target[index] = values[i];
+            increment(indices, dimensions);
+        }
+    }
+
+    // Z = X + iK holds two real spectra, so X[f] * K[f] is
+    // (Z[f]^2 - conj(Z[-f])^2) / 4i
+    private static void multiplySpectra(double[] re, double[] im, int[] dimensions, int[] multipliers) {
+        int rank = dimensions.length;
+        int[] indices = new int[rank];
+        for (int f = 0; f < re.length; f++) {
+            int g = 0;
+            for (int a = 0; a < rank; a++) {
+                int position = indices[a] == 0 ? 0 : dimensions[a] - indices[a];
+                g += position * multipliers[a];
+            }
+            if (f <= g) {
+                double a = re[f];
+                double b = im[f];
+                double c = re[g];
+                double d = im[g];
+                double yr = (a * b + c * d) / 2;
+                double yi = -(a * a - b * b - c * c + d * d) / 4;
+                re[f] = yr;
+                im[f] = yi;
+                re[g] = yr;
+                im[g] = -yi;
+            }
+            increment(indices, dimensions);
+        }
+    }
+
+    private static void extract(double[] values, int[] dimensions, int[] kernelDimensions,
+            int[] multipliers, FloatTensor result, int[] shift) {
+        int rank = dimensions.length;
+        int[] indices = new int[rank];
+        for (int r = 0; r < result.values.length; r++) {
+            int index = 0;
+            boolean inside = true;
+            for (int a = 0; a < rank; a++) {
+                int position = shift[a] + indices[a] + kernelDimensions[a] - 1 - kernelDimensions[a] / 2;
+                if (position < 0 || position >= dimensions[a] + kernelDimensions[a] - 1) {
+                    inside = false;
+                    break;
+                }
+                index += position * multipliers[a];
+            }
+            result.values[r] = inside ? (float) values[index] : 0;
+            increment(indices, result.dimensions);
+        }
+    }
+
+    private static void increment(int[] indices, int[] dimensions) {
+        for (int a = 0; a < indices.length; a++) {
+            if (++indices[a] < dimensions[a]) {
+                return;
+            }
+            indices[a] = 0;
+        }
+    }
+}
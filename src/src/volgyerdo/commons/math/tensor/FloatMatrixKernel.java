@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+/**
+ * Blocked matrix multiplication over flat float arrays.
+ * <p>
+ * Matrices are stored in the first-index-fastest layout used by the tensors,
+ * so element (i, j) of an m x n matrix is at index i + m * j.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+final class FloatMatrixKernel {
+
+    private static final int M_BLOCK = 256;
+    private static final int K_BLOCK = 256;
+
+    private FloatMatrixKernel() {
+    }
+
+    /**
+     * c += a * b, where a is m x k, b is k x n and c is m x n.
+     */
+    static void multiply(float[] a, float[] b, float[] c, int m, int n, int k) {
+        if (m == 0 || n == 0 || k == 0) {
+            return;
+        }
+        if (m == 1) {
+            multiplyRow(a, b, c, n, k);
+            return;
+        }
+        for (int kk = 0; kk < k; kk += K_BLOCK) {
+            int kEnd = Math.min(kk + K_BLOCK, k);
+            for (int ii = 0; ii < m; ii += M_BLOCK) {
+                int iEnd = Math.min(ii + M_BLOCK, m);
+                for (int j = 0; j < n; j++) {
+                    multiplyPanel(a, b, c, m, k, ii, iEnd, kk, kEnd, j);
+                }
+            }
+        }
+    }
+
+    private static void multiplyPanel(float[] a, float[] b, float[] c, int m, int k,
+            int ii, int iEnd, int kk, int kEnd, int j) {
+        int cOffset = m * j;
+        int bOffset = k * j;
+        int p = kk;
+        for (; p + 3 < kEnd; p += 4) {
+            float b0 = b[bOffset + p];
+            float b1 = b[bOffset + p + 1];
+            float b2 = b[bOffset + p + 2];
+            float b3 = b[bOffset + p + 3];
+            int a0 = m * p;
+            int a1 = a0 + m;
+            int a2 = a1 + m;
+            int a3 = a2 + m;
+            for (int i = ii; i < iEnd; i++) {
+                c[cOffset + i] += a[a0 + i] * b0 + a[a1 + i] * b1
+                        + a[a2 + i] * b2 + a[a3 + i] * b3;
+            }
+        }
+        for (; p < kEnd; p++) {
+            float b0 = b[bOffset + p];
+            int a0 = m * p;
+            for (int i = ii; i < iEnd; i++) {
+                c[cOffset + i] += a[a0 + i] * b0;
+            }
+        }
+    }
+
+    private static void multiplyRow(float[] a, float[] b, float[] c, int n, int k) {
+        for (int j = 0; j < n; j++) {
+            int bOffset = k * j;
+            float s0 = 0;
+            float s1 = 0;
+            float s2 = 0;
+            float s3 = 0;
+            int p = 0;
+            for (; p + 3 < k; p += 4) {
+                s0 += a[p] * b[bOffset + p];
+                s1 += a[p + 1] * b[bOffset + p + 1];
+                s2 += a[p + 2] * b[bOffset + p + 2];
+                s3 += a[p + 3] * b[bOffset + p + 3];
+            }
+            for (; p < k; p++) {
+                s0 += a[p] * b[bOffset + p];
+            }
+            c[j] += (s0 + s1) + (s2 + s3);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import volgyerdo.commons.primitive.ArrayUtils;
 import volgyerdo.commons.primitive.ByteSupplier;
 import volgyerdo.commons.primitive.PrimitiveUtils;
 import volgyerdo.commons.primitive.ByteUnaryOperator;
+import volgyerdo.commons.primitive.FloatBatchOperator;
 import volgyerdo.commons.primitive.FloatSupplier;
 import volgyerdo.commons.primitive.FloatUnaryOperator;
 import volgyerdo.commons.primitive.ShortSupplier;
@@ -51,6 +52,14 @@ public class FloatTensor extends Tensor {
                 convertToFloatTensor();
             case OBJECT ->
                 convertToObjectTensor();
+            case DOUBLE ->
+                convertToDoubleTensor();
+            case INT ->
+                convertToIntTensor();
+            case LONG ->
+                convertToLongTensor();
+            case SPARSE_FLOAT ->
+                SparseFloatTensor.of(this);
             default ->
                 null;
         };
@@ -84,6 +93,30 @@ public class FloatTensor extends Tensor {
         return objectTensor;
     }
 
+    private Tensor convertToDoubleTensor() {
+        DoubleTensor doubleTensor = (DoubleTensor) Tensor.create(TYPE.DOUBLE, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            doubleTensor.values[i] = values[i];
+        }
+        return doubleTensor;
+    }
+
+    private Tensor convertToIntTensor() {
+        IntTensor intTensor = (IntTensor) Tensor.create(TYPE.INT, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            intTensor.values[i] = PrimitiveUtils.toInt(values[i]);
+        }
+        return intTensor;
+    }
+
+    private Tensor convertToLongTensor() {
+        LongTensor longTensor = (LongTensor) Tensor.create(TYPE.LONG, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            longTensor.values[i] = PrimitiveUtils.toLong(values[i]);
+        }
+        return longTensor;
+    }
+
     @Override
     public int size() {
         return values.length;
@@ -138,6 +171,30 @@ public class FloatTensor extends Tensor {
         throw new RuntimeException("Can't get an object from a tensor.");
     }
 
+    public float getFlat(int index) {
+        return values[index];
+    }
+
+    public void setFlat(int index, float value) {
+        values[index] = value;
+    }
+
+    public float get(int i, int j) {
+        return values[index(i, j)];
+    }
+
+    public float get(int i, int j, int k) {
+        return values[index(i, j, k)];
+    }
+
+    public void set(float value, int i, int j) {
+        values[index(i, j)] = value;
+    }
+
+    public void set(float value, int i, int j, int k) {
+        values[index(i, j, k)] = value;
+    }
+
     @Override
     public void setByteArray(byte[] values) {
         if (dimensions.length != 1 || dimensions[0] != values.length) {
@@ -216,23 +273,29 @@ public class FloatTensor extends Tensor {
 
     @Override
     public void fill(byte x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = x;
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = x;
+            }
+        });
     }
 
     @Override
     public void fill(short x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = x;
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = x;
+            }
+        });
     }
 
     @Override
     public void fill(float x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = x;
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = x;
+            }
+        });
     }
 
     @Override
@@ -247,20 +310,44 @@ public class FloatTensor extends Tensor {
 
     @Override
     public void add(float x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] += x;
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] += x;
+            }
+        });
     }
 
     @Override
     public void add(Tensor tensor) {
         checkNull(tensor);
+        if (tensor instanceof SparseTensor) {
+            addSparse((SparseTensor) tensor, 1);
+            return;
+        }
         checkClass(tensor);
-        checkDimensionCount(tensor.dimensions);
-        checkDimensions(tensor);
-        for (int i = 0; i < values.length; i++) {
-            values[i] += ((FloatTensor) tensor).values[i];
+        float[] operand = ((FloatTensor) tensor).values;
+        if (!Arrays.equals(dimensions, tensor.dimensions)) {
+            Broadcast.forEachRun(this, tensor, (offset, operandOffset, length, repeated) -> {
+                int end = offset + length;
+                if (repeated) {
+                    float x = operand[operandOffset];
+                    for (int i = offset; i < end; i++) {
+                        values[i] += x;
+                    }
+                } else {
+                    int shift = operandOffset - offset;
+                    for (int i = offset; i < end; i++) {
+                        values[i] += operand[i + shift];
+                    }
+                }
+            });
+            return;
         }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] += operand[i];
+            }
+        });
     }
 
     @Override
@@ -275,20 +362,44 @@ public class FloatTensor extends Tensor {
 
     @Override
     public void substract(float x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] -= x;
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] -= x;
+            }
+        });
     }
 
     @Override
     public void substract(Tensor tensor) {
         checkNull(tensor);
+        if (tensor instanceof SparseTensor) {
+            addSparse((SparseTensor) tensor, -1);
+            return;
+        }
         checkClass(tensor);
-        checkDimensionCount(tensor.dimensions);
-        checkDimensions(tensor);
-        for (int i = 0; i < values.length; i++) {
-            values[i] -= ((FloatTensor) tensor).values[i];
+        float[] operand = ((FloatTensor) tensor).values;
+        if (!Arrays.equals(dimensions, tensor.dimensions)) {
+            Broadcast.forEachRun(this, tensor, (offset, operandOffset, length, repeated) -> {
+                int end = offset + length;
+                if (repeated) {
+                    float x = operand[operandOffset];
+                    for (int i = offset; i < end; i++) {
+                        values[i] -= x;
+                    }
+                } else {
+                    int shift = operandOffset - offset;
+                    for (int i = offset; i < end; i++) {
+                        values[i] -= operand[i + shift];
+                    }
+                }
+            });
+            return;
         }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] -= operand[i];
+            }
+        });
     }
 
     @Override
@@ -303,9 +414,11 @@ public class FloatTensor extends Tensor {
 
     @Override
     public void multiply(float x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] *= x;
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] *= x;
+            }
+        });
     }
 
     @Override
@@ -320,19 +433,17 @@ public class FloatTensor extends Tensor {
 
     @Override
     public void divide(float x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] /= x;
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] /= x;
+            }
+        });
     }
 
     @Override
     public Tensor sum() {
-        double sum = 0;
-        for (int i = 0; i < values.length; i++) {
-            sum += values[i];
-        }
         Tensor result = Tensor.create(type, 1);
-        result.setFloatValue(PrimitiveUtils.toFloat(sum), 0);
+        result.setFloatValue(PrimitiveUtils.toFloat(doubleSum()), 0);
         return result;
     }
 
@@ -351,12 +462,16 @@ public class FloatTensor extends Tensor {
         return PrimitiveUtils.toFloat(doubleSum());
     }
 
+    // pairwise over blocks summed in double precision, so the result does
+    // not depend on the executor and the error stays far below a float ulp
     private double doubleSum() {
-        double sum = 0;
-        for (int i = 0; i < values.length; i++) {
-            sum += values[i];
-        }
-        return sum;
+        return getExecutor().reduce(values.length, (from, to) -> {
+            double sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += values[i];
+            }
+            return sum;
+        }, Double::sum);
     }
 
     @Override
@@ -375,13 +490,15 @@ public class FloatTensor extends Tensor {
     }
 
     private double doubleMin() {
-        double min = Double.MAX_VALUE;
-        for (int i = 0; i < values.length; i++) {
-            if (min > values[i]) {
-                min = values[i];
+        return getExecutor().reduce(values.length, (from, to) -> {
+            double min = Double.POSITIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                if (min > values[i]) {
+                    min = values[i];
+                }
             }
-        }
-        return min;
+            return min;
+        }, (a, b) -> a < b ? a : b);
     }
 
     @Override
@@ -400,13 +517,15 @@ public class FloatTensor extends Tensor {
     }
 
     private double doubleMax() {
-        double max = Double.MIN_VALUE;
-        for (int i = 0; i < values.length; i++) {
-            if (max < values[i]) {
-                max = values[i];
+        return getExecutor().reduce(values.length, (from, to) -> {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                if (max < values[i]) {
+                    max = values[i];
+                }
             }
-        }
-        return max;
+            return max;
+        }, (a, b) -> a > b ? a : b);
     }
 
     @Override
@@ -425,33 +544,45 @@ public class FloatTensor extends Tensor {
     }
 
     private double doubleAverage() {
-        double average = 0;
-        for (int i = 0; i < values.length; i++) {
-            average += values[i];
-        }
-        average /= values.length;
-        return average;
+        return doubleSum() / values.length;
+    }
+
+    @Override
+    public TensorStats stats() {
+        return getExecutor().reduce(values.length,
+                (from, to) -> TensorStats.of(values, from, to), TensorStats::merge);
     }
 
     @Override
     public void processByte(ByteUnaryOperator operator) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = operator.applyAsByte(PrimitiveUtils.toByte(values[i]));
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = operator.applyAsByte(PrimitiveUtils.toByte(values[i]));
+            }
+        });
     }
 
     @Override
     public void processShort(ShortUnaryOperator operator) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = operator.applyAsShort(PrimitiveUtils.toShort(values[i]));
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = operator.applyAsShort(PrimitiveUtils.toShort(values[i]));
+            }
+        });
     }
 
     @Override
     public void processFloat(FloatUnaryOperator operator) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = operator.applyAsFloat(values[i]);
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = operator.applyAsFloat(values[i]);
+            }
+        });
+    }
+
+    // applies an array operator such as FastMath::exp on blocks of the values
+    public void processFloatBatch(FloatBatchOperator operator) {
+        getExecutor().forEach(values.length, (from, to) -> operator.apply(values, values, from, to - from));
     }
 
     @Override
@@ -487,69 +618,115 @@ public class FloatTensor extends Tensor {
 
     @Override
     public void negate() {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = (float) -values[i];
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = (float) -values[i];
+            }
+        });
     }
 
     @Override
     public void abs() {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = values[i] >= 0 ? values[i] : (float) -values[i];
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = values[i] >= 0 ? values[i] : (float) -values[i];
+            }
+        });
     }
 
     @Override
     public Tensor transpose() {
-        FloatTensor transposed = (FloatTensor) Tensor.create(TYPE.FLOAT, ArrayUtils.reverse(dimensions));
-        int[] indices = new int[dimensions.length];
-        Arrays.fill(indices, 0);
-        transposeRecursive(transposed, 0, indices);
-        return transposed;
-    }
-
-    private void transposeRecursive(FloatTensor tensor, int current, int[] indices) {
-        if (current == indices.length) {
-            tensor.setFloatValue(getFloatValue(indices), ArrayUtils.reverse(indices));
-        } else {
-            int next = current + 1;
-            for (int i = 0; i < dimensions[current]; i++) {
-                indices[current] = i;
-                transposeRecursive(tensor, next, indices);
-            }
-        }
+        return view().transpose().toTensor();
     }
 
     @Override
     public Tensor rotate() {
+        // flipping every axis reverses the flat order of the values
         FloatTensor flipped = (FloatTensor) createSimilar();
-        int[] indices = new int[dimensions.length];
-        Arrays.fill(indices, 0);
-        rotateRecursive(flipped, 0, indices);
+        int last = values.length - 1;
+        for (int i = 0; i <= last; i++) {
+            flipped.values[i] = values[last - i];
+        }
         return flipped;
     }
 
-    private void rotateRecursive(FloatTensor tensor, int current, int[] indices) {
-        if (current == indices.length) {
-            tensor.setFloatValue(getFloatValue(indices), reverseIndex(indices));
-        } else {
-            int next = current + 1;
-            for (int i = 0; i < dimensions[current]; i++) {
-                indices[current] = i;
-                rotateRecursive(tensor, next, indices);
-            }
+    // a sparse operand of the same dimensions, only its non-zero elements
+    private void addSparse(SparseTensor tensor, float sign) {
+        if (!Arrays.equals(dimensions, tensor.dimensions)) {
+            throw new IllegalArgumentException("Tensor dimensions does not match.");
+        }
+        tensor.forEachNonZero((index, value) -> values[index] += sign * value);
+    }
+
+    // the elements not stored in the multiplier become zeros
+    private void multiplySparse(SparseFloatTensor multiplier) {
+        if (!Arrays.equals(dimensions, multiplier.dimensions)) {
+            throw new IllegalArgumentException("Tensor dimensions does not match.");
+        }
+        int next = 0;
+        for (int e = 0; e < multiplier.nonZeroCount(); e++) {
+            int index = multiplier.nonZeroIndex(e);
+            Arrays.fill(values, next, index, 0);
+            values[index] *= multiplier.nonZeroValue(e);
+            next = index + 1;
         }
+        Arrays.fill(values, next, values.length, 0);
     }
 
     @Override
     public void hadamardProduct(Tensor multiplier) {
         checkNull(multiplier);
+        if (multiplier instanceof SparseTensor) {
+            multiplySparse(((SparseTensor) multiplier).coordinates());
+            return;
+        }
         checkClass(multiplier);
-        checkDimensionCount(multiplier.dimensions);
-        checkDimensions(multiplier);
-        for (int i = 0; i < values.length; i++) {
-            values[i] = values[i] * ((FloatTensor) multiplier).values[i];
+        float[] operand = ((FloatTensor) multiplier).values;
+        if (!Arrays.equals(dimensions, multiplier.dimensions)) {
+            Broadcast.forEachRun(this, multiplier, (offset, operandOffset, length, repeated) -> {
+                int end = offset + length;
+                if (repeated) {
+                    float x = operand[operandOffset];
+                    for (int i = offset; i < end; i++) {
+                        values[i] = values[i] * x;
+                    }
+                } else {
+                    int shift = operandOffset - offset;
+                    for (int i = offset; i < end; i++) {
+                        values[i] = values[i] * operand[i + shift];
+                    }
+                }
+            });
+            return;
         }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = values[i] * operand[i];
+            }
+        });
+    }
+
+    /**
+     * The multiplier can also be a sparse tensor, the product is a float
+     * tensor in both cases.
+     */
+    @Override
+    public Tensor multiply(Tensor multiplier, int depth) {
+        if (multiplier instanceof SparseTensor) {
+            return SparseFloatTensor.multiply(this, ((SparseTensor) multiplier).coordinates(), depth);
+        }
+        return super.multiply(multiplier, depth);
+    }
+
+    @Override
+    protected void multiplyInto(Tensor multiplier, Tensor target,
+            int[] commonDimensions, int[] multiplierDimensions, int[] outputDimensions,
+            int depth) {
+        int m = ArrayUtils.product(Arrays.copyOf(dimensions, dimensions.length - depth));
+        int n = ArrayUtils.product(Arrays.copyOfRange(multiplierDimensions, depth, multiplierDimensions.length));
+        int k = ArrayUtils.product(commonDimensions);
+        FloatMatrixKernel.multiply(values, ((FloatTensor) multiplier).values,
+                ((FloatTensor) target).values, m, n, k);
     }
 
     @Override
@@ -571,67 +748,59 @@ public class FloatTensor extends Tensor {
     }
 
     @Override
-    protected void convolveRecursive(Tensor kernel, Tensor result, int k, int[] d) {
-        if (k < dimensions.length) {
-            for (int i = 0; i < dimensions[k]; i++) {
-                d[k] = i;
-                convolveRecursive(kernel, result, k + 1, d);
+    protected void convolveInto(Tensor kernel, Tensor result, int[] shift) {
+        if (FloatFFTConvolution.isFaster(dimensions, kernel.dimensions, result.dimensions)) {
+            FloatFFTConvolution.convolve(this, (FloatTensor) kernel, (FloatTensor) result, shift);
+            return;
+        }
+        float[] kernelValues = ((FloatTensor) kernel).values;
+        float[] resultValues = ((FloatTensor) result).values;
+        int rank = dimensions.length;
+        int[] kernelDimensions = kernel.dimensions;
+        int[] kernelMultipliers = kernel.multipliers;
+        int[] position = new int[rank];
+        int[] from = new int[rank];
+        int[] to = new int[rank];
+        int[] e = new int[rank];
+        for (int r = 0; r < resultValues.length; r++) {
+            // clip the kernel to the part that overlaps the source
+            int source = 0;
+            int start = 0;
+            boolean overlap = true;
+            for (int a = 0; a < rank; a++) {
+                int origin = shift[a] + position[a] - kernelDimensions[a] / 2;
+                from[a] = Math.max(0, -origin);
+                to[a] = Math.min(kernelDimensions[a], dimensions[a] - origin);
+                overlap &= from[a] < to[a];
+                source += (origin + from[a]) * multipliers[a];
+                start += from[a] * kernelMultipliers[a];
+                e[a] = from[a];
             }
-        } else {
-            result.setFloatValue(convolutionSum(kernel, d, 0, new int[kernel.dimensions.length]), d);
-        }
-    }
-
-    private float convolutionSum(Tensor kernel, int[] d, int k, int[] e) {
-        if (k < kernel.dimensions.length) {
-            float s = 0;
-            for (int i = 0; i < kernel.dimensions[k]; i++) {
-                e[k] = i;
-                s += convolutionSum(kernel, d, k + 1, e);
-            }
-            return s;
-        } else {
-            int[] rd = new int[dimensions.length];
-            for (int i = 0; i < dimensions.length; i++) {
-                rd[i] = d[i] + e[i] - kernel.dimensions[i] / 2;
-                if (rd[i] < 0 || rd[i] > dimensions[i] - 1) {
-                    return 0;
-                }
-            }
-            return getFloatValue(rd) * kernel.getFloatValue(e);
-        }
-    }
-
-    @Override
-    protected void convolvePartialRecursive(Tensor kernel, Tensor result, int k, int[] kd, int[] d) {
-        if (k < result.dimensions.length) {
-            for (int i = 0; i < result.dimensions[k]; i++) {
-                kd[k] = i;
-                d[k] = dimensions[k] / 2 + i - result.dimensions[k] / 2;
-                convolvePartialRecursive(kernel, result, k + 1, kd, d);
-            }
-        } else {
-            result.setFloatValue(partialConvolutionSum(kernel, d, 0, new int[kernel.dimensions.length]), kd);
-        }
-    }
-
-    private float partialConvolutionSum(Tensor kernel, int[] d, int k, int[] e) {
-        if (k < kernel.dimensions.length) {
-            float s = 0;
-            for (int i = 0; i < kernel.dimensions[k]; i++) {
-                e[k] = i;
-                s += convolutionSum(kernel, d, k + 1, e);
+            float sum = 0;
+            if (overlap) {
+                int length = to[0] - from[0];
+                int a;
+                do {
+                    for (int i = 0; i < length; i++) {
+                        sum += values[source + i] * kernelValues[start + i];
+                    }
+                    for (a = 1; a < rank; a++) {
+                        if (++e[a] < to[a]) {
+                            source += multipliers[a];
+                            start += kernelMultipliers[a];
+                            break;
+                        }
+                        int steps = to[a] - 1 - from[a];
+                        source -= steps * multipliers[a];
+                        start -= steps * kernelMultipliers[a];
+                        e[a] = from[a];
+                    }
+                } while (a < rank);
             }
-            return s;
-        } else {
-            int[] rd = new int[dimensions.length];
-            for (int i = 0; i < dimensions.length; i++) {
-                rd[i] = d[i] + e[i] - kernel.dimensions[i] / 2;
-                if (rd[i] < 0 || rd[i] > dimensions[i] - 1) {
-                    return 0;
-                }
+            resultValues[r] = sum;
+            for (int a = 0; a < rank && ++position[a] == result.dimensions[a]; a++) {
+                position[a] = 0;
             }
-            return getFloatValue(rd) * kernel.getFloatValue(e);
         }
     }
 
@@ -658,7 +827,7 @@ public class FloatTensor extends Tensor {
                 sb.append("\n");
             }
         } else {
-            sb.append("[").append(getFloatValue(indices)).append("]");
+            sb.append("[").append(values[index(indices)]).append("]");
         }
     }
 }
@@ -15,25 +15,71 @@
  */
 package volgyerdo.commons.math.tensor;
 
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
 /**
+ * Walks the indices of a tensor shape with the last axis changing fastest.
+ * <p>
+ * Besides the multi-index the iterator keeps the flat offset of the index
+ * in the tensor values up to date ({@link #offset()}), so callers do not
+ * have to recompute it. {@link #next()} returns the same array on every
+ * call. A range constructor and {@link #spliterator()} allow splitting the
+ * walk for parallel processing.
  *
  * @author Volgyerdo Nonprofit Kft.
  */
 public class IndexIterator {
 
+    @FunctionalInterface
+    public interface IndexConsumer {
+
+        void accept(int[] index, int offset);
+    }
+
     private final int[] dimensions;
+    private final int[] multipliers;
     private final int[] index;
-    private int length;
+    private final int length;
+    private int offset;
     private int pos;
 
     public IndexIterator(int... dimensions) {
+        this(dimensions, 0, product(dimensions));
+    }
+
+    // iterates the positions [from, to) of the full walk
+    public IndexIterator(int[] dimensions, int from, int to) {
+        if (from < 0 || from > to || to > product(dimensions)) {
+            throw new IllegalArgumentException("Range is out of bounds.");
+        }
         this.dimensions = dimensions;
+        multipliers = new int[dimensions.length];
+        multipliers[0] = 1;
+        for (int i = 0; i < dimensions.length - 1; i++) {
+            multipliers[i + 1] = multipliers[i] * dimensions[i];
+        }
         index = new int[dimensions.length];
-        index[dimensions.length - 1] = -1;
-        length = 1;
-        for (int i = 0; i < dimensions.length; i++) {
-            length *= dimensions[i];
+        int rest = from;
+        for (int i = dimensions.length - 1; i >= 0; i--) {
+            index[i] = dimensions[i] == 0 ? 0 : rest % dimensions[i];
+            rest = dimensions[i] == 0 ? 0 : rest / dimensions[i];
+            offset += index[i] * multipliers[i];
         }
+        // step back, so that next() arrives at the first position
+        int last = dimensions.length - 1;
+        index[last]--;
+        offset -= multipliers[last];
+        pos = from;
+        length = to;
+    }
+
+    private static int product(int[] dimensions) {
+        int product = 1;
+        for (int dimension : dimensions) {
+            product *= dimension;
+        }
+        return product;
     }
 
     public boolean hasNext() {
@@ -41,19 +87,92 @@ public class IndexIterator {
     }
 
     public int[] next() {
+        nextOffset();
+        return index;
+    }
+
+    // advances to the next index and returns its flat offset
+    public int nextOffset() {
         pos++;
         for (int i = dimensions.length - 1; i >= 0; i--) {
             index[i]++;
-            if (index[i] < dimensions[i]) {
+            offset += multipliers[i];
+            if (index[i] < dimensions[i] || i == 0) {
                 break;
-            } else {
-                index[i] = 0;
-                if (i == 0) {
-                    break;
-                }
             }
+            index[i] = 0;
+            offset -= dimensions[i] * multipliers[i];
         }
-        return index;
+        return offset;
+    }
+
+    // flat offset of the index returned last
+    public int offset() {
+        return offset;
+    }
+
+    public int remaining() {
+        return length - pos;
+    }
+
+    // calls the consumer with every remaining index and its flat offset
+    public void forEachIndex(IndexConsumer consumer) {
+        while (pos < length) {
+            consumer.accept(index, nextOffset());
+        }
+    }
+
+    // flat offsets of the remaining indices, in iteration order
+    public Spliterator.OfInt spliterator() {
+        return new OffsetSpliterator(this);
     }
 
+    private static final class OffsetSpliterator implements Spliterator.OfInt {
+
+        private IndexIterator iterator;
+
+        OffsetSpliterator(IndexIterator iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            action.accept(iterator.nextOffset());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            while (iterator.hasNext()) {
+                action.accept(iterator.nextOffset());
+            }
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            int from = iterator.pos;
+            int to = iterator.length;
+            if (to - from < 2) {
+                return null;
+            }
+            int middle = (from + to) >>> 1;
+            Spliterator.OfInt prefix = new OffsetSpliterator(
+                    new IndexIterator(iterator.dimensions, from, middle));
+            iterator = new IndexIterator(iterator.dimensions, middle, to);
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return iterator.remaining();
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | DISTINCT | NONNULL | IMMUTABLE;
+        }
+    }
 }
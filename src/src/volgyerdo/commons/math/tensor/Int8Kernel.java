@@ -0,0 +1,190 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+/**
+ * Int8 x int8 -> int32 matrix multiplication and convolution over flat
+ * arrays.
+ * <p>
+ * The layout is the one of {@link FloatMatrixKernel}. The convolution
+ * subtracts the zero points of affine quantization on the fly, the matrix
+ * product leaves them to the caller. A product of two values less their
+ * zero points is at most 255 * 255 in magnitude, so the int sums are exact
+ * up to {@link #MAX_TERMS} terms, and longer sums are rejected with
+ * {@link IllegalArgumentException}.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+final class Int8Kernel {
+
+    static final int MAX_TERMS = Integer.MAX_VALUE / (255 * 255);
+
+    private static final int M_BLOCK = 256;
+    private static final int K_BLOCK = 256;
+
+    private Int8Kernel() {
+    }
+
+    /**
+     * c += (a - aZero) * (b - bZero), where a is m x k, b is k x n, c is
+     * m x n, aZero holds a zero point for each row of a and bZero for each
+     * column of b.
+     */
+    static void multiply(byte[] a, int[] aZero, byte[] b, int[] bZero, int[] c, int m, int n, int k) {
+        checkTerms(k);
+        if (m == 0 || n == 0 || k == 0) {
+            return;
+        }
+        // blocks of a less its zero points are widened to int once, so that
+        // the inner loops don't mix byte and int arrays and vectorize
+        int[] panel = new int[Math.min(M_BLOCK, m) * Math.min(K_BLOCK, k)];
+        for (int kk = 0; kk < k; kk += K_BLOCK) {
+            int kEnd = Math.min(kk + K_BLOCK, k);
+            for (int ii = 0; ii < m; ii += M_BLOCK) {
+                int iEnd = Math.min(ii + M_BLOCK, m);
+                int rows = iEnd - ii;
+                for (int p = kk; p < kEnd; p++) {
+                    int offset = (p - kk) * rows - ii;
+                    int source = m * p;
+                    for (int i = ii; i < iEnd; i++) {
+                        panel[offset + i] = a[source + i] - aZero[i];
+                    }
+                }
+                if (rows == 1) {
+                    multiplyRow(panel, b, bZero, c, m, n, k, ii, kk, kEnd);
+                    continue;
+                }
+                for (int j = 0; j < n; j++) {
+                    multiplyPanel(panel, rows, b, bZero[j], c, m, k, ii, kk, kEnd, j);
+                }
+            }
+        }
+    }
+
+    private static void multiplyPanel(int[] panel, int rows, byte[] b, int bZero, int[] c,
+            int m, int k, int ii, int kk, int kEnd, int j) {
+        int cOffset = m * j + ii;
+        int bOffset = k * j;
+        int p = kk;
+        for (; p + 3 < kEnd; p += 4) {
+            int b0 = b[bOffset + p] - bZero;
+            int b1 = b[bOffset + p + 1] - bZero;
+            int b2 = b[bOffset + p + 2] - bZero;
+            int b3 = b[bOffset + p + 3] - bZero;
+            int a0 = (p - kk) * rows;
+            int a1 = a0 + rows;
+            int a2 = a1 + rows;
+            int a3 = a2 + rows;
+            for (int i = 0; i < rows; i++) {
+                c[cOffset + i] += panel[a0 + i] * b0 + panel[a1 + i] * b1
+                        + panel[a2 + i] * b2 + panel[a3 + i] * b3;
+            }
+        }
+        for (; p < kEnd; p++) {
+            int b0 = b[bOffset + p] - bZero;
+            int a0 = (p - kk) * rows;
+            for (int i = 0; i < rows; i++) {
+                c[cOffset + i] += panel[a0 + i] * b0;
+            }
+        }
+    }
+
+    // a single row of a: one dot product per column of b
+    private static void multiplyRow(int[] row, byte[] b, int[] bZero, int[] c,
+            int m, int n, int k, int i, int kk, int kEnd) {
+        int length = kEnd - kk;
+        int rowSum = 0;
+        for (int p = 0; p < length; p++) {
+            rowSum += row[p];
+        }
+        for (int j = 0; j < n; j++) {
+            int offset = k * j + kk;
+            int sum = 0;
+            for (int p = 0; p < length; p++) {
+                sum += row[p] * b[offset + p];
+            }
+            c[i + m * j] += sum - bZero[j] * rowSum;
+        }
+    }
+
+    /**
+     * result[r] = sum over e of (source[shift + r + e - kernel / 2] - zero)
+     * * (kernel[e] - kernelZero), where source - zero is zero outside of its
+     * bounds.
+     */
+    static void convolve(ByteTensor source, int zero, ByteTensor kernel, int kernelZero,
+            IntTensor result, int[] shift) {
+        checkTerms(kernel.values.length);
+        byte[] values = source.values;
+        byte[] kernelValues = kernel.values;
+        int[] resultValues = result.values;
+        int rank = source.dimensions.length;
+        int[] dimensions = source.dimensions;
+        int[] multipliers = source.multipliers;
+        int[] kernelDimensions = kernel.dimensions;
+        int[] kernelMultipliers = kernel.multipliers;
+        int[] position = new int[rank];
+        int[] from = new int[rank];
+        int[] to = new int[rank];
+        int[] e = new int[rank];
+        for (int r = 0; r < resultValues.length; r++) {
+            // clip the kernel to the part that overlaps the source
+            int offset = 0;
+            int start = 0;
+            boolean overlap = true;
+            for (int a = 0; a < rank; a++) {
+                int origin = shift[a] + position[a] - kernelDimensions[a] / 2;
+                from[a] = Math.max(0, -origin);
+                to[a] = Math.min(kernelDimensions[a], dimensions[a] - origin);
+                overlap &= from[a] < to[a];
+                offset += (origin + from[a]) * multipliers[a];
+                start += from[a] * kernelMultipliers[a];
+                e[a] = from[a];
+            }
+            int sum = 0;
+            if (overlap) {
+                int length = to[0] - from[0];
+                int a;
+                do {
+                    for (int i = 0; i < length; i++) {
+                        sum += (values[offset + i] - zero) * (kernelValues[start + i] - kernelZero);
+                    }
+                    for (a = 1; a < rank; a++) {
+                        if (++e[a] < to[a]) {
+                            offset += multipliers[a];
+                            start += kernelMultipliers[a];
+                            break;
+                        }
+                        int steps = to[a] - 1 - from[a];
+                        offset -= steps * multipliers[a];
+                        start -= steps * kernelMultipliers[a];
+                        e[a] = from[a];
+                    }
+                } while (a < rank);
+            }
+            resultValues[r] = sum;
+            for (int a = 0; a < rank && ++position[a] == result.dimensions[a]; a++) {
+                position[a] = 0;
+            }
+        }
+    }
+
+    private static void checkTerms(int terms) {
+        if (terms > MAX_TERMS) {
+            throw new IllegalArgumentException("Too many products for exact int sums.");
+        }
+    }
+}
@@ -53,6 +53,14 @@ public class ObjectTensor extends Tensor {
                 convertToFloatTensor();
             case OBJECT ->
                 convertToObjectTensor();
+            case DOUBLE ->
+                convertToDoubleTensor();
+            case INT ->
+                convertToIntTensor();
+            case LONG ->
+                convertToLongTensor();
+            case SPARSE_FLOAT ->
+                convertToSparseFloatTensor();
             default ->
                 null;
         };
@@ -74,6 +82,45 @@ public class ObjectTensor extends Tensor {
         return copy();
     }
 
+    // counts and measurements kept as boxed numbers move to a primitive tensor
+    private Tensor convertToDoubleTensor() {
+        DoubleTensor doubleTensor = (DoubleTensor) Tensor.create(TYPE.DOUBLE, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            doubleTensor.values[i] = number(values[i]).doubleValue();
+        }
+        return doubleTensor;
+    }
+
+    private Tensor convertToIntTensor() {
+        IntTensor intTensor = (IntTensor) Tensor.create(TYPE.INT, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            intTensor.values[i] = number(values[i]).intValue();
+        }
+        return intTensor;
+    }
+
+    private Tensor convertToLongTensor() {
+        LongTensor longTensor = (LongTensor) Tensor.create(TYPE.LONG, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            longTensor.values[i] = number(values[i]).longValue();
+        }
+        return longTensor;
+    }
+
+    private Tensor convertToSparseFloatTensor() {
+        throw new RuntimeException("Object tensor cannot be converted to sparse float tensor.");
+    }
+
+    private static Number number(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (!(value instanceof Number)) {
+            throw new RuntimeException("Object tensor value is not a number.");
+        }
+        return (Number) value;
+    }
+
     @Override
     public int size() {
         return values.length;
@@ -142,6 +189,30 @@ public class ObjectTensor extends Tensor {
         return values[index(indices)];
     }
 
+    public Object getFlat(int index) {
+        return values[index];
+    }
+
+    public void setFlat(int index, Object value) {
+        values[index] = value;
+    }
+
+    public Object get(int i, int j) {
+        return values[index(i, j)];
+    }
+
+    public Object get(int i, int j, int k) {
+        return values[index(i, j, k)];
+    }
+
+    public void set(Object value, int i, int j) {
+        values[index(i, j)] = value;
+    }
+
+    public void set(Object value, int i, int j, int k) {
+        values[index(i, j, k)] = value;
+    }
+
     @Override
     public void setByteArray(byte[] values) {
         throw new RuntimeException("Can't set a byte array into an object tensor.");
@@ -355,6 +426,11 @@ public class ObjectTensor extends Tensor {
         throw new RuntimeException("Object tensor doesn't have floatAverage function.");
     }
 
+    @Override
+    public TensorStats stats() {
+        throw new RuntimeException("Object tensor doesn't have statistics.");
+    }
+
     @Override
     public void processByte(ByteUnaryOperator operator) {
         throw new RuntimeException("Object tensor doesn't have byte process function.");
@@ -411,48 +487,18 @@ public class ObjectTensor extends Tensor {
 
     @Override
     public Tensor transpose() {
-        try {
-            ObjectTensor clone = (ObjectTensor) clone();
-            int[] indices = new int[dimensions.length];
-            Arrays.fill(indices, 0);
-            transposeRecursive(clone, 0, indices);
-            return clone;
-        } catch (CloneNotSupportedException ex) {
-            throw new RuntimeException("Cloning is not supported.");
-        }
+        return view().transpose().toTensor();
     }
 
-    private void transposeRecursive(ObjectTensor tensor, int current, int[] indices) {
-        if (current == indices.length) {
-            tensor.setObjectValue(getObjectValue(indices), ArrayUtils.reverse(indices));
-        } else {
-            int next = current + 1;
-            for (int i = 0; i < dimensions[current]; i++) {
-                indices[current] = i;
-                transposeRecursive(tensor, next, indices);
-            }
-        }
-    }
-    
     @Override
     public Tensor rotate() {
+        // flipping every axis reverses the flat order of the values
         ObjectTensor flipped = (ObjectTensor) createSimilar();
-        int[] indices = new int[dimensions.length];
-        Arrays.fill(indices, 0);
-        rotateRecursive(flipped, 0, indices);
-        return flipped;
-    }
-
-    private void rotateRecursive(ObjectTensor tensor, int current, int[] indices) {
-        if (current == indices.length) {
-            tensor.setObjectValue(getObjectValue(indices), reverseIndex(indices));
-        } else {
-            int next = current + 1;
-            for (int i = 0; i < dimensions[current]; i++) {
-                indices[current] = i;
-                rotateRecursive(tensor, next, indices);
-            }
+        int last = values.length - 1;
+        for (int i = 0; i <= last; i++) {
+            flipped.values[i] = values[last - i];
         }
+        return flipped;
     }
 
     @Override
@@ -468,15 +514,10 @@ public class ObjectTensor extends Tensor {
     }
 
     @Override
-    protected void convolveRecursive(Tensor kernel, Tensor result, int k, int[] d) {
+    protected void convolveInto(Tensor kernel, Tensor result, int[] shift) {
         throw new RuntimeException("Object tensor doesn't have convolution function.");
     }
 
-    @Override
-    protected void convolvePartialRecursive(Tensor kernel, Tensor result, int k, int[] kd, int[] d) {
-        throw new RuntimeException("Object tensor doesn't have a partial convolution function.");
-    }
-
     @Override
     public Tensor copy() {
         ObjectTensor copy = new ObjectTensor(dimensions);
@@ -0,0 +1,416 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import volgyerdo.commons.primitive.FloatUnaryOperator;
+import volgyerdo.commons.primitive.PrimitiveUtils;
+
+/**
+ * Float tensor stored outside of the Java heap.
+ * <p>
+ * The values live in direct byte buffers of at most 2^28 floats (1 GiB)
+ * each, so the element count is a <code>long</code> and is not limited by
+ * the maximum array length, and the values do not load the garbage
+ * collector. Element (i0, i1, ...) is at flat index
+ * <code>i0 + multipliers[1] * i1 + ...</code>, like in {@link FloatTensor}.
+ * The values are little-endian, the byte order of {@link TensorFile}, so a
+ * tensor can also be a mapped file ({@link TensorFile#map}).
+ * <p>
+ * Direct memory is limited by <code>-XX:MaxDirectMemorySize</code>, which
+ * defaults to the maximum heap size. The memory is released when the
+ * buffers are garbage collected. {@link #close()} drops the references to
+ * them, so the memory is released even if the tensor itself stays
+ * reachable, and a closed tensor throws {@link IllegalStateException} on
+ * access. Closing is not thread safe with concurrent access.
+ * {@link #of(FloatTensor)} and {@link #toFloatTensor()} copy between heap
+ * and off-heap tensors.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class OffHeapFloatTensor implements AutoCloseable {
+
+    static final int CHUNK_SHIFT = 28;
+
+    public final int[] dimensions;
+    public final long[] multipliers;
+
+    private final long size;
+    private final int chunkShift;
+    private final int chunkMask;
+    private ByteBuffer[] buffers;
+    private FloatBuffer[] chunks;
+    private TensorExecutor executor;
+
+    public OffHeapFloatTensor(int... dimensions) {
+        this(CHUNK_SHIFT, dimensions, allocate(CHUNK_SHIFT, product(dimensions)));
+    }
+
+    // wraps existing buffers; every buffer but the last holds 2^chunkShift floats
+    OffHeapFloatTensor(int chunkShift, int[] dimensions, ByteBuffer[] buffers) {
+        if (dimensions.length == 0) {
+            throw new IllegalArgumentException("Dimensions element count is zero.");
+        }
+        this.dimensions = dimensions.clone();
+        multipliers = new long[dimensions.length];
+        multipliers[0] = 1;
+        for (int i = 0; i < dimensions.length - 1; i++) {
+            multipliers[i + 1] = multipliers[i] * dimensions[i];
+        }
+        size = product(dimensions);
+        this.chunkShift = chunkShift;
+        chunkMask = (1 << chunkShift) - 1;
+        this.buffers = buffers;
+        chunks = new FloatBuffer[buffers.length];
+        long capacity = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            chunks[i] = buffers[i].order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            capacity += chunks[i].capacity();
+        }
+        if (capacity < size) {
+            throw new IllegalArgumentException("Buffers are smaller than the tensor.");
+        }
+    }
+
+    // tensor with chunks of 2^chunkShift floats
+    static OffHeapFloatTensor chunked(int chunkShift, int... dimensions) {
+        return new OffHeapFloatTensor(chunkShift, dimensions, allocate(chunkShift, product(dimensions)));
+    }
+
+    public static OffHeapFloatTensor of(FloatTensor tensor) {
+        OffHeapFloatTensor copy = new OffHeapFloatTensor(tensor.dimensions);
+        copy.setFloats(0, tensor.values, 0, tensor.values.length);
+        return copy;
+    }
+
+    private static long product(int[] dimensions) {
+        long product = 1;
+        for (int dimension : dimensions) {
+            if (dimension < 0) {
+                throw new IllegalArgumentException("Dimension is negative.");
+            }
+            product *= dimension;
+        }
+        return product;
+    }
+
+    private static ByteBuffer[] allocate(int chunkShift, long size) {
+        int count = (int) ((size + (1L << chunkShift) - 1) >>> chunkShift);
+        ByteBuffer[] buffers = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long length = Math.min(1L << chunkShift, size - ((long) i << chunkShift));
+            buffers[i] = ByteBuffer.allocateDirect((int) (length * Float.BYTES));
+        }
+        return buffers;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isReadOnly() {
+        return chunks().length > 0 && chunks()[0].isReadOnly();
+    }
+
+    public boolean isClosed() {
+        return chunks == null;
+    }
+
+    @Override
+    public void close() {
+        buffers = null;
+        chunks = null;
+    }
+
+    public TensorExecutor getExecutor() {
+        return executor != null ? executor : TensorExecutor.getDefault();
+    }
+
+    public void setExecutor(TensorExecutor executor) {
+        this.executor = executor;
+    }
+
+    public long index(int... indices) {
+        if (indices.length != dimensions.length) {
+            throw new IllegalArgumentException("Index count does not match tensor dimensions.");
+        }
+        long index = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] < 0 || indices[i] >= dimensions[i]) {
+                throw new IndexOutOfBoundsException("Index " + indices[i] + " out of bounds for dimension " + dimensions[i]);
+            }
+            index += multipliers[i] * indices[i];
+        }
+        return index;
+    }
+
+    public float getFloatValue(int... indices) {
+        return getFlat(index(indices));
+    }
+
+    public void setFloatValue(float value, int... indices) {
+        setFlat(index(indices), value);
+    }
+
+    public float getFlat(long index) {
+        checkIndex(index);
+        return chunks()[(int) (index >>> chunkShift)].get((int) index & chunkMask);
+    }
+
+    public void setFlat(long index, float value) {
+        checkIndex(index);
+        chunks()[(int) (index >>> chunkShift)].put((int) index & chunkMask, value);
+    }
+
+    // copies length values from offset into target[targetOffset...]
+    public void getFloats(long offset, float[] target, int targetOffset, int length) {
+        checkRange(offset, length);
+        FloatBuffer[] chunks = chunks();
+        while (length > 0) {
+            int chunk = (int) (offset >>> chunkShift);
+            int position = (int) offset & chunkMask;
+            int count = Math.min(length, chunks[chunk].capacity() - position);
+            chunks[chunk].get(position, target, targetOffset, count);
+            offset += count;
+            targetOffset += count;
+            length -= count;
+        }
+    }
+
+    // copies length values of source[sourceOffset...] to offset
+    public void setFloats(long offset, float[] source, int sourceOffset, int length) {
+        checkRange(offset, length);
+        FloatBuffer[] chunks = chunks();
+        while (length > 0) {
+            int chunk = (int) (offset >>> chunkShift);
+            int position = (int) offset & chunkMask;
+            int count = Math.min(length, chunks[chunk].capacity() - position);
+            chunks[chunk].put(position, source, sourceOffset, count);
+            offset += count;
+            sourceOffset += count;
+            length -= count;
+        }
+    }
+
+    public FloatTensor toFloatTensor() {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Tensor is too large for a heap tensor.");
+        }
+        FloatTensor tensor = new FloatTensor(dimensions.clone());
+        getFloats(0, tensor.values, 0, tensor.values.length);
+        return tensor;
+    }
+
+    public void fill(float x) {
+        forEachChunk((chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                chunk.put(i, x);
+            }
+        });
+    }
+
+    public void add(float x) {
+        forEachChunk((chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                chunk.put(i, chunk.get(i) + x);
+            }
+        });
+    }
+
+    public void substract(float x) {
+        add(-x);
+    }
+
+    public void multiply(float x) {
+        forEachChunk((chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                chunk.put(i, chunk.get(i) * x);
+            }
+        });
+    }
+
+    public void divide(float x) {
+        forEachChunk((chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                chunk.put(i, chunk.get(i) / x);
+            }
+        });
+    }
+
+    public void negate() {
+        multiply(-1);
+    }
+
+    public void abs() {
+        forEachChunk((chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                chunk.put(i, Math.abs(chunk.get(i)));
+            }
+        });
+    }
+
+    public void processFloat(FloatUnaryOperator operator) {
+        forEachChunk((chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                chunk.put(i, operator.applyAsFloat(chunk.get(i)));
+            }
+        });
+    }
+
+    public void add(OffHeapFloatTensor tensor) {
+        FloatBuffer[] others = aligned(tensor);
+        forEachChunk(others, (chunk, other, from, to) -> {
+            for (int i = from; i < to; i++) {
+                chunk.put(i, chunk.get(i) + other.get(i));
+            }
+        });
+    }
+
+    public void substract(OffHeapFloatTensor tensor) {
+        FloatBuffer[] others = aligned(tensor);
+        forEachChunk(others, (chunk, other, from, to) -> {
+            for (int i = from; i < to; i++) {
+                chunk.put(i, chunk.get(i) - other.get(i));
+            }
+        });
+    }
+
+    public void hadamardProduct(OffHeapFloatTensor tensor) {
+        FloatBuffer[] others = aligned(tensor);
+        forEachChunk(others, (chunk, other, from, to) -> {
+            for (int i = from; i < to; i++) {
+                chunk.put(i, chunk.get(i) * other.get(i));
+            }
+        });
+    }
+
+    public float floatSum() {
+        return PrimitiveUtils.toFloat(doubleSum());
+    }
+
+    public float floatAverage() {
+        return PrimitiveUtils.toFloat(doubleSum() / size);
+    }
+
+    public float floatMin() {
+        float min = Float.POSITIVE_INFINITY;
+        for (FloatBuffer chunk : chunks()) {
+            for (int i = 0, n = chunkLength(chunk); i < n; i++) {
+                float x = chunk.get(i);
+                min = x < min ? x : min;
+            }
+        }
+        return min;
+    }
+
+    public float floatMax() {
+        float max = Float.NEGATIVE_INFINITY;
+        for (FloatBuffer chunk : chunks()) {
+            for (int i = 0, n = chunkLength(chunk); i < n; i++) {
+                float x = chunk.get(i);
+                max = x > max ? x : max;
+            }
+        }
+        return max;
+    }
+
+    private double doubleSum() {
+        double sum = 0;
+        for (FloatBuffer chunk : chunks()) {
+            for (int i = 0, n = chunkLength(chunk); i < n; i++) {
+                sum += chunk.get(i);
+            }
+        }
+        return sum;
+    }
+
+    @FunctionalInterface
+    private interface ChunkOperator {
+
+        void apply(FloatBuffer chunk, int from, int to);
+    }
+
+    @FunctionalInterface
+    private interface BinaryChunkOperator {
+
+        void apply(FloatBuffer chunk, FloatBuffer other, int from, int to);
+    }
+
+    private void forEachChunk(ChunkOperator operator) {
+        TensorExecutor executor = getExecutor();
+        for (FloatBuffer chunk : chunks()) {
+            executor.forEach(chunkLength(chunk), (from, to) -> operator.apply(chunk, from, to));
+        }
+    }
+
+    private void forEachChunk(FloatBuffer[] others, BinaryChunkOperator operator) {
+        TensorExecutor executor = getExecutor();
+        FloatBuffer[] chunks = chunks();
+        for (int c = 0; c < chunks.length; c++) {
+            FloatBuffer chunk = chunks[c];
+            FloatBuffer other = others[c];
+            executor.forEach(chunkLength(chunk), (from, to) -> operator.apply(chunk, other, from, to));
+        }
+    }
+
+    // the last chunk may be larger than the tensor
+    private int chunkLength(FloatBuffer chunk) {
+        return chunk == chunks[chunks.length - 1]
+                ? (int) (size - ((long) (chunks.length - 1) << chunkShift))
+                : chunk.capacity();
+    }
+
+    private FloatBuffer[] aligned(OffHeapFloatTensor tensor) {
+        if (tensor == null) {
+            throw new IllegalArgumentException("Tensor is null.");
+        }
+        if (tensor.dimensions.length != dimensions.length) {
+            throw new IllegalArgumentException("Tensor dimension element count does not equal.");
+        }
+        for (int i = 0; i < dimensions.length; i++) {
+            if (tensor.dimensions[i] != dimensions[i]) {
+                throw new IllegalArgumentException("Tensor dimensions does not match.");
+            }
+        }
+        if (tensor.chunkShift != chunkShift) {
+            throw new IllegalArgumentException("Tensor chunk sizes does not match.");
+        }
+        return tensor.chunks();
+    }
+
+    private FloatBuffer[] chunks() {
+        FloatBuffer[] current = chunks;
+        if (current == null) {
+            throw new IllegalStateException("Tensor is closed.");
+        }
+        return current;
+    }
+
+    private void checkIndex(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    private void checkRange(long offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length
+                    + ") out of bounds for size " + size);
+        }
+    }
+}
@@ -54,6 +54,14 @@ public class ShortTensor extends Tensor {
                 convertToFloatTensor();
             case OBJECT ->
                 convertToObjectTensor();
+            case DOUBLE ->
+                convertToDoubleTensor();
+            case INT ->
+                convertToIntTensor();
+            case LONG ->
+                convertToLongTensor();
+            case SPARSE_FLOAT ->
+                SparseFloatTensor.of(this);
             default ->
                 null;
         };
@@ -87,6 +95,30 @@ public class ShortTensor extends Tensor {
         return objectTensor;
     }
 
+    private Tensor convertToDoubleTensor() {
+        DoubleTensor doubleTensor = (DoubleTensor) Tensor.create(TYPE.DOUBLE, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            doubleTensor.values[i] = values[i];
+        }
+        return doubleTensor;
+    }
+
+    private Tensor convertToIntTensor() {
+        IntTensor intTensor = (IntTensor) Tensor.create(TYPE.INT, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            intTensor.values[i] = values[i];
+        }
+        return intTensor;
+    }
+
+    private Tensor convertToLongTensor() {
+        LongTensor longTensor = (LongTensor) Tensor.create(TYPE.LONG, dimensions);
+        for (int i = 0; i < values.length; i++) {
+            longTensor.values[i] = values[i];
+        }
+        return longTensor;
+    }
+
     @Override
     public int size() {
         return values.length;
@@ -141,6 +173,30 @@ public class ShortTensor extends Tensor {
         throw new RuntimeException("Can't get an object from a short tensor.");
     }
 
+    public short getFlat(int index) {
+        return values[index];
+    }
+
+    public void setFlat(int index, short value) {
+        values[index] = value;
+    }
+
+    public short get(int i, int j) {
+        return values[index(i, j)];
+    }
+
+    public short get(int i, int j, int k) {
+        return values[index(i, j, k)];
+    }
+
+    public void set(short value, int i, int j) {
+        values[index(i, j)] = value;
+    }
+
+    public void set(short value, int i, int j, int k) {
+        values[index(i, j, k)] = value;
+    }
+
     @Override
     public void setByteArray(byte[] values) {
         if (dimensions.length != 1 || dimensions[0] != values.length) {
@@ -219,23 +275,29 @@ public class ShortTensor extends Tensor {
 
     @Override
     public void fill(byte x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = x;
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = x;
+            }
+        });
     }
 
     @Override
     public void fill(short x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = x;
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = x;
+            }
+        });
     }
 
     @Override
     public void fill(float x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = PrimitiveUtils.toShort(x);
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = PrimitiveUtils.toShort(x);
+            }
+        });
     }
 
     @Override
@@ -245,27 +307,49 @@ public class ShortTensor extends Tensor {
 
     @Override
     public void add(short x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] += x;
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] += x;
+            }
+        });
     }
 
     @Override
     public void add(float x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = PrimitiveUtils.toShort((float) values[i] + x);
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = PrimitiveUtils.toShort((float) values[i] + x);
+            }
+        });
     }
 
     @Override
     public void add(Tensor tensor) {
         checkNull(tensor);
         checkClass(tensor);
-        checkDimensionCount(tensor.dimensions);
-        checkDimensions(tensor);
-        for (int i = 0; i < values.length; i++) {
-            values[i] += ((ShortTensor) tensor).values[i];
+        short[] operand = ((ShortTensor) tensor).values;
+        if (!Arrays.equals(dimensions, tensor.dimensions)) {
+            Broadcast.forEachRun(this, tensor, (offset, operandOffset, length, repeated) -> {
+                int end = offset + length;
+                if (repeated) {
+                    short x = operand[operandOffset];
+                    for (int i = offset; i < end; i++) {
+                        values[i] += x;
+                    }
+                } else {
+                    int shift = operandOffset - offset;
+                    for (int i = offset; i < end; i++) {
+                        values[i] += operand[i + shift];
+                    }
+                }
+            });
+            return;
         }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] += operand[i];
+            }
+        });
     }
 
     @Override
@@ -275,27 +359,107 @@ public class ShortTensor extends Tensor {
 
     @Override
     public void substract(short x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] -= x;
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] -= x;
+            }
+        });
     }
 
     @Override
     public void substract(float x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = PrimitiveUtils.toShort((float) values[i] - x);
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = PrimitiveUtils.toShort((float) values[i] - x);
+            }
+        });
     }
 
     @Override
     public void substract(Tensor tensor) {
         checkNull(tensor);
         checkClass(tensor);
-        checkDimensionCount(tensor.dimensions);
-        checkDimensions(tensor);
-        for (int i = 0; i < values.length; i++) {
-            values[i] -= ((ShortTensor) tensor).values[i];
+        short[] operand = ((ShortTensor) tensor).values;
+        if (!Arrays.equals(dimensions, tensor.dimensions)) {
+            Broadcast.forEachRun(this, tensor, (offset, operandOffset, length, repeated) -> {
+                int end = offset + length;
+                if (repeated) {
+                    short x = operand[operandOffset];
+                    for (int i = offset; i < end; i++) {
+                        values[i] -= x;
+                    }
+                } else {
+                    int shift = operandOffset - offset;
+                    for (int i = offset; i < end; i++) {
+                        values[i] -= operand[i + shift];
+                    }
+                }
+            });
+            return;
+        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] -= operand[i];
+            }
+        });
+    }
+
+    // like add(Tensor), but clamps to the short range instead of wrapping
+    public void addSaturating(Tensor tensor) {
+        checkNull(tensor);
+        checkClass(tensor);
+        short[] operand = ((ShortTensor) tensor).values;
+        if (!Arrays.equals(dimensions, tensor.dimensions)) {
+            Broadcast.forEachRun(this, tensor, (offset, operandOffset, length, repeated) -> {
+                int end = offset + length;
+                if (repeated) {
+                    short x = operand[operandOffset];
+                    for (int i = offset; i < end; i++) {
+                        values[i] = PrimitiveUtils.toShort(values[i] + x);
+                    }
+                } else {
+                    int shift = operandOffset - offset;
+                    for (int i = offset; i < end; i++) {
+                        values[i] = PrimitiveUtils.toShort(values[i] + operand[i + shift]);
+                    }
+                }
+            });
+            return;
+        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = PrimitiveUtils.toShort(values[i] + operand[i]);
+            }
+        });
+    }
+
+    // like substract(Tensor), but clamps to the short range instead of wrapping
+    public void substractSaturating(Tensor tensor) {
+        checkNull(tensor);
+        checkClass(tensor);
+        short[] operand = ((ShortTensor) tensor).values;
+        if (!Arrays.equals(dimensions, tensor.dimensions)) {
+            Broadcast.forEachRun(this, tensor, (offset, operandOffset, length, repeated) -> {
+                int end = offset + length;
+                if (repeated) {
+                    short x = operand[operandOffset];
+                    for (int i = offset; i < end; i++) {
+                        values[i] = PrimitiveUtils.toShort(values[i] - x);
+                    }
+                } else {
+                    int shift = operandOffset - offset;
+                    for (int i = offset; i < end; i++) {
+                        values[i] = PrimitiveUtils.toShort(values[i] - operand[i + shift]);
+                    }
+                }
+            });
+            return;
         }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = PrimitiveUtils.toShort(values[i] - operand[i]);
+            }
+        });
     }
 
     @Override
@@ -305,16 +469,20 @@ public class ShortTensor extends Tensor {
 
     @Override
     public void multiply(short x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] *= x;
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] *= x;
+            }
+        });
     }
 
     @Override
     public void multiply(float x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = PrimitiveUtils.toShort((float) values[i] * x);
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = PrimitiveUtils.toShort((float) values[i] * x);
+            }
+        });
     }
 
     @Override
@@ -324,26 +492,26 @@ public class ShortTensor extends Tensor {
 
     @Override
     public void divide(short x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] /= x;
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] /= x;
+            }
+        });
     }
 
     @Override
     public void divide(float x) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = PrimitiveUtils.toShort((float) values[i] / x);
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = PrimitiveUtils.toShort((float) values[i] / x);
+            }
+        });
     }
 
     @Override
     public Tensor sum() {
-        long sum = 0;
-        for (int i = 0; i < values.length; i++) {
-            sum += values[i];
-        }
         Tensor result = Tensor.create(type, 1);
-        result.setShortValue(PrimitiveUtils.toShort(sum), 0);
+        result.setShortValue(PrimitiveUtils.toShort(longSum()), 0);
         return result;
     }
 
@@ -362,12 +530,14 @@ public class ShortTensor extends Tensor {
         return longSum();
     }
 
-    private long longSum() {
-        long sum = 0;
-        for (int i = 0; i < values.length; i++) {
-            sum += values[i];
-        }
-        return sum;
+    public long longSum() {
+        return getExecutor().reduce(values.length, (from, to) -> {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += values[i];
+            }
+            return sum;
+        }, Long::sum);
     }
 
     @Override
@@ -386,13 +556,15 @@ public class ShortTensor extends Tensor {
     }
 
     private long longMin() {
-        long min = Long.MAX_VALUE;
-        for (int i = 0; i < values.length; i++) {
-            if (min > values[i]) {
-                min = values[i];
+        return getExecutor().reduce(values.length, (from, to) -> {
+            long min = Long.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                if (min > values[i]) {
+                    min = values[i];
+                }
             }
-        }
-        return min;
+            return min;
+        }, Math::min);
     }
 
     @Override
@@ -411,13 +583,15 @@ public class ShortTensor extends Tensor {
     }
 
     private long longMax() {
-        long max = Long.MIN_VALUE;
-        for (int i = 0; i < values.length; i++) {
-            if (max < values[i]) {
-                max = values[i];
+        return getExecutor().reduce(values.length, (from, to) -> {
+            long max = Long.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                if (max < values[i]) {
+                    max = values[i];
+                }
             }
-        }
-        return max;
+            return max;
+        }, Math::max);
     }
 
     @Override
@@ -436,33 +610,40 @@ public class ShortTensor extends Tensor {
     }
 
     private long longAverage() {
-        long average = 0;
-        for (int i = 0; i < values.length; i++) {
-            average += values[i];
-        }
-        average /= values.length;
-        return average;
+        return longSum() / values.length;
+    }
+
+    @Override
+    public TensorStats stats() {
+        return getExecutor().reduce(values.length,
+                (from, to) -> TensorStats.of(values, from, to), TensorStats::merge);
     }
 
     @Override
     public void processByte(ByteUnaryOperator operator) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = operator.applyAsByte(PrimitiveUtils.toByte(values[i]));
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = operator.applyAsByte(PrimitiveUtils.toByte(values[i]));
+            }
+        });
     }
 
     @Override
     public void processShort(ShortUnaryOperator operator) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = operator.applyAsShort(values[i]);
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = operator.applyAsShort(values[i]);
+            }
+        });
     }
 
     @Override
     public void processFloat(FloatUnaryOperator operator) {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = PrimitiveUtils.toShort(operator.applyAsFloat((float) values[i]));
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = PrimitiveUtils.toShort(operator.applyAsFloat((float) values[i]));
+            }
+        });
     }
 
     @Override
@@ -498,69 +679,65 @@ public class ShortTensor extends Tensor {
 
     @Override
     public void negate() {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = (short) -values[i];
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = (short) -values[i];
+            }
+        });
     }
 
     @Override
     public void abs() {
-        for (int i = 0; i < values.length; i++) {
-            values[i] = values[i] >= 0 ? values[i] : (short) -values[i];
-        }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = values[i] >= 0 ? values[i] : (short) -values[i];
+            }
+        });
     }
 
     @Override
     public Tensor transpose() {
-        ShortTensor transposed = (ShortTensor) Tensor.create(TYPE.SHORT, ArrayUtils.reverse(dimensions));
-        int[] indices = new int[dimensions.length];
-        Arrays.fill(indices, 0);
-        transposeRecursive(transposed, 0, indices);
-        return transposed;
+        return view().transpose().toTensor();
     }
 
-    private void transposeRecursive(ShortTensor tensor, int current, int[] indices) {
-        if (current == indices.length) {
-            tensor.setShortValue(getShortValue(indices), ArrayUtils.reverse(indices));
-        } else {
-            int next = current + 1;
-            for (int i = 0; i < dimensions[current]; i++) {
-                indices[current] = i;
-                transposeRecursive(tensor, next, indices);
-            }
-        }
-    }
-    
     @Override
     public Tensor rotate() {
+        // flipping every axis reverses the flat order of the values
         ShortTensor flipped = (ShortTensor) createSimilar();
-        int[] indices = new int[dimensions.length];
-        Arrays.fill(indices, 0);
-        rotateRecursive(flipped, 0, indices);
-        return flipped;
-    }
-
-    private void rotateRecursive(ShortTensor tensor, int current, int[] indices) {
-        if (current == indices.length) {
-            tensor.setShortValue(getShortValue(indices), reverseIndex(indices));
-        } else {
-            int next = current + 1;
-            for (int i = 0; i < dimensions[current]; i++) {
-                indices[current] = i;
-                rotateRecursive(tensor, next, indices);
-            }
+        int last = values.length - 1;
+        for (int i = 0; i <= last; i++) {
+            flipped.values[i] = values[last - i];
         }
+        return flipped;
     }
 
     @Override
     public void hadamardProduct(Tensor multiplier) {
         checkNull(multiplier);
         checkClass(multiplier);
-        checkDimensionCount(multiplier.dimensions);
-        checkDimensions(multiplier);
-        for (int i = 0; i < values.length; i++) {
-            values[i] = PrimitiveUtils.toShort(values[i] * ((ShortTensor) multiplier).values[i]);
+        short[] operand = ((ShortTensor) multiplier).values;
+        if (!Arrays.equals(dimensions, multiplier.dimensions)) {
+            Broadcast.forEachRun(this, multiplier, (offset, operandOffset, length, repeated) -> {
+                int end = offset + length;
+                if (repeated) {
+                    short x = operand[operandOffset];
+                    for (int i = offset; i < end; i++) {
+                        values[i] = PrimitiveUtils.toShort(values[i] * x);
+                    }
+                } else {
+                    int shift = operandOffset - offset;
+                    for (int i = offset; i < end; i++) {
+                        values[i] = PrimitiveUtils.toShort(values[i] * operand[i + shift]);
+                    }
+                }
+            });
+            return;
         }
+        getExecutor().forEach(values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = PrimitiveUtils.toShort(values[i] * operand[i]);
+            }
+        });
     }
 
     @Override
@@ -582,69 +759,55 @@ public class ShortTensor extends Tensor {
     }
 
     @Override
-    protected void convolveRecursive(Tensor kernel, Tensor result, int k, int[] d) {
-        if (k < dimensions.length) {
-            for (int i = 0; i < dimensions[k]; i++) {
-                d[k] = i;
-                convolveRecursive(kernel, result, k + 1, d);
-            }
-        } else {
-            result.setShortValue(
-                    PrimitiveUtils.toShort(convolutionSum(kernel, d, 0, new int[kernel.dimensions.length])), d);
-        }
-    }
-
-    private long convolutionSum(Tensor kernel, int[] d, int k, int[] e) {
-        if (k < kernel.dimensions.length) {
-            long s = 0;
-            for (int i = 0; i < kernel.dimensions[k]; i++) {
-                e[k] = i;
-                s += convolutionSum(kernel, d, k + 1, e);
-            }
-            return s;
-        } else {
-            int[] rd = new int[dimensions.length];
-            for (int i = 0; i < dimensions.length; i++) {
-                rd[i] = d[i] + e[i] - kernel.dimensions[i] / 2;
-                if (rd[i] < 0 || rd[i] > dimensions[i] - 1) {
-                    return 0;
-                }
-            }
-            return getShortValue(rd) * kernel.getShortValue(e);
-        }
-    }
-
-    @Override
-    protected void convolvePartialRecursive(Tensor kernel, Tensor result, int k, int[] kd, int[] d) {
-        if (k < result.dimensions.length) {
-            for (int i = 0; i < result.dimensions[k]; i++) {
-                kd[k] = i;
-                d[k] = dimensions[k] / 2 + i - result.dimensions[k] / 2;
-                convolvePartialRecursive(kernel, result, k + 1, kd, d);
+    protected void convolveInto(Tensor kernel, Tensor result, int[] shift) {
+        short[] kernelValues = ((ShortTensor) kernel).values;
+        short[] resultValues = ((ShortTensor) result).values;
+        int rank = dimensions.length;
+        int[] kernelDimensions = kernel.dimensions;
+        int[] kernelMultipliers = kernel.multipliers;
+        int[] position = new int[rank];
+        int[] from = new int[rank];
+        int[] to = new int[rank];
+        int[] e = new int[rank];
+        for (int r = 0; r < resultValues.length; r++) {
+            // clip the kernel to the part that overlaps the source
+            int source = 0;
+            int start = 0;
+            boolean overlap = true;
+            for (int a = 0; a < rank; a++) {
+                int origin = shift[a] + position[a] - kernelDimensions[a] / 2;
+                from[a] = Math.max(0, -origin);
+                to[a] = Math.min(kernelDimensions[a], dimensions[a] - origin);
+                overlap &= from[a] < to[a];
+                source += (origin + from[a]) * multipliers[a];
+                start += from[a] * kernelMultipliers[a];
+                e[a] = from[a];
             }
-        } else {
-            result.setShortValue(
-                    PrimitiveUtils.toShort(partialConvolutionSum(kernel, d, 0, new int[kernel.dimensions.length])), kd);
-        }
-    }
-
-    private long partialConvolutionSum(Tensor kernel, int[] d, int k, int[] e) {
-        if (k < kernel.dimensions.length) {
-            long s = 0;
-            for (int i = 0; i < kernel.dimensions[k]; i++) {
-                e[k] = i;
-                s += convolutionSum(kernel, d, k + 1, e);
+            long sum = 0;
+            if (overlap) {
+                int length = to[0] - from[0];
+                int a;
+                do {
+                    for (int i = 0; i < length; i++) {
+                        sum += values[source + i] * kernelValues[start + i];
+                    }
+                    for (a = 1; a < rank; a++) {
+                        if (++e[a] < to[a]) {
+                            source += multipliers[a];
+                            start += kernelMultipliers[a];
+                            break;
+                        }
+                        int steps = to[a] - 1 - from[a];
+                        source -= steps * multipliers[a];
+                        start -= steps * kernelMultipliers[a];
+                        e[a] = from[a];
+                    }
+                } while (a < rank);
             }
-            return s;
-        } else {
-            int[] rd = new int[dimensions.length];
-            for (int i = 0; i < dimensions.length; i++) {
-                rd[i] = d[i] + e[i] - kernel.dimensions[i] / 2;
-                if (rd[i] < 0 || rd[i] > dimensions[i] - 1) {
-                    return 0;
-                }
+            resultValues[r] = PrimitiveUtils.toShort(sum);
+            for (int a = 0; a < rank && ++position[a] == result.dimensions[a]; a++) {
+                position[a] = 0;
             }
-            return getShortValue(rd) * kernel.getShortValue(e);
         }
     }
 
@@ -671,7 +834,7 @@ public class ShortTensor extends Tensor {
                 sb.append("\n");
             }
         } else {
-            sb.append("[").append(getShortValue(indices)).append("]");
+            sb.append("[").append(values[index(indices)]).append("]");
         }
     }
 }
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Arrays;
+import volgyerdo.commons.primitive.ArrayUtils;
+import volgyerdo.commons.primitive.FloatUnaryOperator;
+
+/**
+ * Sparse float tensor in coordinate (COO) format.
+ * <p>
+ * Only the non-zero elements are stored: their coordinates, linearized to
+ * the flat index of the dense layout of {@link FloatTensor}, in ascending
+ * order, and their values. Memory and the work of the operations are
+ * proportional to the number of non-zero elements instead of the size.
+ * It is a {@link Tensor} of type {@link Tensor.TYPE#SPARSE_FLOAT}, see
+ * {@link SparseTensor} for the operations that run densely.
+ * {@link #of(Tensor)} and {@link #toFloatTensor()} convert from and to the
+ * dense form, other types go through {@link Tensor#convertTo(Tensor.TYPE)}.
+ * Two dimensional data that is multiplied many times is faster in
+ * {@link CsrFloatMatrix}.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class SparseFloatTensor extends SparseTensor {
+
+    private int[] indices;
+    private float[] values;
+    private int count;
+
+    public SparseFloatTensor(int... dimensions) {
+        this(dimensions, new int[0], new float[0], 0);
+    }
+
+    SparseFloatTensor(int[] dimensions, int[] indices, float[] values, int count) {
+        super(dimensions);
+        this.indices = indices;
+        this.values = values;
+        this.count = count;
+    }
+
+    // entries in any order, with distinct indices and non-zero values
+    static SparseFloatTensor sorted(int[] dimensions, int[] indices, float[] values) {
+        int count = indices.length;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = (long) indices[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] sortedIndices = new int[count];
+        float[] sortedValues = new float[count];
+        for (int i = 0; i < count; i++) {
+            sortedIndices[i] = (int) (keys[i] >>> 32);
+            sortedValues[i] = values[(int) keys[i]];
+        }
+        return new SparseFloatTensor(dimensions, sortedIndices, sortedValues, count);
+    }
+
+    public static SparseFloatTensor of(Tensor tensor) {
+        if (tensor instanceof SparseTensor) {
+            SparseFloatTensor coordinates = ((SparseTensor) tensor).coordinates();
+            return coordinates == tensor ? (SparseFloatTensor) coordinates.copy() : coordinates;
+        }
+        float[] dense = (tensor instanceof FloatTensor
+                ? (FloatTensor) tensor : (FloatTensor) tensor.convertTo(TYPE.FLOAT)).values;
+        int count = 0;
+        for (int i = 0; i < dense.length; i++) {
+            if (dense[i] != 0) {
+                count++;
+            }
+        }
+        int[] indices = new int[count];
+        float[] values = new float[count];
+        for (int i = 0, n = 0; n < count; i++) {
+            if (dense[i] != 0) {
+                indices[n] = i;
+                values[n++] = dense[i];
+            }
+        }
+        return new SparseFloatTensor(tensor.dimensions, indices, values, count);
+    }
+
+    @Override
+    public FloatTensor toFloatTensor() {
+        FloatTensor tensor = new FloatTensor(dimensions.clone());
+        for (int i = 0; i < count; i++) {
+            tensor.values[indices[i]] = values[i];
+        }
+        return tensor;
+    }
+
+    @Override
+    public int nonZeroCount() {
+        return count;
+    }
+
+    // flat index of the i-th non-zero element, in ascending order
+    public int nonZeroIndex(int i) {
+        checkNonZero(i);
+        return indices[i];
+    }
+
+    public float nonZeroValue(int i) {
+        checkNonZero(i);
+        return values[i];
+    }
+
+    @Override
+    public float getFlat(int index) {
+        checkFlat(index);
+        int position = Arrays.binarySearch(indices, 0, count, index);
+        return position >= 0 ? values[position] : 0;
+    }
+
+    // inserting or removing an element moves the elements after it
+    @Override
+    public void setFlat(int index, float value) {
+        checkFlat(index);
+        int position = Arrays.binarySearch(indices, 0, count, index);
+        if (position >= 0) {
+            if (value != 0) {
+                values[position] = value;
+            } else {
+                System.arraycopy(indices, position + 1, indices, position, count - position - 1);
+                System.arraycopy(values, position + 1, values, position, count - position - 1);
+                count--;
+            }
+        } else if (value != 0) {
+            position = -position - 1;
+            if (count == indices.length) {
+                int capacity = Math.max(8, count + (count >> 1));
+                indices = Arrays.copyOf(indices, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            System.arraycopy(indices, position, indices, position + 1, count - position);
+            System.arraycopy(values, position, values, position + 1, count - position);
+            indices[position] = index;
+            values[position] = value;
+            count++;
+        }
+    }
+
+    @Override
+    void forEachNonZero(NonZeroConsumer consumer) {
+        for (int i = 0; i < count; i++) {
+            consumer.accept(indices[i], values[i]);
+        }
+    }
+
+    @Override
+    void mapNonZero(FloatUnaryOperator operator) {
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            float value = operator.applyAsFloat(values[i]);
+            if (value != 0) {
+                indices[n] = indices[i];
+                values[n++] = value;
+            }
+        }
+        count = n;
+    }
+
+    @Override
+    void clear() {
+        indices = new int[0];
+        values = new float[0];
+        count = 0;
+    }
+
+    @Override
+    SparseFloatTensor coordinates() {
+        return this;
+    }
+
+    @Override
+    void assign(SparseTensor tensor) {
+        checkSameDimensions(tensor);
+        SparseFloatTensor other = tensor.coordinates();
+        indices = Arrays.copyOf(other.indices, other.count);
+        values = Arrays.copyOf(other.values, other.count);
+        count = other.count;
+    }
+
+    @Override
+    void multiplyElements(SparseTensor tensor) {
+        SparseFloatTensor multiplier = tensor.coordinates();
+        int[] otherIndices = multiplier.indices;
+        float[] otherValues = multiplier.values;
+        int otherCount = multiplier.count;
+        int[] resultIndices = new int[Math.min(count, otherCount)];
+        float[] resultValues = new float[resultIndices.length];
+        int n = 0;
+        for (int a = 0, b = 0; a < count && b < otherCount;) {
+            if (indices[a] < otherIndices[b]) {
+                a++;
+            } else if (indices[a] > otherIndices[b]) {
+                b++;
+            } else {
+                float value = values[a] * otherValues[b];
+                if (value != 0) {
+                    resultIndices[n] = indices[a];
+                    resultValues[n++] = value;
+                }
+                a++;
+                b++;
+            }
+        }
+        indices = resultIndices;
+        values = resultValues;
+        count = n;
+    }
+
+    @Override
+    void multiplyElements(FloatTensor multiplier) {
+        float[] dense = multiplier.values;
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            float value = values[i] * dense[indices[i]];
+            if (value != 0) {
+                indices[n] = indices[i];
+                values[n++] = value;
+            }
+        }
+        count = n;
+    }
+
+    // target += this, visiting only the non-zero elements
+    public void addTo(FloatTensor target) {
+        checkSameDimensions(target);
+        float[] dense = target.values;
+        for (int i = 0; i < count; i++) {
+            dense[indices[i]] += values[i];
+        }
+    }
+
+    @Override
+    public FloatTensor multiply(FloatTensor multiplier, int depth) {
+        int[] outputDimensions = Tensor.productDimensions(dimensions, multiplier.dimensions, depth);
+        FloatTensor result = new FloatTensor(outputDimensions);
+        int k = ArrayUtils.product(Arrays.copyOf(multiplier.dimensions, depth));
+        int m = size() / k;
+        int n = multiplier.values.length / k;
+        int count = this.count;
+        int[] indices = this.indices;
+        float[] values = this.values;
+        // this is m x k, every column of the result is a sparse dot product
+        // with a column of the multiplier
+        int[] rows = new int[count];
+        int[] columns = new int[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = indices[i] % m;
+            columns[i] = indices[i] / m;
+        }
+        float[] b = multiplier.values;
+        float[] c = result.values;
+        getExecutor().forEach(n, (from, to) -> {
+            for (int j = from; j < to; j++) {
+                int bOffset = k * j;
+                int cOffset = m * j;
+                for (int i = 0; i < count; i++) {
+                    c[cOffset + rows[i]] += values[i] * b[bOffset + columns[i]];
+                }
+            }
+        });
+        return result;
+    }
+
+    // dense tensor times a sparse multiplier, see multiply(FloatTensor, int)
+    public static FloatTensor multiply(FloatTensor tensor, SparseFloatTensor multiplier, int depth) {
+        int[] outputDimensions = Tensor.productDimensions(tensor.dimensions, multiplier.dimensions, depth);
+        FloatTensor result = new FloatTensor(outputDimensions);
+        int k = ArrayUtils.product(Arrays.copyOf(multiplier.dimensions, depth));
+        int m = tensor.values.length / k;
+        int n = multiplier.size() / k;
+        // the multiplier is k x n, its elements are sorted by column, and an
+        // element (p, j) adds a column of the tensor to column j of the result
+        int[] starts = new int[n + 1];
+        for (int i = 0; i < multiplier.count; i++) {
+            starts[multiplier.indices[i] / k + 1]++;
+        }
+        for (int j = 0; j < n; j++) {
+            starts[j + 1] += starts[j];
+        }
+        float[] a = tensor.values;
+        float[] c = result.values;
+        multiplier.getExecutor().forEach(n, (from, to) -> {
+            for (int j = from; j < to; j++) {
+                int cOffset = m * j;
+                for (int e = starts[j]; e < starts[j + 1]; e++) {
+                    float value = multiplier.values[e];
+                    int aOffset = m * (multiplier.indices[e] - k * j);
+                    for (int i = 0; i < m; i++) {
+                        c[cOffset + i] += value * a[aOffset + i];
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    @Override
+    void merge(SparseTensor operand, float sign) {
+        SparseFloatTensor tensor = operand.coordinates();
+        int[] otherIndices = tensor.indices;
+        float[] otherValues = tensor.values;
+        int otherCount = tensor.count;
+        int[] resultIndices = new int[count + otherCount];
+        float[] resultValues = new float[resultIndices.length];
+        int n = 0;
+        int a = 0;
+        int b = 0;
+        while (a < count || b < otherCount) {
+            int index;
+            float value;
+            if (b == otherCount || (a < count && indices[a] < otherIndices[b])) {
+                index = indices[a];
+                value = values[a++];
+            } else if (a == count || indices[a] > otherIndices[b]) {
+                index = otherIndices[b];
+                value = sign * otherValues[b++];
+            } else {
+                index = indices[a];
+                value = values[a++] + sign * otherValues[b++];
+            }
+            if (value != 0) {
+                resultIndices[n] = index;
+                resultValues[n++] = value;
+            }
+        }
+        indices = resultIndices;
+        values = resultValues;
+        count = n;
+    }
+
+    // walks the stored elements of the run instead of searching every index
+    @Override
+    void load(int offset, double[] buffer, int length) {
+        Arrays.fill(buffer, 0, length, 0);
+        int position = Arrays.binarySearch(indices, 0, count, offset);
+        for (int i = position >= 0 ? position : -position - 1;
+                i < count && indices[i] < offset + length; i++) {
+            buffer[indices[i] - offset] = values[i];
+        }
+    }
+
+    @Override
+    public Tensor copy() {
+        SparseFloatTensor copy = new SparseFloatTensor(dimensions,
+                Arrays.copyOf(indices, count), Arrays.copyOf(values, count), count);
+        return copy;
+    }
+
+    private void checkNonZero(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for " + count + " non-zero elements");
+        }
+    }
+}
@@ -0,0 +1,692 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import volgyerdo.commons.primitive.ArrayUtils;
+import volgyerdo.commons.primitive.ByteSupplier;
+import volgyerdo.commons.primitive.ByteUnaryOperator;
+import volgyerdo.commons.primitive.FloatSupplier;
+import volgyerdo.commons.primitive.FloatUnaryOperator;
+import volgyerdo.commons.primitive.PrimitiveUtils;
+import volgyerdo.commons.primitive.ShortSupplier;
+import volgyerdo.commons.primitive.ShortUnaryOperator;
+
+/**
+ * Common part of the sparse float tensors, {@link SparseFloatTensor} and
+ * {@link CsrFloatMatrix}, which have the type {@link Tensor.TYPE#SPARSE_FLOAT}.
+ * <p>
+ * Only the non-zero elements are stored and the operations that keep zeros
+ * as zeros, like the products, negation or operators that map zero to zero,
+ * work on them alone. Element-wise results that become zero are dropped.
+ * The other operations, like adding a non-zero scalar, filling or
+ * randomizing, run on the dense form and store every non-zero element of
+ * the result, so they cost as much as on a {@link FloatTensor}. The
+ * element-wise tensor operations take a sparse operand of either format,
+ * the hadamard product also a float tensor, without broadcasting. Products
+ * and convolutions give a dense float tensor.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+abstract class SparseTensor extends Tensor {
+
+    @FunctionalInterface
+    static interface NonZeroConsumer {
+
+        void accept(int index, float value);
+    }
+
+    private final int size;
+
+    SparseTensor(int... dimensions) {
+        super(TYPE.SPARSE_FLOAT, dimensions.clone());
+        size = ArrayUtils.product(dimensions);
+    }
+
+    public abstract int nonZeroCount();
+
+    public abstract float getFlat(int index);
+
+    public abstract void setFlat(int index, float value);
+
+    // visits the non-zero elements with their flat index
+    abstract void forEachNonZero(NonZeroConsumer consumer);
+
+    // applies the operator on the stored values and drops the zeros
+    abstract void mapNonZero(FloatUnaryOperator operator);
+
+    abstract void clear();
+
+    // the same elements in coordinate format, this tensor if it has that format
+    abstract SparseFloatTensor coordinates();
+
+    // replaces the elements with the ones of a tensor of the same dimensions
+    abstract void assign(SparseTensor tensor);
+
+    // this += sign * tensor
+    abstract void merge(SparseTensor tensor, float sign);
+
+    abstract void multiplyElements(SparseTensor multiplier);
+
+    abstract void multiplyElements(FloatTensor multiplier);
+
+    /**
+     * Dense product like {@link Tensor#multiply(Tensor, int)}: the last
+     * depth dimensions of this tensor are contracted with the first depth
+     * dimensions of the multiplier.
+     */
+    public abstract FloatTensor multiply(FloatTensor multiplier, int depth);
+
+    @Override
+    public abstract Tensor copy();
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public float density() {
+        return (float) nonZeroCount() / size;
+    }
+
+    public FloatTensor toFloatTensor() {
+        FloatTensor tensor = new FloatTensor(dimensions.clone());
+        forEachNonZero((index, value) -> tensor.values[index] = value);
+        return tensor;
+    }
+
+    @Override
+    public Tensor convertTo(TYPE type) {
+        return switch (type) {
+            case SPARSE_FLOAT ->
+                copy();
+            case FLOAT ->
+                toFloatTensor();
+            default ->
+                toFloatTensor().convertTo(type);
+        };
+    }
+
+    // flat index with every index checked against its dimension
+    final int flatIndex(int... indices) {
+        if (indices.length != dimensions.length) {
+            throw new IllegalArgumentException("Index count does not match tensor dimensions.");
+        }
+        int index = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] < 0 || indices[i] >= dimensions[i]) {
+                throw new IndexOutOfBoundsException("Index " + indices[i] + " out of bounds for dimension " + dimensions[i]);
+            }
+            index += multipliers[i] * indices[i];
+        }
+        return index;
+    }
+
+    final void checkFlat(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    @Override
+    public void set(Tensor tensor) {
+        assign(checkSparse(tensor));
+    }
+
+    @Override
+    public void setByteValue(byte value, int... indices) {
+        setFlat(flatIndex(indices), value);
+    }
+
+    @Override
+    public void setShortValue(short value, int... indices) {
+        setFlat(flatIndex(indices), value);
+    }
+
+    @Override
+    public void setFloatValue(float value, int... indices) {
+        setFlat(flatIndex(indices), value);
+    }
+
+    @Override
+    public void setObjectValue(Object value, int... indices) {
+        throw new RuntimeException("Can't store an object in a sparse tensor.");
+    }
+
+    @Override
+    public byte getByteValue(int... indices) {
+        return PrimitiveUtils.toByte(getFlat(flatIndex(indices)));
+    }
+
+    @Override
+    public short getShortValue(int... indices) {
+        return PrimitiveUtils.toShort(getFlat(flatIndex(indices)));
+    }
+
+    @Override
+    public float getFloatValue(int... indices) {
+        return getFlat(flatIndex(indices));
+    }
+
+    @Override
+    public Object getObjectValue(int... indices) {
+        throw new RuntimeException("Can't get an object from a tensor.");
+    }
+
+    @Override
+    public void setByteArray(byte[] values) {
+        checkArray(values.length);
+        clear();
+        for (int i = 0; i < values.length; i++) {
+            setFlat(i, values[i]);
+        }
+    }
+
+    @Override
+    public void setShortArray(short[] values) {
+        checkArray(values.length);
+        clear();
+        for (int i = 0; i < values.length; i++) {
+            setFlat(i, values[i]);
+        }
+    }
+
+    @Override
+    public void setFloatArray(float[] values) {
+        checkArray(values.length);
+        clear();
+        for (int i = 0; i < values.length; i++) {
+            setFlat(i, values[i]);
+        }
+    }
+
+    @Override
+    public void setObjectArray(Object[] values) {
+        throw new RuntimeException("Can't set an object array into a sparse tensor.");
+    }
+
+    private void checkArray(int length) {
+        if (dimensions.length != 1 || dimensions[0] != length) {
+            throw new IllegalArgumentException("Array dimension is different.");
+        }
+    }
+
+    @Override
+    public void randomize(byte min, byte max) {
+        updateDense(dense -> dense.randomize(min, max));
+    }
+
+    @Override
+    public void randomize(short min, short max) {
+        updateDense(dense -> dense.randomize(min, max));
+    }
+
+    @Override
+    public void randomize(float min, float max) {
+        updateDense(dense -> dense.randomize(min, max));
+    }
+
+    @Override
+    public void fill(byte x) {
+        fill((float) x);
+    }
+
+    @Override
+    public void fill(short x) {
+        fill((float) x);
+    }
+
+    @Override
+    public void fill(float x) {
+        if (x == 0) {
+            clear();
+        } else {
+            updateDense(dense -> dense.fill(x));
+        }
+    }
+
+    @Override
+    public void add(byte x) {
+        add((float) x);
+    }
+
+    @Override
+    public void add(short x) {
+        add((float) x);
+    }
+
+    @Override
+    public void add(float x) {
+        if (x != 0) {
+            map(value -> value + x);
+        }
+    }
+
+    @Override
+    public void add(Tensor tensor) {
+        merge(checkOperand(tensor), 1);
+    }
+
+    @Override
+    public void substract(byte x) {
+        substract((float) x);
+    }
+
+    @Override
+    public void substract(short x) {
+        substract((float) x);
+    }
+
+    @Override
+    public void substract(float x) {
+        if (x != 0) {
+            map(value -> value - x);
+        }
+    }
+
+    @Override
+    public void substract(Tensor tensor) {
+        merge(checkOperand(tensor), -1);
+    }
+
+    @Override
+    public void multiply(byte x) {
+        multiply((float) x);
+    }
+
+    @Override
+    public void multiply(short x) {
+        multiply((float) x);
+    }
+
+    @Override
+    public void multiply(float x) {
+        map(value -> value * x);
+    }
+
+    @Override
+    public void divide(byte x) {
+        divide((float) x);
+    }
+
+    @Override
+    public void divide(short x) {
+        divide((float) x);
+    }
+
+    @Override
+    public void divide(float x) {
+        map(value -> value / x);
+    }
+
+    @Override
+    public void negate() {
+        mapNonZero(value -> -value);
+    }
+
+    @Override
+    public void abs() {
+        mapNonZero(Math::abs);
+    }
+
+    @Override
+    public void hadamardProduct(Tensor multiplier) {
+        checkNull(multiplier);
+        if (multiplier instanceof FloatTensor) {
+            checkSameDimensions(multiplier);
+            multiplyElements((FloatTensor) multiplier);
+        } else {
+            multiplyElements(checkOperand(multiplier));
+        }
+    }
+
+    /**
+     * Takes a float or sparse multiplier, a sparse one is multiplied in its
+     * dense form. The result is a dense float tensor.
+     */
+    @Override
+    public Tensor multiply(Tensor multiplier, int depth) {
+        checkNull(multiplier);
+        if (multiplier instanceof SparseTensor) {
+            return multiply(((SparseTensor) multiplier).toFloatTensor(), depth);
+        }
+        if (!(multiplier instanceof FloatTensor)) {
+            throw new IllegalArgumentException("Tensor classes does not match.");
+        }
+        return multiply((FloatTensor) multiplier, depth);
+    }
+
+    @Override
+    protected void sumProductRecursive(Tensor multiplier, Tensor target,
+            int[] commonDimensions, int[] multiplierDimensions, int[] outputDimensions,
+            int depth, int[] pos, int n, int[] indices, int[] rd1, int[] rd2) {
+        if (n < commonDimensions.length) {
+            for (int i = 0; i < commonDimensions[n]; i++) {
+                indices[n] = i;
+                sumProductRecursive(multiplier, target, commonDimensions,
+                        multiplierDimensions, outputDimensions, depth, pos, n + 1, indices, rd1, rd2);
+            }
+        } else {
+            System.arraycopy(indices, 0, rd1, dimensions.length - depth, depth);
+            System.arraycopy(indices, 0, rd2, 0, depth);
+            target.setFloatValue(target.getFloatValue(pos)
+                    + getFloatValue(rd1) * multiplier.getFloatValue(rd2), pos);
+        }
+    }
+
+    /**
+     * Convolves the dense form, the result is a float tensor. The kernel can
+     * be a float or a sparse tensor.
+     */
+    @Override
+    public Tensor convolve(Tensor kernel) {
+        return toFloatTensor().convolve(dense(kernel));
+    }
+
+    @Override
+    public Tensor convolvePartial(Tensor kernel, int... outputDimensions) {
+        return toFloatTensor().convolvePartial(dense(kernel), outputDimensions);
+    }
+
+    @Override
+    protected void convolveInto(Tensor kernel, Tensor result, int[] shift) {
+        FloatTensor convolved = new FloatTensor(result.dimensions.clone());
+        toFloatTensor().convolveInto(dense(kernel), convolved, shift);
+        result.set(convolved.convertTo(result.type));
+    }
+
+    private static Tensor dense(Tensor tensor) {
+        return tensor instanceof SparseTensor ? ((SparseTensor) tensor).toFloatTensor() : tensor;
+    }
+
+    @Override
+    public Tensor sum() {
+        Tensor result = Tensor.create(type, 1);
+        result.setFloatValue(PrimitiveUtils.toFloat(doubleSum()), 0);
+        return result;
+    }
+
+    @Override
+    public byte byteSum() {
+        return PrimitiveUtils.toByte(doubleSum());
+    }
+
+    @Override
+    public short shortSum() {
+        return PrimitiveUtils.toShort(doubleSum());
+    }
+
+    @Override
+    public float floatSum() {
+        return PrimitiveUtils.toFloat(doubleSum());
+    }
+
+    private double doubleSum() {
+        double[] sum = new double[1];
+        forEachNonZero((index, value) -> sum[0] += value);
+        return sum[0];
+    }
+
+    @Override
+    public byte byteMin() {
+        return PrimitiveUtils.toByte(doubleMin());
+    }
+
+    @Override
+    public short shortMin() {
+        return PrimitiveUtils.toShort(doubleMin());
+    }
+
+    @Override
+    public float floatMin() {
+        return PrimitiveUtils.toFloat(doubleMin());
+    }
+
+    private double doubleMin() {
+        double[] min = {nonZeroCount() < size ? 0 : Double.POSITIVE_INFINITY};
+        forEachNonZero((index, value) -> {
+            if (min[0] > value) {
+                min[0] = value;
+            }
+        });
+        return min[0];
+    }
+
+    @Override
+    public byte byteMax() {
+        return PrimitiveUtils.toByte(doubleMax());
+    }
+
+    @Override
+    public short shortMax() {
+        return PrimitiveUtils.toShort(doubleMax());
+    }
+
+    @Override
+    public float floatMax() {
+        return PrimitiveUtils.toFloat(doubleMax());
+    }
+
+    private double doubleMax() {
+        double[] max = {nonZeroCount() < size ? 0 : Double.NEGATIVE_INFINITY};
+        forEachNonZero((index, value) -> {
+            if (max[0] < value) {
+                max[0] = value;
+            }
+        });
+        return max[0];
+    }
+
+    @Override
+    public byte byteAverage() {
+        return PrimitiveUtils.toByte(doubleSum() / size);
+    }
+
+    @Override
+    public short shortAverage() {
+        return PrimitiveUtils.toShort(doubleSum() / size);
+    }
+
+    @Override
+    public float floatAverage() {
+        return PrimitiveUtils.toFloat(doubleSum() / size);
+    }
+
+    @Override
+    public TensorStats stats() {
+        float[] values = new float[nonZeroCount()];
+        int[] n = new int[1];
+        forEachNonZero((index, value) -> values[n[0]++] = value);
+        return TensorStats.of(values, 0, values.length).merge(TensorStats.ofZeros(size - values.length));
+    }
+
+    @Override
+    public void processByte(ByteUnaryOperator operator) {
+        map(value -> operator.applyAsByte(PrimitiveUtils.toByte(value)));
+    }
+
+    @Override
+    public void processShort(ShortUnaryOperator operator) {
+        map(value -> operator.applyAsShort(PrimitiveUtils.toShort(value)));
+    }
+
+    @Override
+    public void processFloat(FloatUnaryOperator operator) {
+        map(operator);
+    }
+
+    @Override
+    public void processObject(UnaryOperator operator) {
+        throw new RuntimeException("Sparse tensor doesn't have object processor function.");
+    }
+
+    @Override
+    public void fillWithByte(ByteSupplier supplier) {
+        updateDense(dense -> dense.fillWithByte(supplier));
+    }
+
+    @Override
+    public void fillWithShort(ShortSupplier supplier) {
+        updateDense(dense -> dense.fillWithShort(supplier));
+    }
+
+    @Override
+    public void fillWithFloat(FloatSupplier supplier) {
+        updateDense(dense -> dense.fillWithFloat(supplier));
+    }
+
+    @Override
+    public void fillWithObject(Supplier supplier) {
+        throw new RuntimeException("Sparse tensor doesn't have object filler function.");
+    }
+
+    // only the stored elements when the operator maps zero to zero
+    private void map(FloatUnaryOperator operator) {
+        if (operator.applyAsFloat(0) == 0) {
+            mapNonZero(operator);
+        } else {
+            updateDense(dense -> dense.processFloat(operator));
+        }
+    }
+
+    // runs the operation on the dense form and stores its non-zero elements
+    private void updateDense(Consumer<FloatTensor> operation) {
+        FloatTensor dense = toFloatTensor();
+        operation.accept(dense);
+        assign(SparseFloatTensor.of(dense));
+    }
+
+    // the axes in reverse order, like TensorView.transpose()
+    @Override
+    public Tensor transpose() {
+        int rank = dimensions.length;
+        int[] transposed = new int[rank];
+        int[] transposedMultipliers = new int[rank];
+        for (int a = 0, multiplier = 1; a < rank; a++) {
+            transposed[a] = dimensions[rank - 1 - a];
+            transposedMultipliers[rank - 1 - a] = multiplier;
+            multiplier *= transposed[a];
+        }
+        return entries(transposed, index -> {
+            int position = 0;
+            for (int a = rank - 1; a >= 0; a--) {
+                position += index / multipliers[a] * transposedMultipliers[a];
+                index %= multipliers[a];
+            }
+            return position;
+        });
+    }
+
+    // every axis flipped, which reverses the flat order
+    @Override
+    public Tensor rotate() {
+        return entries(dimensions, index -> size - 1 - index);
+    }
+
+    @FunctionalInterface
+    private static interface IndexMap {
+
+        int apply(int index);
+    }
+
+    private SparseFloatTensor entries(int[] dimensions, IndexMap map) {
+        int count = nonZeroCount();
+        int[] indices = new int[count];
+        float[] values = new float[count];
+        int[] n = new int[1];
+        forEachNonZero((index, value) -> {
+            indices[n[0]] = map.apply(index);
+            values[n[0]++] = value;
+        });
+        return SparseFloatTensor.sorted(dimensions.clone(), indices, values);
+    }
+
+    // fills buffer[0, length) with the elements from offset
+    void load(int offset, double[] buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            buffer[i] = getFlat(offset + i);
+        }
+    }
+
+    @Override
+    public IndexIterator indexIterator() {
+        return new IndexIterator(dimensions);
+    }
+
+    @Override
+    public void toStringRecursive(StringBuilder sb, int n, int[] indices, boolean newLine) {
+        if (n < indices.length) {
+            for (int i = 0; i < dimensions[n]; i++) {
+                indices[n] = i;
+                toStringRecursive(sb, n + 1, indices, newLine);
+            }
+            if (newLine) {
+                sb.append("\n");
+            }
+        } else {
+            sb.append("[").append(getFlat(index(indices))).append("]");
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int[] hash = {Arrays.hashCode(dimensions)};
+        // independent of the order of the visit
+        forEachNonZero((index, value) -> hash[0] += 31 * index ^ Float.floatToIntBits(value));
+        return hash[0];
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        SparseTensor other = (SparseTensor) obj;
+        if (!Arrays.equals(dimensions, other.dimensions) || nonZeroCount() != other.nonZeroCount()) {
+            return false;
+        }
+        boolean[] equal = {true};
+        forEachNonZero((index, value) -> equal[0] &= Float.floatToIntBits(value)
+                == Float.floatToIntBits(other.getFlat(index)));
+        return equal[0];
+    }
+
+    private SparseTensor checkOperand(Tensor tensor) {
+        SparseTensor sparse = checkSparse(tensor);
+        checkSameDimensions(sparse);
+        return sparse;
+    }
+
+    private SparseTensor checkSparse(Tensor tensor) {
+        checkNull(tensor);
+        if (!(tensor instanceof SparseTensor)) {
+            throw new IllegalArgumentException("Tensor classes does not match.");
+        }
+        return (SparseTensor) tensor;
+    }
+
+    final void checkSameDimensions(Tensor tensor) {
+        if (!Arrays.equals(dimensions, tensor.dimensions)) {
+            throw new IllegalArgumentException("Tensor dimensions does not match.");
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package volgyerdo.commons.math.tensor;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 import volgyerdo.commons.primitive.ByteSupplier;
@@ -34,12 +35,13 @@ public abstract class Tensor implements Serializable{
 public static final long versionUID = 1L;
     
     public static enum TYPE {
-        BYTE, SHORT, FLOAT, OBJECT
+        BYTE, SHORT, FLOAT, OBJECT, DOUBLE, INT, LONG, SPARSE_FLOAT
     };
 
     public TYPE type;
     public int[] dimensions;
     public int[] multipliers;
+    private transient TensorExecutor executor;
     
     public Tensor(){
     }
@@ -73,6 +75,14 @@ public static final long versionUID = 1L;
                 new FloatTensor(dimensions);
             case OBJECT ->
                 new ObjectTensor(dimensions);
+            case DOUBLE ->
+                new DoubleTensor(dimensions);
+            case INT ->
+                new IntTensor(dimensions);
+            case LONG ->
+                new LongTensor(dimensions);
+            case SPARSE_FLOAT ->
+                new SparseFloatTensor(dimensions);
             default ->
                 null;
         };
@@ -126,6 +136,12 @@ public static final long versionUID = 1L;
 
     public abstract void add(float scaler);
 
+    /**
+     * Adds the tensor element-wise. Its dimensions must broadcast to the
+     * dimensions of this tensor: aligned at the last axis, each of them is
+     * equal to the matching dimension or 1, and the missing leading axes are
+     * repeated, so a scalar, a row or a column can be added to a matrix.
+     */
     public abstract void add(Tensor tensor);
 
     public abstract void substract(byte scaler);
@@ -134,6 +150,7 @@ public static final long versionUID = 1L;
 
     public abstract void substract(float scaler);
 
+    // element-wise, the tensor is broadcast like in add(Tensor)
     public abstract void substract(Tensor tensor);
 
     public abstract void multiply(byte scaler);
@@ -174,6 +191,35 @@ public static final long versionUID = 1L;
 
     public abstract float floatAverage();
 
+    // count, min, max, sum, mean and variance in a single pass
+    public abstract TensorStats stats();
+
+    /**
+     * Sums along the given axes, all axes when none is given. The reduced
+     * axes are removed from the result, which has the type of this tensor;
+     * a tensor reduced along every axis gives a one element tensor.
+     */
+    public Tensor sum(int... axes) {
+        return AxisReduction.reduce(this, AxisReduction.SUM, axes);
+    }
+
+    public Tensor min(int... axes) {
+        return AxisReduction.reduce(this, AxisReduction.MIN, axes);
+    }
+
+    public Tensor max(int... axes) {
+        return AxisReduction.reduce(this, AxisReduction.MAX, axes);
+    }
+
+    public Tensor mean(int... axes) {
+        return AxisReduction.reduce(this, AxisReduction.MEAN, axes);
+    }
+
+    // position of the first maximum along the axis
+    public IntTensor argmax(int axis) {
+        return AxisReduction.argmax(this, axis);
+    }
+
     public abstract void processByte(ByteUnaryOperator operator);
 
     public abstract void processShort(ShortUnaryOperator operator);
@@ -198,13 +244,27 @@ public static final long versionUID = 1L;
     
     public abstract Tensor rotate();
 
+    // element-wise, the multiplier is broadcast like in add(Tensor)
     public abstract void hadamardProduct(Tensor multiplier);
 
     public Tensor multiply(Tensor multiplier, int depth) {
         checkNull(multiplier);
         checkClass(multiplier);
-        int[] sourceDimensions = dimensions;
-        int[] multiplierDimensions = multiplier.dimensions;
+        int[] outputDimensions = productDimensions(multiplier, depth);
+        int[] commonDimensions = Arrays.copyOf(multiplier.dimensions, depth);
+        Tensor target = Tensor.create(type, outputDimensions);
+        multiplyInto(multiplier, target, commonDimensions, multiplier.dimensions,
+                outputDimensions, depth);
+        return target;
+    }
+
+    // dimensions of multiply(multiplier, depth), checks that the last depth
+    // dimensions of this tensor match the first ones of the multiplier
+    protected final int[] productDimensions(Tensor multiplier, int depth) {
+        return productDimensions(dimensions, multiplier.dimensions, depth);
+    }
+
+    static int[] productDimensions(int[] sourceDimensions, int[] multiplierDimensions, int depth) {
         int sourceDimensionLength = sourceDimensions.length;
         int multiplierDimensionLength = multiplierDimensions.length;
         int outputDimensionLength = sourceDimensionLength + multiplierDimensionLength - 2 * depth;
@@ -216,21 +276,22 @@ public static final long versionUID = 1L;
                 throw new IllegalArgumentException("Dimensions does not match in depth.");
             }
         }
-        int[] commonDimensions = new int[depth];
-        System.arraycopy(multiplierDimensions, 0, commonDimensions, 0, depth);
         int[] outputDimensions = new int[outputDimensionLength];
         System.arraycopy(sourceDimensions, 0, outputDimensions, 0, sourceDimensionLength - depth);
         System.arraycopy(multiplierDimensions, depth, outputDimensions, sourceDimensionLength - depth, multiplierDimensionLength - depth);
         if (outputDimensionLength == 0) {
             outputDimensions = new int[]{1};
-            outputDimensionLength = 1;
         }
-        Tensor target = Tensor.create(type, outputDimensions);
+        return outputDimensions;
+    }
+
+    protected void multiplyInto(Tensor multiplier, Tensor target,
+            int[] commonDimensions, int[] multiplierDimensions, int[] outputDimensions,
+            int depth) {
         int[] rd1 = new int[dimensions.length];
         int[] rd2 = new int[multiplierDimensions.length];
         multiplyRecursive(multiplier, target, commonDimensions, multiplierDimensions,
-                outputDimensions, depth, 0, new int[outputDimensionLength], rd1, rd2);
-        return target;
+                outputDimensions, depth, 0, new int[outputDimensions.length], rd1, rd2);
     }
 
     private void multiplyRecursive(Tensor multiplier, Tensor target,
@@ -259,22 +320,31 @@ public static final long versionUID = 1L;
     public Tensor convolve(Tensor kernel) {
         checkNull(kernel);
         checkClass(kernel);
-        Tensor result = copy();
-        convolveRecursive(kernel, result, 0, new int[dimensions.length]);
+        checkDimensionCount(kernel.dimensions);
+        Tensor result = createSimilar();
+        convolveInto(kernel, result, new int[dimensions.length]);
         return result;
     }
 
-    protected abstract void convolveRecursive(Tensor kernel, Tensor result, int k, int[] d);
-
     public Tensor convolvePartial(Tensor kernel, int... outputDimensions) {
         checkNull(kernel);
         checkClass(kernel);
+        checkDimensionCount(kernel.dimensions);
+        checkDimensionCount(outputDimensions);
         Tensor result = Tensor.create(type, outputDimensions);
-        convolvePartialRecursive(kernel, result, 0, new int[outputDimensions.length], new int[dimensions.length]);
+        int[] shift = new int[dimensions.length];
+        for (int i = 0; i < dimensions.length; i++) {
+            shift[i] = dimensions[i] / 2 - outputDimensions[i] / 2;
+        }
+        convolveInto(kernel, result, shift);
         return result;
     }
 
-    protected abstract void convolvePartialRecursive(Tensor kernel, Tensor result, int k, int[] kd, int[] d);
+    /**
+     * result[r] = sum over e of this[shift + r + e - kernel / 2] * kernel[e],
+     * with zeros outside of this tensor.
+     */
+    protected abstract void convolveInto(Tensor kernel, Tensor result, int[] shift);
 
     protected final int index(int... indices) {
         if (indices.length == 0) {
@@ -287,6 +357,22 @@ public static final long versionUID = 1L;
         return index;
     }
     
+    protected final int index(int i, int j) {
+        checkIndexCount(2);
+        return i + multipliers[1] * j;
+    }
+
+    protected final int index(int i, int j, int k) {
+        checkIndexCount(3);
+        return i + multipliers[1] * j + multipliers[2] * k;
+    }
+
+    private void checkIndexCount(int count) {
+        if (dimensions.length != count) {
+            throw new IllegalArgumentException("Index count does not match tensor dimensions.");
+        }
+    }
+
     protected int[] reverseIndex(int[] indices) {
         int[] reversed = new int[indices.length];
         for (int i = 0; i < indices.length; i++) {
@@ -343,6 +429,25 @@ public static final long versionUID = 1L;
     
     public abstract IndexIterator indexIterator();
 
+    // visits every index with its flat offset; a parallel executor splits the
+    // walk into ranges, and each range reuses its own index array
+    public void forEachIndex(IndexIterator.IndexConsumer consumer) {
+        getExecutor().forEach(size(), (from, to)
+                -> new IndexIterator(dimensions, from, to).forEachIndex(consumer));
+    }
+
+    public TensorView view() {
+        return new TensorView(this);
+    }
+
+    public TensorExecutor getExecutor() {
+        return executor != null ? executor : TensorExecutor.getDefault();
+    }
+
+    public void setExecutor(TensorExecutor executor) {
+        this.executor = executor;
+    }
+
     @Override
     public String toString() {
         return toString(false);
@@ -0,0 +1,724 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact, streamable binary encoding of tensors.
+ * <p>
+ * A tensor is written as a header (magic bytes <code>VTNC</code>, version,
+ * type code (0 byte, 1 short, 2 float, 3 object, 4 double, 5 int, 6 long,
+ * 7 sparse float), compression code (0 none, 1 deflate, 2 delta), dimension
+ * count and dimensions as varints) followed by chunks of at most 65536
+ * values. Every chunk is its value count, its encoded length and the encoded
+ * values, and can be decoded on its own. Values are little endian; object
+ * tensors are stored as one chunk holding the Java serialized value array.
+ * Reading deserializes only arrays, strings, boxed primitives, big integers
+ * and big decimals. Sparse tensors store their non-zero count as a varint
+ * and chunks of (int flat index, float value) pairs in ascending index
+ * order, both sparse formats are read as a {@link SparseFloatTensor}.
+ * <p>
+ * Compression is chosen per codec: {@link Compression#DEFLATE} deflates
+ * every chunk, {@link Compression#DELTA} stores byte and short values as
+ * zig-zag varint differences, which suits smooth signals and images.
+ * Reading detects the compression from the header. Several tensors can be
+ * written to the same stream one after the other; the codec never reads
+ * past the end of a tensor and never closes the stream.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public final class TensorCodec {
+
+    public static enum Compression {
+        NONE, DEFLATE, DELTA
+    };
+
+    private static final int MAGIC = 'V' | 'T' << 8 | 'N' << 16 | 'C' << 24;
+    private static final int VERSION = 1;
+    private static final int CHUNK_ELEMENTS = 1 << 16;
+    // deflate does not compress better than 1032:1
+    private static final long MAX_INFLATE_RATIO = 1032;
+    // an int in zig-zag varint form
+    private static final int MAX_DELTA_BYTES = 5;
+    private static final int MAX_CHUNK_BYTES = Integer.MAX_VALUE - 9;
+    // a chunk is read in steps, so a corrupt length allocates at most one
+    // step more than the stream holds
+    private static final int READ_STEP = 1 << 20;
+
+    private static final Set<Class<?>> OBJECT_CLASSES = Set.of(Object.class, String.class,
+            Boolean.class, Character.class, Number.class, Byte.class, Short.class, Integer.class,
+            Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class);
+
+    private final Compression compression;
+    private final int level;
+
+    public TensorCodec() {
+        this(Compression.NONE);
+    }
+
+    public TensorCodec(Compression compression) {
+        this(compression, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    // level is the deflate level, 0-9 or -1 for the default
+    public TensorCodec(Compression compression, int level) {
+        if (compression == null) {
+            throw new IllegalArgumentException("Compression is null.");
+        }
+        if (level < -1 || level > 9) {
+            throw new IllegalArgumentException("Level is out of range.");
+        }
+        this.compression = compression;
+        this.level = level;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void writeTo(Tensor tensor, OutputStream out) throws IOException {
+        if (tensor == null) {
+            throw new IllegalArgumentException("Tensor is null.");
+        }
+        if (compression == Compression.DELTA
+                && tensor.type != Tensor.TYPE.BYTE && tensor.type != Tensor.TYPE.SHORT) {
+            throw new IllegalArgumentException("Delta compression is only for byte and short tensors.");
+        }
+        Buffer header = new Buffer(32);
+        header.writeInt(MAGIC);
+        header.write(VERSION);
+        header.write(typeCode(tensor.type));
+        header.write(compressionCode(compression));
+        header.writeVarint(tensor.dimensions.length);
+        for (int dimension : tensor.dimensions) {
+            header.writeVarint(dimension);
+        }
+        out.write(header.bytes, 0, header.length);
+        Deflater deflater = compression == Compression.DEFLATE ? new Deflater(level, true) : null;
+        try {
+            if (tensor.type == Tensor.TYPE.OBJECT) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+                    objects.writeObject(((ObjectTensor) tensor).values);
+                }
+                byte[] raw = bytes.toByteArray();
+                writeChunk(out, tensor.size(), raw, raw.length, deflater, new Buffer(64));
+                return;
+            }
+            if (tensor.type == Tensor.TYPE.SPARSE_FLOAT) {
+                writeEntries(((SparseTensor) tensor).coordinates(), out, deflater);
+                return;
+            }
+            int elementSize = elementSize(tensor.type);
+            Buffer raw = new Buffer(CHUNK_ELEMENTS * elementSize);
+            Buffer encoded = new Buffer(CHUNK_ELEMENTS * elementSize + 64);
+            int size = tensor.size();
+            for (int from = 0; from < size; from += CHUNK_ELEMENTS) {
+                int count = Math.min(CHUNK_ELEMENTS, size - from);
+                raw.length = 0;
+                encodeValues(tensor, from, count, raw);
+                writeChunk(out, count, raw.bytes, raw.length, deflater, encoded);
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    public Tensor readFrom(InputStream in) throws IOException {
+        if (readInt(in) != MAGIC) {
+            throw new IOException("Not an encoded tensor.");
+        }
+        int version = readByte(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported tensor encoding version: " + version);
+        }
+        Tensor.TYPE type = type(readByte(in));
+        Compression streamCompression = compression(readByte(in));
+        int rank = readVarint(in);
+        if (type == null || streamCompression == null || rank < 1 || rank > 1024
+                || (type == Tensor.TYPE.SPARSE_FLOAT && streamCompression == Compression.DELTA)) {
+            throw new IOException("Corrupt tensor header.");
+        }
+        int[] dimensions = new int[rank];
+        long size = 1;
+        for (int i = 0; i < rank; i++) {
+            dimensions[i] = readVarint(in);
+            size *= dimensions[i];
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("Corrupt tensor header.");
+        }
+        Tensor tensor = Tensor.create(type, dimensions);
+        Inflater inflater = streamCompression == Compression.DEFLATE ? new Inflater(true) : null;
+        try {
+            Buffer encoded = new Buffer(64);
+            Buffer raw = new Buffer(64);
+            if (type == Tensor.TYPE.OBJECT) {
+                // a single chunk, also for an empty tensor
+                if (readVarint(in) != size) {
+                    throw new IOException("Corrupt tensor chunk.");
+                }
+                Buffer chunk = readChunk(in, inflater, encoded, raw, Long.MAX_VALUE);
+                readObjects((ObjectTensor) tensor, chunk.bytes, chunk.length);
+                return tensor;
+            }
+            if (type == Tensor.TYPE.SPARSE_FLOAT) {
+                readEntries((SparseFloatTensor) tensor, in, inflater, encoded, raw);
+                return tensor;
+            }
+            // an empty tensor has no chunk
+            for (int from = 0; from < size;) {
+                int count = readVarint(in);
+                if (count > size - from || count == 0 || count > CHUNK_ELEMENTS) {
+                    throw new IOException("Corrupt tensor chunk.");
+                }
+                long limit = streamCompression == Compression.DELTA
+                        ? (long) count * MAX_DELTA_BYTES : (long) count * elementSize(type);
+                Buffer chunk = readChunk(in, inflater, encoded, raw, limit);
+                decodeValues(tensor, from, count, chunk.bytes, chunk.length, streamCompression);
+                from += count;
+            }
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+        return tensor;
+    }
+
+    // writes the tensor at the position of the buffer
+    public void writeTo(Tensor tensor, ByteBuffer buffer) throws IOException {
+        writeTo(tensor, new OutputStream() {
+            @Override
+            public void write(int b) {
+                buffer.put((byte) b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                buffer.put(b, off, len);
+            }
+        });
+    }
+
+    // reads a tensor from the position of the buffer
+    public Tensor readFrom(ByteBuffer buffer) throws IOException {
+        return readFrom(new InputStream() {
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(len, buffer.remaining());
+                buffer.get(b, off, count);
+                return count;
+            }
+        });
+    }
+
+    public byte[] encode(Tensor tensor) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeTo(tensor, out);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    public Tensor decode(byte[] bytes) throws IOException {
+        return readFrom(new ByteArrayInputStream(bytes));
+    }
+
+    private void writeChunk(OutputStream out, int count, byte[] raw, int length,
+            Deflater deflater, Buffer encoded) throws IOException {
+        byte[] bytes = raw;
+        if (deflater != null) {
+            deflater.reset();
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            encoded.length = 0;
+            while (!deflater.finished()) {
+                encoded.ensure(encoded.length + 4096);
+                encoded.length += deflater.deflate(encoded.bytes, encoded.length,
+                        encoded.bytes.length - encoded.length);
+            }
+            bytes = encoded.bytes;
+            length = encoded.length;
+        }
+        Buffer header = new Buffer(10);
+        header.writeVarint(count);
+        header.writeVarint(length);
+        out.write(header.bytes, 0, header.length);
+        out.write(bytes, 0, length);
+    }
+
+    private void writeEntries(SparseFloatTensor tensor, OutputStream out, Deflater deflater)
+            throws IOException {
+        int count = tensor.nonZeroCount();
+        Buffer header = new Buffer(5);
+        header.writeVarint(count);
+        out.write(header.bytes, 0, header.length);
+        int elementSize = elementSize(Tensor.TYPE.SPARSE_FLOAT);
+        Buffer raw = new Buffer(CHUNK_ELEMENTS * elementSize);
+        Buffer encoded = new Buffer(CHUNK_ELEMENTS * elementSize + 64);
+        for (int from = 0; from < count; from += CHUNK_ELEMENTS) {
+            int length = Math.min(CHUNK_ELEMENTS, count - from);
+            ByteBuffer entries = littleEndian(raw.bytes);
+            for (int i = from; i < from + length; i++) {
+                entries.putInt(tensor.nonZeroIndex(i)).putFloat(tensor.nonZeroValue(i));
+            }
+            raw.length = length * elementSize;
+            writeChunk(out, length, raw.bytes, raw.length, deflater, encoded);
+        }
+    }
+
+    // the indices must be ascending and in range, the values non-zero
+    private static void readEntries(SparseFloatTensor tensor, InputStream in, Inflater inflater,
+            Buffer encoded, Buffer raw) throws IOException {
+        int count = readVarint(in);
+        if (count > tensor.size()) {
+            throw new IOException("Corrupt tensor chunk.");
+        }
+        int elementSize = elementSize(Tensor.TYPE.SPARSE_FLOAT);
+        int previous = -1;
+        for (int from = 0; from < count;) {
+            int length = readVarint(in);
+            if (length > count - from || length == 0 || length > CHUNK_ELEMENTS) {
+                throw new IOException("Corrupt tensor chunk.");
+            }
+            Buffer chunk = readChunk(in, inflater, encoded, raw, (long) length * elementSize);
+            if (chunk.length != length * elementSize) {
+                throw new IOException("Corrupt tensor chunk.");
+            }
+            ByteBuffer entries = littleEndian(chunk.bytes);
+            for (int i = 0; i < length; i++) {
+                int index = entries.getInt();
+                float value = entries.getFloat();
+                if (index <= previous || index >= tensor.size() || value == 0) {
+                    throw new IOException("Corrupt tensor chunk.");
+                }
+                tensor.setFlat(index, value);
+                previous = index;
+            }
+            from += length;
+        }
+    }
+
+    private void encodeValues(Tensor tensor, int from, int count, Buffer raw) {
+        switch (tensor.type) {
+            case BYTE -> {
+                byte[] values = ((ByteTensor) tensor).values;
+                if (compression == Compression.DELTA) {
+                    int previous = 0;
+                    for (int i = from; i < from + count; i++) {
+                        raw.writeVarint(zigZag(values[i] - previous));
+                        previous = values[i];
+                    }
+                } else {
+                    System.arraycopy(values, from, raw.bytes, 0, count);
+                    raw.length = count;
+                }
+            }
+            case SHORT -> {
+                short[] values = ((ShortTensor) tensor).values;
+                if (compression == Compression.DELTA) {
+                    int previous = 0;
+                    for (int i = from; i < from + count; i++) {
+                        raw.writeVarint(zigZag(values[i] - previous));
+                        previous = values[i];
+                    }
+                } else {
+                    byte[] bytes = raw.bytes;
+                    for (int i = 0; i < count; i++) {
+                        short value = values[from + i];
+                        bytes[2 * i] = (byte) value;
+                        bytes[2 * i + 1] = (byte) (value >> 8);
+                    }
+                    raw.length = 2 * count;
+                }
+            }
+            case FLOAT -> {
+                float[] values = ((FloatTensor) tensor).values;
+                byte[] bytes = raw.bytes;
+                for (int i = 0; i < count; i++) {
+                    int bits = Float.floatToRawIntBits(values[from + i]);
+                    bytes[4 * i] = (byte) bits;
+                    bytes[4 * i + 1] = (byte) (bits >> 8);
+                    bytes[4 * i + 2] = (byte) (bits >> 16);
+                    bytes[4 * i + 3] = (byte) (bits >> 24);
+                }
+                raw.length = 4 * count;
+            }
+            case DOUBLE -> {
+                littleEndian(raw.bytes).asDoubleBuffer().put(((DoubleTensor) tensor).values, from, count);
+                raw.length = 8 * count;
+            }
+            case INT -> {
+                littleEndian(raw.bytes).asIntBuffer().put(((IntTensor) tensor).values, from, count);
+                raw.length = 4 * count;
+            }
+            default -> {
+                littleEndian(raw.bytes).asLongBuffer().put(((LongTensor) tensor).values, from, count);
+                raw.length = 8 * count;
+            }
+        }
+    }
+
+    private static void decodeValues(Tensor tensor, int from, int count, byte[] bytes, int length,
+            Compression compression) throws IOException {
+        if (compression == Compression.DELTA) {
+            decodeDeltas(tensor, from, count, bytes, length);
+            return;
+        }
+        if (length != count * elementSize(tensor.type)) {
+            throw new IOException("Corrupt tensor chunk.");
+        }
+        switch (tensor.type) {
+            case BYTE ->
+                System.arraycopy(bytes, 0, ((ByteTensor) tensor).values, from, count);
+            case SHORT -> {
+                short[] values = ((ShortTensor) tensor).values;
+                for (int i = 0; i < count; i++) {
+                    values[from + i] = (short) (bytes[2 * i] & 0xFF | bytes[2 * i + 1] << 8);
+                }
+            }
+            case FLOAT -> {
+                float[] values = ((FloatTensor) tensor).values;
+                for (int i = 0; i < count; i++) {
+                    values[from + i] = Float.intBitsToFloat(bytes[4 * i] & 0xFF
+                            | (bytes[4 * i + 1] & 0xFF) << 8
+                            | (bytes[4 * i + 2] & 0xFF) << 16
+                            | bytes[4 * i + 3] << 24);
+                }
+            }
+            case DOUBLE ->
+                littleEndian(bytes).asDoubleBuffer().get(((DoubleTensor) tensor).values, from, count);
+            case INT ->
+                littleEndian(bytes).asIntBuffer().get(((IntTensor) tensor).values, from, count);
+            default ->
+                littleEndian(bytes).asLongBuffer().get(((LongTensor) tensor).values, from, count);
+        }
+    }
+
+    private static ByteBuffer littleEndian(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void decodeDeltas(Tensor tensor, int from, int count, byte[] bytes, int length)
+            throws IOException {
+        if (tensor.type != Tensor.TYPE.BYTE && tensor.type != Tensor.TYPE.SHORT) {
+            throw new IOException("Corrupt tensor header.");
+        }
+        int position = 0;
+        int previous = 0;
+        for (int i = from; i < from + count; i++) {
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                if (position >= length || shift > 28) {
+                    throw new IOException("Corrupt tensor chunk.");
+                }
+                b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += (value >>> 1) ^ -(value & 1);
+            if (tensor.type == Tensor.TYPE.BYTE) {
+                ((ByteTensor) tensor).values[i] = (byte) previous;
+            } else {
+                ((ShortTensor) tensor).values[i] = (short) previous;
+            }
+        }
+        if (position != length) {
+            throw new IOException("Corrupt tensor chunk.");
+        }
+    }
+
+    private static void readObjects(ObjectTensor tensor, byte[] bytes, int length) throws IOException {
+        try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes, 0, length))) {
+            objects.setObjectInputFilter(info -> filter(info, length));
+            Object[] values = (Object[]) objects.readObject();
+            if (values.length != tensor.values.length) {
+                throw new IOException("Corrupt tensor chunk.");
+            }
+            System.arraycopy(values, 0, tensor.values, 0, values.length);
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            throw new IOException("Corrupt tensor chunk.", ex);
+        }
+    }
+
+    // the encoded bytes of a chunk, inflated into raw when deflated,
+    // limit is the largest raw length
+    private static Buffer readChunk(InputStream in, Inflater inflater, Buffer encoded, Buffer raw,
+            long limit) throws IOException {
+        int length = readVarint(in);
+        long maxLength = inflater == null ? limit : deflatedBound(limit);
+        if (length > Math.min(maxLength, MAX_CHUNK_BYTES)) {
+            throw new IOException("Corrupt tensor chunk.");
+        }
+        readFully(in, encoded, length);
+        if (inflater == null) {
+            return encoded;
+        }
+        limit = Math.min(limit, Math.min(MAX_INFLATE_RATIO * length + 64, MAX_CHUNK_BYTES));
+        inflate(inflater, encoded.bytes, length, raw, (int) limit);
+        return raw;
+    }
+
+    // every array element takes at least one byte of the chunk
+    private static ObjectInputFilter.Status filter(ObjectInputFilter.FilterInfo info, int length) {
+        if (info.arrayLength() > length) {
+            return ObjectInputFilter.Status.REJECTED;
+        }
+        Class<?> type = info.serialClass();
+        if (type == null) {
+            return ObjectInputFilter.Status.UNDECIDED;
+        }
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || OBJECT_CLASSES.contains(type)
+                ? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+    }
+
+    private static void inflate(Inflater inflater, byte[] input, int length, Buffer raw, int limit)
+            throws IOException {
+        inflater.reset();
+        inflater.setInput(input, 0, length);
+        raw.length = 0;
+        try {
+            while (!inflater.finished()) {
+                if (raw.length > limit) {
+                    throw new IOException("Corrupt tensor chunk.");
+                }
+                // room for one byte over the limit to detect a longer chunk
+                raw.ensure(Math.min(raw.length + 4096, limit + 1));
+                int read = inflater.inflate(raw.bytes, raw.length,
+                        Math.min(raw.bytes.length, limit + 1) - raw.length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Corrupt tensor chunk.");
+                }
+                raw.length += read;
+            }
+        } catch (DataFormatException ex) {
+            throw new IOException("Corrupt tensor chunk.", ex);
+        }
+    }
+
+    private static int typeCode(Tensor.TYPE type) {
+        return switch (type) {
+            case BYTE ->
+                0;
+            case SHORT ->
+                1;
+            case FLOAT ->
+                2;
+            case OBJECT ->
+                3;
+            case DOUBLE ->
+                4;
+            case INT ->
+                5;
+            case LONG ->
+                6;
+            case SPARSE_FLOAT ->
+                7;
+        };
+    }
+
+    // null for an unknown code
+    private static Tensor.TYPE type(int code) {
+        return switch (code) {
+            case 0 ->
+                Tensor.TYPE.BYTE;
+            case 1 ->
+                Tensor.TYPE.SHORT;
+            case 2 ->
+                Tensor.TYPE.FLOAT;
+            case 3 ->
+                Tensor.TYPE.OBJECT;
+            case 4 ->
+                Tensor.TYPE.DOUBLE;
+            case 5 ->
+                Tensor.TYPE.INT;
+            case 6 ->
+                Tensor.TYPE.LONG;
+            case 7 ->
+                Tensor.TYPE.SPARSE_FLOAT;
+            default ->
+                null;
+        };
+    }
+
+    private static int compressionCode(Compression compression) {
+        return switch (compression) {
+            case NONE ->
+                0;
+            case DEFLATE ->
+                1;
+            case DELTA ->
+                2;
+        };
+    }
+
+    // null for an unknown code
+    private static Compression compression(int code) {
+        return switch (code) {
+            case 0 ->
+                Compression.NONE;
+            case 1 ->
+                Compression.DEFLATE;
+            case 2 ->
+                Compression.DELTA;
+            default ->
+                null;
+        };
+    }
+
+    private static int elementSize(Tensor.TYPE type) {
+        return switch (type) {
+            case BYTE ->
+                Byte.BYTES;
+            case SHORT ->
+                Short.BYTES;
+            case FLOAT ->
+                Float.BYTES;
+            case INT ->
+                Integer.BYTES;
+            case SPARSE_FLOAT ->
+                Integer.BYTES + Float.BYTES;
+            default ->
+                Long.BYTES;
+        };
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Encoded tensor is truncated.");
+        }
+        return b;
+    }
+
+    private static int readInt(InputStream in) throws IOException {
+        return readByte(in) | readByte(in) << 8 | readByte(in) << 16 | readByte(in) << 24;
+    }
+
+    private static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte(in);
+            value |= (b & 0x7F) << shift;
+            if (b < 0x80) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IOException("Corrupt varint.");
+    }
+
+    // largest deflated length of length bytes, the bound of zlib
+    private static long deflatedBound(long length) {
+        if (length > MAX_CHUNK_BYTES) {
+            return MAX_CHUNK_BYTES;
+        }
+        return length + (length >> 12) + (length >> 14) + (length >> 25) + 13;
+    }
+
+    // into buffer[0, length)
+    private static void readFully(InputStream in, Buffer buffer, int length) throws IOException {
+        buffer.length = 0;
+        while (buffer.length < length) {
+            buffer.ensure(Math.min(length, buffer.length + READ_STEP));
+            int read = in.read(buffer.bytes, buffer.length, Math.min(length, buffer.bytes.length) - buffer.length);
+            if (read < 0) {
+                throw new EOFException("Encoded tensor is truncated.");
+            }
+            buffer.length += read;
+        }
+    }
+
+    // growable byte array
+    private static final class Buffer {
+
+        byte[] bytes;
+        int length;
+
+        Buffer(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void ensure(int capacity) {
+            if (bytes.length < capacity) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, 2 * bytes.length));
+            }
+        }
+
+        void write(int b) {
+            ensure(length + 1);
+            bytes[length++] = (byte) b;
+        }
+
+        void writeInt(int value) {
+            write(value);
+            write(value >> 8);
+            write(value >> 16);
+            write(value >> 24);
+        }
+
+        void writeVarint(int value) {
+            ensure(length + 5);
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+}
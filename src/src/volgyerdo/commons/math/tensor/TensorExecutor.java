@@ -0,0 +1,199 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Execution policy of the element-wise tensor operations.
+ * <p>
+ * The sequential policy is the default. A parallel policy splits the value
+ * array into chunks on a fork-join pool, but only when the tensor has at
+ * least <code>threshold</code> elements. It can be set globally with
+ * {@link #setDefault(TensorExecutor)} or per tensor with
+ * {@link Tensor#setExecutor(TensorExecutor)}.
+ * <p>
+ * Reductions are evaluated on a fixed tree of blocks that depends only on
+ * the size, so their result is the same with every policy.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class TensorExecutor {
+
+    public static final int DEFAULT_THRESHOLD = 1 << 16;
+
+    private static final int MIN_CHUNK = 1 << 13;
+
+    private static final int REDUCE_BLOCK = 1 << 12;
+
+    public static final TensorExecutor SEQUENTIAL = new TensorExecutor(null, Integer.MAX_VALUE);
+
+    private static volatile TensorExecutor defaultExecutor = SEQUENTIAL;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    private TensorExecutor(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    public static TensorExecutor parallel() {
+        return parallel(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    public static TensorExecutor parallel(int threshold) {
+        return parallel(ForkJoinPool.commonPool(), threshold);
+    }
+
+    public static TensorExecutor parallel(ForkJoinPool pool, int threshold) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool is null.");
+        }
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold is smaller than 1.");
+        }
+        return new TensorExecutor(pool, threshold);
+    }
+
+    public static TensorExecutor getDefault() {
+        return defaultExecutor;
+    }
+
+    public static void setDefault(TensorExecutor executor) {
+        defaultExecutor = executor != null ? executor : SEQUENTIAL;
+    }
+
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Runs the operator over [0, size) either in one piece or split into
+     * disjoint chunks.
+     */
+    public void forEach(int size, RangeOperator operator) {
+        if (pool == null || size < threshold || pool.getParallelism() < 2) {
+            operator.apply(0, size);
+            return;
+        }
+        int chunk = Math.max(MIN_CHUNK, size / (pool.getParallelism() * 4));
+        pool.invoke(new RangeAction(operator, 0, size, chunk));
+    }
+
+    /**
+     * Reduces [0, size): the range is halved down to blocks of at most 4096
+     * elements, the function is applied on every block and the block
+     * results are combined pairwise. Pairwise combination keeps the rounding
+     * error of sums logarithmic in the size, and a parallel policy only
+     * evaluates the same tree on more threads.
+     */
+    public <R> R reduce(int size, RangeFunction<R> function, BinaryOperator<R> combiner) {
+        if (pool == null || size < threshold || pool.getParallelism() < 2) {
+            return reduce(function, combiner, 0, size);
+        }
+        int chunk = Math.max(MIN_CHUNK, size / (pool.getParallelism() * 4));
+        return pool.invoke(new ReduceTask<>(function, combiner, 0, size, chunk));
+    }
+
+    private static <R> R reduce(RangeFunction<R> function, BinaryOperator<R> combiner, int from, int to) {
+        if (to - from <= REDUCE_BLOCK) {
+            return function.apply(from, to);
+        }
+        int middle = (from + to) >>> 1;
+        return combiner.apply(reduce(function, combiner, from, middle),
+                reduce(function, combiner, middle, to));
+    }
+
+    @FunctionalInterface
+    public static interface RangeOperator {
+
+        void apply(int from, int to);
+    }
+
+    @FunctionalInterface
+    public static interface RangeFunction<R> {
+
+        R apply(int from, int to);
+    }
+
+    private static class RangeAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RangeOperator operator;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        RangeAction(RangeOperator operator, int from, int to, int chunk) {
+            this.operator = operator;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                operator.apply(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeAction(operator, from, middle, chunk),
+                    new RangeAction(operator, middle, to, chunk));
+        }
+    }
+
+    private static class ReduceTask<R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RangeFunction<R> function;
+        private final BinaryOperator<R> combiner;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        ReduceTask(RangeFunction<R> function, BinaryOperator<R> combiner, int from, int to, int chunk) {
+            this.function = function;
+            this.combiner = combiner;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= chunk) {
+                return reduce(function, combiner, from, to);
+            }
+            // split where the sequential reduction splits
+            int middle = (from + to) >>> 1;
+            ReduceTask<R> left = new ReduceTask<>(function, combiner, from, middle, chunk);
+            left.fork();
+            R right = new ReduceTask<>(function, combiner, middle, to, chunk).compute();
+            return combiner.apply(left.join(), right);
+        }
+    }
+}
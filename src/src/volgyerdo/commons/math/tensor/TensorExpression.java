@@ -0,0 +1,276 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import volgyerdo.commons.primitive.FloatBatchOperator;
+import volgyerdo.commons.primitive.FloatUnaryOperator;
+import volgyerdo.commons.primitive.PrimitiveUtils;
+
+/**
+ * Chain of element-wise operations on a byte, short or float tensor,
+ * evaluated in a single pass.
+ * <p>
+ * The operations are only recorded until {@link #apply()} or
+ * {@link #applyTo(Tensor)}. Then the values are processed in blocks small
+ * enough to stay in the L1 cache: a block is loaded into a float buffer,
+ * every operation runs over the buffer in a plain loop that the JIT can
+ * vectorize, and the result is stored once. A chain of n operations reads
+ * and writes the tensor once instead of n times. The blocks are distributed
+ * by the executor of the source tensor.
+ * <p>
+ * Intermediate values are floats. Byte and short results are converted
+ * only when stored, like the float operations of the tensors do: truncated
+ * and saturated. Tensor operands broadcast like in
+ * {@link Tensor#add(Tensor)}.
+ * <pre>
+ * TensorExpression.of(image).substract(mean).multiply(scale)
+ *         .processFloatBatch(FastMath::exp).applyTo(result);
+ * </pre>
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public final class TensorExpression {
+
+    private static final int BLOCK = 1024;
+
+    @FunctionalInterface
+    private static interface Stage {
+
+        // values[0, length) hold the elements from offset of the tensor,
+        // operand is a scratch buffer of the same length
+        void apply(float[] values, float[] operand, int offset, int length);
+    }
+
+    // loads the operand elements paired with [offset, offset + length)
+    @FunctionalInterface
+    private static interface Operand {
+
+        void load(float[] buffer, int offset, int length);
+    }
+
+    private final Tensor source;
+    private final List<Stage> stages = new ArrayList<>();
+
+    private TensorExpression(Tensor source) {
+        this.source = source;
+    }
+
+    public static TensorExpression of(Tensor tensor) {
+        checkType(tensor);
+        return new TensorExpression(tensor);
+    }
+
+    public TensorExpression add(float x) {
+        stages.add((values, operand, offset, length) -> {
+            for (int i = 0; i < length; i++) {
+                values[i] += x;
+            }
+        });
+        return this;
+    }
+
+    public TensorExpression substract(float x) {
+        stages.add((values, operand, offset, length) -> {
+            for (int i = 0; i < length; i++) {
+                values[i] -= x;
+            }
+        });
+        return this;
+    }
+
+    public TensorExpression multiply(float x) {
+        stages.add((values, operand, offset, length) -> {
+            for (int i = 0; i < length; i++) {
+                values[i] *= x;
+            }
+        });
+        return this;
+    }
+
+    public TensorExpression divide(float x) {
+        stages.add((values, operand, offset, length) -> {
+            for (int i = 0; i < length; i++) {
+                values[i] /= x;
+            }
+        });
+        return this;
+    }
+
+    public TensorExpression add(Tensor tensor) {
+        Operand loader = operand(tensor);
+        stages.add((values, operand, offset, length) -> {
+            loader.load(operand, offset, length);
+            for (int i = 0; i < length; i++) {
+                values[i] += operand[i];
+            }
+        });
+        return this;
+    }
+
+    public TensorExpression substract(Tensor tensor) {
+        Operand loader = operand(tensor);
+        stages.add((values, operand, offset, length) -> {
+            loader.load(operand, offset, length);
+            for (int i = 0; i < length; i++) {
+                values[i] -= operand[i];
+            }
+        });
+        return this;
+    }
+
+    public TensorExpression hadamardProduct(Tensor multiplier) {
+        Operand loader = operand(multiplier);
+        stages.add((values, operand, offset, length) -> {
+            loader.load(operand, offset, length);
+            for (int i = 0; i < length; i++) {
+                values[i] *= operand[i];
+            }
+        });
+        return this;
+    }
+
+    public TensorExpression negate() {
+        stages.add((values, operand, offset, length) -> {
+            for (int i = 0; i < length; i++) {
+                values[i] = -values[i];
+            }
+        });
+        return this;
+    }
+
+    public TensorExpression abs() {
+        stages.add((values, operand, offset, length) -> {
+            for (int i = 0; i < length; i++) {
+                values[i] = Math.abs(values[i]);
+            }
+        });
+        return this;
+    }
+
+    public TensorExpression processFloat(FloatUnaryOperator operator) {
+        stages.add((values, operand, offset, length) -> {
+            for (int i = 0; i < length; i++) {
+                values[i] = operator.applyAsFloat(values[i]);
+            }
+        });
+        return this;
+    }
+
+    // array operator such as FastMath::exp, called once per block
+    public TensorExpression processFloatBatch(FloatBatchOperator operator) {
+        stages.add((values, operand, offset, length) -> operator.apply(values, values, 0, length));
+        return this;
+    }
+
+    // evaluates the chain into the source tensor
+    public void apply() {
+        applyTo(source);
+    }
+
+    // evaluates the chain into a byte, short or float tensor with the
+    // dimensions of the source, which may be the source itself
+    public void applyTo(Tensor target) {
+        if (target == null) {
+            throw new IllegalArgumentException("Tensor is null.");
+        }
+        checkType(target);
+        if (!Arrays.equals(source.dimensions, target.dimensions)) {
+            throw new IllegalArgumentException("Tensor dimensions does not match.");
+        }
+        Stage[] chain = stages.toArray(new Stage[stages.size()]);
+        source.getExecutor().forEach(source.size(), (from, to) -> {
+            float[] values = new float[Math.min(BLOCK, to - from)];
+            float[] operand = new float[values.length];
+            for (int offset = from; offset < to; offset += BLOCK) {
+                int length = Math.min(BLOCK, to - offset);
+                load(source, offset, values, 0, length);
+                for (Stage stage : chain) {
+                    stage.apply(values, operand, offset, length);
+                }
+                store(values, target, offset, length);
+            }
+        });
+    }
+
+    private Operand operand(Tensor tensor) {
+        if (tensor == null) {
+            throw new IllegalArgumentException("Tensor is null.");
+        }
+        checkType(tensor);
+        if (Arrays.equals(source.dimensions, tensor.dimensions)) {
+            return (buffer, offset, length) -> load(tensor, offset, buffer, 0, length);
+        }
+        Broadcast broadcast = Broadcast.of(source, tensor);
+        return (buffer, offset, length) -> broadcast.walk(offset, offset + length,
+                (runOffset, operandOffset, runLength, repeated) -> {
+                    int position = runOffset - offset;
+                    if (repeated) {
+                        load(tensor, operandOffset, buffer, position, 1);
+                        Arrays.fill(buffer, position + 1, position + runLength, buffer[position]);
+                    } else {
+                        load(tensor, operandOffset, buffer, position, runLength);
+                    }
+                });
+    }
+
+    private static void checkType(Tensor tensor) {
+        if (tensor.type != Tensor.TYPE.BYTE && tensor.type != Tensor.TYPE.SHORT
+                && tensor.type != Tensor.TYPE.FLOAT) {
+            throw new IllegalArgumentException("Expressions work on byte, short and float tensors.");
+        }
+    }
+
+    private static void load(Tensor tensor, int from, float[] buffer, int position, int length) {
+        switch (tensor.type) {
+            case BYTE -> {
+                byte[] bytes = ((ByteTensor) tensor).values;
+                for (int i = 0; i < length; i++) {
+                    buffer[position + i] = bytes[from + i];
+                }
+            }
+            case SHORT -> {
+                short[] shorts = ((ShortTensor) tensor).values;
+                for (int i = 0; i < length; i++) {
+                    buffer[position + i] = shorts[from + i];
+                }
+            }
+            default ->
+                System.arraycopy(((FloatTensor) tensor).values, from, buffer, position, length);
+        }
+    }
+
+    private static void store(float[] buffer, Tensor tensor, int from, int length) {
+        switch (tensor.type) {
+            case BYTE -> {
+                byte[] bytes = ((ByteTensor) tensor).values;
+                for (int i = 0; i < length; i++) {
+                    bytes[from + i] = PrimitiveUtils.toByte(buffer[i]);
+                }
+            }
+            case SHORT -> {
+                short[] shorts = ((ShortTensor) tensor).values;
+                for (int i = 0; i < length; i++) {
+                    shorts[from + i] = PrimitiveUtils.toShort(buffer[i]);
+                }
+            }
+            default ->
+                System.arraycopy(buffer, 0, ((FloatTensor) tensor).values, from, length);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary tensor file format.
+ * <p>
+ * A file is a header followed by the raw values in flat order, little
+ * endian. The header holds the magic bytes <code>VTNS</code>, the format
+ * version, the value type (0 byte, 1 short, 2 float, 4 double, 5 int,
+ * 6 long), the dimension count
+ * and the dimensions, all as little endian ints, padded to 64 bytes so the
+ * values are aligned.
+ * <p>
+ * {@link #read(Path)} loads a file into a heap tensor. Float tensor files
+ * can also be mapped with {@link #map(Path, FileChannel.MapMode)}: the
+ * values are then paged in from the file on demand and shared between the
+ * processes that map the same file. Files of the other types are mapped
+ * read-only as typed buffers with {@link #mapValues(Path)}. Sparse tensors
+ * are written in their dense float form, so they are read back as float
+ * tensors.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public final class TensorFile {
+
+    private static final int MAGIC = 'V' | 'T' << 8 | 'N' << 16 | 'S' << 24;
+    private static final int VERSION = 1;
+    private static final int ALIGNMENT = 64;
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    private TensorFile() {
+    }
+
+    public static void write(Tensor tensor, Path path) throws IOException {
+        if (tensor == null) {
+            throw new IllegalArgumentException("Tensor is null.");
+        }
+        if (tensor instanceof SparseTensor) {
+            tensor = ((SparseTensor) tensor).toFloatTensor();
+        }
+        int elementSize = elementSize(tensor.type);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header(tensor.type, tensor.dimensions));
+            ByteBuffer block = block();
+            int step = BLOCK_SIZE / elementSize;
+            int size = tensor.size();
+            for (int from = 0; from < size; from += step) {
+                int length = Math.min(step, size - from);
+                block.clear();
+                switch (tensor.type) {
+                    case BYTE ->
+                        block.put(((ByteTensor) tensor).values, from, length);
+                    case SHORT ->
+                        block.asShortBuffer().put(((ShortTensor) tensor).values, from, length);
+                    case DOUBLE ->
+                        block.asDoubleBuffer().put(((DoubleTensor) tensor).values, from, length);
+                    case INT ->
+                        block.asIntBuffer().put(((IntTensor) tensor).values, from, length);
+                    case LONG ->
+                        block.asLongBuffer().put(((LongTensor) tensor).values, from, length);
+                    default ->
+                        block.asFloatBuffer().put(((FloatTensor) tensor).values, from, length);
+                }
+                block.position(0).limit(length * elementSize);
+                writeFully(channel, block);
+            }
+        }
+    }
+
+    public static void write(OffHeapFloatTensor tensor, Path path) throws IOException {
+        if (tensor == null) {
+            throw new IllegalArgumentException("Tensor is null.");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header(Tensor.TYPE.FLOAT, tensor.dimensions));
+            ByteBuffer block = block();
+            float[] values = new float[BLOCK_SIZE / Float.BYTES];
+            long size = tensor.size();
+            for (long from = 0; from < size; from += values.length) {
+                int length = (int) Math.min(values.length, size - from);
+                tensor.getFloats(from, values, 0, length);
+                block.clear();
+                block.asFloatBuffer().put(values, 0, length);
+                block.position(0).limit(length * Float.BYTES);
+                writeFully(channel, block);
+            }
+        }
+    }
+
+    public static Tensor read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            if (header.size > Integer.MAX_VALUE - 8) {
+                throw new IOException("Tensor is too large for a heap tensor, map it instead.");
+            }
+            Tensor tensor = Tensor.create(header.type, header.dimensions);
+            int elementSize = elementSize(header.type);
+            ByteBuffer block = block();
+            int step = BLOCK_SIZE / elementSize;
+            int size = (int) header.size;
+            long position = header.length;
+            for (int from = 0; from < size; from += step) {
+                int length = Math.min(step, size - from);
+                block.clear().limit(length * elementSize);
+                readFully(channel, block, position);
+                position += length * elementSize;
+                block.flip();
+                switch (header.type) {
+                    case BYTE ->
+                        block.get(((ByteTensor) tensor).values, from, length);
+                    case SHORT ->
+                        block.asShortBuffer().get(((ShortTensor) tensor).values, from, length);
+                    case DOUBLE ->
+                        block.asDoubleBuffer().get(((DoubleTensor) tensor).values, from, length);
+                    case INT ->
+                        block.asIntBuffer().get(((IntTensor) tensor).values, from, length);
+                    case LONG ->
+                        block.asLongBuffer().get(((LongTensor) tensor).values, from, length);
+                    default ->
+                        block.asFloatBuffer().get(((FloatTensor) tensor).values, from, length);
+                }
+            }
+            return tensor;
+        }
+    }
+
+    /**
+     * Maps a float tensor file. With {@link FileChannel.MapMode#READ_ONLY}
+     * writes fail, with {@link FileChannel.MapMode#PRIVATE} they stay
+     * private to the returned tensor (copy on write), and with
+     * {@link FileChannel.MapMode#READ_WRITE} they go to the file. The file
+     * is unmapped when the tensor is closed and garbage collected.
+     */
+    public static OffHeapFloatTensor map(Path path, FileChannel.MapMode mode) throws IOException {
+        boolean write = mode != FileChannel.MapMode.READ_ONLY;
+        try (FileChannel channel = write
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            if (header.type != Tensor.TYPE.FLOAT) {
+                throw new IOException("Only float tensor files can be mapped.");
+            }
+            int chunkShift = OffHeapFloatTensor.CHUNK_SHIFT;
+            int count = (int) ((header.size + (1L << chunkShift) - 1) >>> chunkShift);
+            ByteBuffer[] buffers = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long from = (long) i << chunkShift;
+                long length = Math.min(1L << chunkShift, header.size - from);
+                buffers[i] = channel.map(mode, header.length + from * Float.BYTES, length * Float.BYTES);
+            }
+            return new OffHeapFloatTensor(chunkShift, header.dimensions, buffers);
+        }
+    }
+
+    /**
+     * Maps the values of a tensor file read-only in flat order, as a
+     * {@link ByteBuffer}, {@link java.nio.ShortBuffer},
+     * {@link java.nio.FloatBuffer}, {@link java.nio.DoubleBuffer},
+     * {@link java.nio.IntBuffer} or {@link java.nio.LongBuffer} by the type
+     * of the file; {@link #dimensions(Path)} gives the shape. A buffer holds
+     * at most 2 GiB, larger float files can be mapped with
+     * {@link #map(Path, FileChannel.MapMode)}.
+     */
+    public static Buffer mapValues(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            long length = header.size * elementSize(header.type);
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Tensor is too large for a single buffer.");
+            }
+            ByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, header.length, length)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            return switch (header.type) {
+                case BYTE ->
+                    values;
+                case SHORT ->
+                    values.asShortBuffer();
+                case DOUBLE ->
+                    values.asDoubleBuffer();
+                case INT ->
+                    values.asIntBuffer();
+                case LONG ->
+                    values.asLongBuffer();
+                default ->
+                    values.asFloatBuffer();
+            };
+        }
+    }
+
+    public static int[] dimensions(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readHeader(channel).dimensions;
+        }
+    }
+
+    private static final class Header {
+
+        Tensor.TYPE type;
+        int[] dimensions;
+        long size;
+        int length;
+    }
+
+    private static ByteBuffer header(Tensor.TYPE type, int[] dimensions) {
+        ByteBuffer header = ByteBuffer.allocate(headerLength(dimensions.length)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(typeCode(type)).putInt(dimensions.length);
+        for (int dimension : dimensions) {
+            header.putInt(dimension);
+        }
+        header.position(0);
+        return header;
+    }
+
+    private static int headerLength(int rank) {
+        int length = 16 + 4 * rank;
+        return (length + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static Header readHeader(FileChannel channel) throws IOException {
+        ByteBuffer fixed = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, fixed, 0);
+        fixed.flip();
+        if (fixed.getInt() != MAGIC) {
+            throw new IOException("Not a tensor file.");
+        }
+        int version = fixed.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported tensor file version: " + version);
+        }
+        Tensor.TYPE type = type(fixed.getInt());
+        int rank = fixed.getInt();
+        if (type == null || rank < 1 || rank > 1024) {
+            throw new IOException("Corrupt tensor file header.");
+        }
+        Header header = new Header();
+        header.type = type;
+        header.length = headerLength(rank);
+        ByteBuffer dimensions = ByteBuffer.allocate(4 * rank).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, dimensions, 16);
+        dimensions.flip();
+        header.dimensions = new int[rank];
+        header.size = 1;
+        for (int i = 0; i < rank; i++) {
+            header.dimensions[i] = dimensions.getInt();
+            if (header.dimensions[i] < 0) {
+                throw new IOException("Corrupt tensor file header.");
+            }
+        }
+        try {
+            for (int dimension : header.dimensions) {
+                header.size = Math.multiplyExact(header.size, dimension);
+            }
+            if (channel.size() < Math.addExact(header.length,
+                    Math.multiplyExact(header.size, elementSize(header.type)))) {
+                throw new IOException("Tensor file is truncated.");
+            }
+        } catch (ArithmeticException ex) {
+            throw new IOException("Corrupt tensor file header.", ex);
+        }
+        return header;
+    }
+
+    private static int typeCode(Tensor.TYPE type) {
+        return switch (type) {
+            case BYTE ->
+                0;
+            case SHORT ->
+                1;
+            case FLOAT ->
+                2;
+            case DOUBLE ->
+                4;
+            case INT ->
+                5;
+            case LONG ->
+                6;
+            default ->
+                throw new IllegalArgumentException("Object tensors can't be written to a tensor file.");
+        };
+    }
+
+    // null for an unknown code
+    private static Tensor.TYPE type(int code) {
+        return switch (code) {
+            case 0 ->
+                Tensor.TYPE.BYTE;
+            case 1 ->
+                Tensor.TYPE.SHORT;
+            case 2 ->
+                Tensor.TYPE.FLOAT;
+            case 4 ->
+                Tensor.TYPE.DOUBLE;
+            case 5 ->
+                Tensor.TYPE.INT;
+            case 6 ->
+                Tensor.TYPE.LONG;
+            default ->
+                null;
+        };
+    }
+
+    private static int elementSize(Tensor.TYPE type) {
+        return switch (type) {
+            case BYTE ->
+                Byte.BYTES;
+            case SHORT ->
+                Short.BYTES;
+            case FLOAT ->
+                Float.BYTES;
+            case DOUBLE ->
+                Double.BYTES;
+            case INT ->
+                Integer.BYTES;
+            case LONG ->
+                Long.BYTES;
+            default ->
+                throw new IllegalArgumentException("Object tensors can't be written to a tensor file.");
+        };
+    }
+
+    private static ByteBuffer block() {
+        return ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Tensor file is truncated.");
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+/**
+ * Count, minimum, maximum, sum, mean and variance of tensor values,
+ * collected in one pass.
+ * <p>
+ * Every block of the reduction is scanned twice while it is in cache, once
+ * for the sum, the minimum and the maximum, and once for the squared
+ * deviations from the block mean; blocks are merged with the pairwise
+ * update of Chan, Golub and LeVeque. NaN values are ignored by the minimum
+ * and the maximum and propagate to the other statistics.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public final class TensorStats {
+
+    private final long count;
+    private final double min;
+    private final double max;
+    private final double sum;
+    private final double mean;
+    // sum of the squared deviations from the mean
+    private final double m2;
+
+    private TensorStats(long count, double min, double max, double sum, double mean, double m2) {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // positive infinity for an empty tensor
+    public double getMin() {
+        return min;
+    }
+
+    // negative infinity for an empty tensor
+    public double getMax() {
+        return max;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    // NaN for an empty tensor
+    public double getMean() {
+        return mean;
+    }
+
+    // population variance, NaN for an empty tensor
+    public double getVariance() {
+        return count > 0 ? m2 / count : Double.NaN;
+    }
+
+    // unbiased sample variance, NaN below two values
+    public double getSampleVariance() {
+        return count > 1 ? m2 / (count - 1) : Double.NaN;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public TensorStats merge(TensorStats other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        long n = count + other.count;
+        double delta = other.mean - mean;
+        double weight = (double) other.count / n;
+        return new TensorStats(n,
+                min < other.min ? min : other.min,
+                max > other.max ? max : other.max,
+                sum + other.sum,
+                mean + delta * weight,
+                m2 + other.m2 + delta * delta * count * weight);
+    }
+
+    static TensorStats of(byte[] values, int from, int to) {
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            int x = values[i];
+            sum += x;
+            min = x < min ? x : min;
+            max = x > max ? x : max;
+        }
+        double mean = (double) sum / (to - from);
+        double m2 = 0;
+        for (int i = from; i < to; i++) {
+            double d = values[i] - mean;
+            m2 += d * d;
+        }
+        return of(to - from, min, max, sum, mean, m2);
+    }
+
+    static TensorStats of(short[] values, int from, int to) {
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            int x = values[i];
+            sum += x;
+            min = x < min ? x : min;
+            max = x > max ? x : max;
+        }
+        double mean = (double) sum / (to - from);
+        double m2 = 0;
+        for (int i = from; i < to; i++) {
+            double d = values[i] - mean;
+            m2 += d * d;
+        }
+        return of(to - from, min, max, sum, mean, m2);
+    }
+
+    static TensorStats of(int[] values, int from, int to) {
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            int x = values[i];
+            sum += x;
+            min = x < min ? x : min;
+            max = x > max ? x : max;
+        }
+        double mean = (double) sum / (to - from);
+        double m2 = 0;
+        for (int i = from; i < to; i++) {
+            double d = values[i] - mean;
+            m2 += d * d;
+        }
+        return of(to - from, min, max, sum, mean, m2);
+    }
+
+    static TensorStats of(long[] values, int from, int to) {
+        double sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            long x = values[i];
+            sum += x;
+            min = x < min ? x : min;
+            max = x > max ? x : max;
+        }
+        double mean = sum / (to - from);
+        double m2 = 0;
+        for (int i = from; i < to; i++) {
+            double d = values[i] - mean;
+            m2 += d * d;
+        }
+        return of(to - from, min, max, sum, mean, m2);
+    }
+
+    static TensorStats of(float[] values, int from, int to) {
+        double sum = 0;
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            float x = values[i];
+            sum += x;
+            min = x < min ? x : min;
+            max = x > max ? x : max;
+        }
+        double mean = sum / (to - from);
+        double m2 = 0;
+        for (int i = from; i < to; i++) {
+            double d = values[i] - mean;
+            m2 += d * d;
+        }
+        return of(to - from, min, max, sum, mean, m2);
+    }
+
+    static TensorStats of(double[] values, int from, int to) {
+        double sum = 0;
+        double compensation = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            double x = values[i];
+            // Neumaier compensated summation
+            double t = sum + x;
+            compensation += Math.abs(sum) >= Math.abs(x) ? (sum - t) + x : (x - t) + sum;
+            sum = t;
+            min = x < min ? x : min;
+            max = x > max ? x : max;
+        }
+        sum += compensation;
+        double mean = sum / (to - from);
+        double m2 = 0;
+        for (int i = from; i < to; i++) {
+            double d = values[i] - mean;
+            m2 += d * d;
+        }
+        return of(to - from, min, max, sum, mean, m2);
+    }
+
+    // the zeros of a sparse tensor that are not stored
+    static TensorStats ofZeros(int count) {
+        return of(count, 0, 0, 0, 0, 0);
+    }
+
+    private static TensorStats of(int count, double min, double max, double sum, double mean, double m2) {
+        if (count == 0) {
+            return new TensorStats(0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0, Double.NaN, 0);
+        }
+        return new TensorStats(count, min, max, sum, mean, m2);
+    }
+
+    @Override
+    public String toString() {
+        return "TensorStats{count=" + count + ", min=" + min + ", max=" + max + ", sum=" + sum
+                + ", mean=" + mean + ", variance=" + getVariance() + "}";
+    }
+}
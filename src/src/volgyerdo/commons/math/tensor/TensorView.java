@@ -0,0 +1,380 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import volgyerdo.commons.primitive.PrimitiveUtils;
+
+/**
+ * Strided window over the values of a tensor.
+ * <p>
+ * A view does not copy: element (i0, i1, ...) is the value at
+ * <code>offset + strides[0] * i0 + strides[1] * i1 + ...</code> of the
+ * backing tensor, so reads and writes go straight to the tensor. Slicing,
+ * permuting, flipping and reshaping return new views over the same values.
+ * {@link #toTensor()} materializes the view into a new tensor.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class TensorView {
+
+    public final Tensor tensor;
+    public final int offset;
+    public final int[] dimensions;
+    public final int[] strides;
+
+    public TensorView(Tensor tensor) {
+        this(tensor, 0, tensor.dimensions.clone(), tensor.multipliers.clone());
+    }
+
+    private TensorView(Tensor tensor, int offset, int[] dimensions, int[] strides) {
+        if (tensor == null) {
+            throw new IllegalArgumentException("Tensor is null.");
+        }
+        this.tensor = tensor;
+        this.offset = offset;
+        this.dimensions = dimensions;
+        this.strides = strides;
+    }
+
+    public int size() {
+        int size = 1;
+        for (int dimension : dimensions) {
+            size *= dimension;
+        }
+        return size;
+    }
+
+    public int index(int... indices) {
+        if (indices.length != dimensions.length) {
+            throw new IllegalArgumentException("Index count does not match view dimensions.");
+        }
+        int index = offset;
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] < 0 || indices[i] >= dimensions[i]) {
+                throw new IndexOutOfBoundsException("Index " + indices[i] + " out of bounds for dimension " + dimensions[i]);
+            }
+            index += strides[i] * indices[i];
+        }
+        return index;
+    }
+
+    public byte getByteValue(int... indices) {
+        int index = index(indices);
+        return switch (tensor.type) {
+            case BYTE ->
+                ((ByteTensor) tensor).values[index];
+            case SHORT ->
+                PrimitiveUtils.toByte(((ShortTensor) tensor).values[index]);
+            case FLOAT ->
+                PrimitiveUtils.toByte(((FloatTensor) tensor).values[index]);
+            case DOUBLE ->
+                PrimitiveUtils.toByte(((DoubleTensor) tensor).values[index]);
+            case INT ->
+                PrimitiveUtils.toByte(((IntTensor) tensor).values[index]);
+            case LONG ->
+                PrimitiveUtils.toByte(((LongTensor) tensor).values[index]);
+            case SPARSE_FLOAT ->
+                PrimitiveUtils.toByte(((SparseTensor) tensor).getFlat(index));
+            default ->
+                throw new RuntimeException("View doesn't have a byte value.");
+        };
+    }
+
+    public short getShortValue(int... indices) {
+        int index = index(indices);
+        return switch (tensor.type) {
+            case BYTE ->
+                ((ByteTensor) tensor).values[index];
+            case SHORT ->
+                ((ShortTensor) tensor).values[index];
+            case FLOAT ->
+                PrimitiveUtils.toShort(((FloatTensor) tensor).values[index]);
+            case DOUBLE ->
+                PrimitiveUtils.toShort(((DoubleTensor) tensor).values[index]);
+            case INT ->
+                PrimitiveUtils.toShort(((IntTensor) tensor).values[index]);
+            case LONG ->
+                PrimitiveUtils.toShort(((LongTensor) tensor).values[index]);
+            case SPARSE_FLOAT ->
+                PrimitiveUtils.toShort(((SparseTensor) tensor).getFlat(index));
+            default ->
+                throw new RuntimeException("View doesn't have a short value.");
+        };
+    }
+
+    public float getFloatValue(int... indices) {
+        int index = index(indices);
+        return switch (tensor.type) {
+            case BYTE ->
+                ((ByteTensor) tensor).values[index];
+            case SHORT ->
+                ((ShortTensor) tensor).values[index];
+            case FLOAT ->
+                ((FloatTensor) tensor).values[index];
+            case DOUBLE ->
+                (float) ((DoubleTensor) tensor).values[index];
+            case INT ->
+                ((IntTensor) tensor).values[index];
+            case LONG ->
+                ((LongTensor) tensor).values[index];
+            case SPARSE_FLOAT ->
+                ((SparseTensor) tensor).getFlat(index);
+            default ->
+                throw new RuntimeException("View doesn't have a float value.");
+        };
+    }
+
+    public Object getObjectValue(int... indices) {
+        if (tensor.type != Tensor.TYPE.OBJECT) {
+            throw new RuntimeException("View doesn't have an object value.");
+        }
+        return ((ObjectTensor) tensor).values[index(indices)];
+    }
+
+    public void setFloatValue(float value, int... indices) {
+        int index = index(indices);
+        switch (tensor.type) {
+            case BYTE ->
+                ((ByteTensor) tensor).values[index] = PrimitiveUtils.toByte(value);
+            case SHORT ->
+                ((ShortTensor) tensor).values[index] = PrimitiveUtils.toShort(value);
+            case FLOAT ->
+                ((FloatTensor) tensor).values[index] = value;
+            case DOUBLE ->
+                ((DoubleTensor) tensor).values[index] = value;
+            case INT ->
+                ((IntTensor) tensor).values[index] = PrimitiveUtils.castToInt(value);
+            case LONG ->
+                ((LongTensor) tensor).values[index] = PrimitiveUtils.toLong(value);
+            case SPARSE_FLOAT ->
+                ((SparseTensor) tensor).setFlat(index, value);
+            default ->
+                throw new RuntimeException("Can't store a float in an object view.");
+        }
+    }
+
+    public void setObjectValue(Object value, int... indices) {
+        if (tensor.type != Tensor.TYPE.OBJECT) {
+            throw new RuntimeException("Can't store an object in a primitive view.");
+        }
+        ((ObjectTensor) tensor).values[index(indices)] = value;
+    }
+
+    public TensorView slice(int axis, int from, int to) {
+        checkAxis(axis);
+        if (from < 0 || to > dimensions[axis] || from > to) {
+            throw new IllegalArgumentException("Slice range is out of bounds.");
+        }
+        int[] newDimensions = dimensions.clone();
+        newDimensions[axis] = to - from;
+        return new TensorView(tensor, offset + strides[axis] * from, newDimensions, strides.clone());
+    }
+
+    public TensorView select(int axis, int index) {
+        checkAxis(axis);
+        if (index < 0 || index >= dimensions[axis]) {
+            throw new IllegalArgumentException("Index is out of bounds.");
+        }
+        int newOffset = offset + strides[axis] * index;
+        if (dimensions.length == 1) {
+            return new TensorView(tensor, newOffset, new int[]{1}, new int[]{1});
+        }
+        int[] newDimensions = new int[dimensions.length - 1];
+        int[] newStrides = new int[dimensions.length - 1];
+        for (int i = 0, j = 0; i < dimensions.length; i++) {
+            if (i != axis) {
+                newDimensions[j] = dimensions[i];
+                newStrides[j] = strides[i];
+                j++;
+            }
+        }
+        return new TensorView(tensor, newOffset, newDimensions, newStrides);
+    }
+
+    public TensorView permute(int... axes) {
+        if (axes.length != dimensions.length) {
+            throw new IllegalArgumentException("Axis count does not match view dimensions.");
+        }
+        boolean[] used = new boolean[axes.length];
+        int[] newDimensions = new int[axes.length];
+        int[] newStrides = new int[axes.length];
+        for (int i = 0; i < axes.length; i++) {
+            checkAxis(axes[i]);
+            if (used[axes[i]]) {
+                throw new IllegalArgumentException("Axis is repeated in permutation.");
+            }
+            used[axes[i]] = true;
+            newDimensions[i] = dimensions[axes[i]];
+            newStrides[i] = strides[axes[i]];
+        }
+        return new TensorView(tensor, offset, newDimensions, newStrides);
+    }
+
+    public TensorView transpose() {
+        int[] axes = new int[dimensions.length];
+        for (int i = 0; i < axes.length; i++) {
+            axes[i] = axes.length - i - 1;
+        }
+        return permute(axes);
+    }
+
+    public TensorView flip(int axis) {
+        checkAxis(axis);
+        int[] newStrides = strides.clone();
+        newStrides[axis] = -strides[axis];
+        int newOffset = dimensions[axis] == 0 ? offset : offset + strides[axis] * (dimensions[axis] - 1);
+        return new TensorView(tensor, newOffset, dimensions.clone(), newStrides);
+    }
+
+    public TensorView rotate() {
+        TensorView view = this;
+        for (int i = 0; i < dimensions.length; i++) {
+            view = view.flip(i);
+        }
+        return view;
+    }
+
+    public TensorView reshape(int... dimensions) {
+        if (dimensions.length == 0) {
+            throw new IllegalArgumentException("Dimensions element count is zero.");
+        }
+        int size = 1;
+        for (int dimension : dimensions) {
+            size *= dimension;
+        }
+        if (size != size()) {
+            throw new IllegalArgumentException("Reshaped size does not match view size.");
+        }
+        if (!isContiguous()) {
+            throw new IllegalArgumentException("View is not contiguous.");
+        }
+        int[] newStrides = new int[dimensions.length];
+        newStrides[0] = 1;
+        for (int i = 0; i < dimensions.length - 1; i++) {
+            newStrides[i + 1] = newStrides[i] * dimensions[i];
+        }
+        return new TensorView(tensor, offset, dimensions.clone(), newStrides);
+    }
+
+    public boolean isContiguous() {
+        int stride = 1;
+        for (int i = 0; i < dimensions.length; i++) {
+            if (dimensions[i] != 1 && strides[i] != stride) {
+                return false;
+            }
+            stride *= dimensions[i];
+        }
+        return true;
+    }
+
+    public Tensor toTensor() {
+        Tensor target = Tensor.create(tensor.type, dimensions.clone());
+        int size = size();
+        if (size == 0) {
+            return target;
+        }
+        int rank = dimensions.length;
+        int[] indices = new int[rank];
+        int run = dimensions[0];
+        int stride = strides[0];
+        int source = offset;
+        int position = 0;
+        while (true) {
+            copyRun(target, source, stride, position, run);
+            position += run;
+            int axis = 1;
+            for (; axis < rank; axis++) {
+                indices[axis]++;
+                source += strides[axis];
+                if (indices[axis] < dimensions[axis]) {
+                    break;
+                }
+                source -= strides[axis] * dimensions[axis];
+                indices[axis] = 0;
+            }
+            if (axis == rank) {
+                return target;
+            }
+        }
+    }
+
+    private void copyRun(Tensor target, int source, int stride, int position, int run) {
+        switch (tensor.type) {
+            case BYTE -> {
+                byte[] from = ((ByteTensor) tensor).values;
+                byte[] to = ((ByteTensor) target).values;
+                for (int i = 0; i < run; i++) {
+                    to[position + i] = from[source + i * stride];
+                }
+            }
+            case SHORT -> {
+                short[] from = ((ShortTensor) tensor).values;
+                short[] to = ((ShortTensor) target).values;
+                for (int i = 0; i < run; i++) {
+                    to[position + i] = from[source + i * stride];
+                }
+            }
+            case FLOAT -> {
+                float[] from = ((FloatTensor) tensor).values;
+                float[] to = ((FloatTensor) target).values;
+                for (int i = 0; i < run; i++) {
+                    to[position + i] = from[source + i * stride];
+                }
+            }
+            case DOUBLE -> {
+                double[] from = ((DoubleTensor) tensor).values;
+                double[] to = ((DoubleTensor) target).values;
+                for (int i = 0; i < run; i++) {
+                    to[position + i] = from[source + i * stride];
+                }
+            }
+            case INT -> {
+                int[] from = ((IntTensor) tensor).values;
+                int[] to = ((IntTensor) target).values;
+                for (int i = 0; i < run; i++) {
+                    to[position + i] = from[source + i * stride];
+                }
+            }
+            case LONG -> {
+                long[] from = ((LongTensor) tensor).values;
+                long[] to = ((LongTensor) target).values;
+                for (int i = 0; i < run; i++) {
+                    to[position + i] = from[source + i * stride];
+                }
+            }
+            case SPARSE_FLOAT -> {
+                SparseTensor from = (SparseTensor) tensor;
+                SparseTensor to = (SparseTensor) target;
+                for (int i = 0; i < run; i++) {
+                    to.setFlat(position + i, from.getFlat(source + i * stride));
+                }
+            }
+            case OBJECT -> {
+                Object[] from = ((ObjectTensor) tensor).values;
+                Object[] to = ((ObjectTensor) target).values;
+                for (int i = 0; i < run; i++) {
+                    to[position + i] = from[source + i * stride];
+                }
+            }
+        }
+    }
+
+    private void checkAxis(int axis) {
+        if (axis < 0 || axis >= dimensions.length) {
+            throw new IllegalArgumentException("Axis is out of bounds.");
+        }
+    }
+}
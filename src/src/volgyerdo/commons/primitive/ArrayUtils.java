@@ -151,6 +151,20 @@ public class ArrayUtils {
         }
     }
 
+    public static void randomize(int[] a, int min, int max) {
+        double delta = (double) max - min;
+        for (int i = 0; i < a.length; i++) {
+            a[i] = (int) (Math.random() * delta + min);
+        }
+    }
+
+    public static void randomize(long[] a, long min, long max) {
+        double delta = (double) max - min;
+        for (int i = 0; i < a.length; i++) {
+            a[i] = (long) (Math.random() * delta + min);
+        }
+    }
+
     public static void randomize(float[] a, float min, float max) {
         float delta = max - min;
         for (int i = 0; i < a.length; i++) {
@@ -158,6 +172,13 @@ public class ArrayUtils {
         }
     }
 
+    public static void randomize(double[] a, double min, double max) {
+        double delta = max - min;
+        for (int i = 0; i < a.length; i++) {
+            a[i] = Math.random() * delta + min;
+        }
+    }
+
     public static void process(byte[] a, ByteArrayOperator operator) {
         for (int i = 0; i < a.length; i++) {
             a[i] = operator.applyAsByte(a[i], i);
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.primitive;
+
+/**
+ * Operation on a range of a float array: dst[i] = f(src[i]) for i in
+ * [off, off + len[, for example <code>FastMath::exp</code>.
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+@FunctionalInterface
+public interface FloatBatchOperator {
+
+    void apply(float[] src, float[] dst, int off, int len);
+}
@@ -37,10 +37,18 @@ public class PrimitiveUtils {
         return (byte) min(max(x, Byte.MIN_VALUE), Byte.MAX_VALUE);
     }
 
+    public static byte toByte(long x) {
+        return (byte) min(max(x, Byte.MIN_VALUE), Byte.MAX_VALUE);
+    }
+
     public static short toShort(int x) {
         return (short) min(max(x, Short.MIN_VALUE), Short.MAX_VALUE);
     }
 
+    public static short toShort(long x) {
+        return (short) min(max(x, Short.MIN_VALUE), Short.MAX_VALUE);
+    }
+
     public static short toShort(float x) {
         return (short) min(max(x, Short.MIN_VALUE), Short.MAX_VALUE);
     }
@@ -57,16 +65,36 @@ public class PrimitiveUtils {
         return (int) min(max(x, -Integer.MAX_VALUE), Integer.MAX_VALUE);
     }
 
+    public static int castToInt(double x) {
+        // the cast saturates to the full int range and maps NaN to 0
+        return (int) x;
+    }
+
+    public static int toInt(long x) {
+        return (int) min(max(x, Integer.MIN_VALUE), Integer.MAX_VALUE);
+    }
+
+    public static long toLong(double x) {
+        // the cast saturates and maps NaN to 0
+        return (long) x;
+    }
+
+    // Math.min and Math.max compile to branchless instructions, so the
+    // integer clamps don't mispredict on noisy data and loops vectorize
     public static byte min(byte a, byte b) {
-        return a < b ? a : b;
+        return (byte) Math.min(a, b);
     }
 
     public static short min(short a, short b) {
-        return a < b ? a : b;
+        return (short) Math.min(a, b);
     }
 
     public static int min(int a, int b) {
-        return a < b ? a : b;
+        return Math.min(a, b);
+    }
+
+    public static long min(long a, long b) {
+        return Math.min(a, b);
     }
 
     public static float min(float a, float b) {
@@ -78,15 +106,19 @@ public class PrimitiveUtils {
     }
 
     public static byte max(byte a, byte b) {
-        return a > b ? a : b;
+        return (byte) Math.max(a, b);
     }
 
     public static short max(short a, short b) {
-        return a > b ? a : b;
+        return (short) Math.max(a, b);
     }
 
     public static int max(int a, int b) {
-        return a > b ? a : b;
+        return Math.max(a, b);
+    }
+
+    public static long max(long a, long b) {
+        return Math.max(a, b);
     }
 
     public static float max(float a, float b) {
@@ -108,10 +140,15 @@ public class PrimitiveUtils {
     }
     
     public static int random(int min, int max) {
-        double delta = max - min;
+        double delta = (double) max - min;
         return (int)(Math.random() * delta + min);
     }
     
+    public static long random(long min, long max) {
+        double delta = (double) max - min;
+        return (long)(Math.random() * delta + min);
+    }
+    
     public static float random(float min, float max) {
         double delta = max - min;
         return (float)(Math.random() * delta + min);
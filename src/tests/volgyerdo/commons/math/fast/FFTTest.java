@@ -0,0 +1,180 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.fast;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import volgyerdo.commons.primitive.Complex;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class FFTTest {
+
+    private static final double ACCURACY = 1e-9;
+
+    public FFTTest() {
+    }
+
+    private static double[] random(int n) {
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.random() * 2 - 1;
+        }
+        return x;
+    }
+
+    @Test
+    public void testFFT() {
+        for (int n = 1; n <= 512; n = n < 128 ? n + 1 : 2 * n) {
+            double[] re = random(n);
+            double[] im = random(n);
+            Complex[] expected = FFT.dft(FFT.toComplex(re, im));
+            FFT.fft(re, im);
+            for (int k = 0; k < n; k++) {
+                assertEquals("FFT re (" + n + ")", expected[k].re(), re[k], ACCURACY * n);
+                assertEquals("FFT im (" + n + ")", expected[k].im(), im[k], ACCURACY * n);
+            }
+        }
+    }
+
+    @Test
+    public void testInverseFFT() {
+        for (int n = 1; n <= 4096; n = n < 256 ? n + 1 : 2 * n) {
+            double[] re = random(n);
+            double[] im = random(n);
+            double[] re0 = re.clone();
+            double[] im0 = im.clone();
+            FFT.fft(re, im);
+            FFT.ifft(re, im);
+            assertArrayEquals("Inverse FFT re (" + n + ")", re0, re, ACCURACY);
+            assertArrayEquals("Inverse FFT im (" + n + ")", im0, im, ACCURACY);
+        }
+    }
+
+    @Test
+    public void testRealFFT() {
+        for (int n = 1; n <= 1024; n = n < 64 ? n + 1 : 2 * n) {
+            double[] x = random(n);
+            double[] re = x.clone();
+            double[] im = new double[n];
+            FFT.fft(re, im);
+            double[] halfRe = new double[n / 2 + 1];
+            double[] halfIm = new double[n / 2 + 1];
+            FFT.rfft(x, halfRe, halfIm);
+            for (int k = 0; k <= n / 2; k++) {
+                assertEquals("Real FFT re (" + n + ")", re[k], halfRe[k], ACCURACY * n);
+                assertEquals("Real FFT im (" + n + ")", im[k], halfIm[k], ACCURACY * n);
+            }
+            double[] y = new double[n];
+            FFT.irfft(halfRe, halfIm, y);
+            assertArrayEquals("Inverse real FFT (" + n + ")", x, y, ACCURACY);
+        }
+    }
+
+    @Test
+    public void testComplexFFT() {
+        Complex[] x = FFT.toComplex(random(64));
+        Complex[] expected = FFT.dft(x);
+        Complex[] y = FFT.fft(x);
+        for (int k = 0; k < x.length; k++) {
+            assertEquals("Complex FFT re", expected[k].re(), y[k].re(), ACCURACY * 64);
+            assertEquals("Complex FFT im", expected[k].im(), y[k].im(), ACCURACY * 64);
+        }
+        Complex[] z = FFT.ifft(y);
+        for (int k = 0; k < x.length; k++) {
+            assertEquals("Complex inverse FFT", x[k].re(), z[k].re(), ACCURACY);
+        }
+    }
+
+    @Test
+    public void testPlan() {
+        int n = 256;
+        double[] re = random(n);
+        double[] im = random(n);
+        double[] interleaved = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            interleaved[2 * i] = re[i];
+            interleaved[2 * i + 1] = im[i];
+        }
+        FFTPlan forward = FFTPlan.get(n, false);
+        assertSame("Cached plan", forward, FFTPlan.get(n, false));
+        double[] out = new double[2 * n];
+        forward.execute(interleaved, out);
+        FFT.fft(re, im);
+        for (int i = 0; i < n; i++) {
+            assertEquals("Plan re", re[i], out[2 * i], ACCURACY);
+            assertEquals("Plan im", im[i], out[2 * i + 1], ACCURACY);
+        }
+        FFTPlan.get(n, true).execute(out, out);
+        assertArrayEquals("Plan round trip", interleaved, out, ACCURACY);
+    }
+
+    @Test
+    public void testConvolve() {
+        for (int n = 1; n <= 40; n++) {
+            Complex[] x = FFT.toComplex(random(n));
+            Complex[] y = FFT.toComplex(random(n));
+            Complex[] c = FFT.convolve(x, y);
+            assertEquals("Linear convolution length", 2 * n, c.length);
+            for (int k = 0; k < 2 * n; k++) {
+                double expected = 0;
+                for (int i = 0; i < n; i++) {
+                    if (k - i >= 0 && k - i < n) {
+                        expected += x[i].re() * y[k - i].re();
+                    }
+                }
+                assertEquals("Linear convolution", expected, c[k].re(), ACCURACY);
+            }
+        }
+    }
+
+    @Test
+    public void testFastLength() {
+        assertEquals(1, FFT.fastLength(1));
+        assertEquals(11 + 1, FFT.fastLength(11));
+        assertEquals(1000, FFT.fastLength(1000));
+        assertEquals(1029, FFT.fastLength(1025));
+    }
+
+    @Test
+    public void testPlanArbitraryLength() {
+        for (int n : new int[]{12, 97, 210, 1000}) {
+            double[] re = random(n);
+            double[] im = random(n);
+            double[] re0 = re.clone();
+            double[] im0 = im.clone();
+            FFTPlan.get(n, false).executeInPlace(re, im);
+            FFTPlan.get(n, true).executeInPlace(re, im);
+            assertArrayEquals("Plan round trip re (" + n + ")", re0, re, ACCURACY);
+            assertArrayEquals("Plan round trip im (" + n + ")", im0, im, ACCURACY);
+        }
+    }
+
+    @Test
+    public void testTableCache() {
+        FFT.Table table = FFT.table(1009);
+        assertSame(table, FFT.table(1009));
+        for (int n = 1010; n < 1050; n++) {
+            FFT.table(n);
+        }
+        FFT.Table rebuilt = FFT.table(1009);
+        assertNotSame(table, rebuilt);
+        assertSame(rebuilt, FFT.table(1009));
+        assertSame(FFT.table(1024), FFT.table(1024));
+    }
+}
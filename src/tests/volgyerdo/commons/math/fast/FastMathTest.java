@@ -0,0 +1,193 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.fast;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class FastMathTest {
+
+    private static final double ACCURACY = 1e-14;
+
+    public FastMathTest() {
+    }
+
+    private static double[] random(int n, double min, double max) {
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = min + Math.random() * (max - min);
+        }
+        return x;
+    }
+
+    private static void assertRelative(String message, double expected, double actual, double accuracy) {
+        if (Double.isNaN(expected) || Double.isInfinite(expected) || expected == 0) {
+            assertEquals(message, expected, actual, 0);
+        } else {
+            assertEquals(message, expected, actual, Math.abs(expected) * accuracy);
+        }
+    }
+
+    @Test
+    public void testSinCos() {
+        double[] x = random(10000, -1000, 1000);
+        x[0] = 0;
+        x[1] = Math.PI / 2;
+        x[2] = 1e7;
+        x[3] = Double.NaN;
+        x[4] = Double.POSITIVE_INFINITY;
+        double[] sin = new double[x.length];
+        double[] cos = new double[x.length];
+        FastMath.sin(x, sin, 0, x.length);
+        FastMath.cos(x, cos, 0, x.length);
+        for (int i = 0; i < x.length; i++) {
+            assertEquals("sin(" + x[i] + ")", FastMath.sin(x[i]), sin[i], ACCURACY);
+            assertEquals("cos(" + x[i] + ")", FastMath.cos(x[i]), cos[i], ACCURACY);
+        }
+    }
+
+    @Test
+    public void testExp() {
+        double[] x = random(10000, -700, 709);
+        x[0] = 0;
+        x[1] = Double.NaN;
+        x[2] = Double.NEGATIVE_INFINITY;
+        x[3] = Double.POSITIVE_INFINITY;
+        x[4] = 709.5;
+        x[5] = -708.5;
+        double[] y = new double[x.length];
+        FastMath.exp(x, y, 0, x.length);
+        for (int i = 0; i < x.length; i++) {
+            assertRelative("exp(" + x[i] + ")", Math.exp(x[i]), y[i], ACCURACY);
+        }
+    }
+
+    @Test
+    public void testLog() {
+        double[] x = random(10000, 0, 10);
+        for (int i = 0; i < 1000; i++) {
+            x[i] = Math.exp(random(1, -700, 700)[0]);
+        }
+        x[0] = 1;
+        x[1] = 0;
+        x[2] = -1;
+        x[3] = Double.NaN;
+        x[4] = Double.POSITIVE_INFINITY;
+        x[5] = Double.MIN_VALUE;
+        x[6] = 1 + 1e-12;
+        double[] y = new double[x.length];
+        FastMath.log(x, y, 0, x.length);
+        for (int i = 0; i < x.length; i++) {
+            assertRelative("log(" + x[i] + ")", Math.log(x[i]), y[i], ACCURACY);
+        }
+    }
+
+    @Test
+    public void testSqrtPow() {
+        double[] x = random(10000, 0, 1000);
+        x[0] = 0;
+        x[1] = -1;
+        double[] y = new double[x.length];
+        FastMath.sqrt(x, y, 0, x.length);
+        for (int i = 0; i < x.length; i++) {
+            assertRelative("sqrt(" + x[i] + ")", Math.sqrt(x[i]), y[i], 0);
+        }
+        for (double power : new double[]{-2.5, -1, 0, 0.5, 3}) {
+            FastMath.pow(x, power, y, 0, x.length);
+            for (int i = 0; i < x.length; i++) {
+                assertRelative("pow(" + x[i] + ", " + power + ")", Math.pow(x[i], power), y[i], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testFloatArrays() {
+        float[] x = new float[1000];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = (float) (Math.random() * 20 - 10);
+        }
+        float[] y = x.clone();
+        FastMath.exp(y, y, 10, 980);
+        for (int i = 0; i < x.length; i++) {
+            float expected = i < 10 || i >= 990 ? x[i] : (float) Math.exp(x[i]);
+            assertEquals("exp(" + x[i] + ")", expected, y[i], Math.abs(expected) * 1e-6f);
+        }
+        y = x.clone();
+        FastMath.sin(y, y, 0, y.length);
+        for (int i = 0; i < x.length; i++) {
+            assertEquals("sin(" + x[i] + ")", (float) Math.sin(x[i]), y[i], 1e-6f);
+        }
+    }
+
+    private static void assertUlps(String message, double expected, float actual, int ulps) {
+        float rounded = (float) expected;
+        if (Float.isNaN(rounded) || Float.isInfinite(rounded)) {
+            assertEquals(message, rounded, actual, 0f);
+        } else {
+            assertEquals(message, rounded, actual, ulps * Math.ulp(rounded));
+        }
+    }
+
+    @Test
+    public void testSinglePrecision() {
+        float[] special = {0f, -0f, 1f, -1f, Float.NaN, Float.POSITIVE_INFINITY,
+            Float.NEGATIVE_INFINITY, Float.MIN_VALUE, Float.MIN_NORMAL, Float.MAX_VALUE};
+        float[] x = new float[20000];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = (float) (Math.random() * 200 - 100);
+        }
+        System.arraycopy(special, 0, x, 0, special.length);
+        for (float v : x) {
+            assertUlps("expf(" + v + ")", Math.exp(v), FastMath.expf(v), 2);
+            assertUlps("tanhf(" + v + ")", Math.tanh(v), FastMath.tanhf(v), 3);
+            assertUlps("sinf(" + v + ")", Math.sin(v), FastMath.sinf(v), 1);
+            assertUlps("cosf(" + v + ")", Math.cos(v), FastMath.cosf(v), 1);
+            float abs = Math.abs(v);
+            assertUlps("logf(" + abs + ")", Math.log(abs), FastMath.logf(abs), 2);
+            float tiny = abs * 1e-30f;
+            assertUlps("logf(" + tiny + ")", Math.log(tiny), FastMath.logf(tiny), 2);
+        }
+        assertTrue(Float.isNaN(FastMath.logf(-1f)));
+        assertTrue(Float.isNaN(FastMath.sinf(Float.POSITIVE_INFINITY)));
+    }
+
+    @Test
+    public void testTrigonometryUlps() {
+        // every 4099th float up to the reduction limit, which also hits
+        // arguments near the multiples of pi / 2
+        for (int bits = 0; bits <= Float.floatToIntBits(1e6f); bits += 4099) {
+            float v = Float.intBitsToFloat(bits);
+            assertUlps("sinf(" + v + ")", Math.sin(v), FastMath.sinf(v), 1);
+            assertUlps("cosf(" + v + ")", Math.cos(v), FastMath.cosf(v), 1);
+            assertUlps("sinf(" + -v + ")", Math.sin(-v), FastMath.sinf(-v), 1);
+            assertUlps("cosf(" + -v + ")", Math.cos(-v), FastMath.cosf(-v), 1);
+        }
+        for (int k = 1; k < 100000; k += 7) {
+            float v = (float) (k * (Math.PI / 2));
+            assertUlps("sinf(" + v + ")", Math.sin(v), FastMath.sinf(v), 1);
+            assertUlps("cosf(" + v + ")", Math.cos(v), FastMath.cosf(v), 1);
+        }
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testRange() {
+        FastMath.exp(new double[10], new double[5], 0, 10);
+    }
+}
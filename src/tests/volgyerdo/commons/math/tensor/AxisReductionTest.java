@@ -0,0 +1,202 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class AxisReductionTest {
+
+    public AxisReductionTest() {
+    }
+
+    @Test
+    public void testRowsAndColumns() {
+        FloatTensor t = new FloatTensor(2, 3);
+        t.setFloatValue(1, 0, 0);
+        t.setFloatValue(2, 0, 1);
+        t.setFloatValue(3, 0, 2);
+        t.setFloatValue(4, 1, 0);
+        t.setFloatValue(5, 1, 1);
+        t.setFloatValue(-6, 1, 2);
+        assertArrayEquals(new float[]{6, 3}, ((FloatTensor) t.sum(1)).values, 0f);
+        assertArrayEquals(new float[]{5, 7, -3}, ((FloatTensor) t.sum(0)).values, 0f);
+        assertArrayEquals(new int[]{3}, t.sum(0).dimensions);
+        assertArrayEquals(new float[]{3, 5}, ((FloatTensor) t.max(1)).values, 0f);
+        assertArrayEquals(new float[]{1, -6}, ((FloatTensor) t.min(1)).values, 0f);
+        assertArrayEquals(new float[]{2.5f, 3.5f, -1.5f}, ((FloatTensor) t.mean(0)).values, 0f);
+        assertArrayEquals(new float[]{9}, ((FloatTensor) t.sum(0, 1)).values, 0f);
+        assertArrayEquals(new float[]{9}, ((FloatTensor) t.sum(new int[0])).values, 0f);
+        assertArrayEquals(new int[]{2, 1}, t.argmax(1).values);
+        assertArrayEquals(new int[]{1, 1, 0}, t.argmax(0).values);
+    }
+
+    @Test
+    public void testAgainstIndexLoops() {
+        Random random = new Random(7);
+        int[][] shapes = {{5}, {4, 6}, {3, 1, 5}, {2, 3, 4, 5}, {1, 7, 1}, {9000, 2}, {3, 5000}};
+        for (int[] shape : shapes) {
+            FloatTensor t = new FloatTensor(shape);
+            t.fillWithFloat(() -> random.nextFloat() * 10 - 5);
+            int rank = shape.length;
+            for (int mask = 1; mask < 1 << rank; mask++) {
+                int[] axes = new int[Integer.bitCount(mask)];
+                for (int a = 0, n = 0; a < rank; a++) {
+                    if ((mask & 1 << a) != 0) {
+                        axes[n++] = a;
+                    }
+                }
+                check(t, mask, (FloatTensor) t.sum(axes), AxisReduction.SUM);
+                check(t, mask, (FloatTensor) t.max(axes), AxisReduction.MAX);
+                check(t, mask, (FloatTensor) t.min(axes), AxisReduction.MIN);
+                check(t, mask, (FloatTensor) t.mean(axes), AxisReduction.MEAN);
+            }
+            for (int axis = 0; axis < rank; axis++) {
+                checkArgmax(t, axis, t.argmax(axis));
+            }
+        }
+    }
+
+    private void check(FloatTensor t, int mask, FloatTensor result, int operation) {
+        int rank = t.dimensions.length;
+        double[] expected = new double[result.size()];
+        double[] count = new double[result.size()];
+        Arrays.fill(expected, operation == AxisReduction.MIN ? Double.POSITIVE_INFINITY
+                : operation == AxisReduction.MAX ? Double.NEGATIVE_INFINITY : 0);
+        IndexIterator iterator = t.indexIterator();
+        while (iterator.hasNext()) {
+            int[] index = iterator.next();
+            int target = 0;
+            int stride = 1;
+            for (int a = 0; a < rank; a++) {
+                if ((mask & 1 << a) == 0) {
+                    target += index[a] * stride;
+                    stride *= t.dimensions[a];
+                }
+            }
+            double value = t.getFloatValue(index);
+            switch (operation) {
+                case AxisReduction.MIN ->
+                    expected[target] = Math.min(expected[target], value);
+                case AxisReduction.MAX ->
+                    expected[target] = Math.max(expected[target], value);
+                default ->
+                    expected[target] += value;
+            }
+            count[target]++;
+        }
+        int kept = 0;
+        for (int a = 0; a < rank; a++) {
+            if ((mask & 1 << a) == 0) {
+                assertEquals(t.dimensions[a], result.dimensions[kept++]);
+            }
+        }
+        assertEquals(Math.max(1, kept), result.dimensions.length);
+        for (int i = 0; i < expected.length; i++) {
+            double value = operation == AxisReduction.MEAN ? expected[i] / count[i] : expected[i];
+            assertEquals(value, result.values[i], 1e-3);
+        }
+    }
+
+    private void checkArgmax(FloatTensor t, int axis, IntTensor result) {
+        IndexIterator iterator = result.indexIterator();
+        while (iterator.hasNext()) {
+            int[] outputIndex = iterator.next();
+            int[] index = new int[t.dimensions.length];
+            for (int a = 0, o = 0; a < index.length; a++) {
+                if (a != axis) {
+                    index[a] = outputIndex[o++];
+                }
+            }
+            int best = 0;
+            float bestValue = Float.NEGATIVE_INFINITY;
+            for (int k = 0; k < t.dimensions[axis]; k++) {
+                index[axis] = k;
+                if (t.getFloatValue(index) > bestValue) {
+                    bestValue = t.getFloatValue(index);
+                    best = k;
+                }
+            }
+            assertEquals(best, result.getIntValue(outputIndex));
+        }
+    }
+
+    @Test
+    public void testTypes() {
+        ByteTensor bytes = new ByteTensor(100, 2);
+        bytes.fill((byte) 100);
+        ByteTensor byteSum = (ByteTensor) bytes.sum(0);
+        assertArrayEquals(new byte[]{Byte.MAX_VALUE, Byte.MAX_VALUE}, byteSum.values);
+        assertArrayEquals(new byte[]{100, 100}, ((ByteTensor) bytes.mean(0)).values);
+
+        IntTensor ints = new IntTensor(3, 2);
+        ints.setIntValue(Integer.MAX_VALUE, 0, 0);
+        ints.setIntValue(Integer.MAX_VALUE, 1, 0);
+        ints.setIntValue(-4, 2, 1);
+        assertArrayEquals(new int[]{Integer.MAX_VALUE, -4}, ((IntTensor) ints.sum(0)).values);
+        assertArrayEquals(new int[]{Integer.MAX_VALUE, 0}, ((IntTensor) ints.max(0)).values);
+        assertArrayEquals(new int[]{0, 0}, ints.argmax(0).values);
+
+        DoubleTensor doubles = new DoubleTensor(4, 1);
+        doubles.setDoubleValue(0.1, 0, 0);
+        doubles.setDoubleValue(0.2, 1, 0);
+        doubles.setDoubleValue(0.3, 2, 0);
+        doubles.setDoubleValue(0.4, 3, 0);
+        assertArrayEquals(new double[]{1.0}, ((DoubleTensor) doubles.sum(0)).values, 1e-15);
+        assertArrayEquals(new int[]{1}, doubles.mean(0, 1).dimensions);
+    }
+
+    @Test
+    public void testLongPrecision() {
+        long big = (1L << 60) + 1;
+        LongTensor longs = new LongTensor(3, 2);
+        longs.fill(big);
+        longs.setLongValue(big + 2, 1, 0);
+        longs.setLongValue(-big, 0, 1);
+        longs.setLongValue(-big - 2, 1, 1);
+        longs.setLongValue(-big - 4, 2, 1);
+        assertArrayEquals(new long[]{3 * big + 2, -3 * big - 6}, ((LongTensor) longs.sum(0)).values);
+        assertArrayEquals(new long[]{big, -big - 4}, ((LongTensor) longs.min(0)).values);
+        assertArrayEquals(new long[]{big + 2, -big}, ((LongTensor) longs.max(0)).values);
+        assertArrayEquals(new long[]{big, -big - 2}, ((LongTensor) longs.mean(0)).values);
+        assertArrayEquals(new long[]{0, 0, -4}, ((LongTensor) longs.sum(1)).values);
+        assertArrayEquals(new long[]{-4}, ((LongTensor) longs.sum(0, 1)).values);
+
+        LongTensor extremes = new LongTensor(4);
+        extremes.fill(Long.MAX_VALUE);
+        assertArrayEquals(new long[]{Long.MAX_VALUE}, ((LongTensor) extremes.sum(0)).values);
+        assertArrayEquals(new long[]{Long.MAX_VALUE}, ((LongTensor) extremes.mean(0)).values);
+        extremes.fill(Long.MIN_VALUE);
+        assertArrayEquals(new long[]{Long.MIN_VALUE}, ((LongTensor) extremes.sum(0)).values);
+        assertArrayEquals(new long[]{Long.MIN_VALUE}, ((LongTensor) extremes.mean(0)).values);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRepeatedAxis() {
+        new FloatTensor(2, 2).sum(1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAxisOutOfBounds() {
+        new FloatTensor(2, 2).argmax(2);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class BroadcastTest {
+
+    public BroadcastTest() {
+    }
+
+    @Test
+    public void testRowAndColumn() {
+        FloatTensor t = new FloatTensor(2, 3);
+        System.arraycopy(new float[]{1, 2, 3, 4, 5, 6}, 0, t.values, 0, t.values.length);
+        FloatTensor row = new FloatTensor(3);
+        System.arraycopy(new float[]{10, 20, 30}, 0, row.values, 0, row.values.length);
+        t.add(row);
+        assertArrayEquals(new float[]{11, 12, 23, 24, 35, 36}, t.values, 0f);
+        FloatTensor column = new FloatTensor(2, 1);
+        System.arraycopy(new float[]{1, 2}, 0, column.values, 0, column.values.length);
+        t.substract(column);
+        assertArrayEquals(new float[]{10, 10, 22, 22, 34, 34}, t.values, 0f);
+        FloatTensor scalar = new FloatTensor(1);
+        System.arraycopy(new float[]{0.5f}, 0, scalar.values, 0, scalar.values.length);
+        t.hadamardProduct(scalar);
+        assertArrayEquals(new float[]{5, 5, 11, 11, 17, 17}, t.values, 0f);
+    }
+
+    @Test
+    public void testIntegerSemantics() {
+        ByteTensor b = new ByteTensor(2, 2);
+        System.arraycopy(new byte[]{100, -100, 50, 1}, 0, b.values, 0, b.values.length);
+        ByteTensor factor = new ByteTensor(2, 1);
+        System.arraycopy(new byte[]{2, 3}, 0, factor.values, 0, factor.values.length);
+        b.hadamardProduct(factor);
+        assertArrayEquals(new byte[]{127, -128, 100, 3}, b.values);
+        ByteTensor offset = new ByteTensor(1, 2);
+        System.arraycopy(new byte[]{100, 0}, 0, offset.values, 0, offset.values.length);
+        b.add(offset);
+        assertArrayEquals(new byte[]{-29, -28, 100, 3}, b.values);
+        IntTensor i = new IntTensor(3);
+        i.fill(1);
+        IntTensor s = new IntTensor(1);
+        s.fill(Integer.MAX_VALUE);
+        i.add(s);
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE}, i.values);
+    }
+
+    @Test
+    public void testAgainstIndexLoops() {
+        Random random = new Random(11);
+        int[][][] shapes = {
+            {{4, 5}, {5}},
+            {{4, 5}, {1, 5}},
+            {{4, 5}, {4, 1}},
+            {{4, 5}, {1}},
+            {{3, 4, 5}, {4, 5}},
+            {{3, 4, 5}, {3, 1, 5}},
+            {{3, 4, 5}, {1, 4, 1}},
+            {{2, 3, 4, 5}, {2, 1, 4, 1}},
+            {{1, 6, 1}, {1, 1}},
+            {{300, 70}, {300, 1}},
+            {{300, 70}, {70}}};
+        for (int[][] pair : shapes) {
+            for (boolean parallel : new boolean[]{false, true}) {
+                FloatTensor t = new FloatTensor(pair[0]);
+                t.fillWithFloat(() -> random.nextFloat());
+                FloatTensor operand = new FloatTensor(pair[1]);
+                operand.fillWithFloat(() -> random.nextFloat());
+                if (parallel) {
+                    t.setExecutor(TensorExecutor.parallel(new ForkJoinPool(4), 37));
+                }
+                float[] sum = expected(t, operand, 0);
+                float[] difference = expected(t, operand, 1);
+                float[] product = expected(t, operand, 2);
+                FloatTensor u = (FloatTensor) t.copy();
+                u.setExecutor(t.getExecutor());
+                u.add(operand);
+                assertArrayEquals(sum, u.values, 0f);
+                u = (FloatTensor) t.copy();
+                u.setExecutor(t.getExecutor());
+                u.substract(operand);
+                assertArrayEquals(difference, u.values, 0f);
+                u = (FloatTensor) t.copy();
+                u.setExecutor(t.getExecutor());
+                u.hadamardProduct(operand);
+                assertArrayEquals(product, u.values, 0f);
+            }
+        }
+    }
+
+    @Test
+    public void testIncompatibleDimensions() {
+        int[][][] shapes = {{{4, 5}, {4}}, {{4, 5}, {2, 5}}, {{5}, {1, 5}}, {{4, 5}, {4, 5, 1}}};
+        for (int[][] pair : shapes) {
+            try {
+                new DoubleTensor(pair[0]).add(new DoubleTensor(pair[1]));
+                fail();
+            } catch (IllegalArgumentException ex) {
+            }
+        }
+    }
+
+    private static float[] expected(FloatTensor t, FloatTensor operand, int operation) {
+        int rank = t.dimensions.length;
+        int shift = rank - operand.dimensions.length;
+        float[] result = new float[t.values.length];
+        int[] indices = new int[rank];
+        int[] operandIndices = new int[operand.dimensions.length];
+        for (int i = 0; i < result.length; i++) {
+            for (int a = 0; a < operandIndices.length; a++) {
+                operandIndices[a] = operand.dimensions[a] == 1 ? 0 : indices[a + shift];
+            }
+            float x = t.values[i];
+            float y = operand.getFloatValue(operandIndices);
+            result[i] = operation == 0 ? x + y : operation == 1 ? x - y : x * y;
+            for (int a = 0; a < rank; a++) {
+                if (++indices[a] < t.dimensions[a]) {
+                    break;
+                }
+                indices[a] = 0;
+            }
+        }
+        return result;
+    }
+}
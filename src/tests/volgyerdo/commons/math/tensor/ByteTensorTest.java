@@ -1225,4 +1225,35 @@ public class ByteTensorTest {
         assertEquals("1D partial convolution - kernel: [3] (1)", (byte) 5, c.getByteValue(1));
         assertEquals("1D partial convolution - kernel: [3] (1)", (byte) -9, c.getByteValue(2));
     }
+
+    @Test
+    public void testSaturatingArithmetic() {
+        ByteTensor a = new ByteTensor(4);
+        a.setByteArray(new byte[]{100, -100, 5, -128});
+        ByteTensor b = new ByteTensor(4);
+        b.setByteArray(new byte[]{100, 100, -10, 1});
+        ByteTensor wrapped = new ByteTensor(4);
+        wrapped.setByteArray(new byte[]{100, -100, 5, -128});
+        wrapped.add(b);
+        assertArrayEquals(new byte[]{-56, 0, -5, -127}, wrapped.values);
+        a.addSaturating(b);
+        assertArrayEquals(new byte[]{127, 0, -5, -127}, a.values);
+        a.substractSaturating(b);
+        assertArrayEquals(new byte[]{27, -100, 5, -128}, a.values);
+        ByteTensor c = new ByteTensor(1);
+        c.setByteArray(new byte[]{-128});
+        a.substractSaturating(c);
+        assertArrayEquals(new byte[]{127, 28, 127, 0}, a.values);
+        a.hadamardProduct(b);
+        assertArrayEquals(new byte[]{127, 127, -128, 0}, a.values);
+    }
+
+    @Test
+    public void testLongSum() {
+        ByteTensor a = new ByteTensor(100000);
+        a.fill((byte) 127);
+        assertEquals(12700000L, a.longSum());
+        assertEquals(Byte.MAX_VALUE, a.byteSum());
+        assertEquals(127, a.byteAverage());
+    }
 }
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class ConvolutionTest {
+
+    public ConvolutionTest() {
+    }
+
+    private static FloatTensor random(Random random, int... dimensions) {
+        FloatTensor tensor = new FloatTensor(dimensions);
+        tensor.fillWithFloat(() -> random.nextFloat() * 2 - 1);
+        return tensor;
+    }
+
+    private static FloatTensor outer(float[]... factors) {
+        int[] dimensions = new int[factors.length];
+        for (int a = 0; a < factors.length; a++) {
+            dimensions[a] = factors[a].length;
+        }
+        FloatTensor tensor = new FloatTensor(dimensions);
+        int[] e = new int[factors.length];
+        for (int i = 0; i < tensor.values.length; i++) {
+            float value = 1;
+            for (int a = 0; a < factors.length; a++) {
+                value *= factors[a][e[a]];
+            }
+            tensor.values[i] = value;
+            for (int a = 0; a < e.length && ++e[a] == dimensions[a]; a++) {
+                e[a] = 0;
+            }
+        }
+        return tensor;
+    }
+
+    private static float[] gaussian(int size, double sigma) {
+        float[] kernel = new float[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            double x = i - size / 2;
+            kernel[i] = (float) Math.exp(-x * x / (2 * sigma * sigma));
+            sum += kernel[i];
+        }
+        for (int i = 0; i < size; i++) {
+            kernel[i] /= sum;
+        }
+        return kernel;
+    }
+
+    private static int coordinate(int x, int n, Convolution.Padding padding) {
+        if (x >= 0 && x < n) {
+            return x;
+        }
+        switch (padding) {
+            case REPLICATE:
+                return x < 0 ? 0 : n - 1;
+            case REFLECT:
+                while (x < 0 || x >= n) {
+                    x = x < 0 ? -x : 2 * (n - 1) - x;
+                }
+                return x;
+            default:
+                return -1;
+        }
+    }
+
+    // element by element evaluation of a two dimensional convolution
+    private static float[] reference(FloatTensor image, FloatTensor kernel, int[] stride,
+            int[] dilation, Convolution.Padding padding, int[] output) {
+        int m = image.dimensions[0];
+        int n = image.dimensions[1];
+        int km = kernel.dimensions[0];
+        int kn = kernel.dimensions[1];
+        boolean valid = padding == Convolution.Padding.VALID;
+        float[] result = new float[output[0] * output[1]];
+        for (int j = 0; j < output[1]; j++) {
+            for (int i = 0; i < output[0]; i++) {
+                double sum = 0;
+                for (int q = 0; q < kn; q++) {
+                    for (int p = 0; p < km; p++) {
+                        int x = i * stride[0] + (valid ? p : p - km / 2) * dilation[0];
+                        int y = j * stride[1] + (valid ? q : q - kn / 2) * dilation[1];
+                        x = coordinate(x, m, padding);
+                        y = coordinate(y, n, padding);
+                        if (x >= 0 && y >= 0) {
+                            sum += image.values[x + m * y] * kernel.values[p + km * q];
+                        }
+                    }
+                }
+                result[i + output[0] * j] = (float) sum;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testSameAsConvolve() {
+        Random random = new Random(1);
+        FloatTensor image = random(random, 23, 17);
+        FloatTensor kernel = random(random, 4, 3);
+        Convolution convolution = new Convolution(kernel);
+        assertFalse(convolution.isSeparable());
+        assertArrayEquals(((FloatTensor) image.convolve(kernel)).values, convolution.apply(image).values, 1e-5f);
+        FloatTensor volume = random(random, 9, 8, 7);
+        FloatTensor kernel3 = random(random, 3, 2, 3);
+        assertArrayEquals(((FloatTensor) volume.convolve(kernel3)).values,
+                new Convolution(kernel3).apply(volume).values, 1e-5f);
+    }
+
+    @Test
+    public void testStrideDilationPadding() {
+        Random random = new Random(2);
+        FloatTensor image = random(random, 19, 14);
+        FloatTensor dense = random(random, 3, 4);
+        FloatTensor separable = outer(gaussian(5, 1.2), new float[]{1, -2, 3});
+        int[][] strides = {{1, 1}, {2, 3}, {3, 1}};
+        int[][] dilations = {{1, 1}, {2, 1}, {1, 2}};
+        for (FloatTensor kernel : new FloatTensor[]{dense, separable}) {
+            for (Convolution.Padding padding : Convolution.Padding.values()) {
+                for (int[] stride : strides) {
+                    for (int[] dilation : dilations) {
+                        Convolution convolution = new Convolution(kernel)
+                                .padding(padding).stride(stride).dilation(dilation);
+                        FloatTensor result = convolution.apply(image);
+                        assertArrayEquals(convolution.outputDimensions(19, 14), result.dimensions);
+                        assertArrayEquals(reference(image, kernel, stride, dilation, padding,
+                                result.dimensions), result.values, 1e-5f);
+                    }
+                }
+            }
+        }
+        Convolution convolution = new Convolution(dense).stride(2, 3);
+        assertArrayEquals(new int[]{10, 5}, convolution.apply(image).dimensions);
+        convolution.padding(Convolution.Padding.VALID);
+        assertArrayEquals(new int[]{9, 4}, convolution.apply(image).dimensions);
+    }
+
+    @Test
+    public void testSeparable() {
+        float[] g = gaussian(25, 4);
+        Convolution blur = new Convolution(outer(g, g));
+        assertTrue(blur.isSeparable());
+        assertTrue(new Convolution(outer(g, new float[]{1, 0, -1}, g)).isSeparable());
+        FloatTensor kernel = outer(g, g);
+        kernel.values[17] += 0.01f;
+        Convolution direct = new Convolution(kernel);
+        assertFalse(direct.isSeparable());
+        assertFalse(new Convolution(new FloatTensor(3, 3)).isSeparable());
+        FloatTensor image = random(new Random(3), 64, 48);
+        kernel.values[17] -= 0.01f;
+        int[] stride = {1, 1};
+        for (Convolution.Padding padding : Convolution.Padding.values()) {
+            blur.padding(padding);
+            FloatTensor result = blur.apply(image);
+            assertArrayEquals(reference(image, kernel, stride, stride, padding,
+                    result.dimensions), result.values, 1e-5f);
+        }
+        FloatTensor volume = random(new Random(4), 12, 10, 9);
+        float[] h = gaussian(3, 1);
+        FloatTensor kernel3 = outer(h, g, h);
+        Convolution separable = new Convolution(kernel3).padding(Convolution.Padding.REFLECT);
+        assertTrue(separable.isSeparable());
+        kernel3.values[0] += 1e-3f;
+        Convolution nonSeparable = new Convolution(kernel3).padding(Convolution.Padding.REFLECT);
+        assertFalse(nonSeparable.isSeparable());
+        kernel3.values[0] -= 1e-3f;
+        // the direct evaluation of a kernel that differs from the separable one in one element
+        float[] expected = nonSeparable.apply(volume).values;
+        float[] actual = separable.apply(volume).values;
+        for (int i = 0; i < actual.length; i++) {
+            assertEquals(expected[i], actual[i], 2e-3f);
+        }
+    }
+
+    @Test
+    public void testBatched() {
+        Random random = new Random(5);
+        FloatTensor images = random(random, 15, 11, 3);
+        for (FloatTensor kernel : new FloatTensor[]{random(random, 3, 3), outer(gaussian(5, 1), gaussian(3, 1))}) {
+            Convolution convolution = new Convolution(kernel).batched(true)
+                    .padding(Convolution.Padding.REPLICATE).stride(2, 1);
+            FloatTensor result = convolution.apply(images);
+            assertArrayEquals(new int[]{8, 11, 3}, result.dimensions);
+            Convolution single = new Convolution(kernel)
+                    .padding(Convolution.Padding.REPLICATE).stride(2, 1);
+            for (int b = 0; b < 3; b++) {
+                FloatTensor image = new FloatTensor(15, 11);
+                System.arraycopy(images.values, b * 165, image.values, 0, 165);
+                float[] expected = single.apply(image).values;
+                float[] actual = new float[expected.length];
+                System.arraycopy(result.values, b * 88, actual, 0, 88);
+                assertArrayEquals(expected, actual, 0f);
+            }
+        }
+    }
+
+    @Test
+    public void testParallel() {
+        Random random = new Random(6);
+        FloatTensor image = random(random, 40, 300);
+        FloatTensor kernel = random(random, 5, 5);
+        float[] expected = new Convolution(kernel).apply(image).values;
+        image.setExecutor(TensorExecutor.parallel(new ForkJoinPool(4), 16));
+        assertArrayEquals(expected, new Convolution(kernel).apply(image).values, 0f);
+    }
+
+    private static FloatTensor slice(FloatTensor tensor, int index, int... dimensions) {
+        FloatTensor slice = new FloatTensor(dimensions);
+        int size = slice.values.length;
+        System.arraycopy(tensor.values, index * size, slice.values, 0, size);
+        return slice;
+    }
+
+    // sum of single channel convolutions
+    private static float[] channelReference(FloatTensor source, FloatTensor kernel,
+            Convolution.Padding padding, int[] stride, int[] dilation) {
+        int[] d = source.dimensions;
+        int[] k = kernel.dimensions;
+        int inputs = k[2];
+        int outputs = k[3];
+        float[] result = null;
+        for (int o = 0; o < outputs; o++) {
+            for (int c = 0; c < inputs; c++) {
+                FloatTensor channel = new Convolution(slice(kernel, c + inputs * o, k[0], k[1]))
+                        .padding(padding).stride(stride).dilation(dilation)
+                        .apply(slice(source, c, d[0], d[1]));
+                int size = channel.values.length;
+                if (result == null) {
+                    result = new float[size * outputs];
+                }
+                for (int i = 0; i < size; i++) {
+                    result[o * size + i] += channel.values[i];
+                }
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testChannels() {
+        Random random = new Random(7);
+        FloatTensor source = random(random, 13, 9, 3);
+        FloatTensor kernel = random(random, 3, 2, 3, 4);
+        int[][] steps = {{1, 1}, {2, 3}};
+        for (Convolution.Padding padding : Convolution.Padding.values()) {
+            for (int[] stride : steps) {
+                for (int[] dilation : steps) {
+                    Convolution convolution = new Convolution(kernel, true)
+                            .padding(padding).stride(stride).dilation(dilation);
+                    assertFalse(convolution.isSeparable());
+                    FloatTensor result = convolution.apply(source);
+                    assertEquals(4, result.dimensions[2]);
+                    assertArrayEquals(convolution.outputDimensions(13, 9, 3), result.dimensions);
+                    assertArrayEquals(channelReference(source, kernel, padding, stride, dilation),
+                            result.values, 1e-5f);
+                }
+            }
+        }
+        FloatTensor image = random(random, 10, 7);
+        FloatTensor single = random(random, 3, 3);
+        FloatTensor wrapped = new FloatTensor(3, 3, 1, 1);
+        System.arraycopy(single.values, 0, wrapped.values, 0, 9);
+        FloatTensor channel = new FloatTensor(10, 7, 1);
+        System.arraycopy(image.values, 0, channel.values, 0, 70);
+        assertArrayEquals(new Convolution(single).apply(image).values,
+                new Convolution(wrapped, true).apply(channel).values, 1e-6f);
+    }
+
+    @Test
+    public void testChannelChunksAndBatch() {
+        Random random = new Random(8);
+        // several scratch chunks per image
+        FloatTensor images = random(random, 200, 40, 16, 2);
+        FloatTensor kernel = random(random, 3, 3, 16, 5);
+        Convolution convolution = new Convolution(kernel, true).batched(true)
+                .padding(Convolution.Padding.REFLECT);
+        FloatTensor result = convolution.apply(images);
+        assertArrayEquals(new int[]{200, 40, 5, 2}, result.dimensions);
+        int[] ones = {1, 1};
+        for (int b = 0; b < 2; b++) {
+            float[] expected = channelReference(slice(images, b, 200, 40, 16), kernel,
+                    Convolution.Padding.REFLECT, ones, ones);
+            float[] actual = new float[expected.length];
+            System.arraycopy(result.values, b * actual.length, actual, 0, actual.length);
+            assertArrayEquals(expected, actual, 1e-4f);
+        }
+        images.setExecutor(TensorExecutor.parallel(new ForkJoinPool(4), 16));
+        assertArrayEquals(result.values, convolution.apply(images).values, 0f);
+        assertArrayEquals(result.values, convolution.apply(images).values, 0f);
+    }
+
+    @Test
+    public void testWideChannelLines() {
+        Random random = new Random(9);
+        // a line needs more than one scratch chunk, and chunks end within lines
+        FloatTensor source = random(random, 1002, 4, 32);
+        FloatTensor kernel = random(random, 3, 3, 32, 2);
+        int[] ones = {1, 1};
+        for (int[] stride : new int[][]{ones, {2, 1}}) {
+            Convolution convolution = new Convolution(kernel, true)
+                    .padding(Convolution.Padding.ZERO).stride(stride);
+            assertArrayEquals(channelReference(source, kernel, Convolution.Padding.ZERO, stride, ones),
+                    convolution.apply(source).values, 1e-4f);
+        }
+    }
+
+    @Test
+    public void testErrors() {
+        FloatTensor kernel = new FloatTensor(3, 3);
+        try {
+            new Convolution(kernel).apply(new FloatTensor(5, 5, 2));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new Convolution(kernel).stride(1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new Convolution(kernel).dilation(1, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new Convolution(kernel).padding(Convolution.Padding.VALID).dilation(2, 2)
+                    .apply(new FloatTensor(4, 4));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new Convolution(kernel, true);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new Convolution(new FloatTensor(3, 3, 2, 4), true).apply(new FloatTensor(5, 5, 3));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new Convolution(null);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
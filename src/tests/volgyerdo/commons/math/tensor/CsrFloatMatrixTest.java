@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class CsrFloatMatrixTest {
+
+    public CsrFloatMatrixTest() {
+    }
+
+    private static FloatTensor sparseRandom(Random random, float density, int... dimensions) {
+        FloatTensor tensor = new FloatTensor(dimensions);
+        tensor.fillWithFloat(() -> random.nextFloat() < density ? random.nextInt(19) - 9 : 0);
+        return tensor;
+    }
+
+    @Test
+    public void testConversions() {
+        FloatTensor dense = sparseRandom(new Random(1), 0.2f, 9, 13);
+        CsrFloatMatrix matrix = CsrFloatMatrix.of(dense);
+        assertArrayEquals(dense.values, matrix.toFloatTensor().values, 0f);
+        SparseFloatTensor sparse = matrix.toSparseFloatTensor();
+        assertArrayEquals(dense.values, sparse.toFloatTensor().values, 0f);
+        assertArrayEquals(dense.values, CsrFloatMatrix.of(sparse).toFloatTensor().values, 0f);
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 13; j++) {
+                assertEquals(dense.getFloatValue(i, j), matrix.getFloatValue(i, j), 0f);
+            }
+        }
+        CsrFloatMatrix explicit = new CsrFloatMatrix(2, 3, new int[]{0, 2, 3},
+                new int[]{0, 2, 1}, new float[]{1, 2, 3});
+        assertArrayEquals(new float[]{1, 0, 0, 3, 2, 0}, explicit.toFloatTensor().values, 0f);
+        try {
+            new CsrFloatMatrix(2, 3, new int[]{0, 2, 3}, new int[]{2, 0, 1}, new float[]{1, 2, 3});
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void testMultiply() {
+        Random random = new Random(2);
+        FloatTensor a = sparseRandom(random, 0.1f, 40, 30);
+        CsrFloatMatrix matrix = CsrFloatMatrix.of(a);
+        matrix.setExecutor(TensorExecutor.parallel(new ForkJoinPool(3), 4));
+        int[][] shapes = {{30}, {30, 5}, {30, 2, 3}};
+        for (int[] shape : shapes) {
+            FloatTensor b = sparseRandom(random, 1f, shape);
+            FloatTensor expected = (FloatTensor) a.multiply(b, 1);
+            FloatTensor product = matrix.multiply(b);
+            assertArrayEquals(expected.dimensions, product.dimensions);
+            assertArrayEquals(expected.values, product.values, 1e-4f);
+        }
+    }
+
+    @Test
+    public void testElementWiseAndReductions() {
+        Random random = new Random(3);
+        FloatTensor a = sparseRandom(random, 0.3f, 8, 6);
+        FloatTensor b = sparseRandom(random, 0.3f, 8, 6);
+        CsrFloatMatrix ma = CsrFloatMatrix.of(a);
+        CsrFloatMatrix mb = CsrFloatMatrix.of(b);
+        ma.add(mb);
+        a.add(b);
+        assertArrayEquals(a.values, ma.toFloatTensor().values, 0f);
+        ma.hadamardProduct(mb);
+        a.hadamardProduct(b);
+        assertArrayEquals(a.values, ma.toFloatTensor().values, 0f);
+        ma.substract(CsrFloatMatrix.of(a));
+        assertEquals(0, ma.nonZeroCount());
+        assertEquals(b.floatSum(), mb.floatSum(), 0f);
+        assertEquals(b.floatMin(), mb.floatMin(), 0f);
+        assertEquals(b.floatMax(), mb.floatMax(), 0f);
+        assertEquals(b.floatAverage(), mb.floatAverage(), 1e-6f);
+    }
+
+    @Test
+    public void testTensorOperations() {
+        Random random = new Random(9);
+        FloatTensor dense = sparseRandom(random, 0.3f, 6, 5);
+        CsrFloatMatrix matrix = new CsrFloatMatrix(6, 5);
+        for (int i = dense.values.length - 1; i >= 0; i--) {
+            matrix.setFlat(i, dense.values[i]);
+        }
+        assertEquals(CsrFloatMatrix.of(dense), matrix);
+        assertEquals(Tensor.TYPE.SPARSE_FLOAT, matrix.type);
+        matrix.setFloatValue(0, 2, 3);
+        dense.setFloatValue(0, 2, 3);
+        assertArrayEquals(dense.values, matrix.toFloatTensor().values, 0f);
+        Tensor transposed = matrix.transpose();
+        assertTrue(transposed instanceof CsrFloatMatrix);
+        assertArrayEquals(((FloatTensor) dense.transpose()).values,
+                ((CsrFloatMatrix) transposed).toFloatTensor().values, 0f);
+        FloatTensor b = sparseRandom(random, 0.5f, 5, 3);
+        assertArrayEquals(((FloatTensor) dense.multiply(b, 1)).values,
+                ((FloatTensor) matrix.multiply((Tensor) b, 1)).values, 1e-4f);
+        FloatTensor c = sparseRandom(random, 0.5f, 6, 5, 2);
+        assertArrayEquals(((FloatTensor) dense.multiply(c, 2)).values,
+                ((FloatTensor) matrix.multiply((Tensor) c, 2)).values, 1e-4f);
+        matrix.hadamardProduct(dense);
+        dense.hadamardProduct(dense.copy());
+        assertArrayEquals(dense.values, matrix.toFloatTensor().values, 0f);
+        assertEquals(dense.floatMin(), matrix.floatMin(), 0f);
+        assertEquals(dense.floatMax(), matrix.floatMax(), 0f);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class DoubleTensorTest {
+
+    private static final double ACCURACY = 1e-12;
+
+    public DoubleTensorTest() {
+    }
+
+    @Test
+    public void testSetGet() {
+        DoubleTensor t = new DoubleTensor(2, 3, 4);
+        t.setDoubleValue(Math.PI, 1, 2, 3);
+        assertEquals(Math.PI, t.values[1 + 2 * 2 + 2 * 3 * 3], 0);
+        assertEquals(Math.PI, t.get(1, 2, 3), 0);
+        assertEquals((float) Math.PI, t.getFloatValue(1, 2, 3), 0f);
+        assertEquals(3, t.getShortValue(1, 2, 3));
+        t.set(-1e300, 0, 0, 0);
+        assertEquals(Byte.MIN_VALUE, t.getByteValue(0, 0, 0));
+        assertEquals(-1e300, t.getFlat(0), 0);
+    }
+
+    @Test
+    public void testAccumulation() {
+        // a float accumulator would stop growing at 2^24
+        DoubleTensor t = new DoubleTensor(1);
+        for (int i = 0; i < 20000000; i++) {
+            t.values[0] += 1;
+        }
+        assertEquals(20000000.0, t.doubleSum(), 0);
+
+        DoubleTensor small = new DoubleTensor(1000);
+        small.fill(0.1);
+        assertEquals(100.0, small.doubleSum(), 1e-10);
+        assertEquals(0.1, small.doubleAverage(), ACCURACY);
+    }
+
+    @Test
+    public void testReductions() {
+        DoubleTensor t = new DoubleTensor(4);
+        t.setDoubleArray(new double[]{-5, -2, -1, -3});
+        assertEquals(-5, t.doubleMin(), 0);
+        assertEquals(-1, t.doubleMax(), 0);
+        assertEquals(-1f, t.floatMax(), 0f);
+        assertEquals(-11, ((DoubleTensor) t.sum()).values[0], 0);
+    }
+
+    @Test
+    public void testArithmetic() {
+        DoubleTensor t = new DoubleTensor(3);
+        t.setDoubleArray(new double[]{1, 2, 3});
+        t.add(0.5);
+        t.multiply(2.0);
+        t.substract(1.0);
+        t.divide(2.0);
+        assertArrayEquals(new double[]{1, 2, 3}, t.values, ACCURACY);
+        t.processDouble(Math::log);
+        assertArrayEquals(new double[]{0, Math.log(2), Math.log(3)}, t.values, ACCURACY);
+        t.negate();
+        t.abs();
+        assertArrayEquals(new double[]{0, Math.log(2), Math.log(3)}, t.values, ACCURACY);
+    }
+
+    @Test
+    public void testMultiplyAndConvolve() {
+        DoubleTensor a = new DoubleTensor(5, 7);
+        a.randomize(-1.0, 1.0);
+        DoubleTensor b = new DoubleTensor(7, 3);
+        b.randomize(-1.0, 1.0);
+        DoubleTensor c = (DoubleTensor) a.multiply(b, 1);
+        assertArrayEquals(new int[]{5, 3}, c.dimensions);
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 3; j++) {
+                double expected = 0;
+                for (int k = 0; k < 7; k++) {
+                    expected += a.get(i, k) * b.get(k, j);
+                }
+                assertEquals(expected, c.get(i, j), ACCURACY);
+            }
+        }
+
+        FloatTensor floats = new FloatTensor(6, 5);
+        floats.randomize(-1f, 1f);
+        FloatTensor kernel = new FloatTensor(3, 3);
+        kernel.randomize(-1f, 1f);
+        FloatTensor expected = (FloatTensor) floats.convolve(kernel);
+        DoubleTensor actual = (DoubleTensor) floats.convertTo(Tensor.TYPE.DOUBLE)
+                .convolve(kernel.convertTo(Tensor.TYPE.DOUBLE));
+        for (int i = 0; i < expected.values.length; i++) {
+            assertEquals(expected.values[i], actual.values[i], 1e-5);
+        }
+    }
+
+    @Test
+    public void testConvert() {
+        DoubleTensor t = new DoubleTensor(3);
+        t.setDoubleArray(new double[]{1.5, -1e12, 7});
+        assertArrayEquals(new int[]{1, -Integer.MAX_VALUE, 7},
+                ((IntTensor) t.convertTo(Tensor.TYPE.INT)).values);
+        assertArrayEquals(new long[]{1, -1000000000000L, 7},
+                ((LongTensor) t.convertTo(Tensor.TYPE.LONG)).values);
+        assertEquals(t, t.convertTo(Tensor.TYPE.OBJECT).convertTo(Tensor.TYPE.DOUBLE));
+
+        ObjectTensor counts = new ObjectTensor(2);
+        counts.values[0] = 3;
+        counts.values[1] = 4L;
+        assertArrayEquals(new double[]{3, 4}, ((DoubleTensor) counts.convertTo(Tensor.TYPE.DOUBLE)).values, 0);
+        TensorView view = t.view().flip(0);
+        assertEquals(7f, view.getFloatValue(0), 0f);
+        assertArrayEquals(new double[]{7, -1e12, 1.5}, ((DoubleTensor) view.toTensor()).values, 0);
+    }
+}
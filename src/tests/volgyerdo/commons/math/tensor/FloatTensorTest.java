@@ -15,8 +15,12 @@
  */
 package volgyerdo.commons.math.tensor;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.Test;
+import volgyerdo.commons.math.fast.FastMath;
 import static org.junit.Assert.*;
+import volgyerdo.commons.primitive.ArrayUtils;
 import volgyerdo.commons.primitive.PrimitiveUtils;
 
 /**
@@ -821,6 +825,69 @@ public class FloatTensorTest {
         assertEquals("2D-4D multiplication (2,3)", 1, c.getFloatValue(2, 3), FLOATING_VALUE_ACCURACY);
     }
 
+    @Test
+    public void testMultiplyBlocked() {
+        assertMultiply(new int[]{300, 150}, new int[]{150, 70}, 1);
+        assertMultiply(new int[]{5, 4, 6}, new int[]{4, 6, 3}, 2);
+        assertMultiply(new int[]{130}, new int[]{130, 7}, 1);
+        assertMultiply(new int[]{9, 3}, new int[]{11}, 0);
+    }
+
+    private void assertMultiply(int[] aDimensions, int[] bDimensions, int depth) {
+        FloatTensor a = new FloatTensor(aDimensions);
+        FloatTensor b = new FloatTensor(bDimensions);
+        a.fillWithFloat(() -> (float) Math.floor(Math.random() * 10 - 5));
+        b.fillWithFloat(() -> (float) Math.floor(Math.random() * 10 - 5));
+        Tensor c = a.multiply(b, depth);
+        int m = a.size() / ArrayUtils.product(Arrays.copyOfRange(bDimensions, 0, depth));
+        int k = a.size() / m;
+        int n = b.size() / k;
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                float expected = 0;
+                for (int p = 0; p < k; p++) {
+                    expected += a.values[i + m * p] * b.values[p + k * j];
+                }
+                assertEquals("Blocked multiplication (" + i + "," + j + ")",
+                        expected, ((FloatTensor) c).values[i + m * j], FLOATING_VALUE_ACCURACY);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelExecutor() {
+        FloatTensor a = new FloatTensor(200, 300);
+        a.randomize(-10f, 10f);
+        FloatTensor b = (FloatTensor) a.copy();
+        b.setExecutor(TensorExecutor.parallel(new ForkJoinPool(4), 1000));
+        a.add(3f);
+        b.add(3f);
+        a.multiply(-2f);
+        b.multiply(-2f);
+        a.hadamardProduct(a.copy());
+        b.hadamardProduct(b.copy());
+        a.processFloat(x -> x / 7);
+        b.processFloat(x -> x / 7);
+        a.abs();
+        b.abs();
+        assertArrayEquals("Parallel element-wise operations", a.values, b.values, 0f);
+    }
+
+    @Test
+    public void testProcessFloatBatch() {
+        FloatTensor a = new FloatTensor(100, 300);
+        a.randomize(-10f, 10f);
+        FloatTensor b = (FloatTensor) a.copy();
+        b.setExecutor(TensorExecutor.parallel(new ForkJoinPool(4), 1000));
+        b.processFloatBatch(FastMath::exp);
+        for (int i = 0; i < a.values.length; i++) {
+            float expected = (float) Math.exp(a.values[i]);
+            assertEquals("Batch exp", expected, b.values[i], expected * 1e-6f);
+        }
+        a.processFloat(FastMath::expf);
+        assertArrayEquals("Scalar and batch exp", a.values, b.values, 0f);
+    }
+
     @Test
     public void testConvolve() {
         Tensor a, kernel, c;
@@ -1115,6 +1182,93 @@ public class FloatTensorTest {
 
     }
     
+    @Test
+    public void testConvolveLargeKernel() {
+        assertConvolve(new int[]{200, 200}, new int[]{15, 15}, new int[]{200, 200}, false);
+        assertConvolve(new int[]{240, 240}, new int[]{16, 16}, new int[]{240, 240}, false);
+        assertConvolve(new int[]{40, 40, 40}, new int[]{9, 9, 9}, new int[]{40, 40, 40}, false);
+        assertConvolve(new int[]{200, 200}, new int[]{25, 25}, new int[]{150, 151}, true);
+    }
+
+    @Test
+    public void testConvolveDirect() {
+        assertConvolve(new int[]{30, 20}, new int[]{3, 3}, new int[]{30, 20}, false);
+        assertConvolve(new int[]{7, 6, 5}, new int[]{3, 2, 5}, new int[]{7, 6, 5}, false);
+        assertConvolve(new int[]{9, 9}, new int[]{4, 3}, new int[]{5, 12}, true);
+        assertConvolve(new int[]{17}, new int[]{20}, new int[]{17}, false);
+    }
+
+    @Test
+    public void testFlatAccessors() {
+        FloatTensor a = new FloatTensor(3, 4, 5);
+        a.randomize(-1f, 1f);
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 4; j++) {
+                for (int k = 0; k < 5; k++) {
+                    assertEquals(a.getFloatValue(i, j, k), a.get(i, j, k), 0f);
+                }
+            }
+        }
+        a.set(7f, 2, 3, 4);
+        assertEquals(7f, a.getFlat(a.size() - 1), 0f);
+        a.setFlat(0, -1f);
+        assertEquals(-1f, a.getFloatValue(0, 0, 0), 0f);
+        FloatTensor b = new FloatTensor(6, 2);
+        b.set(5f, 4, 1);
+        assertEquals(5f, b.get(4, 1), 0f);
+        assertEquals(5f, b.getFloatValue(4, 1), 0f);
+
+        FloatTensor t = (FloatTensor) a.transpose();
+        FloatTensor r = (FloatTensor) a.rotate();
+        assertArrayEquals(new int[]{5, 4, 3}, t.dimensions);
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 4; j++) {
+                for (int k = 0; k < 5; k++) {
+                    assertEquals(a.get(i, j, k), t.get(k, j, i), 0f);
+                    assertEquals(a.get(i, j, k), r.get(2 - i, 3 - j, 4 - k), 0f);
+                }
+            }
+        }
+        try {
+            a.get(1, 2);
+            fail("Two indices were accepted for a rank 3 tensor.");
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            b.set(1f, 0, 0, 0);
+            fail("Three indices were accepted for a rank 2 tensor.");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    private void assertConvolve(int[] dimensions, int[] kernelDimensions, int[] outputDimensions, boolean partial) {
+        FloatTensor a = new FloatTensor(dimensions);
+        FloatTensor kernel = new FloatTensor(kernelDimensions);
+        a.randomize(-1f, 1f);
+        kernel.randomize(-1f, 1f);
+        FloatTensor c = (FloatTensor) (partial ? a.convolvePartial(kernel, outputDimensions) : a.convolve(kernel));
+        IndexIterator iterator = c.indexIterator();
+        int[] position = new int[dimensions.length];
+        while (iterator.hasNext()) {
+            int[] d = iterator.next();
+            float expected = 0;
+            IndexIterator kernelIterator = kernel.indexIterator();
+            kernelLoop:
+            while (kernelIterator.hasNext()) {
+                int[] e = kernelIterator.next();
+                for (int i = 0; i < dimensions.length; i++) {
+                    int shift = partial ? dimensions[i] / 2 - outputDimensions[i] / 2 : 0;
+                    position[i] = shift + d[i] + e[i] - kernelDimensions[i] / 2;
+                    if (position[i] < 0 || position[i] >= dimensions[i]) {
+                        continue kernelLoop;
+                    }
+                }
+                expected += a.getFloatValue(position) * kernel.getFloatValue(e);
+            }
+            assertEquals("Convolution", expected, c.getFloatValue(d), 1e-3);
+        }
+    }
+
     @Test
     public void testConvolvePartial(){
         Tensor a, kernel, c;
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.StreamSupport;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class IndexIteratorTest {
+
+    public IndexIteratorTest() {
+    }
+
+    @Test
+    public void testOffset() {
+        FloatTensor tensor = new FloatTensor(3, 4, 5);
+        IndexIterator iterator = tensor.indexIterator();
+        int count = 0;
+        int[] expected = new int[3];
+        while (iterator.hasNext()) {
+            int[] index = iterator.next();
+            assertArrayEquals("Index order", expected, index);
+            assertEquals("Offset", tensor.index(index), iterator.offset());
+            for (int i = 2; i >= 0 && ++expected[i] == tensor.dimensions[i]; i--) {
+                expected[i] = 0;
+            }
+            count++;
+        }
+        assertEquals(60, count);
+    }
+
+    @Test
+    public void testRange() {
+        int[] dimensions = {4, 3, 7};
+        IndexIterator full = new IndexIterator(dimensions);
+        int[][] indices = new int[84][];
+        int[] offsets = new int[84];
+        for (int i = 0; full.hasNext(); i++) {
+            indices[i] = full.next().clone();
+            offsets[i] = full.offset();
+        }
+        for (int from = 0; from <= 84; from += 5) {
+            IndexIterator range = new IndexIterator(dimensions, from, Math.min(84, from + 9));
+            for (int i = from; i < Math.min(84, from + 9); i++) {
+                assertTrue(range.hasNext());
+                assertArrayEquals("Range index", indices[i], range.next());
+                assertEquals("Range offset", offsets[i], range.offset());
+            }
+            assertFalse(range.hasNext());
+        }
+    }
+
+    @Test
+    public void testForEachIndex() {
+        FloatTensor tensor = new FloatTensor(20, 30, 40);
+        tensor.setExecutor(TensorExecutor.parallel(new ForkJoinPool(4), 1000));
+        AtomicIntegerArray visits = new AtomicIntegerArray(tensor.size());
+        tensor.forEachIndex((index, offset) -> {
+            assertEquals(tensor.index(index), offset);
+            visits.incrementAndGet(offset);
+        });
+        for (int i = 0; i < tensor.size(); i++) {
+            assertEquals("Visit count", 1, visits.get(i));
+        }
+    }
+
+    @Test
+    public void testSpliterator() {
+        int[] dimensions = {5, 6, 7};
+        Spliterator.OfInt spliterator = new IndexIterator(dimensions).spliterator();
+        assertEquals(210, spliterator.estimateSize());
+        int[] offsets = StreamSupport.intStream(spliterator, true).toArray();
+        int[] expected = new int[210];
+        IndexIterator iterator = new IndexIterator(dimensions);
+        for (int i = 0; iterator.hasNext(); i++) {
+            expected[i] = iterator.nextOffset();
+        }
+        assertArrayEquals("Parallel offsets", expected, offsets);
+        int[] sorted = offsets.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            assertEquals(i, sorted[i]);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class IntTensorTest {
+
+    public IntTensorTest() {
+    }
+
+    @Test
+    public void testSetGet() {
+        IntTensor t = new IntTensor(4, 5, 6);
+        t.setIntValue(100000, 1, 2, 3);
+        assertEquals(100000, t.values[1 + 4 * 2 + 4 * 5 * 3]);
+        assertEquals(100000, t.get(1, 2, 3));
+        assertEquals(Short.MAX_VALUE, t.getShortValue(1, 2, 3));
+        assertEquals(100000f, t.getFloatValue(1, 2, 3), 0f);
+        t.setFloatValue(1e20f, 0, 0, 0);
+        assertEquals(Integer.MAX_VALUE, t.getFlat(0));
+        t.set(-7, 3, 4, 0);
+        assertEquals(-7, t.getIntValue(3, 4, 0));
+        try {
+            t.set(-7, 3, 4);
+            fail("Two indices were accepted for a rank 3 tensor.");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void testHistogram() {
+        IntTensor histogram = new IntTensor(10);
+        for (int i = 0; i < 1000; i++) {
+            histogram.increment(i % 10);
+        }
+        assertEquals(100, histogram.intMin());
+        assertEquals(100, histogram.intMax());
+        assertEquals(1000, histogram.intSum());
+        assertEquals(100, histogram.intAverage());
+        assertEquals(1000, ((IntTensor) histogram.sum()).values[0]);
+    }
+
+    @Test
+    public void testArithmetic() {
+        IntTensor t = new IntTensor(3);
+        t.setIntArray(new int[]{1, -2, 3});
+        t.add(10);
+        assertArrayEquals(new int[]{11, 8, 13}, t.values);
+        t.multiply(1000000);
+        t.divide(1000000);
+        assertArrayEquals(new int[]{11, 8, 13}, t.values);
+        t.multiply(0.5f);
+        assertArrayEquals(new int[]{5, 4, 6}, t.values);
+        t.substract((byte) 5);
+        t.negate();
+        assertArrayEquals(new int[]{0, 1, -1}, t.values);
+        t.abs();
+        assertArrayEquals(new int[]{0, 1, 1}, t.values);
+        t.processInt(x -> x * 3);
+        assertArrayEquals(new int[]{0, 3, 3}, t.values);
+        IntTensor other = new IntTensor(3);
+        other.fill(Integer.MAX_VALUE);
+        other.hadamardProduct(t);
+        assertArrayEquals(new int[]{0, Integer.MAX_VALUE, Integer.MAX_VALUE}, other.values);
+    }
+
+    @Test
+    public void testFloatNarrowing() {
+        IntTensor t = new IntTensor(4);
+        t.setFloatValue(Float.NaN, 0);
+        t.setFloatValue(-3e9f, 1);
+        t.setFloatValue(3e9f, 2);
+        t.setFloatValue(Integer.MIN_VALUE, 3);
+        assertArrayEquals(new int[]{0, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE}, t.values);
+        t.fill(Float.NaN);
+        assertArrayEquals(new int[]{0, 0, 0, 0}, t.values);
+        t.setIntArray(new int[]{Integer.MIN_VALUE, -1, 1, Integer.MAX_VALUE});
+        t.multiply(2f);
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, -2, 2, Integer.MAX_VALUE}, t.values);
+        t.add(Float.NaN);
+        assertArrayEquals(new int[]{0, 0, 0, 0}, t.values);
+        t.fill(-1);
+        t.substract(Float.POSITIVE_INFINITY);
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE}, t.values);
+        t.processFloat(x -> x / 0f);
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE}, t.values);
+        t.fillWithFloat(() -> Float.NaN);
+        assertArrayEquals(new int[]{0, 0, 0, 0}, t.values);
+    }
+
+    @Test
+    public void testMultiplyAndConvolve() {
+        IntTensor a = new IntTensor(2, 3);
+        a.fillWithInt(() -> 2);
+        IntTensor b = new IntTensor(3, 2);
+        b.fill(3);
+        IntTensor c = (IntTensor) a.multiply(b, 1);
+        assertArrayEquals(new int[]{2, 2}, c.dimensions);
+        assertArrayEquals(new int[]{18, 18, 18, 18}, c.values);
+
+        IntTensor source = new IntTensor(5);
+        source.setIntArray(new int[]{1, 2, 3, 4, 5});
+        IntTensor kernel = new IntTensor(3);
+        kernel.setIntArray(new int[]{1, 1, 1});
+        assertArrayEquals(new int[]{3, 6, 9, 12, 9}, ((IntTensor) source.convolve(kernel)).values);
+    }
+
+    @Test
+    public void testConvert() {
+        IntTensor t = new IntTensor(2, 2);
+        t.setIntValue(70000, 0, 0);
+        t.setIntValue(-3, 1, 1);
+        ShortTensor shorts = (ShortTensor) t.convertTo(Tensor.TYPE.SHORT);
+        assertEquals(Short.MAX_VALUE, shorts.values[0]);
+        assertEquals(-3, ((IntTensor) shorts.convertTo(Tensor.TYPE.INT)).values[3]);
+        assertEquals(t, t.convertTo(Tensor.TYPE.LONG).convertTo(Tensor.TYPE.INT));
+        assertEquals(t, t.convertTo(Tensor.TYPE.DOUBLE).convertTo(Tensor.TYPE.INT));
+        assertEquals(t, t.convertTo(Tensor.TYPE.OBJECT).convertTo(Tensor.TYPE.INT));
+        assertTrue(Tensor.create(Tensor.TYPE.INT, 3) instanceof IntTensor);
+        assertEquals(t, t.transpose().transpose());
+        assertEquals(t, t.rotate().rotate());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class LongTensorTest {
+
+    public LongTensorTest() {
+    }
+
+    @Test
+    public void testSetGet() {
+        LongTensor t = new LongTensor(3, 4);
+        t.setLongValue(1L << 40, 2, 3);
+        assertEquals(1L << 40, t.values[2 + 3 * 3]);
+        assertEquals(1L << 40, t.get(2, 3));
+        assertEquals(Byte.MAX_VALUE, t.getByteValue(2, 3));
+        t.setFloatValue(-1e30f, 0, 0);
+        assertEquals(Long.MIN_VALUE, t.getFlat(0));
+        t.setShortValue((short) -5, 1, 1);
+        assertEquals(-5L, t.getLongValue(1, 1));
+    }
+
+    @Test
+    public void testReductions() {
+        LongTensor t = new LongTensor(4);
+        t.setLongArray(new long[]{Integer.MAX_VALUE, Integer.MAX_VALUE, -1, 3});
+        assertEquals(2L * Integer.MAX_VALUE + 2, t.longSum());
+        assertEquals(-1L, t.longMin());
+        assertEquals(Integer.MAX_VALUE, t.longMax());
+        assertEquals((2L * Integer.MAX_VALUE + 2) / 4, t.longAverage());
+        assertEquals(Short.MAX_VALUE, t.shortSum());
+        assertEquals(2L * Integer.MAX_VALUE + 2, ((LongTensor) t.sum()).values[0]);
+    }
+
+    @Test
+    public void testArithmetic() {
+        LongTensor t = new LongTensor(2);
+        t.fillWithLong(() -> 1L << 33);
+        t.add(1L);
+        t.multiply(2L);
+        assertArrayEquals(new long[]{(1L << 34) + 2, (1L << 34) + 2}, t.values);
+        t.processLong(x -> x >> 1);
+        t.substract(1L << 33);
+        t.divide((short) 1);
+        assertArrayEquals(new long[]{1, 1}, t.values);
+
+        LongTensor kernel = new LongTensor(1);
+        kernel.fill(1L << 40);
+        assertArrayEquals(new long[]{1L << 40, 1L << 40}, ((LongTensor) t.convolve(kernel)).values);
+    }
+
+    @Test
+    public void testConvert() {
+        LongTensor t = new LongTensor(3);
+        t.setLongArray(new long[]{Long.MAX_VALUE, 0, -42});
+        IntTensor ints = (IntTensor) t.convertTo(Tensor.TYPE.INT);
+        assertArrayEquals(new int[]{Integer.MAX_VALUE, 0, -42}, ints.values);
+        assertEquals(t, t.convertTo(Tensor.TYPE.OBJECT).convertTo(Tensor.TYPE.LONG));
+        assertEquals(t, t.copy());
+        assertEquals("[9223372036854775807][0][-42]", t.toString());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class OffHeapFloatTensorTest {
+
+    private static final float ACCURACY = 1e-4f;
+
+    public OffHeapFloatTensorTest() {
+    }
+
+    @Test
+    public void testAccess() {
+        try (OffHeapFloatTensor tensor = OffHeapFloatTensor.chunked(4, 5, 7, 3)) {
+            assertEquals(105, tensor.size());
+            tensor.setFloatValue(2.5f, 4, 6, 2);
+            assertEquals(2.5f, tensor.getFloatValue(4, 6, 2), 0f);
+            assertEquals(2.5f, tensor.getFlat(104), 0f);
+            assertEquals(4 + 5 * 6 + 35 * 2, tensor.index(4, 6, 2));
+            tensor.setFlat(17, -1f);
+            assertEquals(-1f, tensor.getFloatValue(2, 3, 0), 0f);
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        FloatTensor source = new FloatTensor(13, 11);
+        source.randomize(-5f, 5f);
+        try (OffHeapFloatTensor tensor = OffHeapFloatTensor.chunked(5, 13, 11)) {
+            tensor.setFloats(0, source.values, 0, source.values.length);
+            for (int i = 0; i < source.values.length; i++) {
+                assertEquals(source.values[i], tensor.getFlat(i), 0f);
+            }
+            float[] part = new float[50];
+            tensor.getFloats(20, part, 0, 50);
+            for (int i = 0; i < 50; i++) {
+                assertEquals(source.values[20 + i], part[i], 0f);
+            }
+            assertArrayEquals(source.values, tensor.toFloatTensor().values, 0f);
+        }
+        try (OffHeapFloatTensor tensor = OffHeapFloatTensor.of(source)) {
+            assertArrayEquals(source.values, tensor.toFloatTensor().values, 0f);
+        }
+    }
+
+    @Test
+    public void testOperations() {
+        FloatTensor a = new FloatTensor(40, 50);
+        FloatTensor b = new FloatTensor(40, 50);
+        a.randomize(-5f, 5f);
+        b.randomize(1f, 2f);
+        try (OffHeapFloatTensor x = OffHeapFloatTensor.chunked(6, 40, 50);
+                OffHeapFloatTensor y = OffHeapFloatTensor.chunked(6, 40, 50)) {
+            x.setExecutor(TensorExecutor.parallel(new ForkJoinPool(3), 100));
+            x.setFloats(0, a.values, 0, a.values.length);
+            y.setFloats(0, b.values, 0, b.values.length);
+            x.add(3f);
+            a.add(3f);
+            x.multiply(2f);
+            a.multiply(2f);
+            x.hadamardProduct(y);
+            a.hadamardProduct(b);
+            x.substract(y);
+            a.substract(b);
+            x.processFloat(v -> v * v);
+            a.processFloat(v -> v * v);
+            x.divide(4f);
+            a.divide(4f);
+            assertArrayEquals(a.values, x.toFloatTensor().values, 0f);
+            assertEquals(a.floatSum(), x.floatSum(), Math.abs(a.floatSum()) * ACCURACY);
+            assertEquals(a.floatMin(), x.floatMin(), 0f);
+            assertEquals(a.floatMax(), x.floatMax(), 0f);
+            x.fill(1.5f);
+            assertEquals(1.5f, x.floatAverage(), 0f);
+        }
+    }
+
+    @Test
+    public void testMinMaxSkipNaN() {
+        try (OffHeapFloatTensor tensor = OffHeapFloatTensor.chunked(2, 3, 3)) {
+            tensor.setFloats(0, new float[]{Float.NaN, 2f, -1f, 4f, Float.NaN, 0f, 3f, 1f, Float.NaN}, 0, 9);
+            assertEquals(-1f, tensor.floatMin(), 0f);
+            assertEquals(4f, tensor.floatMax(), 0f);
+        }
+    }
+
+    @Test
+    public void testClose() {
+        OffHeapFloatTensor tensor = new OffHeapFloatTensor(10, 10);
+        assertFalse(tensor.isClosed());
+        tensor.close();
+        assertTrue(tensor.isClosed());
+        tensor.close();
+        try {
+            tensor.getFlat(0);
+            fail("Closed tensor was readable.");
+        } catch (IllegalStateException ex) {
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBounds() {
+        try (OffHeapFloatTensor tensor = new OffHeapFloatTensor(10, 10)) {
+            tensor.getFloatValue(10, 0);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class QuantizedTensorTest {
+
+    public QuantizedTensorTest() {
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Random random = new Random(1);
+        FloatTensor t = new FloatTensor(40, 30);
+        t.fillWithFloat(() -> random.nextFloat() * 3 - 1);
+        QuantizedTensor q = QuantizedTensor.quantize(t);
+        float scale = q.getScales()[0];
+        assertEquals(3f / 255, scale, 1e-3f);
+        FloatTensor d = q.dequantize();
+        for (int i = 0; i < t.values.length; i++) {
+            assertEquals(t.values[i], d.values[i], scale / 2 + 1e-6f);
+        }
+        q = QuantizedTensor.quantize(t, 1);
+        assertEquals(30, q.getScales().length);
+        assertArrayEquals(new int[30], q.getZeroPoints());
+        d = q.dequantize();
+        for (int j = 0; j < 30; j++) {
+            float s = q.getScales()[j];
+            float max = 0;
+            for (int i = 0; i < 40; i++) {
+                max = Math.max(max, Math.abs(t.getFloatValue(i, j)));
+                assertEquals(t.getFloatValue(i, j), d.getFloatValue(i, j), s / 2 + 1e-6f);
+            }
+            assertEquals(max / 127, s, 1e-7f);
+        }
+        QuantizedTensor zero = QuantizedTensor.quantize(new FloatTensor(3));
+        assertArrayEquals(new float[3], zero.dequantize().values, 0f);
+    }
+
+    @Test
+    public void testMultiplyToInt() {
+        Random random = new Random(2);
+        int[][][] shapes = {{{37, 53}, {53, 29}}, {{1, 9}, {9, 1}}, {{4, 3, 5}, {3, 5, 2}},
+            {{257, 300}, {300, 3}}};
+        int[] depths = {1, 1, 2, 1};
+        int[] common = {53, 9, 15, 300};
+        for (int s = 0; s < shapes.length; s++) {
+            ByteTensor a = new ByteTensor(shapes[s][0]);
+            random.nextBytes(a.values);
+            ByteTensor b = new ByteTensor(shapes[s][1]);
+            random.nextBytes(b.values);
+            IntTensor c = a.multiplyToInt(b, depths[s]);
+            int k = common[s];
+            int m = a.values.length / k;
+            int n = b.values.length / k;
+            for (int j = 0; j < n; j++) {
+                for (int i = 0; i < m; i++) {
+                    int sum = 0;
+                    for (int p = 0; p < k; p++) {
+                        sum += a.values[i + m * p] * b.values[p + k * j];
+                    }
+                    assertEquals(sum, c.values[i + m * j]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMultiply() {
+        Random random = new Random(3);
+        FloatTensor x = new FloatTensor(20, 70);
+        x.fillWithFloat(() -> random.nextFloat() * 2 - 0.5f);
+        FloatTensor w = new FloatTensor(70, 15);
+        w.fillWithFloat(() -> (float) random.nextGaussian());
+        QuantizedTensor qx = QuantizedTensor.quantize(x);
+        QuantizedTensor qw = QuantizedTensor.quantize(w, 1);
+        assertProduct(qx, qw);
+        float[] scales = new float[20];
+        int[] zeroPoints = new int[20];
+        for (int i = 0; i < 20; i++) {
+            scales[i] = 0.01f + i * 0.001f;
+            zeroPoints[i] = i * 11 - 100;
+        }
+        QuantizedTensor rows = QuantizedTensor.quantize(x, 0, scales, zeroPoints);
+        QuantizedTensor columns = new QuantizedTensor(qw.getValues(), 0.02f, 17);
+        assertProduct(rows, columns);
+        try {
+            qw.multiply(QuantizedTensor.quantize(new FloatTensor(15, 4), 0), 1);
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void testDepthLimit() {
+        int k = Int8Kernel.MAX_TERMS;
+        ByteTensor a = new ByteTensor(1, k);
+        a.fill(Byte.MAX_VALUE);
+        ByteTensor b = new ByteTensor(k, 1);
+        b.fill(Byte.MIN_VALUE);
+        FloatTensor product = new QuantizedTensor(a, 1f, Byte.MIN_VALUE)
+                .multiply(new QuantizedTensor(b, 1f, Byte.MAX_VALUE), 1);
+        assertEquals(-255f * 255 * k, product.values[0], 0f);
+        QuantizedTensor longer = new QuantizedTensor(new ByteTensor(1, k + 1), 1f, 0);
+        try {
+            longer.multiply(new QuantizedTensor(new ByteTensor(k + 1, 1), 1f, 0), 1);
+            fail("Inexact int sums were accepted.");
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            longer.convolve(longer);
+            fail("Inexact int sums were accepted.");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    private static void assertProduct(QuantizedTensor a, QuantizedTensor b) {
+        FloatTensor expected = (FloatTensor) a.dequantize().multiply(b.dequantize(), 1);
+        FloatTensor product = a.multiply(b, 1);
+        assertArrayEquals(expected.dimensions, product.dimensions);
+        for (int i = 0; i < expected.values.length; i++) {
+            assertEquals(expected.values[i], product.values[i], 1e-4f * (1 + Math.abs(expected.values[i])));
+        }
+    }
+
+    @Test
+    public void testConvolve() {
+        Random random = new Random(4);
+        ByteTensor image = new ByteTensor(19, 13);
+        random.nextBytes(image.values);
+        ByteTensor kernel = new ByteTensor(5, 4);
+        random.nextBytes(kernel.values);
+        IntTensor sums = image.convolveToInt(kernel);
+        for (int y = 0; y < 13; y++) {
+            for (int x = 0; x < 19; x++) {
+                int sum = 0;
+                for (int v = 0; v < 4; v++) {
+                    for (int u = 0; u < 5; u++) {
+                        int sx = x + u - 2;
+                        int sy = y + v - 2;
+                        if (sx >= 0 && sx < 19 && sy >= 0 && sy < 13) {
+                            sum += image.getByteValue(sx, sy) * kernel.getByteValue(u, v);
+                        }
+                    }
+                }
+                assertEquals(sum, sums.getIntValue(x, y));
+            }
+        }
+        QuantizedTensor qi = new QuantizedTensor(image, 0.05f, 40);
+        QuantizedTensor qk = new QuantizedTensor(kernel, 0.01f, -3);
+        FloatTensor expected = (FloatTensor) qi.dequantize().convolve(qk.dequantize());
+        FloatTensor result = qi.convolve(qk);
+        for (int i = 0; i < expected.values.length; i++) {
+            assertEquals(expected.values[i], result.values[i], 1e-4f * (1 + Math.abs(expected.values[i])));
+        }
+    }
+}
@@ -1187,4 +1187,27 @@ public class ShortTensorTest {
         assertEquals("1D partial convolution - kernel: [3] (1)", (short) 5, c.getShortValue(1));
         assertEquals("1D partial convolution - kernel: [3] (1)", (short) -9, c.getShortValue(2));
     }
+
+    @Test
+    public void testSaturatingArithmetic() {
+        ShortTensor a = new ShortTensor(3);
+        a.setShortArray(new short[]{30000, -30000, 7});
+        ShortTensor b = new ShortTensor(3);
+        b.setShortArray(new short[]{10000, 10000, -7});
+        a.addSaturating(b);
+        assertArrayEquals(new short[]{Short.MAX_VALUE, -20000, 0}, a.values);
+        a.substractSaturating(b);
+        a.substractSaturating(b);
+        assertArrayEquals(new short[]{12767, Short.MIN_VALUE, 14}, a.values);
+        a.hadamardProduct(b);
+        assertArrayEquals(new short[]{Short.MAX_VALUE, Short.MIN_VALUE, -98}, a.values);
+    }
+
+    @Test
+    public void testLongSum() {
+        ShortTensor a = new ShortTensor(100000);
+        a.fill(Short.MIN_VALUE);
+        assertEquals(-3276800000L, a.longSum());
+        assertEquals(Short.MIN_VALUE, a.shortSum());
+    }
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class SparseFloatTensorTest {
+
+    public SparseFloatTensorTest() {
+    }
+
+    private static FloatTensor sparseRandom(Random random, float density, int... dimensions) {
+        FloatTensor tensor = new FloatTensor(dimensions);
+        tensor.fillWithFloat(() -> random.nextFloat() < density ? random.nextInt(19) - 9 : 0);
+        return tensor;
+    }
+
+    @Test
+    public void testConversionAndAccess() {
+        FloatTensor dense = sparseRandom(new Random(1), 0.1f, 6, 5, 4);
+        SparseFloatTensor sparse = SparseFloatTensor.of(dense);
+        assertArrayEquals(dense.values, sparse.toFloatTensor().values, 0f);
+        int count = 0;
+        for (float value : dense.values) {
+            count += value != 0 ? 1 : 0;
+        }
+        assertEquals(count, sparse.nonZeroCount());
+        assertEquals(dense.getFloatValue(2, 3, 1), sparse.getFloatValue(2, 3, 1), 0f);
+        sparse.setFloatValue(7, 2, 3, 1);
+        sparse.setFloatValue(0, 0, 0, 0);
+        dense.setFloatValue(7, 2, 3, 1);
+        dense.setFloatValue(0, 0, 0, 0);
+        assertArrayEquals(dense.values, sparse.toFloatTensor().values, 0f);
+        SparseFloatTensor empty = new SparseFloatTensor(3, 3);
+        for (int i = 8; i >= 0; i--) {
+            empty.setFlat(i, i + 1);
+        }
+        assertEquals(9, empty.nonZeroCount());
+        assertEquals(5, empty.getFloatValue(1, 1), 0f);
+        empty.setFlat(4, 0);
+        assertEquals(8, empty.nonZeroCount());
+        assertEquals(6, empty.nonZeroIndex(5));
+    }
+
+    @Test
+    public void testElementWise() {
+        Random random = new Random(2);
+        FloatTensor a = sparseRandom(random, 0.3f, 7, 9);
+        FloatTensor b = sparseRandom(random, 0.3f, 7, 9);
+        SparseFloatTensor sa = SparseFloatTensor.of(a);
+        SparseFloatTensor sb = SparseFloatTensor.of(b);
+        sa.add(sb);
+        a.add(b);
+        assertArrayEquals(a.values, sa.toFloatTensor().values, 0f);
+        sa.substract(sb);
+        a.substract(b);
+        assertArrayEquals(a.values, sa.toFloatTensor().values, 0f);
+        sa.substract(SparseFloatTensor.of(a));
+        assertEquals(0, sa.nonZeroCount());
+        sa = SparseFloatTensor.of(a);
+        sa.hadamardProduct(sb);
+        a.hadamardProduct(b);
+        assertArrayEquals(a.values, sa.toFloatTensor().values, 0f);
+        sa = SparseFloatTensor.of(b);
+        sa.hadamardProduct(b);
+        sa.multiply(-2);
+        FloatTensor expected = (FloatTensor) b.copy();
+        expected.hadamardProduct(b);
+        expected.multiply(-2f);
+        assertArrayEquals(expected.values, sa.toFloatTensor().values, 0f);
+        FloatTensor target = (FloatTensor) a.copy();
+        sa.addTo(target);
+        expected.add(a);
+        assertArrayEquals(expected.values, target.values, 0f);
+    }
+
+    @Test
+    public void testReductions() {
+        FloatTensor dense = sparseRandom(new Random(3), 0.2f, 10, 10);
+        SparseFloatTensor sparse = SparseFloatTensor.of(dense);
+        assertEquals(dense.floatSum(), sparse.floatSum(), 0f);
+        assertEquals(dense.floatMin(), sparse.floatMin(), 0f);
+        assertEquals(dense.floatMax(), sparse.floatMax(), 0f);
+        assertEquals(dense.floatAverage(), sparse.floatAverage(), 1e-6f);
+        FloatTensor full = new FloatTensor(2);
+        full.fill(3f);
+        assertEquals(3f, SparseFloatTensor.of(full).floatMin(), 0f);
+    }
+
+    @Test
+    public void testMultiply() {
+        Random random = new Random(4);
+        int[][][] shapes = {{{12, 30}, {30, 7}}, {{3, 4, 5}, {4, 5, 6}}, {{30}, {30}}};
+        int[] depths = {1, 2, 1};
+        for (int s = 0; s < shapes.length; s++) {
+            FloatTensor a = sparseRandom(random, 0.2f, shapes[s][0]);
+            FloatTensor b = sparseRandom(random, 0.5f, shapes[s][1]);
+            FloatTensor expected = (FloatTensor) a.multiply(b, depths[s]);
+            SparseFloatTensor sa = SparseFloatTensor.of(a);
+            sa.setExecutor(TensorExecutor.parallel(new ForkJoinPool(3), 2));
+            assertArrayEquals(expected.values, sa.multiply(b, depths[s]).values, 1e-4f);
+            SparseFloatTensor sb = SparseFloatTensor.of(b);
+            sb.setExecutor(TensorExecutor.parallel(new ForkJoinPool(3), 2));
+            FloatTensor product = SparseFloatTensor.multiply(a, sb, depths[s]);
+            assertArrayEquals(expected.dimensions, product.dimensions);
+            assertArrayEquals(expected.values, product.values, 1e-4f);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDimensionMismatch() {
+        new SparseFloatTensor(3, 4).add(new SparseFloatTensor(4, 3));
+    }
+
+    @Test
+    public void testTensorType() {
+        FloatTensor dense = sparseRandom(new Random(5), 0.2f, 4, 3, 2);
+        Tensor sparse = dense.convertTo(Tensor.TYPE.SPARSE_FLOAT);
+        assertTrue(sparse instanceof SparseFloatTensor);
+        assertEquals(Tensor.TYPE.SPARSE_FLOAT, sparse.type);
+        assertTrue(Tensor.create(Tensor.TYPE.SPARSE_FLOAT, 4, 3) instanceof SparseFloatTensor);
+        assertArrayEquals(dense.values, ((FloatTensor) sparse.convertTo(Tensor.TYPE.FLOAT)).values, 0f);
+        DoubleTensor doubles = (DoubleTensor) sparse.convertTo(Tensor.TYPE.DOUBLE);
+        assertEquals(dense.getFloatValue(1, 2, 1), doubles.values[sparse.index(1, 2, 1)], 0);
+        assertEquals(sparse, sparse.convertTo(Tensor.TYPE.SPARSE_FLOAT));
+        assertEquals(sparse, dense.convertTo(Tensor.TYPE.INT).convertTo(Tensor.TYPE.SPARSE_FLOAT));
+        assertEquals(dense.floatSum(), sparse.floatSum(), 1e-4f);
+        assertEquals(dense.floatSum(), sparse.sum().getFloatValue(0), 1e-4f);
+        TensorStats expected = dense.stats();
+        TensorStats stats = sparse.stats();
+        assertEquals(expected.getCount(), stats.getCount());
+        assertEquals(expected.getMin(), stats.getMin(), 0);
+        assertEquals(expected.getMax(), stats.getMax(), 0);
+        assertEquals(expected.getVariance(), stats.getVariance(), 1e-9);
+    }
+
+    @Test
+    public void testTensorOperations() {
+        Random random = new Random(6);
+        FloatTensor a = sparseRandom(random, 0.3f, 5, 4);
+        FloatTensor b = sparseRandom(random, 0.3f, 4, 3);
+        Tensor sa = SparseFloatTensor.of(a);
+        Tensor sb = SparseFloatTensor.of(b);
+        FloatTensor expected = (FloatTensor) a.multiply(b, 1);
+        assertArrayEquals(expected.values, ((FloatTensor) sa.multiply(b, 1)).values, 1e-4f);
+        assertArrayEquals(expected.values, ((FloatTensor) sa.multiply(sb, 1)).values, 1e-4f);
+        assertArrayEquals(expected.values, ((FloatTensor) a.multiply(sb, 1)).values, 1e-4f);
+        FloatTensor sum = (FloatTensor) a.copy();
+        sum.add(sa);
+        sum.substract(CsrFloatMatrix.of(a));
+        assertArrayEquals(a.values, sum.values, 0f);
+        Tensor doubled = sa.copy();
+        doubled.add(CsrFloatMatrix.of(a));
+        a.multiply(2f);
+        assertEquals(SparseFloatTensor.of(a), doubled);
+        doubled.processFloat(x -> x * x);
+        a.processFloat(x -> x * x);
+        assertArrayEquals(a.values, ((SparseFloatTensor) doubled).toFloatTensor().values, 0f);
+        Tensor transposed = sa.transpose();
+        Tensor rotated = sa.rotate();
+        FloatTensor dense = ((SparseFloatTensor) sa).toFloatTensor();
+        assertArrayEquals(((FloatTensor) dense.transpose()).values,
+                ((SparseFloatTensor) transposed).toFloatTensor().values, 0f);
+        assertArrayEquals(((FloatTensor) dense.rotate()).values,
+                ((SparseFloatTensor) rotated).toFloatTensor().values, 0f);
+    }
+
+    @Test
+    public void testViewAndAxis() {
+        FloatTensor dense = sparseRandom(new Random(7), 0.3f, 6, 5, 4);
+        SparseFloatTensor sparse = SparseFloatTensor.of(dense);
+        FloatTensor expected = (FloatTensor) dense.view().slice(1, 1, 4).permute(2, 0, 1).toTensor();
+        Tensor view = sparse.view().slice(1, 1, 4).permute(2, 0, 1).toTensor();
+        assertTrue(view instanceof SparseFloatTensor);
+        assertArrayEquals(expected.values, ((SparseFloatTensor) view).toFloatTensor().values, 0f);
+        assertEquals(dense.getFloatValue(3, 2, 1), sparse.view().getFloatValue(3, 2, 1), 0f);
+        Tensor reduced = sparse.sum(1);
+        assertEquals(Tensor.TYPE.SPARSE_FLOAT, reduced.type);
+        assertArrayEquals(((FloatTensor) dense.sum(1)).values,
+                ((SparseFloatTensor) reduced).toFloatTensor().values, 1e-4f);
+    }
+
+    @Test
+    public void testDenseOperations() {
+        Random random = new Random(8);
+        FloatTensor dense = sparseRandom(random, 0.3f, 6, 5);
+        FloatTensor kernel = sparseRandom(random, 0.5f, 3, 3);
+        Tensor[] sparseTensors = {SparseFloatTensor.of(dense), CsrFloatMatrix.of(dense)};
+        for (Tensor sparse : sparseTensors) {
+            FloatTensor expected = (FloatTensor) dense.copy();
+            sparse.add(1.5f);
+            expected.add(1.5f);
+            sparse.substract((short) 2);
+            expected.substract((short) 2);
+            assertArrayEquals(expected.values, ((SparseTensor) sparse).toFloatTensor().values, 0f);
+            sparse.processFloat(x -> x * x - 0.25f);
+            expected.processFloat(x -> x * x - 0.25f);
+            assertArrayEquals(expected.values, ((SparseTensor) sparse).toFloatTensor().values, 0f);
+            sparse.fill(0f);
+            assertEquals(0, ((SparseTensor) sparse).nonZeroCount());
+            sparse.fill(3f);
+            assertEquals(30, ((SparseTensor) sparse).nonZeroCount());
+            assertEquals(90f, sparse.floatSum(), 0f);
+            sparse.set(SparseFloatTensor.of(dense));
+            sparse.divide(0f);
+            expected = (FloatTensor) dense.copy();
+            expected.divide(0f);
+            assertArrayEquals(expected.values, ((SparseTensor) sparse).toFloatTensor().values, 0f);
+            Random first = new Random(10);
+            Random second = new Random(10);
+            sparse.fillWithFloat(() -> first.nextInt(3));
+            expected.fillWithFloat(() -> second.nextInt(3));
+            assertArrayEquals(expected.values, ((SparseTensor) sparse).toFloatTensor().values, 0f);
+            sparse.randomize(1f, 2f);
+            assertEquals(30, ((SparseTensor) sparse).nonZeroCount());
+            assertTrue(sparse.floatMin() >= 1f && sparse.floatMax() <= 2f);
+            sparse.set(SparseFloatTensor.of(dense));
+            Tensor convolved = sparse.convolve(SparseFloatTensor.of(kernel));
+            assertTrue(convolved instanceof FloatTensor);
+            assertArrayEquals(((FloatTensor) dense.convolve(kernel)).values,
+                    ((FloatTensor) convolved).values, 1e-5f);
+            assertArrayEquals(((FloatTensor) dense.convolvePartial(kernel, 4, 3)).values,
+                    ((FloatTensor) sparse.convolvePartial(kernel, 4, 3)).values, 1e-5f);
+        }
+    }
+
+    @Test
+    public void testDenseHadamardProduct() {
+        Random random = new Random(11);
+        FloatTensor a = sparseRandom(random, 0.9f, 7, 6);
+        FloatTensor b = sparseRandom(random, 0.3f, 7, 6);
+        FloatTensor expected = (FloatTensor) a.copy();
+        expected.hadamardProduct(b);
+        FloatTensor product = (FloatTensor) a.copy();
+        product.hadamardProduct(SparseFloatTensor.of(b));
+        assertArrayEquals(expected.values, product.values, 0f);
+        product = (FloatTensor) a.copy();
+        product.hadamardProduct(CsrFloatMatrix.of(b));
+        assertArrayEquals(expected.values, product.values, 0f);
+        try {
+            a.hadamardProduct(new SparseFloatTensor(6, 7));
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void testOperandErrors() {
+        SparseFloatTensor sparse = SparseFloatTensor.of(sparseRandom(new Random(8), 0.3f, 4, 4));
+        try {
+            sparse.add(new FloatTensor(4, 4));
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            sparse.getFloatValue(4, 0);
+            fail();
+        } catch (IndexOutOfBoundsException ex) {
+        }
+    }
+}
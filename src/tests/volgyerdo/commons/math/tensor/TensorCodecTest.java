@@ -0,0 +1,312 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class TensorCodecTest {
+
+    public TensorCodecTest() {
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        ByteTensor bytes = new ByteTensor(300, 301);
+        bytes.randomize((byte) -128, (byte) 127);
+        ShortTensor shorts = new ShortTensor(70, 40, 30);
+        shorts.randomize(Short.MIN_VALUE, Short.MAX_VALUE);
+        FloatTensor floats = new FloatTensor(500, 300);
+        floats.randomize(-1f, 1f);
+        floats.values[0] = Float.NaN;
+        floats.values[1] = Float.NEGATIVE_INFINITY;
+        ObjectTensor objects = new ObjectTensor(3, 2);
+        for (int i = 0; i < objects.values.length; i++) {
+            objects.values[i] = "value " + i;
+        }
+        DoubleTensor doubles = new DoubleTensor(400, 200);
+        doubles.randomize(-1.0, 1.0);
+        IntTensor ints = new IntTensor(70000);
+        ints.randomize(Integer.MIN_VALUE / 2, Integer.MAX_VALUE / 2);
+        LongTensor longs = new LongTensor(3);
+        longs.setLongArray(new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE});
+        for (TensorCodec.Compression compression : TensorCodec.Compression.values()) {
+            TensorCodec codec = new TensorCodec(compression);
+            assertEquals(bytes, codec.decode(codec.encode(bytes)));
+            assertEquals(shorts, codec.decode(codec.encode(shorts)));
+            if (compression != TensorCodec.Compression.DELTA) {
+                FloatTensor decoded = (FloatTensor) codec.decode(codec.encode(floats));
+                assertArrayEquals(floats.dimensions, decoded.dimensions);
+                assertArrayEquals(floats.values, decoded.values, 0f);
+                ObjectTensor decodedObjects = (ObjectTensor) codec.decode(codec.encode(objects));
+                assertArrayEquals(objects.dimensions, decodedObjects.dimensions);
+                assertArrayEquals(objects.values, decodedObjects.values);
+                assertEquals(doubles, codec.decode(codec.encode(doubles)));
+                assertEquals(ints, codec.decode(codec.encode(ints)));
+                assertEquals(longs, codec.decode(codec.encode(longs)));
+            }
+        }
+    }
+
+    @Test
+    public void testCompression() throws IOException {
+        ShortTensor signal = new ShortTensor(100000);
+        for (int i = 0; i < signal.values.length; i++) {
+            signal.values[i] = (short) (10000 * Math.sin(i / 1000.0));
+        }
+        int plain = new TensorCodec().encode(signal).length;
+        byte[] delta = new TensorCodec(TensorCodec.Compression.DELTA).encode(signal);
+        byte[] deflate = new TensorCodec(TensorCodec.Compression.DEFLATE).encode(signal);
+        assertTrue(plain >= 2 * signal.size());
+        assertTrue(delta.length < plain * 3 / 4);
+        assertTrue(deflate.length < plain);
+        assertEquals(signal, new TensorCodec().decode(delta));
+        assertEquals(signal, new TensorCodec().decode(deflate));
+
+        try {
+            new TensorCodec(TensorCodec.Compression.DELTA).encode(new FloatTensor(2, 2));
+            fail("Delta compression accepted a float tensor.");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        TensorCodec codec = new TensorCodec(TensorCodec.Compression.DEFLATE);
+        ByteTensor first = new ByteTensor(10, 10);
+        first.randomize((byte) 0, (byte) 5);
+        ShortTensor second = new ShortTensor(3, 4);
+        second.randomize((short) -5, (short) 5);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.writeTo(first, out);
+        new TensorCodec().writeTo(second, out);
+        out.write(42);
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        assertEquals(first, codec.readFrom(in));
+        assertEquals(second, codec.readFrom(in));
+        assertEquals(42, in.read());
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        ByteTensor second = new ByteTensor(2, 3);
+        second.randomize((byte) -5, (byte) 5);
+        for (TensorCodec.Compression compression : TensorCodec.Compression.values()) {
+            TensorCodec codec = new TensorCodec(compression);
+            Tensor[] empties = compression == TensorCodec.Compression.DELTA
+                    ? new Tensor[]{new ByteTensor(0, 3), new ShortTensor(4, 0)}
+                    : new Tensor[]{new ByteTensor(0, 3), new ShortTensor(4, 0), new FloatTensor(0),
+                        new ObjectTensor(2, 0), new DoubleTensor(0), new IntTensor(0), new LongTensor(0)};
+            for (Tensor empty : empties) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                codec.writeTo(empty, out);
+                codec.writeTo(second, out);
+                ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+                Tensor decoded = codec.readFrom(in);
+                assertEquals(empty.type, decoded.type);
+                assertArrayEquals(empty.dimensions, decoded.dimensions);
+                assertEquals(second, codec.readFrom(in));
+                assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    @Test
+    public void testByteBuffer() throws IOException {
+        TensorCodec codec = new TensorCodec(TensorCodec.Compression.DELTA);
+        ByteTensor tensor = new ByteTensor(50, 20);
+        tensor.randomize((byte) -10, (byte) 10);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        buffer.putInt(7);
+        codec.writeTo(tensor, buffer);
+        codec.writeTo(tensor, buffer);
+        buffer.flip();
+        assertEquals(7, buffer.getInt());
+        assertEquals(tensor, codec.readFrom(buffer));
+        assertEquals(tensor, codec.readFrom(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testCorrupt() {
+        byte[] encoded = new TensorCodec(TensorCodec.Compression.DEFLATE).encode(new FloatTensor(40, 40));
+        for (int length : new int[]{0, 3, 10, encoded.length - 1}) {
+            try {
+                new TensorCodec().decode(Arrays.copyOf(encoded, length));
+                fail("Truncated tensor was decoded.");
+            } catch (IOException ex) {
+            }
+        }
+        encoded[0] = 0;
+        try {
+            new TensorCodec().decode(encoded);
+            fail("Tensor with a bad magic was decoded.");
+        } catch (IOException ex) {
+        }
+    }
+
+    @Test
+    public void testCodes() {
+        byte[] encoded = new TensorCodec(TensorCodec.Compression.DEFLATE).encode(new FloatTensor(2));
+        assertEquals(2, encoded[5]);
+        assertEquals(1, encoded[6]);
+        encoded = new TensorCodec(TensorCodec.Compression.DELTA).encode(new ShortTensor(2));
+        assertEquals(1, encoded[5]);
+        assertEquals(2, encoded[6]);
+        encoded[5] = 8;
+        try {
+            new TensorCodec().decode(encoded);
+            fail("Tensor with an unknown type was decoded.");
+        } catch (IOException ex) {
+        }
+    }
+
+    @Test
+    public void testInflateLimit() throws IOException {
+        byte[] header = new TensorCodec(TensorCodec.Compression.DEFLATE).encode(new ByteTensor(10));
+        // a chunk of 10 values that inflates to 1 MB
+        Deflater deflater = new Deflater(9, true);
+        deflater.setInput(new byte[1 << 20]);
+        deflater.finish();
+        byte[] deflated = new byte[1 << 16];
+        int length = deflater.deflate(deflated);
+        deflater.end();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(header, 0, 9);
+        out.write(10);
+        out.write(length & 0x7F | 0x80);
+        out.write(length >> 7);
+        out.write(deflated, 0, length);
+        try {
+            new TensorCodec().decode(out.toByteArray());
+            fail("Oversized chunk was decoded.");
+        } catch (IOException ex) {
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    @Test
+    public void testChunkLength() throws IOException {
+        // chunk headers claiming almost 2 GB, followed by a few bytes
+        int huge = Integer.MAX_VALUE - 10;
+        for (TensorCodec.Compression compression : TensorCodec.Compression.values()) {
+            byte[] header = new TensorCodec(compression).encode(new ByteTensor(10));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(header, 0, 9);
+            out.write(10);
+            writeVarint(out, huge);
+            out.write(new byte[16]);
+            try {
+                new TensorCodec().decode(out.toByteArray());
+                fail("Chunk longer than its values was decoded.");
+            } catch (IOException ex) {
+                assertEquals("Corrupt tensor chunk.", ex.getMessage());
+            }
+        }
+        // an object chunk has no bound, it fails at the end of the stream
+        byte[] header = new TensorCodec().encode(new ObjectTensor(2));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(header, 0, 9);
+        out.write(2);
+        writeVarint(out, huge);
+        out.write(new byte[16]);
+        try {
+            new TensorCodec().decode(out.toByteArray());
+            fail("Truncated object chunk was decoded.");
+        } catch (IOException ex) {
+        }
+    }
+
+    @Test
+    public void testObjectFilter() throws IOException {
+        TensorCodec codec = new TensorCodec();
+        ObjectTensor values = new ObjectTensor(4);
+        values.values[0] = "text";
+        values.values[1] = 1.5;
+        values.values[2] = new BigDecimal("12345678901234567890.5");
+        values.values[3] = new int[]{1, 2};
+        ObjectTensor decoded = (ObjectTensor) codec.decode(codec.encode(values));
+        assertEquals("text", decoded.values[0]);
+        assertEquals(1.5, decoded.values[1]);
+        assertEquals(values.values[2], decoded.values[2]);
+        assertArrayEquals(new int[]{1, 2}, (int[]) decoded.values[3]);
+        values.values[3] = new ArrayList<>(List.of(1, 2));
+        try {
+            codec.decode(codec.encode(values));
+            fail("Filtered class was deserialized.");
+        } catch (IOException ex) {
+        }
+    }
+
+    @Test
+    public void testSparse() throws IOException {
+        FloatTensor dense = new FloatTensor(300, 400);
+        Random random = new Random(3);
+        dense.fillWithFloat(() -> random.nextFloat() < 0.6f ? random.nextFloat() - 0.5f : 0);
+        SparseFloatTensor sparse = SparseFloatTensor.of(dense);
+        for (TensorCodec.Compression compression
+                : new TensorCodec.Compression[]{TensorCodec.Compression.NONE, TensorCodec.Compression.DEFLATE}) {
+            TensorCodec codec = new TensorCodec(compression);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            codec.writeTo(sparse, out);
+            codec.writeTo(CsrFloatMatrix.of(dense), out);
+            codec.writeTo(new SparseFloatTensor(5, 5), out);
+            ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+            assertEquals(sparse, codec.readFrom(in));
+            assertEquals(sparse, codec.readFrom(in));
+            assertEquals(new SparseFloatTensor(5, 5), codec.readFrom(in));
+            assertEquals(-1, in.read());
+        }
+        try {
+            new TensorCodec(TensorCodec.Compression.DELTA).encode(sparse);
+            fail("Sparse tensor was delta encoded.");
+        } catch (IllegalArgumentException ex) {
+        }
+        SparseFloatTensor pair = new SparseFloatTensor(10);
+        pair.setFlat(2, 1);
+        pair.setFlat(5, 2);
+        byte[] encoded = new TensorCodec().encode(pair);
+        // the second index is set to the first one
+        encoded[20] = encoded[12];
+        try {
+            new TensorCodec().decode(encoded);
+            fail("Unordered sparse indices were decoded.");
+        } catch (IOException ex) {
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import volgyerdo.commons.math.fast.FastMath;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class TensorExpressionTest {
+
+    public TensorExpressionTest() {
+    }
+
+    @Test
+    public void testMatchesSeparatePasses() {
+        Random random = new Random(5);
+        for (boolean parallel : new boolean[]{false, true}) {
+            FloatTensor t = new FloatTensor(70, 50);
+            t.fillWithFloat(() -> random.nextFloat() * 4 - 2);
+            FloatTensor a = new FloatTensor(70, 50);
+            a.fillWithFloat(() -> random.nextFloat());
+            FloatTensor row = new FloatTensor(50);
+            row.fillWithFloat(() -> random.nextFloat());
+            FloatTensor expected = (FloatTensor) t.copy();
+            expected.multiply(1.5f);
+            expected.add(a);
+            expected.substract(0.25f);
+            expected.hadamardProduct(row);
+            expected.processFloat(FastMath::tanhf);
+            expected.negate();
+            expected.abs();
+            expected.divide(3f);
+            if (parallel) {
+                t.setExecutor(TensorExecutor.parallel(new ForkJoinPool(4), 333));
+            }
+            TensorExpression.of(t).multiply(1.5f).add(a).substract(0.25f).hadamardProduct(row)
+                    .processFloat(FastMath::tanhf).negate().abs().divide(3f).apply();
+            assertArrayEquals(expected.values, t.values, 0f);
+        }
+    }
+
+    @Test
+    public void testBatchOperator() {
+        FloatTensor t = new FloatTensor(3000);
+        t.fillWithFloat(() -> 1f);
+        FloatTensor expected = (FloatTensor) t.copy();
+        expected.add(1f);
+        expected.processFloatBatch(FastMath::exp);
+        TensorExpression.of(t).add(1f).processFloatBatch(FastMath::exp).apply();
+        assertArrayEquals(expected.values, t.values, 0f);
+    }
+
+    @Test
+    public void testByteSourceIntoFloat() {
+        ByteTensor image = new ByteTensor(2, 2);
+        System.arraycopy(new byte[]{-128, 0, 64, 127}, 0, image.values, 0, 4);
+        FloatTensor result = new FloatTensor(2, 2);
+        TensorExpression.of(image).add(128f).divide(255f).applyTo(result);
+        assertArrayEquals(new float[]{0, 128 / 255f, 192 / 255f, 1}, result.values, 0f);
+        assertArrayEquals(new byte[]{-128, 0, 64, 127}, image.values);
+    }
+
+    @Test
+    public void testNarrowingOnlyWhenStored() {
+        ByteTensor b = new ByteTensor(3);
+        System.arraycopy(new byte[]{100, -100, 7}, 0, b.values, 0, 3);
+        TensorExpression.of(b).multiply(4f).divide(8f).apply();
+        assertArrayEquals(new byte[]{50, -50, 3}, b.values);
+        ShortTensor s = new ShortTensor(2);
+        System.arraycopy(new short[]{30000, -30000}, 0, s.values, 0, 2);
+        TensorExpression.of(s).multiply(2f).apply();
+        assertArrayEquals(new short[]{Short.MAX_VALUE, Short.MIN_VALUE}, s.values);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedType() {
+        TensorExpression.of(new IntTensor(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTargetDimensions() {
+        TensorExpression.of(new FloatTensor(3, 2)).applyTo(new FloatTensor(2, 3));
+    }
+}
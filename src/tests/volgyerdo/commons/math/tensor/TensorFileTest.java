@@ -0,0 +1,223 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class TensorFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public TensorFileTest() {
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        Path path = folder.newFile().toPath();
+        ByteTensor bytes = new ByteTensor(7, 3);
+        bytes.randomize((byte) -100, (byte) 100);
+        TensorFile.write(bytes, path);
+        assertEquals(bytes, TensorFile.read(path));
+
+        ShortTensor shorts = new ShortTensor(5, 4, 3);
+        shorts.randomize((short) -1000, (short) 1000);
+        TensorFile.write(shorts, path);
+        assertEquals(shorts, TensorFile.read(path));
+
+        FloatTensor floats = new FloatTensor(300, 1000);
+        floats.randomize(-1f, 1f);
+        TensorFile.write(floats, path);
+        assertEquals(64 + 4L * floats.size(), Files.size(path));
+        FloatTensor read = (FloatTensor) TensorFile.read(path);
+        assertArrayEquals(floats.dimensions, read.dimensions);
+        assertArrayEquals(floats.values, read.values, 0f);
+
+        DoubleTensor doubles = new DoubleTensor(9, 2);
+        doubles.randomize(-1e100, 1e100);
+        TensorFile.write(doubles, path);
+        assertEquals(doubles, TensorFile.read(path));
+
+        IntTensor ints = new IntTensor(4, 4);
+        ints.randomize(Integer.MIN_VALUE / 2, Integer.MAX_VALUE / 2);
+        TensorFile.write(ints, path);
+        assertEquals(ints, TensorFile.read(path));
+
+        LongTensor longs = new LongTensor(3);
+        longs.setLongArray(new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE});
+        TensorFile.write(longs, path);
+        assertEquals(longs, TensorFile.read(path));
+    }
+
+    @Test
+    public void testMap() throws IOException {
+        Path path = folder.newFile().toPath();
+        FloatTensor floats = new FloatTensor(20, 30);
+        floats.randomize(-1f, 1f);
+        TensorFile.write(floats, path);
+
+        try (OffHeapFloatTensor mapped = TensorFile.map(path, FileChannel.MapMode.READ_ONLY)) {
+            assertTrue(mapped.isReadOnly());
+            assertArrayEquals(floats.dimensions, mapped.dimensions);
+            assertArrayEquals(floats.values, mapped.toFloatTensor().values, 0f);
+            try {
+                mapped.setFlat(0, 1f);
+                fail("Read only mapping was writable.");
+            } catch (ReadOnlyBufferException ex) {
+            }
+        }
+
+        try (OffHeapFloatTensor mapped = TensorFile.map(path, FileChannel.MapMode.PRIVATE)) {
+            mapped.fill(5f);
+            assertEquals(5f, mapped.getFloatValue(3, 4), 0f);
+        }
+        assertArrayEquals(floats.values, ((FloatTensor) TensorFile.read(path)).values, 0f);
+
+        try (OffHeapFloatTensor mapped = TensorFile.map(path, FileChannel.MapMode.READ_WRITE)) {
+            mapped.multiply(2f);
+        }
+        floats.multiply(2f);
+        assertArrayEquals(floats.values, ((FloatTensor) TensorFile.read(path)).values, 0f);
+    }
+
+    @Test
+    public void testMapValues() throws IOException {
+        Path path = folder.newFile().toPath();
+        IntTensor ints = new IntTensor(5, 4, 3);
+        ints.fillWithInt(() -> (int) (Math.random() * Integer.MAX_VALUE));
+        TensorFile.write(ints, path);
+        assertArrayEquals(ints.dimensions, TensorFile.dimensions(path));
+        IntBuffer intValues = (IntBuffer) TensorFile.mapValues(path);
+        assertTrue(intValues.isReadOnly());
+        int[] read = new int[intValues.remaining()];
+        intValues.get(read);
+        assertArrayEquals(ints.values, read);
+
+        DoubleTensor doubles = new DoubleTensor(6, 7);
+        doubles.randomize(-1f, 1f);
+        TensorFile.write(doubles, path);
+        DoubleBuffer doubleValues = (DoubleBuffer) TensorFile.mapValues(path);
+        assertEquals(doubles.size(), doubleValues.remaining());
+        assertEquals(doubles.getDoubleValue(5, 6), doubleValues.get(41), 0);
+
+        LongTensor longs = new LongTensor(3);
+        longs.setLongArray(new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE});
+        TensorFile.write(longs, path);
+        assertEquals(Long.MAX_VALUE, ((LongBuffer) TensorFile.mapValues(path)).get(2));
+
+        ShortTensor shorts = new ShortTensor(2, 2);
+        shorts.fill((short) -300);
+        TensorFile.write(shorts, path);
+        ShortBuffer shortValues = (ShortBuffer) TensorFile.mapValues(path);
+        assertEquals(-300, shortValues.get(3));
+        try {
+            shortValues.put(0, (short) 1);
+            fail("Mapped values were writable.");
+        } catch (ReadOnlyBufferException ex) {
+        }
+
+        ByteTensor bytes = new ByteTensor(9);
+        bytes.fill((byte) 7);
+        TensorFile.write(bytes, path);
+        ByteBuffer byteValues = (ByteBuffer) TensorFile.mapValues(path);
+        assertEquals(9, byteValues.remaining());
+        assertEquals(7, byteValues.get(8));
+    }
+
+    @Test
+    public void testWriteOffHeap() throws IOException {
+        Path path = folder.newFile().toPath();
+        FloatTensor floats = new FloatTensor(11, 13, 17);
+        floats.randomize(-1f, 1f);
+        try (OffHeapFloatTensor tensor = OffHeapFloatTensor.of(floats)) {
+            TensorFile.write(tensor, path);
+        }
+        assertArrayEquals(floats.values, ((FloatTensor) TensorFile.read(path)).values, 0f);
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidFile() throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, new byte[100]);
+        TensorFile.read(path);
+    }
+
+    private static ByteBuffer header(int type, int... dimensions) {
+        ByteBuffer header = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt('V' | 'T' << 8 | 'N' << 16 | 'S' << 24).putInt(1).putInt(type).putInt(dimensions.length);
+        for (int dimension : dimensions) {
+            header.putInt(dimension);
+        }
+        return header;
+    }
+
+    @Test
+    public void testTypeCodes() throws IOException {
+        Path path = folder.newFile().toPath();
+        TensorFile.write(new DoubleTensor(3), path);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(4, bytes.getInt(8));
+        Files.write(path, header(3, 1).array());
+        try {
+            TensorFile.read(path);
+            fail("Unknown type code was read.");
+        } catch (IOException ex) {
+        }
+    }
+
+    @Test
+    public void testOverflowingHeader() throws IOException {
+        Path path = folder.newFile().toPath();
+        // 2^240 elements, 0 when multiplied in a long
+        Files.write(path, header(2, 1 << 30, 1 << 30, 1 << 30, 1 << 30, 1 << 30, 1 << 30, 1 << 30, 1 << 30).array());
+        try {
+            TensorFile.read(path);
+            fail("Overflowing header was read.");
+        } catch (IOException ex) {
+            assertEquals("Corrupt tensor file header.", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testSparse() throws IOException {
+        Path path = folder.newFile().toPath();
+        CsrFloatMatrix matrix = new CsrFloatMatrix(4, 3);
+        matrix.setFloatValue(2.5f, 1, 2);
+        matrix.setFloatValue(-1f, 3, 0);
+        TensorFile.write(matrix, path);
+        Tensor tensor = TensorFile.read(path);
+        assertEquals(Tensor.TYPE.FLOAT, tensor.type);
+        assertArrayEquals(matrix.toFloatTensor().values, ((FloatTensor) tensor).values, 0f);
+    }
+}
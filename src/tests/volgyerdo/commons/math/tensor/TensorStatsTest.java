@@ -0,0 +1,125 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class TensorStatsTest {
+
+    public TensorStatsTest() {
+    }
+
+    @Test
+    public void testStats() {
+        FloatTensor t = new FloatTensor(1000, 37);
+        t.randomize(-5f, 20f);
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (float value : t.values) {
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        double mean = sum / t.size();
+        double m2 = 0;
+        for (float value : t.values) {
+            m2 += (value - mean) * (value - mean);
+        }
+        TensorStats stats = t.stats();
+        assertEquals(t.size(), stats.getCount());
+        assertEquals(min, stats.getMin(), 0);
+        assertEquals(max, stats.getMax(), 0);
+        assertEquals(sum, stats.getSum(), 1e-9 * t.size());
+        assertEquals(mean, stats.getMean(), 1e-9);
+        assertEquals(m2 / t.size(), stats.getVariance(), 1e-9);
+        assertEquals(m2 / (t.size() - 1), stats.getSampleVariance(), 1e-9);
+        assertEquals(Math.sqrt(m2 / t.size()), stats.getStandardDeviation(), 1e-9);
+    }
+
+    @Test
+    public void testIntegerStats() {
+        ShortTensor t = new ShortTensor(5);
+        t.setShortArray(new short[]{1, 2, 3, 4, 5});
+        TensorStats stats = t.stats();
+        assertEquals(1, stats.getMin(), 0);
+        assertEquals(5, stats.getMax(), 0);
+        assertEquals(15, stats.getSum(), 0);
+        assertEquals(3, stats.getMean(), 0);
+        assertEquals(2, stats.getVariance(), 0);
+
+        LongTensor longs = new LongTensor(100000);
+        longs.fill(1L << 40);
+        assertEquals(0, longs.stats().getVariance(), 0);
+        assertEquals(1L << 40, longs.stats().getMean(), 0);
+        assertEquals(0, new ByteTensor(300000).stats().getMax(), 0);
+    }
+
+    @Test
+    public void testParallelIsDeterministic() {
+        FloatTensor t = new FloatTensor(3000001);
+        t.randomize(-1e6f, 1e6f);
+        DoubleTensor d = (DoubleTensor) t.convertTo(Tensor.TYPE.DOUBLE);
+        float sequentialSum = t.floatSum();
+        TensorStats sequentialStats = t.stats();
+        double sequentialDoubleSum = d.doubleSum();
+        TensorExecutor parallel = TensorExecutor.parallel(1000);
+        t.setExecutor(parallel);
+        d.setExecutor(parallel);
+        assertEquals(sequentialSum, t.floatSum(), 0f);
+        assertEquals(sequentialDoubleSum, d.doubleSum(), 0);
+        TensorStats parallelStats = t.stats();
+        assertEquals(sequentialStats.getSum(), parallelStats.getSum(), 0);
+        assertEquals(sequentialStats.getVariance(), parallelStats.getVariance(), 0);
+        assertEquals(sequentialStats.getMin(), parallelStats.getMin(), 0);
+        assertEquals(sequentialStats.getMax(), parallelStats.getMax(), 0);
+    }
+
+    @Test
+    public void testPrecision() {
+        FloatTensor t = new FloatTensor(10000000);
+        t.fill(0.1f);
+        assertEquals(1000000.0, t.floatSum(), 0.1);
+        assertEquals(0.1f, t.floatAverage(), 1e-7f);
+
+        DoubleTensor d = new DoubleTensor(3);
+        d.setDoubleArray(new double[]{1e100, 1, -1e100});
+        assertEquals(1, d.doubleSum(), 0);
+    }
+
+    @Test
+    public void testNegativeMax() {
+        FloatTensor t = new FloatTensor(3);
+        t.setFloatArray(new float[]{-3f, -1f, -2f});
+        assertEquals(-1f, t.floatMax(), 0f);
+        assertEquals(-3f, t.floatMin(), 0f);
+    }
+
+    @Test
+    public void testEmpty() {
+        TensorStats stats = new FloatTensor(0).stats();
+        assertEquals(0, stats.getCount());
+        assertTrue(Double.isNaN(stats.getMean()));
+        assertTrue(Double.isNaN(stats.getVariance()));
+        assertEquals(Double.POSITIVE_INFINITY, stats.getMin(), 0);
+        assertEquals(0, stats.getSum(), 0);
+    }
+}
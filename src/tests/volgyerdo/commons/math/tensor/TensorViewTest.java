@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.math.tensor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class TensorViewTest {
+
+    private static final double FLOATING_VALUE_ACCURACY = 0.01;
+
+    public TensorViewTest() {
+    }
+
+    private FloatTensor createTensor() {
+        FloatTensor t = new FloatTensor(4, 5, 6);
+        for (int i = 0; i < t.values.length; i++) {
+            t.values[i] = i;
+        }
+        return t;
+    }
+
+    @Test
+    public void testTranspose() {
+        FloatTensor t = createTensor();
+        Tensor expected = t.transpose();
+        TensorView view = t.view().transpose();
+        assertArrayEquals("Transposed view dimensions", expected.dimensions, view.dimensions);
+        assertEquals("Transposed view", expected, view.toTensor());
+        assertEquals("Transposed view element", t.getFloatValue(1, 2, 3),
+                view.getFloatValue(3, 2, 1), FLOATING_VALUE_ACCURACY);
+    }
+
+    @Test
+    public void testRotate() {
+        FloatTensor t = createTensor();
+        assertEquals("Rotated view", t.rotate(), t.view().rotate().toTensor());
+    }
+
+    @Test
+    public void testSlice() {
+        FloatTensor t = createTensor();
+        TensorView view = t.view().slice(1, 1, 4).slice(2, 2, 5);
+        assertArrayEquals("Sliced view dimensions", new int[]{4, 3, 3}, view.dimensions);
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 3; j++) {
+                for (int k = 0; k < 3; k++) {
+                    assertEquals("Sliced view element", t.getFloatValue(i, j + 1, k + 2),
+                            view.getFloatValue(i, j, k), FLOATING_VALUE_ACCURACY);
+                }
+            }
+        }
+        view.setFloatValue(-1, 0, 0, 0);
+        assertEquals("Write through view", -1, t.getFloatValue(0, 1, 2), FLOATING_VALUE_ACCURACY);
+    }
+
+    @Test
+    public void testSelect() {
+        FloatTensor t = createTensor();
+        TensorView channel = t.view().select(2, 3);
+        assertArrayEquals("Selected view dimensions", new int[]{4, 5}, channel.dimensions);
+        assertEquals("Selected view element", t.getFloatValue(2, 4, 3),
+                channel.getFloatValue(2, 4), FLOATING_VALUE_ACCURACY);
+    }
+
+    @Test
+    public void testReshape() {
+        FloatTensor t = createTensor();
+        TensorView view = t.view().reshape(20, 6);
+        assertEquals("Reshaped view element", t.getFloatValue(3, 4, 5),
+                view.getFloatValue(19, 5), FLOATING_VALUE_ACCURACY);
+        assertTrue("Full view is contiguous", t.view().isContiguous());
+        assertFalse("Transposed view is not contiguous", t.view().transpose().isContiguous());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReshapeNonContiguous() {
+        createTensor().view().transpose().reshape(120);
+    }
+
+    @Test
+    public void testIndexBounds() {
+        TensorView view = createTensor().view().slice(1, 1, 3);
+        int[][] outside = {{0, 2, 0}, {0, -1, 0}, {4, 0, 0}, {0, 0, 6}};
+        for (int[] indices : outside) {
+            try {
+                view.getFloatValue(indices);
+                fail("Index out of the view was accepted.");
+            } catch (IndexOutOfBoundsException ex) {
+            }
+        }
+    }
+}
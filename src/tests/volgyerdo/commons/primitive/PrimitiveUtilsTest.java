@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 Volgyerdo Nonprofit Kft.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package volgyerdo.commons.primitive;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Volgyerdo Nonprofit Kft.
+ */
+public class PrimitiveUtilsTest {
+
+    public PrimitiveUtilsTest() {
+    }
+
+    @Test
+    public void testRandomFullRange() {
+        // max - min overflows in the integer type itself
+        boolean positive = false;
+        boolean negative = false;
+        for (int i = 0; i < 200; i++) {
+            long value = PrimitiveUtils.random(Long.MIN_VALUE, Long.MAX_VALUE);
+            int intValue = PrimitiveUtils.random(Integer.MIN_VALUE, Integer.MAX_VALUE);
+            positive |= value > 0 && intValue > 0;
+            negative |= value < 0 && intValue < 0;
+        }
+        assertTrue(positive);
+        assertTrue(negative);
+        for (int i = 0; i < 200; i++) {
+            long value = PrimitiveUtils.random(-10L, Long.MAX_VALUE);
+            assertTrue(value >= -10);
+        }
+    }
+}